@@ -0,0 +1,90 @@
+package org.aion.harness.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.aion.harness.main.event.CompiledEvent;
+import org.aion.harness.main.event.Event;
+import org.aion.harness.main.event.IEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of checking one log line against a leaf {@link Event} and against chains of
+ * {@code and}/{@code or} events, built the way tests build them, with the given number of leaves.
+ *
+ * Events stay satisfied once observed, so the chains are only ever shown lines that satisfy none
+ * of their leaves, which is also by far the most common case. The compiled chains are the same
+ * chains as the {@link org.aion.harness.util.LogListener} evaluates them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventBenchmark {
+
+    @Param({ "2", "16", "128" })
+    public int leaves;
+
+    private IEvent leaf;
+    private IEvent andChain;
+    private IEvent orChain;
+    private CompiledEvent compiledAndChain;
+    private CompiledEvent compiledOrChain;
+
+    @Setup
+    public void buildEvents() {
+        this.leaf = new Event("never logged");
+
+        IEvent and = new Event("never logged 0");
+        IEvent or = new Event("never logged 0");
+        for (int i = 1; i < this.leaves; i++) {
+            and = and.and(new Event("never logged " + i));
+            or = or.or(new Event("never logged " + i));
+        }
+        this.andChain = and;
+        this.orChain = or;
+        this.compiledAndChain = CompiledEvent.compile(and);
+        this.compiledOrChain = CompiledEvent.compile(or);
+    }
+
+    @Benchmark
+    public boolean leafMiss() {
+        return this.leaf.isSatisfiedBy(SamplePayloads.UNRELATED_LOG_LINE, System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public boolean leafHit() {
+        // A fresh event, since an observed event short-circuits every later line.
+        return new Event("was sealed into block").isSatisfiedBy(SamplePayloads.SEALED_LOG_LINE, System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public boolean andChainMiss() {
+        return this.andChain.isSatisfiedBy(SamplePayloads.UNRELATED_LOG_LINE, System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public boolean orChainMiss() {
+        return this.orChain.isSatisfiedBy(SamplePayloads.UNRELATED_LOG_LINE, System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public boolean compiledAndChainMiss() {
+        return this.compiledAndChain.isSatisfiedBy(SamplePayloads.UNRELATED_LOG_LINE, System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public boolean compiledOrChainMiss() {
+        return this.compiledOrChain.isSatisfiedBy(SamplePayloads.UNRELATED_LOG_LINE, System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+}
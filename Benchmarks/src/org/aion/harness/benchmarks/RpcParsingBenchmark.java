@@ -0,0 +1,50 @@
+package org.aion.harness.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.aion.harness.main.tools.JsonStringParser;
+import org.aion.harness.main.tools.RpcMethod;
+import org.aion.harness.main.tools.RpcPayload;
+import org.aion.harness.main.types.Block;
+import org.aion.harness.main.types.TransactionReceipt;
+import org.aion.harness.main.types.internal.BlockBuilder;
+import org.aion.harness.main.types.internal.TransactionReceiptBuilder;
+import org.apache.commons.codec.DecoderException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The client-side cost of an RPC call, minus the network: building the request payload, and
+ * parsing receipt and block responses the same way {@link org.aion.harness.main.RPC} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RpcParsingBenchmark {
+
+    @Benchmark
+    public String generatePayload() {
+        return RpcPayload.generatePayload(RpcMethod.GET_TRANSACTION_RECEIPT, "\"0x" + SamplePayloads.HASH + "\"");
+    }
+
+    @Benchmark
+    public TransactionReceipt parseReceipt() throws DecoderException {
+        String result = new JsonStringParser(SamplePayloads.RECEIPT_RESPONSE).attributeToString("result");
+        return new TransactionReceiptBuilder().buildFromJsonString(result);
+    }
+
+    @Benchmark
+    public Block parseBlock() throws DecoderException {
+        String result = new JsonStringParser(SamplePayloads.BLOCK_RESPONSE).attributeToString("result");
+        return new BlockBuilder().buildFromJsonString(result);
+    }
+}
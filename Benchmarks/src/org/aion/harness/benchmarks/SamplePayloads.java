@@ -0,0 +1,82 @@
+package org.aion.harness.benchmarks;
+
+import java.util.Collections;
+
+/**
+ * RPC responses and log lines shaped exactly like those the Java kernel produces, so that the
+ * parsing benchmarks can run without a kernel.
+ */
+public final class SamplePayloads {
+    public static final String HASH = hex(32, "3c");
+    public static final String ADDRESS = "a0" + hex(31, "5e");
+    public static final String BLOOM = hex(256, "00");
+
+    /**
+     * The response to an {@code eth_getTransactionReceipt} call for a transaction that emitted one
+     * log with two topics.
+     */
+    public static final String RECEIPT_RESPONSE = "{\"result\":{"
+        + "\"blockHash\":\"0x" + HASH + "\","
+        + "\"nrgPrice\":\"0x2540be400\","
+        + "\"logsBloom\":\"0x" + BLOOM + "\","
+        + "\"nrgUsed\":\"0x5208\","
+        + "\"contractAddress\":null,"
+        + "\"transactionIndex\":\"0x0\","
+        + "\"transactionHash\":\"0x" + HASH + "\","
+        + "\"gasLimit\":\"0x1e8480\","
+        + "\"cumulativeNrgUsed\":\"0x5208\","
+        + "\"gasUsed\":\"0x5208\","
+        + "\"blockNumber\":\"0x1b4\","
+        + "\"root\":\"0x" + HASH + "\","
+        + "\"cumulativeGasUsed\":\"0x5208\","
+        + "\"from\":\"0x" + ADDRESS + "\","
+        + "\"to\":\"0x" + ADDRESS + "\","
+        + "\"logs\":[{\"address\":\"0x" + ADDRESS + "\",\"logIndex\":\"0x0\",\"data\":\"0x" + hex(64, "11") + "\","
+        + "\"topics\":[\"0x" + HASH + "\",\"0x" + HASH + "\"],\"blockNumber\":\"0x1b4\",\"transactionIndex\":\"0x0\"}],"
+        + "\"gasPrice\":\"0x2540be400\","
+        + "\"status\":\"0x1\""
+        + "},\"id\":1,\"jsonrpc\":\"2.0\"}";
+
+    /**
+     * The response to an {@code eth_getBlockByNumber} call for a mined block, without its
+     * transactions.
+     */
+    public static final String BLOCK_RESPONSE = "{\"result\":{"
+        + "\"number\":\"0x1b4\","
+        + "\"hash\":\"0x" + HASH + "\","
+        + "\"parentHash\":\"0x" + HASH + "\","
+        + "\"logsBloom\":\"0x" + BLOOM + "\","
+        + "\"transactionsRoot\":\"0x" + HASH + "\","
+        + "\"stateRoot\":\"0x" + HASH + "\","
+        + "\"receiptsRoot\":\"0x" + HASH + "\","
+        + "\"difficulty\":\"0x10\","
+        + "\"totalDifficulty\":\"0x1b40\","
+        + "\"timestamp\":\"0x5d38a0b2\","
+        + "\"miner\":\"0x" + ADDRESS + "\","
+        + "\"gasUsed\":\"0x5208\","
+        + "\"gasLimit\":\"0xe4e1c0\","
+        + "\"extraData\":\"0x" + hex(32, "00") + "\","
+        + "\"sealType\":\"0x1\","
+        + "\"mainChain\":\"true\","
+        + "\"size\":\"0x5b8\","
+        + "\"nonce\":\"0x" + hex(32, "7f") + "\","
+        + "\"solution\":\"0x" + hex(1408, "a5") + "\","
+        + "\"transactions\":[\"0x" + HASH + "\"]"
+        + "},\"id\":1,\"jsonrpc\":\"2.0\"}";
+
+    /**
+     * A log line that no event is normally waiting for.
+     */
+    public static final String UNRELATED_LOG_LINE = "19-07-24 14:03:09.874 INFO  P2P  [p2p-sync]: <sync-ib hash=4d5e6f number=436 from=c0ffee>";
+
+    /**
+     * A log line reporting that a transaction was sealed into a block.
+     */
+    public static final String SEALED_LOG_LINE = "19-07-24 14:03:09.874 DEBUG TX   [pool]: Transaction: " + HASH + " was sealed into block #436";
+
+    private SamplePayloads() {}
+
+    private static String hex(int bytes, String byteAsHex) {
+        return String.join("", Collections.nCopies(bytes, byteAsHex));
+    }
+}
@@ -0,0 +1,77 @@
+package org.aion.harness.benchmarks;
+
+import java.math.BigInteger;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.TimeUnit;
+import org.aion.harness.kernel.Address;
+import org.aion.harness.kernel.BulkRawTransactionBuilder;
+import org.aion.harness.kernel.BulkRawTransactionBuilder.TransactionType;
+import org.aion.harness.kernel.PrivateKey;
+import org.aion.harness.kernel.SignedTransaction;
+import org.aion.harness.kernel.utils.Blake2b;
+import org.aion.harness.kernel.utils.CryptoUtils;
+import org.aion.harness.result.BulkResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of preparing transactions before they are sent: building and signing them in bulk,
+ * deriving addresses from private keys, and the Blake2b digests underneath both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionBenchmark {
+
+    @Param({ "1", "100" })
+    public int transactions;
+
+    @Param({ "32", "1024" })
+    public int digestInputBytes;
+
+    private PrivateKey sender;
+    private Address destination;
+    private byte[] digestInput;
+
+    @Setup
+    public void createKeys() throws InvalidKeySpecException {
+        this.sender = PrivateKey.random();
+        this.destination = PrivateKey.random().getAddress();
+        this.digestInput = new byte[this.digestInputBytes];
+    }
+
+    @Benchmark
+    public BulkResult<SignedTransaction> buildTransactions() {
+        return new BulkRawTransactionBuilder(this.transactions)
+            .useSameSender(this.sender, BigInteger.ZERO)
+            .useSameDestination(this.destination)
+            .useSameTransferValue(BigInteger.ONE)
+            .useSameTransactionData(new byte[0])
+            .useSameEnergyLimit(2_000_000)
+            .useSameEnergyPrice(10_000_000_000L)
+            .useSameTransactionType(TransactionType.FVM)
+            .build();
+    }
+
+    @Benchmark
+    public byte[] deriveAddress() throws InvalidKeySpecException {
+        return CryptoUtils.deriveAddress(this.sender.getPrivateKeyBytes());
+    }
+
+    @Benchmark
+    public byte[] blake2b256() {
+        return Blake2b.Digest.newInstance(32).digest(this.digestInput);
+    }
+}
@@ -0,0 +1,65 @@
+package org.aion.harness.util;
+
+import java.util.concurrent.TimeUnit;
+import org.aion.harness.benchmarks.SamplePayloads;
+import org.aion.harness.main.event.Event;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of {@link LogListener#handle(String)} for one log line while the given number of event
+ * requests are pending, none of which the line satisfies. This is what every line of a kernel log
+ * costs the harness while a test waits on its events.
+ *
+ * This benchmark lives in the listener's package because starting a listener is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogListenerBenchmark {
+
+    @Param({ "0", "100", "1000", "10000" })
+    public int pendingRequests;
+
+    private LogListener listener;
+
+    @Setup(Level.Trial)
+    public void startListening() {
+        this.listener = new LogListener();
+        this.listener.startListening();
+
+        for (int i = 0; i < this.pendingRequests; i++) {
+            this.listener.submitEventToBeListenedFor(new Event("never logged " + i), 1, TimeUnit.HOURS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopListening() {
+        // Returns the pool permits, which are shared by every listener in the JVM.
+        this.listener.stopListening();
+    }
+
+    @Benchmark
+    public void handleUnrelatedLine() {
+        this.listener.handle(SamplePayloads.UNRELATED_LOG_LINE);
+    }
+
+    @Benchmark
+    public void handleSealedTransactionLine() {
+        this.listener.handle(SamplePayloads.SEALED_LOG_LINE);
+    }
+}
@@ -5,8 +5,13 @@ module aion.node.harness {
     requires gson;
     requires ed25519;
     requires java.net.http;
+    requires jdk.httpserver;
 
     exports org.aion.harness.statistics;
+    exports org.aion.harness.metrics;
+    exports org.aion.harness.mock;
+    exports org.aion.harness.replay;
+    exports org.aion.harness.trace;
     exports org.aion.harness.result;
     exports org.aion.harness.kernel;
     exports org.aion.harness.main;
@@ -6,6 +6,8 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import org.aion.harness.main.RPC;
+import org.aion.harness.main.global.SingletonFactory;
+import org.aion.harness.metrics.Counter;
 import org.aion.harness.main.types.BlockTemplate;
 import org.aion.harness.main.types.MinedBlockSolution;
 import org.aion.harness.util.SimpleLog;
@@ -38,6 +40,9 @@ public class EquihashMiner {
     /** Miner threads */
     private final List<Thread> threads = new ArrayList<>();
 
+    private final Counter attempts = SingletonFactory.singleton().metricsRegistry().counter("harness_miner_attempts_total", "The number of nonces the miner has tried.");
+    private final Counter solutions = SingletonFactory.singleton().metricsRegistry().counter("harness_miner_solutions_total", "The number of solutions the miner has submitted.");
+
     public EquihashMiner(String ip, String port) {
         rpc = RPC.newRpc(ip, port);
     }
@@ -113,8 +118,10 @@ public class EquihashMiner {
                 ThreadLocalRandom.current().nextBytes(nonce);
 
                 MinedBlockSolution solution = miner.mine(block, nonce);
+                attempts.increment();
 
                 if (solution != null) {
+                    solutions.increment();
                     try {
                         rpc.submitSolution(solution);
                     }
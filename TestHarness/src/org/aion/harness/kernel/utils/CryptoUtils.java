@@ -41,6 +41,21 @@ public class CryptoUtils {
         return computeA0Address(publicKeyBytes);
     }
 
+    /**
+     * Derive the corresponding aion address, given the public key bytes.
+     */
+    public static byte[] deriveAddressFromPublicKey(byte[] publicKeyBytes) {
+        if (publicKeyBytes == null) {
+            throw new NullPointerException("public key cannot be null");
+        }
+
+        if (publicKeyBytes.length != 32){
+            throw new IllegalArgumentException("public key must be 32 bytes");
+        }
+
+        return computeA0Address(publicKeyBytes);
+    }
+
     /**
      * Add encoding prefix for importing public key
      */
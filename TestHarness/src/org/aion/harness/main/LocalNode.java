@@ -1,5 +1,6 @@
 package org.aion.harness.main;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 import org.aion.harness.result.Result;
@@ -84,4 +85,29 @@ public interface LocalNode {
      */
     public Result resetState() throws IOException;
 
+    /**
+     * Captures the node's current database as a snapshot in the specified directory, replacing any
+     * snapshot already there. The snapshot can later be restored using {@code restoreState()}.
+     *
+     * This method is only safe to call if {@code isAlive() == false}.
+     *
+     * @param snapshotDirectory the directory to hold the snapshot.
+     * @return a result indicating the success of failure of this method.
+     * @throws IllegalStateException if the node has not been configured yet.
+     */
+    public Result snapshotState(File snapshotDirectory) throws IOException;
+
+    /**
+     * Replaces the node's database with the snapshot in the specified directory, which must have
+     * been captured by {@code snapshotState()}.
+     *
+     * This is much faster than resetting the node's state and re-creating the snapshotted state
+     * from scratch. This method is only safe to call if {@code isAlive() == false}.
+     *
+     * @param snapshotDirectory the directory holding the snapshot.
+     * @return a result indicating the success of failure of this method.
+     * @throws IllegalStateException if the node has not been configured yet.
+     */
+    public Result restoreState(File snapshotDirectory) throws IOException;
+
 }
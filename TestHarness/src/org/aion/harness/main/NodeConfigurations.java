@@ -20,6 +20,7 @@ public final class NodeConfigurations {
     private final DatabaseOption databaseNodeOption;
     private final BuildOption buildOption;
     private final String buildDirectory;
+    private final String logsDirectory;
 
     private enum BuildOption { ALWAYS_FROM_SOURCE, USE_BUILD }
 
@@ -28,7 +29,7 @@ public final class NodeConfigurations {
     /**
      * Constructs an instance of this class using the specified parameters.
      */
-    private NodeConfigurations(Network network, String kernelSourceDirectory, String builtKernelDirectory, DatabaseOption databaseOption, BuildOption buildOption) {
+    private NodeConfigurations(Network network, String kernelSourceDirectory, String builtKernelDirectory, DatabaseOption databaseOption, BuildOption buildOption, String logsDirectory) {
         if (network == null) {
             throw new NullPointerException("Cannot construct NodeConfigurations with null network.");
         }
@@ -44,6 +45,7 @@ public final class NodeConfigurations {
         this.builtKernelDir = builtKernelDirectory;
         this.databaseNodeOption = databaseOption;
         this.buildOption = buildOption;
+        this.logsDirectory = logsDirectory;
 
         this.buildDirectory = (kernelSourceDirectory == null) ? builtKernelDirectory : NodeFileManager.getSandboxPath();
     }
@@ -53,7 +55,7 @@ public final class NodeConfigurations {
             throw new NullPointerException("Cannot construct NodeConfigurations with null kernelSourceDirectory.");
         }
 
-        return new NodeConfigurations(network, kernelSourceDirectory, null, DatabaseOption.DO_NOT_PRESERVE_DATABASE, BuildOption.ALWAYS_FROM_SOURCE);
+        return new NodeConfigurations(network, kernelSourceDirectory, null, DatabaseOption.DO_NOT_PRESERVE_DATABASE, BuildOption.ALWAYS_FROM_SOURCE, null);
     }
 
     public static NodeConfigurations alwaysUseBuiltKernel(Network network, String builtKernelDirectory, DatabaseOption databaseOption) {
@@ -61,7 +63,23 @@ public final class NodeConfigurations {
             throw new NullPointerException("Cannot construct NodeConfigurations with null builtKernelDirectory.");
         }
 
-        return new NodeConfigurations(network, null, builtKernelDirectory, databaseOption, BuildOption.USE_BUILD);
+        return new NodeConfigurations(network, null, builtKernelDirectory, databaseOption, BuildOption.USE_BUILD, null);
+    }
+
+    /**
+     * Same as {@code alwaysUseBuiltKernel()} except that the node writes its logs to the specified
+     * logs directory rather than the shared default one. This is required when more than one node is
+     * running at the same time, so that they do not archive each other's active logs.
+     */
+    public static NodeConfigurations alwaysUseBuiltKernel(Network network, String builtKernelDirectory, DatabaseOption databaseOption, String logsDirectory) {
+        if (builtKernelDirectory == null) {
+            throw new NullPointerException("Cannot construct NodeConfigurations with null builtKernelDirectory.");
+        }
+        if (logsDirectory == null) {
+            throw new NullPointerException("Cannot construct NodeConfigurations with null logsDirectory.");
+        }
+
+        return new NodeConfigurations(network, null, builtKernelDirectory, databaseOption, BuildOption.USE_BUILD, logsDirectory);
     }
 
     /**
@@ -144,4 +162,13 @@ public final class NodeConfigurations {
         return new File(this.buildDirectory);
     }
 
+    /**
+     * Returns the directory the node writes its logs to.
+     *
+     * @return the logs directory.
+     */
+    public File getLogsDirectory() {
+        return (this.logsDirectory == null) ? NodeFileManager.getLogsDirectory() : new File(this.logsDirectory);
+    }
+
 }
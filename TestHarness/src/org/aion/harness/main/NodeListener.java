@@ -1,6 +1,5 @@
 package org.aion.harness.main;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.aion.harness.main.event.IEvent;
@@ -41,19 +40,59 @@ public final class NodeListener {
      * All events being listened for will have the exact same timeout values, which are the
      * values specified in the input parameters.
      *
+     * The events are all registered together, which is much cheaper than listening for each of
+     * them in turn, so that thousands of events can be registered right before a bulk send. At
+     * most 32,768 events can be listened for at once, and while they wait for room among the events
+     * already being listened for, any events listened for after them wait as well.
+     *
      * @param events The events.
      * @param timeout The duration after which the events expire.
      * @param unit The time unit of the duration.
      * @return the results of the these events.
+     * @throws IllegalArgumentException if there are more than 32,768 events.
      */
     public List<FutureResult<LogEventResult>> listenForEvents(List<IEvent> events, long timeout, TimeUnit unit) {
-        List<FutureResult<LogEventResult>> futures = new ArrayList<>();
-
-        for (IEvent event : events) {
-            futures.add(listenForEvent(event, timeout, unit));
+        if (events == null) {
+            throw new NullPointerException("Cannot wait for a null list of events.");
+        }
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout value was negative: " + timeout);
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("Cannot specify a null time unit.");
         }
 
-        return futures;
+        return this.logListener.submitEventsToBeListenedFor(events, timeout, unit);
+    }
+
+    /**
+     * Listens for the specified events, as {@link #listenForEvents(List, long, TimeUnit)} does, and
+     * returns a single future that finishes once every one of the events has been resolved, with
+     * their results in the same order as the events.
+     *
+     * @param events The events.
+     * @param timeout The duration after which the events expire.
+     * @param unit The time unit of the duration.
+     * @return the results of these events, once they are all resolved.
+     */
+    public FutureResult<List<LogEventResult>> listenForAllEvents(List<IEvent> events, long timeout, TimeUnit unit) {
+        return FutureResult.allOf(listenForEvents(events, timeout, unit));
+    }
+
+    /**
+     * Listens for the specified events, as {@link #listenForEvents(List, long, TimeUnit)} does, and
+     * returns a single future that finishes as soon as any one of the events has been resolved,
+     * with its result.
+     *
+     * The other events are still listened for until they are resolved.
+     *
+     * @param events The events, of which there must be at least one.
+     * @param timeout The duration after which the events expire.
+     * @param unit The time unit of the duration.
+     * @return the result of the first of these events to be resolved.
+     */
+    public FutureResult<LogEventResult> listenForAnyEvent(List<IEvent> events, long timeout, TimeUnit unit) {
+        return FutureResult.anyOf(listenForEvents(events, timeout, unit));
     }
 
     /**
@@ -81,6 +120,21 @@ public final class NodeListener {
         return this.logListener.submitEventToBeListenedFor(event, timeout, unit);
     }
 
+    /**
+     * Stops listening for the event whose result is the specified future, if it is still being
+     * listened for. Its result is then rejected.
+     *
+     * @param result The result of the event to stop listening for.
+     * @return whether or not the event was still being listened for.
+     */
+    public boolean stopListeningFor(FutureResult<LogEventResult> result) {
+        if (result == null) {
+            throw new NullPointerException("Cannot stop listening for the event of a null result.");
+        }
+
+        return this.logListener.cancelEventRequest(result);
+    }
+
     /**
      * Returns the number of events that are currently being listened for. These events may have
      * been requested by separate {@link NodeListener} objects. But these are the total number
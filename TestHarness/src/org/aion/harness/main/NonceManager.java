@@ -0,0 +1,234 @@
+package org.aion.harness.main;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.harness.kernel.Address;
+import org.aion.harness.result.RpcResult;
+
+/**
+ * A local nonce allocator that lets many threads sign and send transactions from the same sender
+ * concurrently without asking the kernel for the nonce before every transaction.
+ *
+ * The nonce of a sender is fetched from the kernel only once, the first time a nonce is
+ * requested for that sender. After that, nonces are handed out locally and lock-free.
+ *
+ * If a transaction is rejected by the kernel then its nonce is never consumed, and every nonce
+ * handed out after it is stuck behind the gap. The owner of the rejected transaction should report
+ * it using {@code reportRejectedNonce()}. The next allocation for that sender will then resync
+ * with the kernel, and the rejected nonce is handed out again, ahead of any new nonce, so that the
+ * gap is filled.
+ *
+ * A resync asks the kernel for the sender's pending nonce, which counts the transactions still in
+ * its pool, and never moves the next nonce backwards: nonces already handed out may belong to
+ * transactions that are still in flight, and are not handed out again unless they are reported
+ * as rejected. Rejected nonces that the kernel has since sealed are dropped.
+ *
+ * This class is thread-safe.
+ */
+public final class NonceManager {
+    private final RPC rpc;
+    private final ConcurrentMap<Address, SenderNonce> senderToNonce = new ConcurrentHashMap<>();
+
+    public NonceManager(RPC rpc) {
+        if (rpc == null) {
+            throw new NullPointerException("Cannot construct a nonce manager with a null rpc.");
+        }
+        this.rpc = rpc;
+    }
+
+    /**
+     * Returns the next nonce to use for a transaction sent by the specified sender.
+     *
+     * The first call for any sender (and the first call after a gap is reported) fetches the
+     * sender's nonce from the kernel. All other calls are non-blocking. A reported rejected nonce
+     * is returned again before any new nonce is.
+     *
+     * @param sender The sender of the transaction.
+     * @return the nonce to use.
+     */
+    public BigInteger nextNonce(Address sender) throws InterruptedException {
+        return nextNonces(sender, 1).get(0);
+    }
+
+    /**
+     * Returns the next count nonces to use for transactions sent by the specified sender, in
+     * ascending order. Any reported rejected nonces are returned first, so the nonces need not be
+     * contiguous.
+     *
+     * This is intended for bulk transaction builders that take a nonce per transaction.
+     *
+     * @param sender The sender of the transactions.
+     * @param count The number of nonces to return.
+     * @return the nonces to use.
+     */
+    public List<BigInteger> nextNonces(Address sender, int count) throws InterruptedException {
+        SenderNonce senderNonce = syncedSenderNonce(sender, count);
+
+        List<BigInteger> nonces = new ArrayList<>(count);
+        while (nonces.size() < count) {
+            Long rejectedNonce = senderNonce.rejectedNonces.pollFirst();
+            if (rejectedNonce == null) {
+                break;
+            }
+            nonces.add(BigInteger.valueOf(rejectedNonce));
+        }
+
+        int remaining = count - nonces.size();
+        if (remaining > 0) {
+            long first = senderNonce.next.getAndAdd(remaining);
+            for (int i = 0; i < remaining; i++) {
+                nonces.add(BigInteger.valueOf(first + i));
+            }
+        }
+        return nonces;
+    }
+
+    /**
+     * Reserves a contiguous block of count nonces for the specified sender and returns the first
+     * nonce in the block. The caller owns the nonces {@code [first, first + count)}.
+     *
+     * This is intended for bulk transaction builders that take an initial nonce. Since the block
+     * must be contiguous, a reserved block never reuses a reported rejected nonce; prefer
+     * {@code nextNonces()} where the builder allows it.
+     *
+     * @param sender The sender of the transactions.
+     * @param count The number of nonces to reserve.
+     * @return the first reserved nonce.
+     */
+    public BigInteger reserveNonces(Address sender, int count) throws InterruptedException {
+        SenderNonce senderNonce = syncedSenderNonce(sender, count);
+        return BigInteger.valueOf(senderNonce.next.getAndAdd(count));
+    }
+
+    private SenderNonce syncedSenderNonce(Address sender, int count) throws InterruptedException {
+        if (sender == null) {
+            throw new NullPointerException("Cannot reserve nonces for a null sender.");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Cannot reserve a non-positive number of nonces: " + count);
+        }
+
+        SenderNonce senderNonce = this.senderToNonce.computeIfAbsent(sender, (address) -> new SenderNonce());
+        if (!senderNonce.synced || senderNonce.needsResync) {
+            resync(sender, senderNonce, false);
+        }
+        return senderNonce;
+    }
+
+    /**
+     * Reports that the transaction sent by the specified sender with the specified nonce was
+     * rejected. This opens a gap in the sender's nonces, which causes the next allocation for that
+     * sender to resync with the kernel and then to hand the rejected nonce out again.
+     *
+     * @param sender The sender of the rejected transaction.
+     * @param nonce The nonce of the rejected transaction.
+     */
+    public void reportRejectedNonce(Address sender, BigInteger nonce) {
+        if (sender == null) {
+            throw new NullPointerException("Cannot report a rejected nonce for a null sender.");
+        }
+        if (nonce == null) {
+            throw new NullPointerException("Cannot report a null rejected nonce.");
+        }
+
+        SenderNonce senderNonce = this.senderToNonce.get(sender);
+        long rejectedNonce = nonce.longValueExact();
+
+        // A nonce that was never handed out cannot leave a gap.
+        if ((senderNonce != null) && (rejectedNonce < senderNonce.next.get())) {
+            senderNonce.rejectedNonces.add(rejectedNonce);
+            senderNonce.needsResync = true;
+        }
+    }
+
+    /**
+     * Returns {@code true} only if a rejected nonce has been reported for this sender that has not
+     * yet been handed out again or found to be used.
+     *
+     * @param sender The sender.
+     * @return whether or not the sender currently has a nonce gap.
+     */
+    public boolean hasGap(Address sender) {
+        SenderNonce senderNonce = this.senderToNonce.get(sender);
+        return (senderNonce != null) && !senderNonce.rejectedNonces.isEmpty();
+    }
+
+    /**
+     * Fetches the pending nonce of the specified sender and makes it the next nonce to be handed
+     * out, unless a later nonce has already been handed out, and drops any reported rejected nonce
+     * the kernel has since sealed.
+     *
+     * @param sender The sender.
+     * @return the next nonce that will be handed out.
+     */
+    public BigInteger resync(Address sender) throws InterruptedException {
+        if (sender == null) {
+            throw new NullPointerException("Cannot resync the nonce of a null sender.");
+        }
+
+        SenderNonce senderNonce = this.senderToNonce.computeIfAbsent(sender, (address) -> new SenderNonce());
+        resync(sender, senderNonce, true);
+        return BigInteger.valueOf(senderNonce.next.get());
+    }
+
+    /**
+     * Forgets everything known about the specified sender. The next allocation will fetch its
+     * nonce from the kernel again.
+     *
+     * @param sender The sender.
+     */
+    public void forget(Address sender) {
+        this.senderToNonce.remove(sender);
+    }
+
+    private void resync(Address sender, SenderNonce senderNonce, boolean force) throws InterruptedException {
+        synchronized (senderNonce) {
+            // Another thread may have already resynced while we waited for the monitor.
+            if (!force && senderNonce.synced && !senderNonce.needsResync) {
+                return;
+            }
+
+            // Cleared before the call, so that a gap reported while it is in flight is not lost.
+            senderNonce.needsResync = false;
+
+            // Nonces handed out by other threads meanwhile may be in flight, so never move backwards.
+            long pendingNonce = fetchNonce(sender, senderNonce, true);
+            senderNonce.next.accumulateAndGet(pendingNonce, Math::max);
+
+            // Until now every allocator waits on the monitor, since nothing has been fetched yet.
+            senderNonce.synced = true;
+
+            // The pending nonce may count pooled transactions queued behind a gap, so only a sealed
+            // nonce proves that a rejected nonce has since been used.
+            if (!senderNonce.rejectedNonces.isEmpty()) {
+                long sealedNonce = fetchNonce(sender, senderNonce, false);
+                senderNonce.rejectedNonces.headSet(sealedNonce).clear();
+            }
+        }
+    }
+
+    private long fetchNonce(Address sender, SenderNonce senderNonce, boolean pending) throws InterruptedException {
+        RpcResult<BigInteger> nonceResult = (pending) ? this.rpc.getPendingNonce(sender) : this.rpc.getNonce(sender);
+        if (!nonceResult.isSuccess()) {
+            senderNonce.needsResync = true;
+            throw new IllegalStateException("Unable to get the nonce of " + sender + ": " + nonceResult.getError());
+        }
+        return nonceResult.getResult().longValueExact();
+    }
+
+    /**
+     * The nonce state of a single sender.
+     */
+    private static final class SenderNonce {
+        private final AtomicLong next = new AtomicLong(0);
+        private final ConcurrentSkipListSet<Long> rejectedNonces = new ConcurrentSkipListSet<>();
+        // Whether the nonce has ever been fetched from the kernel, as opposed to whether a gap needs filling.
+        private volatile boolean synced = false;
+        private volatile boolean needsResync = true;
+    }
+}
@@ -14,6 +14,7 @@ import org.aion.harness.kernel.Address;
 import org.aion.harness.kernel.SignedTransaction;
 import org.aion.harness.kernel.Transaction;
 import org.aion.harness.kernel.UnsignedTransaction;
+import org.aion.harness.main.global.SingletonFactory;
 import org.aion.harness.main.tools.InternalRpcResult;
 import org.aion.harness.main.tools.RpcCaller;
 import org.aion.harness.main.tools.RpcMethod;
@@ -29,9 +30,11 @@ import org.aion.harness.main.types.internal.BlockBuilder;
 import org.aion.harness.main.types.internal.TransactionLogBuilder;
 import org.aion.harness.main.types.internal.TransactionReceiptBuilder;
 import org.aion.harness.main.types.BlockTemplate;
+import org.aion.harness.metrics.Counter;
 import org.aion.harness.misc.Assumptions;
 import org.aion.harness.result.Result;
 import org.aion.harness.result.RpcResult;
+import org.aion.harness.trace.TransactionTracer;
 import org.aion.harness.util.SimpleLog;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
@@ -45,23 +48,69 @@ import org.apache.commons.codec.binary.Hex;
  * This class is not thread-safe.
  */
 public final class RPC {
+    // Overrides the rpcPort system property for default rpc's used by a thread and any thread it starts.
+    private static final InheritableThreadLocal<String> DEFAULT_PORT = new InheritableThreadLocal<>();
+    private static final String TRANSACTIONS_SENT_METRIC = "harness_transactions_sent_total";
+
     private final SimpleLog logger;
+    private final String ip;
+
+    // Null only for a default rpc, whose port is resolved every call.
     private final RpcCaller rpc;
+    private final Counter transactionsSent;
+
+    // Null unless transactions are being traced.
+    private final TransactionTracer transactionTracer;
 
     private RPC(String ip, String port, SimpleLog logger) {
         this.logger = logger;
-        this.rpc = new RpcCaller(ip, port);
+        this.ip = ip;
+        this.rpc = (port == null) ? null : SingletonFactory.singleton().rpcCallerRegistry().callerFor(ip, port);
+        this.transactionsSent = SingletonFactory.singleton().metricsRegistry().counter(TRANSACTIONS_SENT_METRIC, "The number of transactions accepted by the node's rpc server.");
+        this.transactionTracer = SingletonFactory.singleton().transactionTracer();
     }
 
+    /**
+     * Returns an rpc that talks to the local node whose port is given by the {@code rpcPort} system
+     * property, unless the calling thread has overridden that port using
+     * {@code useDefaultPortForCurrentThread()}.
+     *
+     * The port is resolved on every call, not when the rpc is created, so that a single default rpc
+     * (for instance, one held in a static field of a test class) talks to whichever node the calling
+     * thread is testing against.
+     */
     public static RPC newDefaultRpc() {
-        return newRpc("127.0.0.1", System.getProperty("rpcPort"));
+        return new RPC("127.0.0.1", null, null);
+    }
+
+    /**
+     * Makes every default rpc used by the calling thread, and by any thread it subsequently starts,
+     * talk to the specified port rather than the one given by the {@code rpcPort} system property.
+     *
+     * This allows multiple local nodes to be tested at the same time. Passing null removes the
+     * override.
+     *
+     * @param port The port of the node's RPC server.
+     */
+    public static void useDefaultPortForCurrentThread(String port) {
+        if (port == null) {
+            DEFAULT_PORT.remove();
+        } else {
+            DEFAULT_PORT.set(port);
+        }
     }
 
     public static RPC newRpc(String ip, String port) {
+        if (port == null) {
+            throw new NullPointerException("Port cannot be null");
+        }
         return new RPC(ip, port, null);
     }
 
     public static RPC newVerboseRpc(String ip, String port) {
+        if (port == null) {
+            throw new NullPointerException("Port cannot be null");
+        }
         return new RPC(ip, port, new SimpleLog(RPC.class.getName()));
     }
 
@@ -77,7 +126,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.CALL, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult response = rpc.call(payload, false);
+        InternalRpcResult response = caller().call(payload, false);
         logMessage("<--" + response.output);
 
 
@@ -97,7 +146,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.BLOCK_NUMBER, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = rpc.call(payload, false);
+        InternalRpcResult internalResult = caller().call(payload, false);
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -550,7 +599,18 @@ public final class RPC {
      * @return the result of the call.
      */
     public RpcResult<BigInteger> getNonce(Address address) throws InterruptedException {
-        return callGetNonce(address, false);
+        return callGetNonce(address, "latest", false);
+    }
+
+    /**
+     * Returns the nonce of the specified address, counting the transactions from it that are still
+     * pending in the kernel's transaction pool as well as those already sealed.
+     *
+     * @param address The address whose nonce is to be queried.
+     * @return the result of the call.
+     */
+    public RpcResult<BigInteger> getPendingNonce(Address address) throws InterruptedException {
+        return callGetNonce(address, "pending", false);
     }
 
     /**
@@ -562,7 +622,7 @@ public final class RPC {
      * @return the result of the call.
      */
     public RpcResult<BigInteger> getNonceVerbose(Address address) throws InterruptedException {
-        return callGetNonce(address, true);
+        return callGetNonce(address, "latest", true);
     }
 
     /**
@@ -610,7 +670,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.GET_TRANSACTION_BY_HASH, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = rpc.call(payload, false);
+        InternalRpcResult internalResult = caller().call(payload, false);
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -634,7 +694,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.GET_BLOCK_TEMPLATE, "");
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = rpc.call(payload, false);
+        InternalRpcResult internalResult = caller().call(payload, false);
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -658,7 +718,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.SUBMIT_BLOCK, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = rpc.call(payload, false);
+        InternalRpcResult internalResult = caller().call(payload, false);
         logMessage("<--" + internalResult.output);
     }
 
@@ -761,7 +821,7 @@ public final class RPC {
         payload += "}],\"id\":1}";
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = this.rpc.call(payload, verbose);
+        InternalRpcResult internalResult = caller().call(payload, verbose);
         logMessage("<--" + internalResult.output);
 
         // We want to go through these, filtering based on address.
@@ -817,7 +877,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.GET_BLOCK_BY_NUMBER, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = this.rpc.call(payload, verbose);
+        InternalRpcResult internalResult = caller().call(payload, verbose);
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -830,6 +890,9 @@ public final class RPC {
 
             try {
                 Block block = new BlockBuilder().buildFromJsonString(result);
+                if (this.transactionTracer != null) {
+                    this.transactionTracer.recordBlock(block.number.longValue(), block.timestamp);
+                }
                 return RpcResult.successful(
                     block,
                     internalResult.getTimeOfCall(TimeUnit.NANOSECONDS),
@@ -856,7 +919,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.UNLOCK_ACCOUNT, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = this.rpc.call(payload, verbose);
+        InternalRpcResult internalResult = caller().call(payload, verbose);
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -893,7 +956,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.SEND_TRANSACTION, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = this.rpc.call(payload, verbose);
+        InternalRpcResult internalResult = caller().call(payload, verbose);
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -904,6 +967,8 @@ public final class RPC {
                 return RpcResult.unsuccessful("No receipt hash was returned, transaction was likely rejected.");
             }
 
+            this.transactionsSent.increment();
+
             try {
                 return RpcResult.successful(
                     new ReceiptHash(Hex.decodeHex(result)),
@@ -928,7 +993,8 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.SEND_RAW_TRANSACTION, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = this.rpc.call(payload, verbose);
+        InternalRpcResult internalResult = caller().call(payload, verbose);
+        long timeOfReturnInNanos = System.nanoTime();
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -938,7 +1004,12 @@ public final class RPC {
             if (result == null) {
                 return RpcResult.unsuccessful("No receipt hash was returned, transaction was likely rejected.");
             }
-            
+
+            this.transactionsSent.increment();
+            if (this.transactionTracer != null) {
+                this.transactionTracer.recordSubmit(transaction.getTransactionHash(), internalResult.getTimeOfCall(TimeUnit.NANOSECONDS), timeOfReturnInNanos);
+            }
+
             try {
                 return RpcResult.successful(
                     new ReceiptHash(Hex.decodeHex(result)),
@@ -963,7 +1034,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.GET_BALANCE, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = this.rpc.call(payload, verbose);
+        InternalRpcResult internalResult = caller().call(payload, verbose);
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -985,17 +1056,17 @@ public final class RPC {
         }
     }
 
-    private RpcResult<BigInteger> callGetNonce(Address address, boolean verbose) throws InterruptedException {
+    private RpcResult<BigInteger> callGetNonce(Address address, String block, boolean verbose) throws InterruptedException {
         if (address == null) {
             throw new IllegalArgumentException("Cannot get nonce of a null address.");
         }
 
         // Construct the payload to the rpc call (ie. the content of --data).
-        String params = "\"0x" + Hex.encodeHexString(address.getAddressBytes()) + "\", \"latest\"";
+        String params = "\"0x" + Hex.encodeHexString(address.getAddressBytes()) + "\", \"" + block + "\"";
         String payload = RpcPayload.generatePayload(RpcMethod.GET_NONCE, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = this.rpc.call(payload, verbose);
+        InternalRpcResult internalResult = caller().call(payload, verbose);
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -1027,7 +1098,8 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.GET_TRANSACTION_RECEIPT, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = this.rpc.call(payload, verbose);
+        InternalRpcResult internalResult = caller().call(payload, verbose);
+        long timeOfReturnInNanos = System.nanoTime();
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -1040,6 +1112,9 @@ public final class RPC {
 
             try {
                 TransactionReceipt receipt = new TransactionReceiptBuilder().buildFromJsonString(result);
+                if (this.transactionTracer != null) {
+                    this.transactionTracer.recordReceipt(receipt.getTransactionHash(), receipt.getBlockNumber().longValue(), timeOfReturnInNanos);
+                }
                 return RpcResult.successful(
                     receipt,
                     internalResult.getTimeOfCall(TimeUnit.NANOSECONDS),
@@ -1060,7 +1135,7 @@ public final class RPC {
         String payload = RpcPayload.generatePayload(RpcMethod.IS_SYNCED, params);
 
         logMessage("-->" + payload);
-        InternalRpcResult internalResult = this.rpc.call(payload, verbose);
+        InternalRpcResult internalResult = caller().call(payload, verbose);
         logMessage("<--" + internalResult.output);
 
         if (internalResult.success) {
@@ -1118,4 +1193,16 @@ public final class RPC {
             this.logger.log(message);
         }
     }
+
+    private RpcCaller caller() {
+        if (this.rpc != null) {
+            return this.rpc;
+        }
+
+        String port = DEFAULT_PORT.get();
+        if (port == null) {
+            port = System.getProperty("rpcPort");
+        }
+        return SingletonFactory.singleton().rpcCallerRegistry().callerFor(this.ip, port);
+    }
 }
@@ -29,6 +29,20 @@ public final class AndEvent implements IEvent {
         this.event2 = event2;
     }
 
+    /**
+     * Returns the first of the two underlying events.
+     */
+    IEvent first() {
+        return this.event1;
+    }
+
+    /**
+     * Returns the second of the two underlying events.
+     */
+    IEvent second() {
+        return this.event2;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,411 @@
+package org.aion.harness.main.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link IEvent} flattened into the form the {@link org.aion.harness.util.LogListener} evaluates
+ * it in, so that the cost of a log line depends on the leaves still waiting to be observed rather
+ * than on how deeply the {@link AndEvent}s and {@link OrEvent}s were chained.
+ *
+ * Compiling an event does the following:
+ *
+ *   1. Chains of the same operator are merged into a single n-ary node, so that the chain of 500
+ *      {@code and}s built to wait for 500 transactions becomes one node with 500 children.
+ *   2. Leaves are de-duplicated: every distinct {@link Event} string is searched for once per line,
+ *      however many times it appears in the event. Any other kind of leaf is evaluated as is, but
+ *      only on lines containing the literal text it requires, if it has any, such as the literal
+ *      part of a {@link RegexEvent}'s pattern.
+ *   3. The leaves still waiting to be observed are kept in a bitset. A leaf leaves the bitset once
+ *      it is observed, or once every node it belongs to no longer needs it (an {@code or} that was
+ *      already satisfied some other way).
+ *
+ * When a line satisfies a leaf or a node, the original event objects that make it up are told about
+ * the line, so that the original event reports exactly what it would have reported had it been
+ * evaluated itself. The only difference is that an {@code and} merged into a larger node records
+ * the time the larger node was satisfied as its time of observation.
+ *
+ * An event that was already partially observed when it was compiled is evaluated as is, without
+ * being flattened.
+ *
+ * This class is not thread-safe: a compiled event is only ever evaluated by the single thread
+ * reading the log.
+ */
+public final class CompiledEvent {
+    private static final int ROOT = 0;
+
+    private final IEvent event;
+
+    // The distinct leaves, and the leaves still waiting to be observed.
+    private final String[] leafStrings;
+    private final String[] leafLiterals;
+    private final IEvent[] leafEvents;
+    private final int[][] leafOccurrences;
+    private final int[] leafLiveOccurrences;
+    private final BitSet liveLeaves;
+    private final int[] matchedLeaves;
+
+    // Every place a leaf appears in the event, in the order the leaves appear.
+    private final IEvent[] occurrenceEvents;
+    private final int[] occurrenceLeaf;
+    private final int[] occurrenceParent;
+    private final boolean[] occurrenceResolved;
+
+    // The n-ary nodes, with the root node holding the event itself as its only child.
+    private final boolean[] nodeIsAnd;
+    private final IEvent[] nodeOriginal;
+    private final int[] nodeParent;
+    private final int[] nodeArity;
+    private final int[] nodeSatisfiedChildren;
+    private final boolean[] nodeResolved;
+    private final int[][] nodeChildNodes;
+    private final int[][] nodeChildOccurrences;
+
+    private CompiledEvent(IEvent event, Builder builder) {
+        this.event = event;
+
+        int leaves = builder.leafEvents.size();
+        this.leafStrings = builder.leafStrings.toArray(new String[0]);
+        this.leafLiterals = builder.leafLiterals.toArray(new String[0]);
+        this.leafEvents = builder.leafEvents.toArray(new IEvent[0]);
+        this.leafOccurrences = toArrays(builder.leafOccurrences);
+        this.leafLiveOccurrences = new int[leaves];
+        this.liveLeaves = new BitSet(leaves);
+        this.matchedLeaves = new int[leaves];
+        for (int leaf = 0; leaf < leaves; leaf++) {
+            this.leafLiveOccurrences[leaf] = this.leafOccurrences[leaf].length;
+            this.liveLeaves.set(leaf);
+        }
+
+        int occurrences = builder.occurrenceEvents.size();
+        this.occurrenceEvents = builder.occurrenceEvents.toArray(new IEvent[0]);
+        this.occurrenceLeaf = toArray(builder.occurrenceLeaf);
+        this.occurrenceParent = toArray(builder.occurrenceParent);
+        this.occurrenceResolved = new boolean[occurrences];
+
+        int nodes = builder.nodeOriginal.size();
+        this.nodeIsAnd = new boolean[nodes];
+        this.nodeOriginal = builder.nodeOriginal.toArray(new IEvent[0]);
+        this.nodeParent = toArray(builder.nodeParent);
+        this.nodeArity = new int[nodes];
+        this.nodeSatisfiedChildren = new int[nodes];
+        this.nodeResolved = new boolean[nodes];
+        this.nodeChildNodes = toArrays(builder.nodeChildNodes);
+        this.nodeChildOccurrences = toArrays(builder.nodeChildOccurrences);
+        for (int node = 0; node < nodes; node++) {
+            this.nodeIsAnd[node] = builder.nodeIsAnd.get(node);
+            this.nodeArity[node] = this.nodeChildNodes[node].length + this.nodeChildOccurrences[node].length;
+        }
+    }
+
+    /**
+     * Returns the compiled form of the specified event.
+     *
+     * @param event The event to compile.
+     * @return the compiled event.
+     */
+    public static CompiledEvent compile(IEvent event) {
+        if (event == null) {
+            throw new NullPointerException("Cannot compile a null event.");
+        }
+
+        Builder builder = new Builder();
+        int root = builder.addNode(true, null, -1);
+
+        // Walk the event depth-first without recursing, since chains may be thousands of events deep.
+        Deque<IEvent> events = new ArrayDeque<>();
+        Deque<Integer> parents = new ArrayDeque<>();
+        events.push(event);
+        parents.push(root);
+
+        while (!events.isEmpty()) {
+            IEvent next = events.pop();
+            int parent = parents.pop();
+
+            if ((next instanceof AndEvent) || (next instanceof OrEvent)) {
+                boolean isAnd = next instanceof AndEvent;
+                IEvent first = isAnd ? ((AndEvent) next).first() : ((OrEvent) next).first();
+                IEvent second = isAnd ? ((AndEvent) next).second() : ((OrEvent) next).second();
+
+                // Merge the event into its parent if they are the same operator.
+                int node = ((parent != root) && (builder.nodeIsAnd.get(parent) == isAnd)) ? parent : builder.addNode(isAnd, next, parent);
+
+                // Pushed in reverse so that the leaves are visited in the order they appear.
+                events.push(second);
+                parents.push(node);
+                events.push(first);
+                parents.push(node);
+
+            } else {
+                if (next.hasBeenObserved()) {
+                    return compileAsLeaf(event);
+                }
+                builder.addOccurrence(next, parent);
+            }
+        }
+
+        return new CompiledEvent(event, builder);
+    }
+
+    /**
+     * Returns the event as a compiled event with a single leaf, which is evaluated as is.
+     */
+    private static CompiledEvent compileAsLeaf(IEvent event) {
+        Builder builder = new Builder();
+        builder.addOccurrence(event, builder.addNode(true, null, -1));
+        builder.leafStrings.set(0, null);
+        builder.leafLiterals.set(0, null);
+        return new CompiledEvent(event, builder);
+    }
+
+    /**
+     * Returns the event this was compiled from.
+     */
+    public IEvent getEvent() {
+        return this.event;
+    }
+
+    /**
+     * Returns the number of distinct leaves in this event.
+     */
+    public int numberOfLeaves() {
+        return this.leafEvents.length;
+    }
+
+    /**
+     * Returns the number of leaves still waiting to be observed.
+     */
+    public int numberOfLiveLeaves() {
+        return this.liveLeaves.cardinality();
+    }
+
+    /**
+     * Returns {@code true} only if the event is satisfied, in the sense of
+     * {@link IEvent#isSatisfiedBy(String, long, TimeUnit)}.
+     *
+     * @param line The incoming line that may satisfy the event.
+     * @param observedAt The time of observation.
+     * @param unit The unit of time of observedAt.
+     * @return whether or not the event is now satisfied.
+     */
+    public boolean isSatisfiedBy(String line, long observedAt, TimeUnit unit) {
+        if (line == null) {
+            throw new NullPointerException("Cannot check satisfaction on null line.");
+        }
+        if (observedAt < 0) {
+            throw new IllegalArgumentException("Cannot check satisfaction given negative timestamp.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot check satisfaction given null time unit.");
+        }
+
+        if (this.nodeResolved[ROOT]) {
+            return true;
+        }
+
+        // Find every leaf the line satisfies before resolving any, since the line may satisfy both
+        // sides of an or, and both sides are then reported as observed.
+        int matches = 0;
+        for (int leaf = this.liveLeaves.nextSetBit(0); leaf >= 0; leaf = this.liveLeaves.nextSetBit(leaf + 1)) {
+            String leafString = this.leafStrings[leaf];
+            String leafLiteral = this.leafLiterals[leaf];
+            boolean isMatch = (leafString == null)
+                ? ((leafLiteral == null) || line.contains(leafLiteral)) && this.leafEvents[leaf].isSatisfiedBy(line, observedAt, unit)
+                : line.contains(leafString);
+            if (isMatch) {
+                this.matchedLeaves[matches++] = leaf;
+            }
+        }
+
+        for (int i = 0; i < matches; i++) {
+            int leaf = this.matchedLeaves[i];
+            this.liveLeaves.clear(leaf);
+
+            for (int occurrence : this.leafOccurrences[leaf]) {
+                if (!this.occurrenceResolved[occurrence]) {
+                    this.occurrenceResolved[occurrence] = true;
+                    this.leafLiveOccurrences[leaf]--;
+                    if (this.leafStrings[leaf] != null) {
+                        this.occurrenceEvents[occurrence].isSatisfiedBy(line, observedAt, unit);
+                    }
+                    satisfyChildOf(this.occurrenceParent[occurrence], line, observedAt, unit);
+                }
+            }
+        }
+
+        return this.nodeResolved[ROOT];
+    }
+
+    /**
+     * Returns all the event strings observed so far, in the order the leaves appear in the event,
+     * as {@link IEvent#getAllObservedEvents()} does.
+     */
+    public List<String> getAllObservedEvents() {
+        List<String> events = new ArrayList<>();
+        for (IEvent occurrence : this.occurrenceEvents) {
+            events.addAll(occurrence.getAllObservedEvents());
+        }
+        return events;
+    }
+
+    /**
+     * Returns all the logs that contributed to an event string being observed, in the order the
+     * leaves appear in the event, as {@link IEvent#getAllObservedLogs()} does.
+     */
+    public List<String> getAllObservedLogs() {
+        List<String> logs = new ArrayList<>();
+        for (IEvent occurrence : this.occurrenceEvents) {
+            logs.addAll(occurrence.getAllObservedLogs());
+        }
+        return logs;
+    }
+
+    /**
+     * Counts one more satisfied child of the specified node, and if that satisfies the node, moves
+     * on to its parent in turn.
+     */
+    private void satisfyChildOf(int node, String line, long observedAt, TimeUnit unit) {
+        while ((node >= 0) && !this.nodeResolved[node]) {
+            this.nodeSatisfiedChildren[node]++;
+            if (this.nodeIsAnd[node] && (this.nodeSatisfiedChildren[node] < this.nodeArity[node])) {
+                return;
+            }
+
+            this.nodeResolved[node] = true;
+            if (this.nodeOriginal[node] != null) {
+                this.nodeOriginal[node].isSatisfiedBy(line, observedAt, unit);
+            }
+            if (!this.nodeIsAnd[node]) {
+                retireChildrenOf(node);
+            }
+            node = this.nodeParent[node];
+        }
+    }
+
+    /**
+     * Stops waiting on the unresolved children of the specified node, which no longer needs them.
+     */
+    private void retireChildrenOf(int node) {
+        Deque<Integer> nodes = new ArrayDeque<>();
+        nodes.push(node);
+
+        while (!nodes.isEmpty()) {
+            int next = nodes.pop();
+
+            for (int occurrence : this.nodeChildOccurrences[next]) {
+                if (!this.occurrenceResolved[occurrence]) {
+                    this.occurrenceResolved[occurrence] = true;
+                    int leaf = this.occurrenceLeaf[occurrence];
+                    if (--this.leafLiveOccurrences[leaf] == 0) {
+                        this.liveLeaves.clear(leaf);
+                    }
+                }
+            }
+            for (int child : this.nodeChildNodes[next]) {
+                if (!this.nodeResolved[child]) {
+                    this.nodeResolved[child] = true;
+                    nodes.push(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the literal text every line satisfying the specified leaf contains, or null if there
+     * is none known.
+     */
+    private static String requiredLiteralOf(IEvent event) {
+        if (event instanceof RegexEvent) {
+            return ((RegexEvent) event).getRequiredLiteral();
+        } else if (event instanceof LogLineEvent) {
+            return ((LogLineEvent) event).getRequiredLiteral();
+        } else if (event instanceof CountingEvent) {
+            // The counted copies are all alike, so the one being shown lines stands for them all.
+            IEvent counted = ((CountingEvent) event).getNextEvent();
+            return (counted instanceof Event) ? ((Event) counted).getEventString() : requiredLiteralOf(counted);
+        } else {
+            return null;
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static int[][] toArrays(List<List<Integer>> lists) {
+        int[][] arrays = new int[lists.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = toArray(lists.get(i));
+        }
+        return arrays;
+    }
+
+    /**
+     * Collects the leaves, occurrences and nodes of an event while it is being walked.
+     */
+    private static final class Builder {
+        private final Map<String, Integer> stringToLeaf = new HashMap<>();
+        private final Map<IEvent, Integer> eventToLeaf = new IdentityHashMap<>();
+        private final List<String> leafStrings = new ArrayList<>();
+        private final List<String> leafLiterals = new ArrayList<>();
+        private final List<IEvent> leafEvents = new ArrayList<>();
+        private final List<List<Integer>> leafOccurrences = new ArrayList<>();
+
+        private final List<IEvent> occurrenceEvents = new ArrayList<>();
+        private final List<Integer> occurrenceLeaf = new ArrayList<>();
+        private final List<Integer> occurrenceParent = new ArrayList<>();
+
+        private final List<Boolean> nodeIsAnd = new ArrayList<>();
+        private final List<IEvent> nodeOriginal = new ArrayList<>();
+        private final List<Integer> nodeParent = new ArrayList<>();
+        private final List<List<Integer>> nodeChildNodes = new ArrayList<>();
+        private final List<List<Integer>> nodeChildOccurrences = new ArrayList<>();
+
+        private int addNode(boolean isAnd, IEvent original, int parent) {
+            int node = this.nodeOriginal.size();
+            this.nodeIsAnd.add(isAnd);
+            this.nodeOriginal.add(original);
+            this.nodeParent.add(parent);
+            this.nodeChildNodes.add(new ArrayList<>());
+            this.nodeChildOccurrences.add(new ArrayList<>());
+            if (parent >= 0) {
+                this.nodeChildNodes.get(parent).add(node);
+            }
+            return node;
+        }
+
+        private void addOccurrence(IEvent event, int parent) {
+            Integer leaf = (event instanceof Event) ? this.stringToLeaf.get(((Event) event).getEventString()) : this.eventToLeaf.get(event);
+            if (leaf == null) {
+                leaf = this.leafEvents.size();
+                this.leafStrings.add((event instanceof Event) ? ((Event) event).getEventString() : null);
+                this.leafLiterals.add(requiredLiteralOf(event));
+                this.leafEvents.add(event);
+                this.leafOccurrences.add(new ArrayList<>());
+                if (event instanceof Event) {
+                    this.stringToLeaf.put(((Event) event).getEventString(), leaf);
+                } else {
+                    this.eventToLeaf.put(event, leaf);
+                }
+            }
+
+            int occurrence = this.occurrenceEvents.size();
+            this.occurrenceEvents.add(event);
+            this.occurrenceLeaf.add(leaf);
+            this.occurrenceParent.add(parent);
+            this.leafOccurrences.get(leaf).add(occurrence);
+            this.nodeChildOccurrences.get(parent).add(occurrence);
+        }
+    }
+}
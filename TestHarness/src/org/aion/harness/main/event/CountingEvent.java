@@ -0,0 +1,190 @@
+package org.aion.harness.main.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * An event that is satisfied once another event has been observed a given number of times.
+ *
+ * Since an event stays satisfied once it has been observed, the event being counted is given as a
+ * supplier of fresh copies of it: one copy at a time is shown each line, and once a copy is
+ * satisfied it is counted and replaced by a new one. So {@code CountingEvent.of("block sealed", 10)}
+ * is satisfied by the tenth line containing "block sealed", and a counted {@link RegexEvent} or
+ * {@link LogLineEvent} counts the lines matching it.
+ *
+ * A line counts at most once, however many times it satisfies the event being counted.
+ *
+ * This class meets the immutability guarantees of the {@link IEvent} interface.
+ */
+public final class CountingEvent implements IEvent {
+    private final Supplier<? extends IEvent> eventSupplier;
+    private final int times;
+    private final String countedStatement;
+    private final List<IEvent> observedEvents;
+    private IEvent nextEvent;
+    private long timeOfObservationInNanos = -1;
+
+    /**
+     * Constructs a new event that is considered to be observed once the events given by the
+     * specified supplier have been observed the specified number of times.
+     *
+     * @param eventSupplier A supplier of fresh, unobserved copies of the event being counted.
+     * @param times The number of times the event must be observed.
+     */
+    public CountingEvent(Supplier<? extends IEvent> eventSupplier, int times) {
+        if (eventSupplier == null) {
+            throw new NullPointerException("Cannot construct counting event with null event supplier.");
+        }
+        if (times < 1) {
+            throw new IllegalArgumentException("Cannot construct counting event observed fewer than once: " + times);
+        }
+        this.eventSupplier = eventSupplier;
+        this.times = times;
+        this.observedEvents = new ArrayList<>(Math.min(times, 1_024));
+        this.nextEvent = nextEvent();
+        this.countedStatement = this.nextEvent.eventStatement();
+    }
+
+    /**
+     * Returns an event that is satisfied once the specified event string has been observed the
+     * specified number of times.
+     */
+    public static CountingEvent of(String eventString, int times) {
+        if (eventString == null) {
+            throw new NullPointerException("Cannot construct counting event with null event string.");
+        }
+        return new CountingEvent(() -> new Event(eventString), times);
+    }
+
+    /**
+     * Returns an event that is satisfied once the specified regular expression has been matched the
+     * specified number of times.
+     */
+    public static CountingEvent ofRegex(String regex, int times) {
+        RegexEvent template = new RegexEvent(regex);
+        return new CountingEvent(() -> new RegexEvent(template.getPattern()), times);
+    }
+
+    /**
+     * Returns the number of times the counted event has been observed so far.
+     */
+    public synchronized int getCount() {
+        return this.observedEvents.size();
+    }
+
+    /**
+     * Returns the copy of the counted event currently being shown lines.
+     */
+    synchronized IEvent getNextEvent() {
+        return this.nextEvent;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String eventStatement() {
+        return "(" + this.countedStatement + " x " + this.times + ")";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndEvent and(IEvent event) {
+        return new AndEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OrEvent or(IEvent event) {
+        return new OrEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isSatisfiedBy(String line, long observedAt, TimeUnit unit) {
+        if (line == null) {
+            throw new NullPointerException("Cannot check satisfaction on null line.");
+        }
+        if (observedAt < 0) {
+            throw new IllegalArgumentException("Cannot check satisfaction given negative timestamp.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot check satisfaction given null time unit.");
+        }
+
+        // Once satisfied, this value can never change.
+        if ((this.timeOfObservationInNanos < 0) && this.nextEvent.isSatisfiedBy(line, observedAt, unit)) {
+            this.observedEvents.add(this.nextEvent);
+
+            if (this.observedEvents.size() == this.times) {
+                this.timeOfObservationInNanos = unit.toNanos(observedAt);
+            } else {
+                this.nextEvent = nextEvent();
+            }
+        }
+        return this.timeOfObservationInNanos >= 0;
+    }
+
+    private IEvent nextEvent() {
+        IEvent event = this.eventSupplier.get();
+        if (event == null) {
+            throw new NullPointerException("Cannot count a null event.");
+        }
+        if (event.hasBeenObserved()) {
+            throw new IllegalStateException("Cannot count an event that has already been observed.");
+        }
+        return event;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean hasBeenObserved() {
+        return this.timeOfObservationInNanos >= 0;
+    }
+
+    /**
+     * Returns the observed events of every copy of the counted event observed so far, in order.
+     */
+    @Override
+    public synchronized List<String> getAllObservedEvents() {
+        List<String> events = new ArrayList<>();
+        for (IEvent event : this.observedEvents) {
+            events.addAll(event.getAllObservedEvents());
+        }
+        return events;
+    }
+
+    /**
+     * Returns the observed logs of every copy of the counted event observed so far, in order.
+     */
+    @Override
+    public synchronized List<String> getAllObservedLogs() {
+        List<String> logs = new ArrayList<>();
+        for (IEvent event : this.observedEvents) {
+            logs.addAll(event.getAllObservedLogs());
+        }
+        return logs;
+    }
+
+    @Override
+    public synchronized long observedAt(TimeUnit unit) {
+        return (this.timeOfObservationInNanos < 0)
+            ? -1
+            : unit.convert(this.timeOfObservationInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "CountingEvent { " + this.eventStatement() + " }";
+    }
+}
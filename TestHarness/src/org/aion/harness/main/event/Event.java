@@ -61,6 +61,13 @@ public final class Event implements IEvent {
         return new OrEvent(event1, event2);
     }
 
+    /**
+     * Returns the string that satisfies this event.
+     */
+    String getEventString() {
+        return this.eventString;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,109 @@
+package org.aion.harness.main.event;
+
+/**
+ * A typed event that a kernel reported in one of its log lines, along with the fields the line
+ * carried. Fields that the line did not carry are null (or negative, for numbers).
+ *
+ * Kernel events are produced by {@link LogLineParser}.
+ *
+ * This class is immutable.
+ */
+public final class KernelEvent {
+
+    /**
+     * The kinds of events that are recognized in kernel logs.
+     */
+    public enum Type { BLOCK_IMPORTED, BLOCK_SEALED, TRANSACTION_RECEIVED, TRANSACTION_SEALED, TRANSACTION_REJECTED, PEER_STATUS }
+
+    private final Type type;
+    private final long blockNumber;
+    private final String blockHash;
+    private final int transactionCount;
+    private final String transactionHash;
+    private final String importResult;
+
+    private KernelEvent(Type type, long blockNumber, String blockHash, int transactionCount, String transactionHash, String importResult) {
+        this.type = type;
+        this.blockNumber = blockNumber;
+        this.blockHash = blockHash;
+        this.transactionCount = transactionCount;
+        this.transactionHash = transactionHash;
+        this.importResult = importResult;
+    }
+
+    static KernelEvent blockImported(long blockNumber, String blockHash, int transactionCount, String importResult) {
+        return new KernelEvent(Type.BLOCK_IMPORTED, blockNumber, blockHash, transactionCount, null, importResult);
+    }
+
+    static KernelEvent blockSealed(long blockNumber, String blockHash) {
+        return new KernelEvent(Type.BLOCK_SEALED, blockNumber, blockHash, -1, null, null);
+    }
+
+    static KernelEvent transactionReceived(String transactionHash) {
+        return new KernelEvent(Type.TRANSACTION_RECEIVED, -1, null, -1, transactionHash, null);
+    }
+
+    static KernelEvent transactionSealed(String transactionHash, long blockNumber) {
+        return new KernelEvent(Type.TRANSACTION_SEALED, blockNumber, null, -1, transactionHash, null);
+    }
+
+    static KernelEvent transactionRejected(String transactionHash) {
+        return new KernelEvent(Type.TRANSACTION_REJECTED, -1, null, -1, transactionHash, null);
+    }
+
+    static KernelEvent peerStatus() {
+        return new KernelEvent(Type.PEER_STATUS, -1, null, -1, null, null);
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the number of the block this event is about, or -1 if the line did not say.
+     */
+    public long getBlockNumber() {
+        return this.blockNumber;
+    }
+
+    /**
+     * Returns the (possibly shortened) hash of the block this event is about, as it was logged, or
+     * null if the line did not say.
+     */
+    public String getBlockHash() {
+        return this.blockHash;
+    }
+
+    /**
+     * Returns the number of transactions in the imported block, or -1 if the line did not say.
+     */
+    public int getTransactionCount() {
+        return this.transactionCount;
+    }
+
+    /**
+     * Returns the hash of the transaction this event is about, as lowercase hex, or null if this is
+     * not a transaction event.
+     */
+    public String getTransactionHash() {
+        return this.transactionHash;
+    }
+
+    /**
+     * Returns the result of a block import (for example {@code IMPORTED_BEST}), or null if this is not
+     * a block import event.
+     */
+    public String getImportResult() {
+        return this.importResult;
+    }
+
+    @Override
+    public String toString() {
+        return "KernelEvent { type = " + this.type
+            + ", block number = " + this.blockNumber
+            + ", block hash = " + this.blockHash
+            + ", transaction count = " + this.transactionCount
+            + ", transaction hash = " + this.transactionHash
+            + ", import result = " + this.importResult + " }";
+    }
+}
@@ -0,0 +1,199 @@
+package org.aion.harness.main.event;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.aion.harness.kernel.SignedTransaction;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * A "leaf" event that is satisfied by a log line reporting a typed {@link KernelEvent} of a given
+ * type whose fields meet a given condition, rather than by a log line containing a given string.
+ *
+ * For instance, {@code KernelLogEvent.blockImported(12)} is satisfied by the first line reporting
+ * that block 12 was imported, whatever its hash, transaction count or result are.
+ *
+ * Lines are parsed by {@link LogLineParser}, which parses each line only once however many events
+ * are looking at it. Since this event has no event string, its description stands in for one in
+ * {@link #eventStatement()} and {@link #getAllObservedEvents()}.
+ *
+ * This class meets the immutability guarantees of the {@link IEvent} interface.
+ */
+public final class KernelLogEvent implements IEvent {
+    private final KernelEvent.Type type;
+    private final String description;
+    private final Predicate<KernelEvent> condition;
+    private boolean isSatisfied = false;
+    private long timeOfObservationInNanos = -1;
+    private String log = null;
+    private KernelEvent observedEvent = null;
+
+    /**
+     * Constructs a new event that is considered to be observed once a line reporting a kernel event
+     * of the specified type, which satisfies the specified condition, has been witnessed.
+     *
+     * @param type The type of kernel event.
+     * @param description A description of the event, in place of an event string.
+     * @param condition The condition the kernel event must satisfy.
+     */
+    public KernelLogEvent(KernelEvent.Type type, String description, Predicate<KernelEvent> condition) {
+        if (type == null) {
+            throw new NullPointerException("Cannot construct kernel log event with null type.");
+        }
+        if (description == null) {
+            throw new NullPointerException("Cannot construct kernel log event with null description.");
+        }
+        if (condition == null) {
+            throw new NullPointerException("Cannot construct kernel log event with null condition.");
+        }
+        this.type = type;
+        this.description = description;
+        this.condition = condition;
+    }
+
+    /**
+     * Returns an event that is satisfied by any kernel event of the specified type.
+     */
+    public static KernelLogEvent ofType(KernelEvent.Type type) {
+        if (type == null) {
+            throw new NullPointerException("Cannot construct kernel log event with null type.");
+        }
+        return new KernelLogEvent(type, type.toString(), event -> true);
+    }
+
+    /**
+     * Returns an event that is satisfied once the block with the specified number is imported.
+     */
+    public static KernelLogEvent blockImported(long blockNumber) {
+        return new KernelLogEvent(KernelEvent.Type.BLOCK_IMPORTED, "block #" + blockNumber + " imported",
+            event -> event.getBlockNumber() == blockNumber);
+    }
+
+    /**
+     * Returns an event that is satisfied once the block with the specified number is sealed.
+     */
+    public static KernelLogEvent blockSealed(long blockNumber) {
+        return new KernelLogEvent(KernelEvent.Type.BLOCK_SEALED, "block #" + blockNumber + " sealed",
+            event -> event.getBlockNumber() == blockNumber);
+    }
+
+    /**
+     * Returns an event that is satisfied once the specified transaction is sealed into a block.
+     */
+    public static KernelLogEvent transactionSealed(SignedTransaction transaction) {
+        if (transaction == null) {
+            throw new NullPointerException("Cannot get event for null transaction.");
+        }
+        String hash = Hex.encodeHexString(transaction.getTransactionHash());
+        return new KernelLogEvent(KernelEvent.Type.TRANSACTION_SEALED, "transaction " + hash + " sealed",
+            event -> hash.equals(event.getTransactionHash()));
+    }
+
+    /**
+     * Returns an event that is satisfied once the specified transaction is rejected.
+     */
+    public static KernelLogEvent transactionRejected(SignedTransaction transaction) {
+        if (transaction == null) {
+            throw new NullPointerException("Cannot get event for null transaction.");
+        }
+        String hash = Hex.encodeHexString(transaction.getTransactionHash());
+        return new KernelLogEvent(KernelEvent.Type.TRANSACTION_REJECTED, "transaction " + hash + " rejected",
+            event -> hash.equals(event.getTransactionHash()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String eventStatement() {
+        return "(" + this.description + ")";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndEvent and(IEvent event) {
+        return new AndEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OrEvent or(IEvent event) {
+        return new OrEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isSatisfiedBy(String line, long observedAt, TimeUnit unit) {
+        if (line == null) {
+            throw new NullPointerException("Cannot check satisfaction on null line.");
+        }
+        if (observedAt < 0) {
+            throw new IllegalArgumentException("Cannot check satisfaction given negative timestamp.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot check satisfaction given null time unit.");
+        }
+
+        // Once satisfied, this value can never change.
+        if (!this.isSatisfied) {
+            KernelEvent event = LogLineParser.parse(line).getEvent();
+            if ((event != null) && (event.getType() == this.type) && this.condition.test(event)) {
+                this.log = line;
+                this.observedEvent = event;
+                this.isSatisfied = true;
+                this.timeOfObservationInNanos = unit.toNanos(observedAt);
+            }
+        }
+        return this.isSatisfied;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean hasBeenObserved() {
+        return this.isSatisfied;
+    }
+
+    /**
+     * Returns the kernel event that satisfied this event, or null if it has not been observed yet.
+     */
+    public synchronized KernelEvent getObservedKernelEvent() {
+        return this.observedEvent;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<String> getAllObservedEvents() {
+        return (this.isSatisfied) ? Collections.singletonList(this.description) : Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<String> getAllObservedLogs() {
+        return (this.isSatisfied) ? Collections.singletonList(this.log) : Collections.emptyList();
+    }
+
+    @Override
+    public synchronized long observedAt(TimeUnit unit) {
+        return (this.isSatisfied)
+            ? unit.convert(this.timeOfObservationInNanos, TimeUnit.NANOSECONDS)
+            : -1;
+    }
+
+    @Override
+    public String toString() {
+        return "KernelLogEvent { " + this.eventStatement() + " }";
+    }
+}
@@ -0,0 +1,31 @@
+package org.aion.harness.main.event;
+
+/**
+ * The severity levels that kernel log lines are written at, from the least to the most severe.
+ */
+public enum LogLevel {
+    TRACE, DEBUG, INFO, WARN, ERROR;
+
+    /**
+     * Returns the level named by the specified token, or null if the token does not name a level.
+     * Tokens are matched case-insensitively, and {@code WARNING} is read as {@link #WARN}.
+     *
+     * @param token The token to read.
+     * @return the level.
+     */
+    public static LogLevel fromToken(String token) {
+        if (token == null) {
+            throw new NullPointerException("Cannot read a level from a null token.");
+        }
+
+        switch (token.toUpperCase()) {
+            case "TRACE": return TRACE;
+            case "DEBUG": return DEBUG;
+            case "INFO": return INFO;
+            case "WARN":
+            case "WARNING": return WARN;
+            case "ERROR": return ERROR;
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.aion.harness.main.event;
+
+/**
+ * A kernel log line, broken up into its timestamp, level, module, thread and message by
+ * {@link LogLineParser}. Any part that the line does not have is null (or negative, for the
+ * timestamp), in which case the whole line is taken to be the message.
+ *
+ * This class is immutable.
+ */
+public final class LogLine {
+    private final String raw;
+    private final long timestampMillis;
+    private final LogLevel level;
+    private final String module;
+    private final String thread;
+    private final String message;
+    private final KernelEvent event;
+
+    LogLine(String raw, long timestampMillis, LogLevel level, String module, String thread, String message, KernelEvent event) {
+        this.raw = raw;
+        this.timestampMillis = timestampMillis;
+        this.level = level;
+        this.module = module;
+        this.thread = thread;
+        this.message = message;
+        this.event = event;
+    }
+
+    /**
+     * Returns the line exactly as it was logged.
+     */
+    public String getRaw() {
+        return this.raw;
+    }
+
+    /**
+     * Returns {@code true} only if the line starts with a timestamp.
+     */
+    public boolean hasTimestamp() {
+        return this.timestampMillis >= 0;
+    }
+
+    /**
+     * Returns the timestamp of the line in milliseconds since the epoch, or -1 if it has none.
+     */
+    public long getTimestampMillis() {
+        return this.timestampMillis;
+    }
+
+    public LogLevel getLevel() {
+        return this.level;
+    }
+
+    public String getModule() {
+        return this.module;
+    }
+
+    public String getThread() {
+        return this.thread;
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+
+    /**
+     * Returns the typed event reported by this line, or null if the line does not report a known
+     * event.
+     */
+    public KernelEvent getEvent() {
+        return this.event;
+    }
+
+    @Override
+    public String toString() {
+        return this.raw;
+    }
+}
@@ -0,0 +1,181 @@
+package org.aion.harness.main.event;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * A "leaf" event that is satisfied by the first log line whose fields meet a given condition, such
+ * as its level, module, thread or message, or the typed {@link KernelEvent} it reports.
+ *
+ * For instance, {@code LogLineEvent.atLevel(LogLevel.ERROR)} is satisfied by the first error logged,
+ * and a condition on {@link LogLine#getEvent()} can ask for "any block imported with more than 100
+ * transactions", which would otherwise take one event per block.
+ *
+ * An event may be given a string that every line satisfying it contains, in which case lines
+ * without it are turned away by a plain substring search, without being parsed at all.
+ *
+ * Lines are parsed by {@link LogLineParser}, which parses each line only once however many events
+ * are looking at it. Since this event has no event string, its description stands in for one in
+ * {@link #eventStatement()} and {@link #getAllObservedEvents()}.
+ *
+ * This class meets the immutability guarantees of the {@link IEvent} interface.
+ */
+public final class LogLineEvent implements IEvent {
+    private final String description;
+    private final String requiredLiteral;
+    private final Predicate<LogLine> condition;
+    private boolean isSatisfied = false;
+    private long timeOfObservationInNanos = -1;
+    private String log = null;
+
+    /**
+     * Constructs a new event that is considered to be observed once a line satisfying the specified
+     * condition has been witnessed.
+     *
+     * @param description A description of the event, in place of an event string.
+     * @param condition The condition the parsed line must satisfy.
+     */
+    public LogLineEvent(String description, Predicate<LogLine> condition) {
+        this(description, null, condition);
+    }
+
+    /**
+     * Constructs a new event that is considered to be observed once a line that contains the
+     * required string and satisfies the specified condition has been witnessed.
+     *
+     * @param description A description of the event, in place of an event string.
+     * @param requiredLiteral A string that every line satisfying the condition contains, or null.
+     * @param condition The condition the parsed line must satisfy.
+     */
+    public LogLineEvent(String description, String requiredLiteral, Predicate<LogLine> condition) {
+        if (description == null) {
+            throw new NullPointerException("Cannot construct log line event with null description.");
+        }
+        if (condition == null) {
+            throw new NullPointerException("Cannot construct log line event with null condition.");
+        }
+        this.description = description;
+        this.requiredLiteral = ((requiredLiteral == null) || requiredLiteral.isEmpty()) ? null : requiredLiteral;
+        this.condition = condition;
+    }
+
+    /**
+     * Returns an event that is satisfied by the first line logged at the specified level.
+     */
+    public static LogLineEvent atLevel(LogLevel level) {
+        if (level == null) {
+            throw new NullPointerException("Cannot construct log line event with null level.");
+        }
+        return new LogLineEvent("line at level " + level, line -> line.getLevel() == level);
+    }
+
+    /**
+     * Returns an event that is satisfied by the first line logged by the specified module whose
+     * message contains the specified string.
+     */
+    public static LogLineEvent fromModule(String module, String messageString) {
+        if (module == null) {
+            throw new NullPointerException("Cannot construct log line event with null module.");
+        }
+        if (messageString == null) {
+            throw new NullPointerException("Cannot construct log line event with null message string.");
+        }
+        return new LogLineEvent("[" + module + "] " + messageString, messageString,
+            line -> module.equals(line.getModule()) && line.getMessage().contains(messageString));
+    }
+
+    /**
+     * Returns the string every line satisfying this event contains, or null if there is none.
+     */
+    String getRequiredLiteral() {
+        return this.requiredLiteral;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String eventStatement() {
+        return "(" + this.description + ")";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndEvent and(IEvent event) {
+        return new AndEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OrEvent or(IEvent event) {
+        return new OrEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isSatisfiedBy(String line, long observedAt, TimeUnit unit) {
+        if (line == null) {
+            throw new NullPointerException("Cannot check satisfaction on null line.");
+        }
+        if (observedAt < 0) {
+            throw new IllegalArgumentException("Cannot check satisfaction given negative timestamp.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot check satisfaction given null time unit.");
+        }
+
+        // Once satisfied, this value can never change.
+        if (!this.isSatisfied && ((this.requiredLiteral == null) || line.contains(this.requiredLiteral))) {
+            if (this.condition.test(LogLineParser.parse(line))) {
+                this.log = line;
+                this.isSatisfied = true;
+                this.timeOfObservationInNanos = unit.toNanos(observedAt);
+            }
+        }
+        return this.isSatisfied;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean hasBeenObserved() {
+        return this.isSatisfied;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<String> getAllObservedEvents() {
+        return (this.isSatisfied) ? Collections.singletonList(this.description) : Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<String> getAllObservedLogs() {
+        return (this.isSatisfied) ? Collections.singletonList(this.log) : Collections.emptyList();
+    }
+
+    @Override
+    public synchronized long observedAt(TimeUnit unit) {
+        return (this.isSatisfied)
+            ? unit.convert(this.timeOfObservationInNanos, TimeUnit.NANOSECONDS)
+            : -1;
+    }
+
+    @Override
+    public String toString() {
+        return "LogLineEvent { " + this.eventStatement() + " }";
+    }
+}
@@ -0,0 +1,174 @@
+package org.aion.harness.main.event;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses kernel log lines into {@link LogLine}s, recognizing the typed {@link KernelEvent}s that
+ * both the Java and the Rust kernels report.
+ *
+ * Lines are expected to look like {@code <timestamp> <level> <module> [<thread>]: <message>},
+ * where everything after the level is optional. Two-digit years are read as being in this century.
+ * Lines that do not follow this layout are still parsed, as lines that consist of only a message.
+ *
+ * Every event matcher is handed the same line, so the most recently parsed line is remembered per
+ * thread, which means that a line is only parsed once no matter how many matchers look at it.
+ *
+ * This class is thread-safe.
+ */
+public final class LogLineParser {
+    private static final Pattern TIMESTAMP = Pattern.compile("^\\s*(\\d{4}|\\d{2})-(\\d{2})-(\\d{2})[ T](\\d{2}):(\\d{2}):(\\d{2})(?:[.,](\\d{1,3}))?");
+    private static final String HEX_HASH = "(?:0x)?([0-9a-fA-F]{64})";
+
+    private static final Pattern BLOCK_IMPORTED = Pattern.compile("<import-status:.*?hash = (\\w+), number = (\\d{1,18}), txs = (\\d{1,9}), result = (\\w+)");
+    private static final Pattern BLOCK_SEALED = Pattern.compile("block sealed <num=(\\d{1,18}), hash=(\\w+)");
+    private static final Pattern JAVA_TRANSACTION_RECEIVED = Pattern.compile("Transaction: " + HEX_HASH + " was added to the pool");
+    private static final Pattern JAVA_TRANSACTION_SEALED = Pattern.compile("Transaction: " + HEX_HASH + " was sealed into block(?: #?(\\d{1,18}))?");
+    private static final Pattern JAVA_TRANSACTION_REJECTED = Pattern.compile("tx " + HEX_HASH + " is rejected");
+    private static final Pattern RUST_TRANSACTION_SEALED = Pattern.compile("Transaction mined \\(hash " + HEX_HASH + "\\)");
+    private static final Pattern RUST_TRANSACTION_REJECTED = Pattern.compile("Transaction rejected \\(hash " + HEX_HASH + "\\)");
+
+    private static final ThreadLocal<LogLine> LAST_PARSED = new ThreadLocal<>();
+
+    private LogLineParser() {}
+
+    /**
+     * Parses the specified log line.
+     *
+     * @param line The line to parse, without its line terminator.
+     * @return the parsed line.
+     */
+    public static LogLine parse(String line) {
+        if (line == null) {
+            throw new NullPointerException("Cannot parse a null line.");
+        }
+
+        // Identity, not equality: this is the very same line being handed to the next matcher.
+        LogLine last = LAST_PARSED.get();
+        if ((last != null) && (last.getRaw() == line)) {
+            return last;
+        }
+
+        LogLine parsed = tokenize(line);
+        LAST_PARSED.set(parsed);
+        return parsed;
+    }
+
+    private static LogLine tokenize(String line) {
+        int position = 0;
+        long timestamp = -1;
+
+        Matcher matcher = TIMESTAMP.matcher(line);
+        if (matcher.find()) {
+            timestamp = timestampOf(matcher);
+            position = matcher.end();
+        }
+
+        position = skipSpaces(line, position);
+        int levelEnd = tokenEnd(line, position);
+        LogLevel level = (levelEnd > position) ? LogLevel.fromToken(line.substring(position, levelEnd)) : null;
+        if (level == null) {
+            String message = (timestamp < 0) ? line : line.substring(position);
+            return new LogLine(line, timestamp, null, null, null, message, eventOf(message, null));
+        }
+        position = skipSpaces(line, levelEnd);
+
+        String module = null;
+        if ((position < line.length()) && (line.charAt(position) != '[')) {
+            int moduleEnd = tokenEnd(line, position);
+            module = line.substring(position, moduleEnd);
+            if (module.endsWith(":")) {
+                module = module.substring(0, module.length() - 1);
+            }
+            position = skipSpaces(line, moduleEnd);
+        }
+
+        String thread = null;
+        if ((position < line.length()) && (line.charAt(position) == '[')) {
+            int close = line.indexOf(']', position);
+            if (close > 0) {
+                thread = line.substring(position + 1, close);
+                position = close + 1;
+                if ((position < line.length()) && (line.charAt(position) == ':')) {
+                    position++;
+                }
+                position = skipSpaces(line, position);
+            }
+        }
+
+        String message = line.substring(position);
+        return new LogLine(line, timestamp, level, module, thread, message, eventOf(message, thread));
+    }
+
+    /**
+     * Returns the typed event reported by the specified message (logged by the specified thread, if
+     * known), or null if it reports none. A cheap substring test guards every regular expression, so
+     * that ordinary lines cost almost nothing.
+     */
+    private static KernelEvent eventOf(String message, String thread) {
+        Matcher matcher;
+
+        if (message.contains("<import-status:") && (matcher = BLOCK_IMPORTED.matcher(message)).find()) {
+            return KernelEvent.blockImported(Long.parseLong(matcher.group(2)), matcher.group(1), Integer.parseInt(matcher.group(3)), matcher.group(4));
+        }
+        if (message.contains("block sealed") && (matcher = BLOCK_SEALED.matcher(message)).find()) {
+            return KernelEvent.blockSealed(Long.parseLong(matcher.group(1)), matcher.group(2));
+        }
+        if (message.contains("was added to the pool") && (matcher = JAVA_TRANSACTION_RECEIVED.matcher(message)).find()) {
+            return KernelEvent.transactionReceived(matcher.group(1).toLowerCase());
+        }
+        if (message.contains("was sealed into block") && (matcher = JAVA_TRANSACTION_SEALED.matcher(message)).find()) {
+            long blockNumber = (matcher.group(2) == null) ? -1 : Long.parseLong(matcher.group(2));
+            return KernelEvent.transactionSealed(matcher.group(1).toLowerCase(), blockNumber);
+        }
+        if (message.contains("is rejected") && (matcher = JAVA_TRANSACTION_REJECTED.matcher(message)).find()) {
+            return KernelEvent.transactionRejected(matcher.group(1).toLowerCase());
+        }
+        if (message.contains("Transaction mined") && (matcher = RUST_TRANSACTION_SEALED.matcher(message)).find()) {
+            return KernelEvent.transactionSealed(matcher.group(1).toLowerCase(), -1);
+        }
+        if (message.contains("Transaction rejected") && (matcher = RUST_TRANSACTION_REJECTED.matcher(message)).find()) {
+            return KernelEvent.transactionRejected(matcher.group(1).toLowerCase());
+        }
+        // The Java kernel reports its peers from a thread of that name.
+        if ("p2p-status".equals(thread) || message.contains("p2p-status") || message.contains("= Sync Statics =")) {
+            return KernelEvent.peerStatus();
+        }
+        return null;
+    }
+
+    private static long timestampOf(Matcher matcher) {
+        try {
+            int year = Integer.parseInt(matcher.group(1));
+            String millis = matcher.group(7);
+            LocalDateTime time = LocalDateTime.of(
+                (year < 100) ? 2000 + year : year,
+                Integer.parseInt(matcher.group(2)),
+                Integer.parseInt(matcher.group(3)),
+                Integer.parseInt(matcher.group(4)),
+                Integer.parseInt(matcher.group(5)),
+                Integer.parseInt(matcher.group(6)),
+                (millis == null) ? 0 : Integer.parseInt((millis + "00").substring(0, 3)) * 1_000_000);
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            return -1;
+        }
+    }
+
+    private static int skipSpaces(String line, int position) {
+        while ((position < line.length()) && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int tokenEnd(String line, int position) {
+        while ((position < line.length()) && !Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,331 @@
+package org.aion.harness.main.event;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A "leaf" event that is satisfied by the first line containing a match of a regular expression,
+ * rather than by the first line containing a given string.
+ *
+ * For instance, {@code new RegexEvent("block sealed <num=\\d+, hash=\\w+, txs=[1-9]")} is satisfied
+ * by the first block sealed with any transactions in it, which would otherwise take one event per
+ * block.
+ *
+ * The pattern is compiled once, when the event is constructed. The longest run of literal text
+ * that every match must contain is also worked out then, so that lines without it are turned away
+ * by a plain substring search, without running the pattern at all. Since the matched text differs
+ * from line to line, it is the matched text that {@link #getAllObservedEvents()} reports.
+ *
+ * This class meets the immutability guarantees of the {@link IEvent} interface.
+ */
+public final class RegexEvent implements IEvent {
+    private final Pattern pattern;
+    private final String requiredLiteral;
+    private boolean isSatisfied = false;
+    private long timeOfObservationInNanos = -1;
+    private String log = null;
+    private String match = null;
+
+    /**
+     * Constructs a new event that is considered to be observed once a line containing a match of
+     * the specified regular expression has been witnessed.
+     *
+     * @param regex The regular expression.
+     * @throws java.util.regex.PatternSyntaxException if regex is not a valid regular expression.
+     */
+    public RegexEvent(String regex) {
+        this(compile(regex));
+    }
+
+    /**
+     * Constructs a new event that is considered to be observed once a line containing a match of
+     * the specified pattern has been witnessed.
+     *
+     * @param pattern The pattern.
+     */
+    public RegexEvent(Pattern pattern) {
+        if (pattern == null) {
+            throw new NullPointerException("Cannot construct regex event with null pattern.");
+        }
+        this.pattern = pattern;
+        this.requiredLiteral = requiredLiteralOf(pattern);
+    }
+
+    private static Pattern compile(String regex) {
+        if (regex == null) {
+            throw new NullPointerException("Cannot construct regex event with null regex.");
+        }
+        return Pattern.compile(regex);
+    }
+
+    /**
+     * Returns the compiled pattern this event matches lines against.
+     */
+    public Pattern getPattern() {
+        return this.pattern;
+    }
+
+    /**
+     * Returns the longest run of literal text that every match of the pattern contains, or null if
+     * there is none that can be worked out.
+     */
+    String getRequiredLiteral() {
+        return this.requiredLiteral;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String eventStatement() {
+        return "(/" + this.pattern.pattern() + "/)";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndEvent and(IEvent event) {
+        return new AndEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OrEvent or(IEvent event) {
+        return new OrEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isSatisfiedBy(String line, long observedAt, TimeUnit unit) {
+        if (line == null) {
+            throw new NullPointerException("Cannot check satisfaction on null line.");
+        }
+        if (observedAt < 0) {
+            throw new IllegalArgumentException("Cannot check satisfaction given negative timestamp.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot check satisfaction given null time unit.");
+        }
+
+        // Once satisfied, this value can never change.
+        if (!this.isSatisfied && ((this.requiredLiteral == null) || line.contains(this.requiredLiteral))) {
+            Matcher matcher = this.pattern.matcher(line);
+            if (matcher.find()) {
+                this.log = line;
+                this.match = matcher.group();
+                this.isSatisfied = true;
+                this.timeOfObservationInNanos = unit.toNanos(observedAt);
+            }
+        }
+        return this.isSatisfied;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean hasBeenObserved() {
+        return this.isSatisfied;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<String> getAllObservedEvents() {
+        return (this.isSatisfied) ? Collections.singletonList(this.match) : Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<String> getAllObservedLogs() {
+        return (this.isSatisfied) ? Collections.singletonList(this.log) : Collections.emptyList();
+    }
+
+    @Override
+    public synchronized long observedAt(TimeUnit unit) {
+        return (this.isSatisfied)
+            ? unit.convert(this.timeOfObservationInNanos, TimeUnit.NANOSECONDS)
+            : -1;
+    }
+
+    @Override
+    public String toString() {
+        return "RegexEvent { " + this.eventStatement() + " }";
+    }
+
+    /**
+     * Returns the longest run of literal text that every match of the specified pattern contains,
+     * or null if there is none.
+     *
+     * This errs on the side of returning null: anything inside a group, a character class or a
+     * pattern with top-level alternation or flags that change how text is matched is treated as not literal,
+     * and a literal followed by a quantifier is left out.
+     */
+    static String requiredLiteralOf(Pattern pattern) {
+        String regex = pattern.pattern();
+        int flags = pattern.flags();
+
+        if ((flags & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) {
+            return null;
+        }
+        if ((flags & Pattern.LITERAL) != 0) {
+            return regex.isEmpty() ? null : regex;
+        }
+
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        int i = 0;
+
+        while (i < regex.length()) {
+            char next = regex.charAt(i);
+
+            if (next == '\\') {
+                if (i + 1 >= regex.length()) {
+                    return null;
+                }
+                char escaped = regex.charAt(i + 1);
+                i += 2;
+
+                if (escaped == 'Q') {
+                    int end = regex.indexOf("\\E", i);
+                    String quoted = (end < 0) ? regex.substring(i) : regex.substring(i, end);
+                    i = (end < 0) ? regex.length() : end + 2;
+                    if (depth == 0) {
+                        // The last quoted character is the one a following quantifier applies to.
+                        run.append(quoted);
+                        if (!quoted.isEmpty() && isOptionalQuantifierAt(regex, i)) {
+                            run.setLength(run.length() - 1);
+                            longest = longer(longest, run);
+                            run.setLength(0);
+                        }
+                    }
+                } else if (!Character.isLetterOrDigit(escaped) && (depth == 0)) {
+                    appendLiteral(run, escaped, regex, i);
+                    if (isOptionalQuantifierAt(regex, i)) {
+                        longest = longer(longest, run);
+                        run.setLength(0);
+                    }
+                } else {
+                    // A character class such as \d, a boundary or a back-reference.
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                }
+                continue;
+            }
+
+            if (next == '|') {
+                // Alternation inside a group only affects the group, which is not literal anyway.
+                if (depth == 0) {
+                    return null;
+                }
+                i++;
+                continue;
+            }
+
+            if (next == '[') {
+                longest = longer(longest, run);
+                run.setLength(0);
+                i = endOfCharacterClass(regex, i);
+                continue;
+            }
+
+            if (next == '(') {
+                // Inline flags, such as (?i), may change how the rest of the pattern is matched.
+                if ((i + 2 < regex.length()) && (regex.charAt(i + 1) == '?') && (Character.isLetter(regex.charAt(i + 2)) || (regex.charAt(i + 2) == '-'))) {
+                    return null;
+                }
+                longest = longer(longest, run);
+                run.setLength(0);
+                depth++;
+                i++;
+                continue;
+            }
+
+            if (next == ')') {
+                depth = Math.max(0, depth - 1);
+                i++;
+                continue;
+            }
+
+            if ((next == '.') || (next == '^') || (next == '$') || (next == '?') || (next == '*') || (next == '+') || (next == '{')) {
+                // Quantifiers that follow a literal are dealt with when the literal is appended.
+                longest = longer(longest, run);
+                run.setLength(0);
+                i = (next == '{') ? Math.max(i + 1, regex.indexOf('}', i) + 1) : i + 1;
+                continue;
+            }
+
+            if (depth == 0) {
+                appendLiteral(run, next, regex, i + 1);
+                if (isOptionalQuantifierAt(regex, i + 1)) {
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                }
+            }
+            i++;
+        }
+
+        longest = longer(longest, run);
+        return longest.isEmpty() ? null : longest;
+    }
+
+    /**
+     * Appends the literal character to the run, unless the quantifier following it makes it optional.
+     */
+    private static void appendLiteral(StringBuilder run, char literal, String regex, int following) {
+        if (!isOptionalQuantifierAt(regex, following)) {
+            run.append(literal);
+        }
+    }
+
+    /**
+     * Returns true only if a quantifier starts at the specified index, in which case the character
+     * before it may be missing or repeated, and so ends the literal run.
+     */
+    private static boolean isOptionalQuantifierAt(String regex, int index) {
+        if (index >= regex.length()) {
+            return false;
+        }
+        char next = regex.charAt(index);
+        return (next == '?') || (next == '*') || (next == '+') || (next == '{');
+    }
+
+    private static int endOfCharacterClass(String regex, int start) {
+        int i = start + 1;
+        if ((i < regex.length()) && (regex.charAt(i) == '^')) {
+            i++;
+        }
+        if ((i < regex.length()) && (regex.charAt(i) == ']')) {
+            i++;
+        }
+        int depth = 1;
+        while ((i < regex.length()) && (depth > 0)) {
+            char next = regex.charAt(i);
+            if (next == '\\') {
+                i++;
+            } else if (next == '[') {
+                depth++;
+            } else if (next == ']') {
+                depth--;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static String longer(String longest, StringBuilder run) {
+        return (run.length() > longest.length()) ? run.toString() : longest;
+    }
+}
@@ -0,0 +1,163 @@
+package org.aion.harness.main.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An event that is satisfied once one event has been observed and then another event is observed
+ * within a given time of it: "A then B within T".
+ *
+ * The second event is only shown the lines that come after the line that satisfied the first, so
+ * that a line satisfying both does not count as B following A. If B is not observed within the
+ * given time of A, the sequence can no longer be satisfied, and any request waiting on it runs
+ * until it expires.
+ *
+ * This class meets the immutability guarantees of the {@link IEvent} interface.
+ */
+public final class SequenceEvent implements IEvent {
+    private final IEvent first;
+    private final IEvent then;
+    private final long withinNanos;
+    private long timeOfFirstInNanos = -1;
+    private long timeOfObservationInNanos = -1;
+    private boolean hasMissedWindow = false;
+
+    /**
+     * Constructs a new event that is considered to be observed once the first event is observed and
+     * the second event is then observed no later than the specified time after it.
+     *
+     * @param first The event that must be observed first.
+     * @param then The event that must be observed after it.
+     * @param within The longest time allowed between the two.
+     * @param unit The unit of time of within.
+     */
+    public SequenceEvent(IEvent first, IEvent then, long within, TimeUnit unit) {
+        if ((first == null) || (then == null)) {
+            throw new NullPointerException("Cannot construct sequence event from a null event.");
+        }
+        if (within < 0) {
+            throw new IllegalArgumentException("Cannot construct sequence event with a negative window.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot construct sequence event with null time unit.");
+        }
+        this.first = first;
+        this.then = then;
+        this.withinNanos = unit.toNanos(within);
+    }
+
+    /**
+     * Returns {@code true} only if the first event was observed but the second event was not
+     * observed in time, so this event can no longer be satisfied.
+     */
+    public synchronized boolean hasMissedWindow() {
+        return this.hasMissedWindow;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String eventStatement() {
+        return "(" + this.first.eventStatement() + " THEN " + this.then.eventStatement() + " WITHIN " + this.withinNanos + "ns)";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AndEvent and(IEvent event) {
+        return new AndEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OrEvent or(IEvent event) {
+        return new OrEvent(this, event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isSatisfiedBy(String line, long observedAt, TimeUnit unit) {
+        if (line == null) {
+            throw new NullPointerException("Cannot check satisfaction on null line.");
+        }
+        if (observedAt < 0) {
+            throw new IllegalArgumentException("Cannot check satisfaction given negative timestamp.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot check satisfaction given null time unit.");
+        }
+
+        // Once satisfied (or once the window is missed), this value can never change.
+        if ((this.timeOfObservationInNanos >= 0) || this.hasMissedWindow) {
+            return this.timeOfObservationInNanos >= 0;
+        }
+
+        long observedAtInNanos = unit.toNanos(observedAt);
+
+        if (this.timeOfFirstInNanos < 0) {
+            if (this.first.isSatisfiedBy(line, observedAt, unit)) {
+                this.timeOfFirstInNanos = observedAtInNanos;
+            }
+            return false;
+        }
+
+        if (observedAtInNanos - this.timeOfFirstInNanos > this.withinNanos) {
+            this.hasMissedWindow = true;
+            return false;
+        }
+
+        if (this.then.isSatisfiedBy(line, observedAt, unit)) {
+            this.timeOfObservationInNanos = observedAtInNanos;
+        }
+        return this.timeOfObservationInNanos >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean hasBeenObserved() {
+        return this.timeOfObservationInNanos >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllObservedEvents() {
+        List<String> events = new ArrayList<>();
+        events.addAll(this.first.getAllObservedEvents());
+        events.addAll(this.then.getAllObservedEvents());
+        return events;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllObservedLogs() {
+        List<String> logs = new ArrayList<>();
+        logs.addAll(this.first.getAllObservedLogs());
+        logs.addAll(this.then.getAllObservedLogs());
+        return logs;
+    }
+
+    @Override
+    public synchronized long observedAt(TimeUnit unit) {
+        return (this.timeOfObservationInNanos < 0)
+            ? -1
+            : unit.convert(this.timeOfObservationInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "SequenceEvent { " + this.eventStatement() + " }";
+    }
+}
@@ -1,5 +1,12 @@
 package org.aion.harness.main.global;
 
+import java.io.IOException;
+import org.aion.harness.main.tools.RpcCallerRegistry;
+import org.aion.harness.metrics.MetricsExporter;
+import org.aion.harness.metrics.MetricsRegistry;
+import org.aion.harness.replay.TrafficRecorder;
+import org.aion.harness.replay.TrafficRecording;
+import org.aion.harness.trace.TransactionTracer;
 import org.aion.harness.util.NodeWatcher;
 
 /**
@@ -18,9 +25,27 @@ public final class SingletonFactory {
     private static final SingletonFactory SELF = new SingletonFactory();
 
     private final NodeWatcher nodeWatcher;
+    private final RpcCallerRegistry rpcCallerRegistry;
+    private final MetricsRegistry metricsRegistry;
+    private final TrafficRecorder trafficRecorder;
+    private final TrafficRecording trafficRecording;
+    private final TransactionTracer transactionTracer;
 
     private SingletonFactory() {
         this.nodeWatcher = new NodeWatcher();
+        this.rpcCallerRegistry = new RpcCallerRegistry();
+        this.metricsRegistry = new MetricsRegistry();
+
+        try {
+            MetricsExporter.startAsConfigured(this.metricsRegistry);
+        } catch (IOException | NumberFormatException e) {
+            // Metrics must never stop the tests from running.
+            System.err.println("Unable to export metrics: " + e);
+        }
+
+        this.trafficRecorder = openTrafficRecorder();
+        this.trafficRecording = readTrafficRecording();
+        this.transactionTracer = createTransactionTracer();
     }
 
     /**
@@ -45,4 +70,91 @@ public final class SingletonFactory {
         return this.nodeWatcher;
     }
 
+    /**
+     * Returns an instance of {@link RpcCallerRegistry}.
+     *
+     * If two {@link RpcCallerRegistry} instances are obtained by subsequent calls to this method,
+     * then the two instances will in fact be the same instance and therefore will be equal as per
+     * the {@code ==} operator.
+     *
+     * @return an rpc caller registry singleton.
+     */
+    public RpcCallerRegistry rpcCallerRegistry() {
+        return this.rpcCallerRegistry;
+    }
+
+    /**
+     * Returns an instance of {@link MetricsRegistry}, which is exported as configured by the system
+     * properties described in {@link MetricsExporter}.
+     *
+     * If two {@link MetricsRegistry} instances are obtained by subsequent calls to this method, then
+     * the two instances will in fact be the same instance and therefore will be equal as per the
+     * {@code ==} operator.
+     *
+     * @return a metrics registry singleton.
+     */
+    public MetricsRegistry metricsRegistry() {
+        return this.metricsRegistry;
+    }
+
+    /**
+     * Returns the {@link TrafficRecorder} configured by the system properties it describes, or null
+     * if no traffic is being recorded.
+     *
+     * @return the traffic recorder singleton, or null.
+     */
+    public TrafficRecorder trafficRecorder() {
+        return this.trafficRecorder;
+    }
+
+    /**
+     * Returns the {@link TrafficRecording} configured by the system properties it describes, or
+     * null if no traffic is being replayed. While a recording is being replayed, rpc calls and log
+     * readers are served from it rather than from a kernel.
+     *
+     * @return the traffic recording singleton, or null.
+     */
+    public TrafficRecording trafficRecording() {
+        return this.trafficRecording;
+    }
+
+    /**
+     * Returns the {@link TransactionTracer} configured by the system properties it describes, or
+     * null if transactions are not being traced.
+     *
+     * @return the transaction tracer singleton, or null.
+     */
+    public TransactionTracer transactionTracer() {
+        return this.transactionTracer;
+    }
+
+    private static TrafficRecorder openTrafficRecorder() {
+        try {
+            return TrafficRecorder.openAsConfigured();
+        } catch (IOException e) {
+            // Recording must never stop the tests from running.
+            System.err.println("Unable to record traffic: " + e);
+            return null;
+        }
+    }
+
+    private static TransactionTracer createTransactionTracer() {
+        try {
+            return TransactionTracer.createAsConfigured();
+        } catch (IllegalArgumentException e) {
+            // Tracing must never stop the tests from running.
+            System.err.println("Unable to trace transactions: " + e);
+            return null;
+        }
+    }
+
+    private static TrafficRecording readTrafficRecording() {
+        try {
+            return TrafficRecording.readAsConfigured();
+        } catch (IOException | NumberFormatException e) {
+            // Unlike recording, a replay that was asked for cannot quietly fall back to a live kernel.
+            throw new IllegalStateException("Unable to replay traffic.", e);
+        }
+    }
+
 }
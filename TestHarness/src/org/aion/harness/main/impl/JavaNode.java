@@ -1,20 +1,24 @@
 package org.aion.harness.main.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.TimeoutException;
 import org.aion.harness.kernel.Kernel;
 import org.aion.harness.main.LocalNode;
-import org.aion.harness.main.NodeListener;
 import org.aion.harness.main.event.Event;
 import org.aion.harness.main.event.IEvent;
 import org.aion.harness.main.global.SingletonFactory;
 import org.aion.harness.main.Network;
 import org.aion.harness.main.NodeConfigurations;
 import org.aion.harness.main.impl.internal.NodeInitializer;
+import org.aion.harness.main.impl.internal.NodeReadinessProbe;
 import org.aion.harness.misc.Assumptions;
 import org.aion.harness.result.Result;
 import org.aion.harness.sys.LeveldbLockAwaiter;
+import org.aion.harness.sys.ProcessTreeTerminator;
 import org.aion.harness.util.*;
 import org.apache.commons.io.FileUtils;
 
@@ -40,6 +44,12 @@ public class JavaNode implements LocalNode {
     // The running instance of the kernel.
     private Process runningKernel = null;
 
+    // The processes of the most recently stopped kernel, which may still be releasing its database locks.
+    private List<ProcessHandle> stoppedKernelProcesses = Collections.emptyList();
+
+    // Every process of the running kernel seen so far, so that the kernel is still stopped if its launch script exits first.
+    private final Set<ProcessHandle> kernelProcesses = new LinkedHashSet<>();
+
     public JavaNode() {
         this.log = new SimpleLog(getClass().getName());
         this.logReader = new LogReader();
@@ -76,6 +86,7 @@ public class JavaNode implements LocalNode {
 
         this.configurations = configurations;
         this.initializer = new NodeInitializer(this.configurations);
+        this.logManager = new LogManager(configurations.getLogsDirectory());
     }
 
     @Override
@@ -141,10 +152,15 @@ public class JavaNode implements LocalNode {
         builder.redirectOutput(outputLog);
         builder.redirectError(this.logManager.getCurrentErrorLogFile());
 
-        new LeveldbLockAwaiter(this.configurations.getDatabaseJava().getAbsolutePath()).await();
+        new LeveldbLockAwaiter(this.configurations.getDatabaseJava().getAbsolutePath()).await(this.stoppedKernelProcesses);
         this.runningKernel = builder.start();
+        trackKernelProcesses();
+
+        Result result = waitForKernelReadyOrError(outputLog);
 
-        return waitForKernelReadyOrError(outputLog);
+        // By now aion.sh has launched the kernel proper, which must be tracked too.
+        trackKernelProcesses();
+        return result;
     }
 
     /**
@@ -158,8 +174,8 @@ public class JavaNode implements LocalNode {
         if (isAlive()) {
             log.log(Assumptions.LOGGER_BANNER + "Stopping Java kernel node...");
 
-            this.runningKernel.destroy();
-            boolean shutdown = this.runningKernel.waitFor(1, TimeUnit.MINUTES);
+            trackKernelProcesses();
+            boolean shutdown = stopKernelProcesses();
             this.runningKernel = null;
             this.logReader.stopReading();
 
@@ -168,22 +184,29 @@ public class JavaNode implements LocalNode {
             log.log(Assumptions.LOGGER_BANNER + "Java kernel node stopped.");
 
         } else {
+            // The launch script may have exited while leaving the kernel itself running.
+            if (!this.kernelProcesses.isEmpty()) {
+                stopKernelProcesses();
+            }
             result = Result.unsuccessfulDueTo("Node is not currently alive!");
         }
 
-        if (this.isInitialized) {
-            // Finds the kernel and kills it (above we are killing the aion.sh script,
-            // which is not guaranteed to kill the kernel). We find these processes because we know the
-            // directory of the executable, so we can hunt it down precisely.
-            String executableDir = NodeFileManager.getExecutableDirectoryOf(this.configurations.getActualBuildLocation());
-            ProcessHandle.allProcesses()
-                .filter(process -> process.info().command().toString().contains(executableDir))
-                .forEach(kernel -> kernel.destroy());
-        }
-
         return result;
     }
 
+    private void trackKernelProcesses() {
+        this.kernelProcesses.addAll(ProcessTreeTerminator.treeOf(this.runningKernel.toHandle()));
+    }
+
+    /**
+     * Terminates every tracked process of the kernel, and returns whether or not they all exited.
+     */
+    private boolean stopKernelProcesses() throws InterruptedException {
+        this.stoppedKernelProcesses = new ArrayList<>(this.kernelProcesses);
+        this.kernelProcesses.clear();
+        return ProcessTreeTerminator.terminate(this.stoppedKernelProcesses);
+    }
+
     /**
      * Stops the node if it is currently running and block until the Leveldb lock of the node
      * is released (or until the given timeout duration is reached)
@@ -199,7 +222,7 @@ public class JavaNode implements LocalNode {
         }
 
         boolean leveldbLockReleased = new LeveldbLockAwaiter(
-            this.configurations.getDatabaseJava().getAbsolutePath()).await();
+            this.configurations.getDatabaseJava().getAbsolutePath()).await(this.stoppedKernelProcesses);
         return leveldbLockReleased? Result.successful() : Result.unsuccessfulDueTo(
             "Leveldb lock used by node was not released after node termination");
     }
@@ -238,6 +261,47 @@ public class JavaNode implements LocalNode {
         return Result.successful();
     }
 
+    @Override
+    public Result snapshotState(File snapshotDirectory) throws IOException {
+        if (this.configurations == null) {
+            throw new IllegalStateException("Node has not been configured yet! Cannot snapshot kernel state.");
+        }
+        if (isAlive()){
+            throw new IllegalStateException("Cannot snapshot state while the node is running.");
+        }
+        if (snapshotDirectory == null) {
+            throw new NullPointerException("Cannot snapshot state into a null directory.");
+        }
+
+        log.log(Assumptions.LOGGER_BANNER + "Snapshotting the state of the Java kernel node...");
+
+        File database = this.configurations.getDatabaseJava();
+        if (!database.exists()) {
+            return Result.unsuccessfulDueTo("There is no database to snapshot at: " + database.getAbsolutePath());
+        }
+
+        DatabaseSnapshots.snapshot(database, snapshotDirectory);
+        return Result.successful();
+    }
+
+    @Override
+    public Result restoreState(File snapshotDirectory) throws IOException {
+        if (this.configurations == null) {
+            throw new IllegalStateException("Node has not been configured yet! Cannot restore kernel state.");
+        }
+        if (isAlive()){
+            throw new IllegalStateException("Cannot restore state while the node is running.");
+        }
+        if (!DatabaseSnapshots.exists(snapshotDirectory)) {
+            return Result.unsuccessfulDueTo("There is no snapshot to restore at: " + snapshotDirectory);
+        }
+
+        log.log(Assumptions.LOGGER_BANNER + "Restoring the state of the Java kernel node from a snapshot...");
+
+        DatabaseSnapshots.restore(snapshotDirectory, this.configurations.getDatabaseJava());
+        return Result.successful();
+    }
+
     /**
      * Returns the network that this node will attempt to connect to when {@code start()} is invoked,
      * or, if the node is running, then the network it has connected to.
@@ -266,17 +330,16 @@ public class JavaNode implements LocalNode {
     }
 
     /**
-     * Block until logs indicate that either RPC server started or an error happened
+     * Block until either the kernel is ready (its logs say the RPC server started, or its RPC
+     * server answers requests) or an error happened.
      */
     protected Result waitForKernelReadyOrError(File outputLog) throws InterruptedException, IOException {
-        // We wait for the rpc event to know we are ok to return. There is a chance that we will miss
-        // this event and start listening too late. That is why we timeout after 20 seconds, which
-        // should be more than sufficient for the server to activate, and then we check if the node
-        // is still live.
-        // See issue #1 relating to this decision, which will be refactored in the future.
+        // We wait for whichever comes first: the rpc event, the RPC server answering a probe, or
+        // the kernel exiting. The RPC probe covers the case where we start listening too late and
+        // miss the event, and we give up after 20 seconds, which should be more than sufficient for
+        // the server to activate.
 
         if (isAlive()) {
-            // We wait for the Rpc event or else 20 seconds, in case we come too late and never see it.
             IEvent rpcEvent = new Event("rpc-server - (UNDERTOW) started");
 
             Result result = this.logReader.startReading(outputLog);
@@ -285,15 +348,18 @@ public class JavaNode implements LocalNode {
             }
 
             log.log("Waiting for kernel to start RPC server");
-            try {
-                NodeListener.listenTo(this.getID())
-                    .listenForEvent(rpcEvent, 20, TimeUnit.SECONDS)
-                    .get(20, TimeUnit.SECONDS);
-            } catch (TimeoutException te) {
+            String rpcPort = NodeReadinessProbe.findJavaRpcPort(new File(this.configurations.getActualBuildLocation(),
+                this.configurations.getNetwork().string() + File.separator + "config" + File.separator + "config.xml"));
+            NodeReadinessProbe.Outcome outcome = new NodeReadinessProbe(this.getID(), this.runningKernel, rpcEvent, rpcPort)
+                .await(20, TimeUnit.SECONDS);
+
+            if (outcome != NodeReadinessProbe.Outcome.READY) {
                 log.log("RPC Server did not start.");
                 Optional<String> maybeError = findError(outputLog);
-                if(maybeError.isPresent()) {
+                if (maybeError.isPresent()) {
                     return Result.unsuccessfulDueTo(maybeError.get());
+                } else if (outcome == NodeReadinessProbe.Outcome.EXITED) {
+                    return Result.unsuccessfulDueTo("Node failed to start!");
                 } else {
                     return Result.unsuccessfulDueTo(
                         "Did not see RPC started message in logs, but also could not find any error message.");
@@ -308,15 +374,11 @@ public class JavaNode implements LocalNode {
     }
 
     private Optional<String> findError(File file) {
-        try {
-            if(FileUtils.sizeOf(file) > FileUtils.ONE_MB) {
-                log.log("Will not try to find error because error file size too large");
-                return Optional.empty();
-            } else {
-                return FileUtils.readLines(file, "UTF-8").stream().filter(
-                    line -> STARTUP_ERRORS.stream().anyMatch(err -> line.contains(err))
-                ).findFirst();
-            }
+        // The log reader indexes the log as it reads it, so the search reads the log through that
+        // index rather than loading the whole file.
+        try (LogIndex index = LogIndex.open(file)) {
+            index.update();
+            return index.findFirst(line -> STARTUP_ERRORS.stream().anyMatch(err -> line.contains(err)));
         } catch (IOException ioe) {
             log.log("Will not try to find error because error file could not be opened");
             return Optional.empty();
@@ -2,21 +2,26 @@ package org.aion.harness.main.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import org.aion.harness.main.LocalNode;
 import org.aion.harness.main.Network;
 import org.aion.harness.main.NodeConfigurations;
-import org.aion.harness.main.NodeListener;
 import org.aion.harness.main.event.Event;
 import org.aion.harness.main.event.IEvent;
 import org.aion.harness.main.global.SingletonFactory;
+import org.aion.harness.main.impl.internal.NodeReadinessProbe;
 import org.aion.harness.misc.Assumptions;
 import org.aion.harness.result.Result;
+import org.aion.harness.sys.ProcessTreeTerminator;
 import org.aion.harness.sys.RustLeveldbLockAwaiter;
+import org.aion.harness.util.DatabaseSnapshots;
 import org.aion.harness.util.LogManager;
 import org.aion.harness.util.LogReader;
-import org.aion.harness.util.NodeFileManager;
 import org.aion.harness.util.SimpleLog;
 import org.apache.commons.io.FileUtils;
 
@@ -31,6 +36,12 @@ public class RustNode implements LocalNode {
     // The running instance of the kernel.
     private Process runningKernel = null;
 
+    // The processes of the most recently stopped kernel, which may still be releasing its database locks.
+    private List<ProcessHandle> stoppedKernelProcesses = Collections.emptyList();
+
+    // Every process of the running kernel seen so far, so that the kernel is still stopped if its launch script exits first.
+    private final Set<ProcessHandle> kernelProcesses = new LinkedHashSet<>();
+
     /** The directory name of the database (relative to path of aionr root).  */
     private static final String DATA_DIR = "data";
 
@@ -66,6 +77,7 @@ public class RustNode implements LocalNode {
         }
 
         this.configurations = nc;
+        this.logManager = new LogManager(nc.getLogsDirectory());
     }
 
     @Override
@@ -167,11 +179,18 @@ public class RustNode implements LocalNode {
         File levelDbBaseDir = configurations.getDatabaseRust(DATA_DIR);
         // if null, don't need to wait because the db doesn't exist yet
         if(levelDbBaseDir != null) {
-            new RustLeveldbLockAwaiter(levelDbBaseDir.getAbsolutePath()).await();
+            new RustLeveldbLockAwaiter(levelDbBaseDir.getAbsolutePath()).await(this.stoppedKernelProcesses);
         }
 
         this.runningKernel = builder.start();
-        return waitForReadyOrError(this.logManager.getCurrentOutputLogFile());
+        trackKernelProcesses();
+
+        File configFile = new File(this.configurations.getActualBuildLocation(), cfgFile);
+        Result result = waitForReadyOrError(this.logManager.getCurrentOutputLogFile(), NodeReadinessProbe.findRustRpcPort(configFile));
+
+        // Track any processes the kernel has started since.
+        trackKernelProcesses();
+        return result;
     }
 
     @Override
@@ -182,8 +201,8 @@ public class RustNode implements LocalNode {
         if (isAlive()) {
             log.log(Assumptions.LOGGER_BANNER + "Stopping Rust kernel node...");
 
-            this.runningKernel.destroy();
-            boolean shutdown = this.runningKernel.waitFor(1, TimeUnit.MINUTES);
+            trackKernelProcesses();
+            boolean shutdown = stopKernelProcesses();
             this.runningKernel = null;
             this.logReader.stopReading();
 
@@ -192,22 +211,29 @@ public class RustNode implements LocalNode {
             log.log(Assumptions.LOGGER_BANNER + "Rust kernel node stopped.");
 
         } else {
+            // The launch script may have exited while leaving the kernel itself running.
+            if (!this.kernelProcesses.isEmpty()) {
+                stopKernelProcesses();
+            }
             result = Result.unsuccessfulDueTo("Node is not currently alive!");
         }
 
-        if (this.isInitialized) {
-            // Finds the kernel and kills it (above we are killing the aion.sh script,
-            // which is not guaranteed to kill the kernel). We find these processes because we know the
-            // directory of the executable, so we can hunt it down precisely.
-            String executableDir = NodeFileManager.getExecutableDirectoryOf(this.configurations.getActualBuildLocation());
-            ProcessHandle.allProcesses()
-                .filter(process -> process.info().command().toString().contains(executableDir))
-                .forEach(kernel -> kernel.destroy());
-        }
-
         return result;
     }
 
+    private void trackKernelProcesses() {
+        this.kernelProcesses.addAll(ProcessTreeTerminator.treeOf(this.runningKernel.toHandle()));
+    }
+
+    /**
+     * Terminates every tracked process of the kernel, and returns whether or not they all exited.
+     */
+    private boolean stopKernelProcesses() throws InterruptedException {
+        this.stoppedKernelProcesses = new ArrayList<>(this.kernelProcesses);
+        this.kernelProcesses.clear();
+        return ProcessTreeTerminator.terminate(this.stoppedKernelProcesses);
+    }
+
     @Override
     public Result blockingStop(long timeout, TimeUnit timeoutUnit) throws IOException, InterruptedException {
         Result res = stop();
@@ -220,7 +246,7 @@ public class RustNode implements LocalNode {
         // if null, don't need to wait because the db doesn't exist yet
         if(levelDbBaseDir != null) {
             leveldbLockReleased = new RustLeveldbLockAwaiter(
-                levelDbBaseDir.getAbsolutePath()).await(timeout, timeoutUnit);
+                levelDbBaseDir.getAbsolutePath()).await(timeout, timeoutUnit, this.stoppedKernelProcesses);
         } else {
             leveldbLockReleased = true;
         }
@@ -257,6 +283,47 @@ public class RustNode implements LocalNode {
         return Result.successful();
     }
 
+    @Override
+    public Result snapshotState(File snapshotDirectory) throws IOException {
+        if (this.configurations == null) {
+            throw new IllegalStateException("Node has not been configured yet! Cannot snapshot kernel state.");
+        }
+        if (isAlive()){
+            throw new IllegalStateException("Cannot snapshot state while the node is running.");
+        }
+        if (snapshotDirectory == null) {
+            throw new NullPointerException("Cannot snapshot state into a null directory.");
+        }
+
+        log.log(Assumptions.LOGGER_BANNER + "Snapshotting the state of the Rust kernel node...");
+
+        File database = new File(configurations.getDirectoryOfBuiltKernel() + File.separator + DATA_DIR);
+        if (!database.exists()) {
+            return Result.unsuccessfulDueTo("There is no database to snapshot at: " + database.getAbsolutePath());
+        }
+
+        DatabaseSnapshots.snapshot(database, snapshotDirectory);
+        return Result.successful();
+    }
+
+    @Override
+    public Result restoreState(File snapshotDirectory) throws IOException {
+        if (this.configurations == null) {
+            throw new IllegalStateException("Node has not been configured yet! Cannot restore kernel state.");
+        }
+        if (isAlive()){
+            throw new IllegalStateException("Cannot restore state while the node is running.");
+        }
+        if (!DatabaseSnapshots.exists(snapshotDirectory)) {
+            return Result.unsuccessfulDueTo("There is no snapshot to restore at: " + snapshotDirectory);
+        }
+
+        log.log(Assumptions.LOGGER_BANNER + "Restoring the state of the Rust kernel node from a snapshot...");
+
+        DatabaseSnapshots.restore(snapshotDirectory, new File(configurations.getDirectoryOfBuiltKernel() + File.separator + DATA_DIR));
+        return Result.successful();
+    }
+
     @Override
     public int getID() {
         return ID;
@@ -265,12 +332,10 @@ public class RustNode implements LocalNode {
     /**
      * Block until logs indicate that either RPC server started or an error happened
      */
-    private Result waitForReadyOrError(File outputLog) throws InterruptedException {
-        // We wait for the rpc event to know we are ok to return. There is a chance that we will miss
-        // this event and start listening too late. That is why we timeout after 20 seconds, which
-        // should be more than sufficient for the server to activate, and then we check if the node
-        // is still live.
-        // See issue #1 relating to this decision, which will be refactored in the future.
+    private Result waitForReadyOrError(File outputLog, String rpcPort) throws InterruptedException {
+        // We wait for whichever comes first: the ready event, the RPC server answering a probe, or
+        // the kernel exiting. The RPC probe covers the case where we start listening too late and
+        // miss the event.
 
         if (isAlive()) {
             // This isn't technically the 'RPC enabled' message because Rust kernel doesn't emit
@@ -283,11 +348,13 @@ public class RustNode implements LocalNode {
                 return result;
             }
 
-            try {
-                NodeListener.listenTo(this.getID())
-                    .listenForEvent(rpcEvent, 20, TimeUnit.SECONDS)
-                    .get(40, TimeUnit.SECONDS);
-            } catch (TimeoutException te) {
+            NodeReadinessProbe.Outcome outcome = new NodeReadinessProbe(this.getID(), this.runningKernel, rpcEvent, rpcPort)
+                .await(40, TimeUnit.SECONDS);
+
+            if (outcome == NodeReadinessProbe.Outcome.EXITED) {
+                log.log("process not alive: " + runningKernel.exitValue() );
+                return Result.unsuccessfulDueTo("Node failed to start!");
+            } else if (outcome == NodeReadinessProbe.Outcome.TIMED_OUT) {
                 String msg = "RPC Server did not start within the allotted time (check kernel logs for details)";
                 log.log(msg);
                 return Result.unsuccessfulDueTo(msg);
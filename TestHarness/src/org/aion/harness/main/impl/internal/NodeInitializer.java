@@ -2,12 +2,15 @@ package org.aion.harness.main.impl.internal;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import org.aion.harness.main.Network;
 import org.aion.harness.main.NodeConfigurations;
 import org.aion.harness.misc.Assumptions;
 import org.aion.harness.result.Result;
+import org.aion.harness.util.KernelBuildCache;
 import org.aion.harness.util.NodeFileManager;
 import org.aion.harness.util.SimpleLog;
+import org.aion.harness.util.TarArchives;
 import org.apache.commons.io.FileUtils;
 
 /**
@@ -39,36 +42,72 @@ public final class NodeInitializer {
      * Builds the kernel from the source files in the provided directory and extracts the contents
      * of this build into a new sandbox directory.
      *
-     * If the sandbox directory exists prior to this call, it will be destroyed.
+     * Builds are cached by a {@link KernelBuildCache}: if the source has not changed since a
+     * previous build then that build is used rather than building the kernel again, and if the
+     * sandbox already holds the contents of that build then it is reused (with fresh databases and
+     * its configs restored as built) rather than being extracted again.
+     *
+     * Otherwise, if the sandbox directory exists prior to this call, it will be destroyed.
      */
     private Result buildFromSource(boolean verbose) throws IOException, InterruptedException {
+        File sandbox = new File(NodeFileManager.getSandboxPath());
+        KernelBuildCache cache = KernelBuildCache.isDisabled() ? null : new KernelBuildCache(NodeFileManager.getKernelBuildCacheDirectory());
 
-        // 1. Build the kernel from source.
-        Result result = buildJavaKernel(verbose);
-        if (!result.isSuccess()) {
-            return result;
-        }
+        // 1. Look for a build of the current source in the cache.
+        String sourceKey = (cache == null) ? null : cache.sourceKeyOf(this.configurations.getKernelSourceDirectory());
+        File tarFile = (sourceKey == null) ? null : cache.getCachedBuild(sourceKey);
 
-        // 2. Destroy the sandbox if it exists.
+        // 2. Otherwise, build the kernel from source and cache the build.
+        if (tarFile != null) {
+            log.log(Assumptions.LOGGER_BANNER + "The kernel source is unchanged, reusing the cached build: " + tarFile.getName());
+        } else {
+            Result result = buildJavaKernel(verbose);
+            if (!result.isSuccess()) {
+                return result;
+            }
+
+            tarFile = grabKernelTarFile();
+            if (tarFile == null) {
+                return Result.unsuccessfulDueTo("Failed to find newly built kernel in specified source directory: "
+                    + this.configurations.getKernelSourceDirectory().getAbsolutePath());
+            }
+            if (sourceKey != null) {
+                tarFile = cache.cacheBuild(sourceKey, tarFile);
+            }
+        }
+
+        // 3. If the sandbox already holds this exact build then all it needs is a fresh database and configs.
+        String tarFileHash = (cache == null) ? null : cache.getHashOf(tarFile);
+        if (KernelBuildCache.sandboxHoldsBuild(sandbox, tarFileHash)) {
+            log.log(Assumptions.LOGGER_BANNER + "The sandbox already holds this build, reusing it.");
+            for (Network network : Network.values()) {
+                destroyDatabaseOf(sandbox, network);
+            }
+            KernelBuildCache.restoreSandboxConfigs(sandbox);
+            return Result.successful();
+        }
+
+        // 4. Destroy the sandbox if it exists.
         destroySandbox();
 
-        // 3. Create the sandbox directory.
-        result = createSandbox();
+        // 5. Create the sandbox directory.
+        Result result = createSandbox();
         if (!result.isSuccess()) {
             return result;
         }
 
-        // 4. Locate the tar file and move it into the sandbox temporarily.
-        result = moveTarFileToSandbox();
-        if (!result.isSuccess()) {
-            cleanup();
-            return result;
+        // 6. A build that is not cached is moved into the sandbox temporarily, as it is single-use.
+        if (sourceKey == null) {
+            FileUtils.moveFile(tarFile, NodeFileManager.getTemporaryTarFile());
+            tarFile = NodeFileManager.getTemporaryTarFile();
         }
 
-        // 5. Extract the contents of the tar file and delete it.
-        result = extractTarFile(verbose);
+        // 7. Extract the contents of the tar file and delete it if it is temporary.
+        result = extractTarFile(tarFile, sandbox, verbose);
         if (!result.isSuccess()) {
             cleanup();
+        } else if (tarFileHash != null) {
+            KernelBuildCache.markSandboxHoldsBuild(sandbox, tarFileHash);
         }
 
         destroyTemporaryTarFile();
@@ -137,37 +176,24 @@ public final class NodeInitializer {
             : Result.unsuccessfulDueTo("An error occurred building the kernel!");
     }
 
-    private Result extractTarFile(boolean verbose) throws IOException, InterruptedException {
+    private Result extractTarFile(File tarFile, File sandbox, boolean verbose) {
+        int threads = Runtime.getRuntime().availableProcessors();
         log.log(Assumptions.LOGGER_BANNER + "Extracting the built kernel...");
         if (verbose) {
-            log.log(Assumptions.LOGGER_BANNER + "Extracting contents of Java Kernel tar.bz2 file using command: tar xvjf");
+            log.log(Assumptions.LOGGER_BANNER + "Extracting contents of Java Kernel tar.bz2 file using " + threads + " threads: " + tarFile.getAbsolutePath());
         }
 
-        File temporaryTarFile = NodeFileManager.getTemporaryTarFile();
-        ProcessBuilder builder = new ProcessBuilder("tar", "xvjf", temporaryTarFile.getName())
-            .directory(temporaryTarFile.getParentFile());
-
-        if (verbose) {
-            builder.inheritIO();
+        try {
+            long start = System.nanoTime();
+            int entries = TarArchives.extractBzip2(tarFile, sandbox, threads);
+            if (verbose) {
+                log.log(Assumptions.LOGGER_BANNER + "Extracted " + entries + " entries in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+            }
+            return Result.successful();
+        } catch (IOException e) {
+            return Result.unsuccessfulDueTo("Failed to extract the built assets from the tar.bz2 file: " + e.getMessage());
         }
-
-        int status = builder.start().waitFor();
-
-        return (status == 0)
-            ? Result.successful()
-            : Result.unsuccessfulDueTo("Failed to extract the built assets from the tar.bz2 file. Tar command exit code: " + status);
-    }
-
-    private Result moveTarFileToSandbox() throws IOException {
-        File builtKernel = grabKernelTarFile();
-        if (builtKernel == null) {
-            return Result.unsuccessfulDueTo("Failed to find newly built kernel in specified source directory: "
-                + this.configurations.getKernelSourceDirectory().getAbsolutePath());
-        }
-
-        File temporaryTarFile = NodeFileManager.getTemporaryTarFile();
-        FileUtils.moveFile(builtKernel, temporaryTarFile);
-        return Result.successful();
     }
 
     private File grabKernelTarFile() {
@@ -0,0 +1,230 @@
+package org.aion.harness.main.impl.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.aion.harness.main.NodeListener;
+import org.aion.harness.main.RPC;
+import org.aion.harness.main.event.IEvent;
+import org.aion.harness.result.FutureResult;
+import org.aion.harness.result.LogEventResult;
+
+/**
+ * Waits for a freshly started kernel to become ready, by watching for three signals at once and
+ * returning as soon as any one of them is definitive:
+ *
+ * 1. The kernel logs its ready event (for instance, that its RPC server has started).
+ * 2. The kernel answers an {@code eth_blockNumber} request on its RPC port. The port is probed
+ *    every {@code INITIAL_PROBE_INTERVAL_MILLIS} at first, backing off up to
+ *    {@code MAX_PROBE_INTERVAL_MILLIS}.
+ * 3. The kernel process exits, which means it failed to start.
+ *
+ * Either of the first two signals means the kernel is ready, so a kernel whose log line is missed
+ * (for instance, because the log reader started too late) is still detected as soon as it serves
+ * requests.
+ *
+ * The process given to the probe is typically a launch script, which may exit normally once it
+ * has started the kernel proper. Its descendants are therefore tracked while it runs, and the
+ * kernel is only considered to have exited once the launcher and every one of those descendants
+ * have exited.
+ *
+ * The request for the ready event is withdrawn from the node's log listener once the wait is over.
+ *
+ * The probe threads never print anything, since the test runners give each thread its own
+ * stdout and stderr.
+ */
+public final class NodeReadinessProbe {
+    private static final long INITIAL_PROBE_INTERVAL_MILLIS = 50;
+    private static final long MAX_PROBE_INTERVAL_MILLIS = 500;
+    private static final Pattern JAVA_RPC_PORT = Pattern.compile("<rpc\\s+active=\"true\"[^>]*\\sport=\"(\\d+)\"");
+    private static final Pattern RUST_HTTP_SECTION = Pattern.compile("(?ms)^\\[http\\]\\s*$(.*?)(?=^\\[|\\z)");
+    private static final Pattern RUST_PORT = Pattern.compile("(?m)^\\s*port\\s*=\\s*(\\d+)");
+
+    private final int nodeId;
+    private final Process process;
+    private final IEvent readyEvent;
+    private final String rpcPort;
+
+    /**
+     * The signal that ended the wait.
+     */
+    public enum Outcome { READY, EXITED, TIMED_OUT }
+
+    /**
+     * Constructs a probe for the specified kernel process.
+     *
+     * @param nodeId The id of the node whose logs are being read.
+     * @param process The kernel process.
+     * @param readyEvent The event the kernel logs once it is ready.
+     * @param rpcPort The port of the kernel's RPC server, or null if the RPC server is not to be probed.
+     */
+    public NodeReadinessProbe(int nodeId, Process process, IEvent readyEvent, String rpcPort) {
+        if (process == null) {
+            throw new NullPointerException("Cannot probe a null process.");
+        }
+        if (readyEvent == null) {
+            throw new NullPointerException("Cannot probe for a null ready event.");
+        }
+
+        this.nodeId = nodeId;
+        this.process = process;
+        this.readyEvent = readyEvent;
+        this.rpcPort = rpcPort;
+    }
+
+    /**
+     * Blocks until the kernel is ready, the kernel exits, or the timeout elapses, whichever happens
+     * first.
+     *
+     * @param timeout The timeout duration.
+     * @param unit The unit of the timeout duration.
+     * @return the signal that ended the wait.
+     */
+    public Outcome await(long timeout, TimeUnit unit) throws InterruptedException {
+        CompletableFuture<Outcome> outcome = new CompletableFuture<>();
+        Set<ProcessHandle> descendants = ConcurrentHashMap.newKeySet();
+        trackDescendants(descendants);
+        this.process.onExit().thenRun(() -> awaitDescendantsExit(descendants, outcome));
+
+        NodeListener listener = NodeListener.listenTo(this.nodeId);
+        FutureResult<LogEventResult> event = listener.listenForEvent(this.readyEvent, timeout, unit);
+
+        ExecutorService watchers = Executors.newFixedThreadPool(3, (runnable) -> {
+            Thread thread = new Thread(runnable, "node-readiness-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            watchers.execute(() -> watchLogEvent(event, outcome, timeout, unit));
+            watchers.execute(() -> watchDescendants(descendants, outcome));
+            if (this.rpcPort != null) {
+                watchers.execute(() -> probeRpc(outcome));
+            }
+
+            try {
+                return outcome.get(timeout, unit);
+            } catch (TimeoutException e) {
+                // Another signal may have arrived at the very last moment.
+                outcome.complete(Outcome.TIMED_OUT);
+                return outcome.getNow(Outcome.TIMED_OUT);
+            } catch (ExecutionException e) {
+                // Nothing ever completes the outcome exceptionally.
+                throw new IllegalStateException(e.getCause());
+            }
+        } finally {
+            outcome.complete(Outcome.TIMED_OUT);
+            watchers.shutdownNow();
+            listener.stopListeningFor(event);
+        }
+    }
+
+    /**
+     * Records the living descendants of the launcher every probe interval, until the wait is over
+     * or the launcher exits.
+     */
+    private void watchDescendants(Set<ProcessHandle> descendants, CompletableFuture<Outcome> outcome) {
+        try {
+            while (!outcome.isDone() && this.process.isAlive()) {
+                trackDescendants(descendants);
+                TimeUnit.MILLISECONDS.sleep(INITIAL_PROBE_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            // The wait is over.
+        }
+    }
+
+    private void trackDescendants(Set<ProcessHandle> descendants) {
+        this.process.descendants().forEach(descendants::add);
+    }
+
+    /**
+     * Called once the launcher exits. The kernel has only exited if none of the descendants of the
+     * launcher are still alive, otherwise it exits once all of them have.
+     */
+    private static void awaitDescendantsExit(Set<ProcessHandle> descendants, CompletableFuture<Outcome> outcome) {
+        CompletableFuture<?>[] exits = descendants.stream()
+            .filter(ProcessHandle::isAlive)
+            .map(ProcessHandle::onExit)
+            .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(exits).thenRun(() -> outcome.complete(Outcome.EXITED));
+    }
+
+    private static void watchLogEvent(FutureResult<LogEventResult> event, CompletableFuture<Outcome> outcome, long timeout, TimeUnit unit) {
+        try {
+            if (event.get(timeout, unit).eventWasObserved()) {
+                outcome.complete(Outcome.READY);
+            }
+        } catch (InterruptedException | TimeoutException e) {
+            // The wait is over either way.
+        }
+    }
+
+    private void probeRpc(CompletableFuture<Outcome> outcome) {
+        RPC rpc = RPC.newRpc("127.0.0.1", this.rpcPort);
+        long intervalMillis = INITIAL_PROBE_INTERVAL_MILLIS;
+
+        try {
+            while (!outcome.isDone()) {
+                if (rpc.blockNumber().isSuccess()) {
+                    outcome.complete(Outcome.READY);
+                    return;
+                }
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+                intervalMillis = Math.min(intervalMillis * 2, MAX_PROBE_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            // We were cancelled, or the RPC call was interrupted on its way out.
+        }
+    }
+
+    /**
+     * Returns the RPC port configured in the specified Java kernel {@code config.xml} file, or null
+     * if it cannot be determined.
+     */
+    public static String findJavaRpcPort(File configFile) {
+        return findPort(configFile, JAVA_RPC_PORT, null);
+    }
+
+    /**
+     * Returns the RPC port configured in the {@code [http]} section of the specified Rust kernel
+     * {@code .toml} file, or null if it cannot be determined.
+     */
+    public static String findRustRpcPort(File configFile) {
+        return findPort(configFile, RUST_HTTP_SECTION, RUST_PORT);
+    }
+
+    private static String findPort(File configFile, Pattern pattern, Pattern withinMatch) {
+        if ((configFile == null) || !configFile.isFile()) {
+            return null;
+        }
+
+        try {
+            String content = new String(Files.readAllBytes(configFile.toPath()), StandardCharsets.UTF_8);
+            Matcher matcher = pattern.matcher(content);
+            if (!matcher.find()) {
+                return null;
+            }
+            if (withinMatch == null) {
+                return matcher.group(1);
+            }
+
+            Matcher portMatcher = withinMatch.matcher(matcher.group(1));
+            return portMatcher.find() ? portMatcher.group(1) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
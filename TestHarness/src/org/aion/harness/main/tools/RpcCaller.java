@@ -7,17 +7,47 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import org.aion.harness.main.global.SingletonFactory;
+import org.aion.harness.metrics.MetricsRegistry;
+import org.aion.harness.replay.TrafficRecorder;
+import org.aion.harness.replay.TrafficRecording;
+import org.aion.harness.result.RpcResult;
 
 /**
  * A class responsible for calling an RPC endpoint using the provided payload.
+ *
+ * Instances should generally be obtained from {@link RpcCallerRegistry} so that all callers of the
+ * same endpoint share one {@link HttpClient}.
+ *
+ * The round-trip time of every call, and whether it failed, is recorded per rpc method in the
+ * {@link MetricsRegistry}.
+ *
+ * Calls are recorded by the {@link TrafficRecorder}, if one is configured. If a
+ * {@link TrafficRecording} is configured instead, calls are answered from it and nothing is sent.
+ *
+ * This class is thread-safe.
  */
 public final class RpcCaller {
+    private static final String LATENCY_METRIC = "harness_rpc_call_duration_seconds";
+    private static final String FAILURES_METRIC = "harness_rpc_call_failures_total";
+
     private final String ip;
     private final String port;
+    private final URI uri;
     private final HttpClient httpClient;
+    private final Semaphore connectionGate;
 
     public RpcCaller(String ip, String port) {
+        this(ip, port, HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a caller that sends its requests through the given client and never has more than
+     * maxConnections requests in flight at once.
+     */
+    RpcCaller(String ip, String port, HttpClient httpClient, int maxConnections) {
         if (ip == null) {
             throw new NullPointerException("IP cannot be null");
         }
@@ -26,12 +56,15 @@ public final class RpcCaller {
             throw new NullPointerException("Port cannot be null");
         }
 
+        if (httpClient == null) {
+            throw new NullPointerException("Http client cannot be null");
+        }
+
         this.ip = ip;
         this.port = port;
-        // Create the HTTP Client once for the entire run since this creates several threads, etc.
-        this.httpClient = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_2)
-                .build();
+        this.uri = URI.create("http://" + this.ip + ":" + this.port);
+        this.httpClient = httpClient;
+        this.connectionGate = new Semaphore(maxConnections, true);
     }
 
     /**
@@ -50,22 +83,61 @@ public final class RpcCaller {
      * parsed.
      */
     public InternalRpcResult call(String payload, boolean verbose) {
-        // We will use the JDK11 "HttpClient".
         long timeOfCallInNanos = System.nanoTime();
-        URI uri = URI.create("http://" + this.ip + ":" + this.port);
+        String method = RpcPayload.methodOf(payload);
+        SingletonFactory singletons = SingletonFactory.singleton();
+        MetricsRegistry metrics = singletons.metricsRegistry();
+        TrafficRecording recording = singletons.trafficRecording();
+
+        InternalRpcResult result = null;
+        try {
+            result = (recording == null) ? send(payload, verbose, timeOfCallInNanos) : replay(recording, payload, timeOfCallInNanos);
+            return result;
+        } finally {
+            long duration = System.nanoTime() - timeOfCallInNanos;
+            metrics.histogram(LATENCY_METRIC, "The round-trip time of rpc calls.", "method", method).recordNanos(duration);
+            if ((result == null) || !result.success) {
+                metrics.counter(FAILURES_METRIC, "The number of rpc calls that failed.", "method", method).increment();
+            }
+
+            TrafficRecorder recorder = singletons.trafficRecorder();
+            if ((recorder != null) && (result != null)) {
+                recorder.recordRpcCall(this.uri.toString(), payload, result.success, result.success ? result.output : result.error, duration);
+            }
+        }
+    }
+
+    private InternalRpcResult replay(TrafficRecording recording, String payload, long timeOfCallInNanos) {
+        try {
+            RpcResult<String> result = recording.respondTo(payload, timeOfCallInNanos);
+            return result.isSuccess()
+                ? InternalRpcResult.successful(result.getResult(), result.getTimeOfCall(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                : InternalRpcResult.unsuccessful(result.getError());
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Unexpected interrupt while replaying RPC call to URI:  " + uri, e);
+        }
+    }
+
+    private InternalRpcResult send(String payload, boolean verbose, long timeOfCallInNanos) {
+        // We will use the JDK11 "HttpClient".
         if (verbose) {
             System.out.println("Sending to " + uri + ": <payload>" + payload + "</payload>");
         }
         // We just want to send the entire payload as the data to the POST, with no additional variables and only the content-type header.
         HttpRequest request = HttpRequest.newBuilder()
                 .POST(HttpRequest.BodyPublishers.ofString(payload))
-                .uri(uri)
+                .uri(this.uri)
                 .header("Content-Type", "application/json")
                 .build();
 
         final HttpResponse<String> response;
         try {
-            response = this.httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            this.connectionGate.acquire();
+            try {
+                response = this.httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            } finally {
+                this.connectionGate.release();
+            }
         } catch (IOException e) {
             // We see this on connection refused, etc.
             return InternalRpcResult.unsuccessful(e.getMessage());
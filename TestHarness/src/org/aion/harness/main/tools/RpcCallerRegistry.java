@@ -0,0 +1,120 @@
+package org.aion.harness.main.tools;
+
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A registry that hands out exactly one {@link RpcCaller} per RPC endpoint (ip and port pair).
+ *
+ * Every {@link HttpClient} owns its own selector thread and connection pool, so creating one per
+ * {@link org.aion.harness.main.RPC} instance quickly exhausts threads and memory when many threads
+ * each create their own RPC object. Instead, all callers of the same endpoint share a single client,
+ * and all clients share a single executor.
+ *
+ * The registry can be tuned using the following system properties:
+ *
+ *   {@code rpcClientThreads} - the number of threads in the shared executor.
+ *   {@code rpcMaxConnections} - the maximum number of in-flight requests to a single endpoint.
+ *
+ * This class should be obtained from {@link org.aion.harness.main.global.SingletonFactory}.
+ *
+ * This class is thread-safe.
+ */
+public final class RpcCallerRegistry {
+    public static final String EXECUTOR_THREADS_PROPERTY = "rpcClientThreads";
+    public static final String MAX_CONNECTIONS_PROPERTY = "rpcMaxConnections";
+
+    private static final int DEFAULT_EXECUTOR_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_MAX_CONNECTIONS = 256;
+
+    private final Map<String, RpcCaller> endpointToCaller = new ConcurrentHashMap<>();
+    private final int maxConnectionsPerEndpoint;
+    private final ExecutorService executor;
+
+    public RpcCallerRegistry() {
+        this(readPositiveIntProperty(EXECUTOR_THREADS_PROPERTY, DEFAULT_EXECUTOR_THREADS),
+            readPositiveIntProperty(MAX_CONNECTIONS_PROPERTY, DEFAULT_MAX_CONNECTIONS));
+    }
+
+    public RpcCallerRegistry(int executorThreads, int maxConnectionsPerEndpoint) {
+        if (executorThreads <= 0) {
+            throw new IllegalArgumentException("Executor thread count must be positive but was: " + executorThreads);
+        }
+        if (maxConnectionsPerEndpoint <= 0) {
+            throw new IllegalArgumentException("Maximum connections must be positive but was: " + maxConnectionsPerEndpoint);
+        }
+
+        this.maxConnectionsPerEndpoint = maxConnectionsPerEndpoint;
+        this.executor = Executors.newFixedThreadPool(executorThreads, new DaemonThreadFactory());
+    }
+
+    /**
+     * Returns the rpc caller for the specified endpoint, creating it if this is the first time the
+     * endpoint has been requested.
+     *
+     * Two calls with the same ip and port will always return the same instance.
+     *
+     * @param ip The ip address of the RPC server.
+     * @param port The port of the RPC server.
+     * @return the shared rpc caller for the endpoint.
+     */
+    public RpcCaller callerFor(String ip, String port) {
+        if (ip == null) {
+            throw new NullPointerException("IP cannot be null");
+        }
+        if (port == null) {
+            throw new NullPointerException("Port cannot be null");
+        }
+
+        return this.endpointToCaller.computeIfAbsent(ip + ":" + port, (endpoint) -> new RpcCaller(ip, port, newHttpClient(), this.maxConnectionsPerEndpoint));
+    }
+
+    /**
+     * Returns the number of distinct endpoints that currently have a shared rpc caller.
+     *
+     * @return the number of endpoints.
+     */
+    public int numberOfEndpoints() {
+        return this.endpointToCaller.size();
+    }
+
+    private HttpClient newHttpClient() {
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .executor(this.executor)
+            .build();
+    }
+
+    private static int readPositiveIntProperty(String property, int defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return (parsed > 0) ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * The shared executor must never keep the JVM alive once the harness is done with it.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "rpc-client-" + this.count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -18,4 +18,19 @@ public final class RpcPayload {
         }
         return PAYLOAD_START + method.getMethod() + PARAMS + params + PAYLOAD_END;
     }
+
+    /**
+     * Returns the name of the method that the specified payload, generated by this class, calls, or
+     * "unknown" if the payload was not generated by this class.
+     */
+    public static String methodOf(String payload) {
+        if (payload == null) {
+            throw new NullPointerException("Cannot get the method of a null payload.");
+        }
+        if (!payload.startsWith(PAYLOAD_START)) {
+            return "unknown";
+        }
+        int end = payload.indexOf('"', PAYLOAD_START.length());
+        return (end < 0) ? "unknown" : payload.substring(PAYLOAD_START.length(), end);
+    }
 }
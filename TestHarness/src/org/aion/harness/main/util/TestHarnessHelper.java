@@ -10,10 +10,12 @@ import java.util.concurrent.TimeoutException;
 import org.aion.harness.kernel.Address;
 import org.aion.harness.kernel.PrivateKey;
 import org.aion.harness.kernel.SignedTransaction;
+import org.aion.harness.main.LocalNode;
 import org.aion.harness.result.FutureResult;
 import org.aion.harness.main.types.TransactionReceipt;
 import org.aion.harness.result.BulkResult;
 import org.aion.harness.result.LogEventResult;
+import org.aion.harness.result.Result;
 import org.aion.harness.result.RpcResult;
 
 /**
@@ -301,4 +303,54 @@ public final class TestHarnessHelper {
         return BulkResult.successful(results);
     }
 
+    /**
+     * Stops all of the specified nodes at the same time, by calling
+     * {@link LocalNode#blockingStop(long, TimeUnit)} on each of them in its own thread, and blocks
+     * until every one of them has stopped.
+     *
+     * The i'th result in the returned list is the result of stopping the i'th node. Any exception
+     * thrown while stopping a node is captured in that node's result.
+     *
+     * @param nodes The nodes to stop.
+     * @param timeout The timeout to pass to each node's blocking stop.
+     * @param unit The unit of the timeout.
+     * @return the results of stopping the nodes.
+     */
+    public static List<Result> stopNodesConcurrently(List<LocalNode> nodes, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (nodes == null) {
+            throw new NullPointerException("Cannot stop a null list of nodes.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot stop nodes with a null timeout unit.");
+        }
+
+        Result[] results = new Result[nodes.size()];
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            LocalNode node = nodes.get(i);
+            if (node == null) {
+                throw new NullPointerException("Cannot stop a null node.");
+            }
+
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    results[index] = node.blockingStop(timeout, unit);
+                } catch (Throwable e) {
+                    results[index] = Result.unsuccessfulDueTo("Failed to stop node " + node.getID() + ": " + e);
+                }
+            }, "node-shutdown-" + node.getID());
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        return List.of(results);
+    }
 }
@@ -0,0 +1,40 @@
+package org.aion.harness.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count, such as the number of transactions sent or log lines read.
+ *
+ * Counters are cheap to increment from many threads at once, and should be obtained from a
+ * {@link MetricsRegistry} once and then held on to, rather than looked up on every increment.
+ *
+ * This class is thread-safe.
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {}
+
+    public void increment() {
+        this.count.increment();
+    }
+
+    /**
+     * Adds the specified amount, which must be non-negative, to this counter.
+     */
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Cannot decrease a counter by: " + amount);
+        }
+        this.count.add(amount);
+    }
+
+    public long get() {
+        return this.count.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Counter { " + get() + " }";
+    }
+}
@@ -0,0 +1,170 @@
+package org.aion.harness.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes a {@link MetricsRegistry} while the harness runs, so that throughput and latency trends
+ * can be watched live during long runs, rather than only read off {@code printStatistics} at the
+ * end.
+ *
+ * The exporter is configured using the following system properties, and does nothing if neither of
+ * the first two is set:
+ *
+ *   {@code metricsPort} - serve the registry in Prometheus text format at
+ *                         {@code http://127.0.0.1:<port>/metrics}.
+ *   {@code metricsDumpFile} - periodically overwrite this file with the registry, in the same format.
+ *   {@code metricsDumpIntervalSeconds} - how often to dump the registry to file. Defaults to 10.
+ *
+ * All the work is done on a single daemon thread, which never prints anything.
+ *
+ * This class is thread-safe.
+ */
+public final class MetricsExporter {
+    public static final String PORT_PROPERTY = "metricsPort";
+    public static final String DUMP_FILE_PROPERTY = "metricsDumpFile";
+    public static final String DUMP_INTERVAL_PROPERTY = "metricsDumpIntervalSeconds";
+
+    private static final long DEFAULT_DUMP_INTERVAL_SECONDS = 10;
+
+    private final MetricsRegistry registry;
+    private final ScheduledExecutorService worker;
+    private HttpServer server = null;
+
+    private MetricsExporter(MetricsRegistry registry) {
+        this.registry = registry;
+        this.worker = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts exporting the specified registry as configured by the system properties, and returns
+     * the exporter, or returns null if the system properties ask for no exporting.
+     *
+     * A failure to bind the HTTP port is reported as an exception, since the caller asked for it
+     * explicitly.
+     *
+     * @param registry The registry to export.
+     * @return the exporter, or null.
+     */
+    public static MetricsExporter startAsConfigured(MetricsRegistry registry) throws IOException {
+        if (registry == null) {
+            throw new NullPointerException("Cannot export a null registry.");
+        }
+
+        String port = System.getProperty(PORT_PROPERTY);
+        String dumpFile = System.getProperty(DUMP_FILE_PROPERTY);
+        if ((port == null) && (dumpFile == null)) {
+            return null;
+        }
+
+        MetricsExporter exporter = new MetricsExporter(registry);
+        if (port != null) {
+            exporter.serve(Integer.parseInt(port.trim()));
+        }
+        if (dumpFile != null) {
+            exporter.dumpPeriodically(new File(dumpFile), readIntervalSeconds(), TimeUnit.SECONDS);
+        }
+        return exporter;
+    }
+
+    /**
+     * Returns an exporter serving the specified registry at the specified port, or at any free port
+     * if the port is zero.
+     */
+    static MetricsExporter serving(MetricsRegistry registry, int port) throws IOException {
+        MetricsExporter exporter = new MetricsExporter(registry);
+        exporter.serve(port);
+        return exporter;
+    }
+
+    /**
+     * Returns the port the registry is served on, or -1 if it is not being served.
+     */
+    public synchronized int getPort() {
+        return (this.server == null) ? -1 : this.server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving the registry and stops dumping it to file.
+     */
+    public synchronized void stop() {
+        if (this.server != null) {
+            this.server.stop(0);
+            this.server = null;
+        }
+        this.worker.shutdownNow();
+    }
+
+    private synchronized void serve(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/metrics", (exchange) -> {
+            byte[] body = this.registry.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        this.server.setExecutor(this.worker);
+
+        // The server's dispatcher thread inherits its daemon status from the thread that starts it,
+        // and must never keep the JVM alive.
+        try {
+            this.worker.submit(this.server::start).get();
+        } catch (InterruptedException | ExecutionException e) {
+            this.server.stop(0);
+            this.server = null;
+            throw new IOException("Failed to start the metrics server.", e);
+        }
+    }
+
+    /**
+     * Overwrites the specified file with the registry at the specified interval, and once more when
+     * the JVM shuts down.
+     */
+    private void dumpPeriodically(File file, long interval, TimeUnit unit) {
+        this.worker.scheduleWithFixedDelay(() -> dumpTo(file), interval, interval, unit);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dumpTo(file), "metrics-final-dump"));
+    }
+
+    private void dumpTo(File file) {
+        // Write a sibling and rename it, so that readers never see a half-written file.
+        File partial = new File(file.getPath() + ".partial");
+        try {
+            Files.write(partial.toPath(), this.registry.toPrometheusText().getBytes(StandardCharsets.UTF_8));
+            Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Metrics are best-effort; the next dump will try again.
+            partial.delete();
+        }
+    }
+
+    private static long readIntervalSeconds() {
+        String value = System.getProperty(DUMP_INTERVAL_PROPERTY);
+        if (value == null) {
+            return DEFAULT_DUMP_INTERVAL_SECONDS;
+        }
+
+        try {
+            long parsed = Long.parseLong(value.trim());
+            return (parsed > 0) ? parsed : DEFAULT_DUMP_INTERVAL_SECONDS;
+        } catch (NumberFormatException e) {
+            return DEFAULT_DUMP_INTERVAL_SECONDS;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.aion.harness.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+import org.aion.harness.statistics.LatencyHistogram;
+
+/**
+ * A registry of named metrics that the harness keeps up to date while it runs: counters, gauges
+ * and latency histograms.
+ *
+ * A metric is identified by its name and, optionally, a single label (for instance, the RPC method
+ * an RPC latency histogram belongs to). Asking for the same metric twice returns the same instance.
+ *
+ * The whole registry can be rendered in the Prometheus text exposition format using
+ * {@link #toPrometheusText()}; see {@link MetricsExporter} for serving it over HTTP and dumping it
+ * to a file. Histograms are rendered as Prometheus summaries, in seconds.
+ *
+ * This class should be obtained from {@link org.aion.harness.main.global.SingletonFactory}.
+ *
+ * This class is thread-safe.
+ */
+public final class MetricsRegistry {
+    private static final Pattern METRIC_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private enum Type { COUNTER, GAUGE, SUMMARY }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructs an empty registry.
+     */
+    public MetricsRegistry() {}
+
+    /**
+     * Returns the counter with the specified name, creating it if it does not exist yet.
+     *
+     * @param name The name of the counter.
+     * @param help A description of what is being counted.
+     * @return the counter.
+     */
+    public Counter counter(String name, String help) {
+        return (Counter) familyOf(name, help, Type.COUNTER).metrics.computeIfAbsent("", (labels) -> new Counter());
+    }
+
+    /**
+     * Returns the counter with the specified name and label, creating it if it does not exist yet.
+     *
+     * @param name The name of the counter.
+     * @param help A description of what is being counted.
+     * @param labelName The name of the label.
+     * @param labelValue The value of the label.
+     * @return the counter.
+     */
+    public Counter counter(String name, String help, String labelName, String labelValue) {
+        return (Counter) familyOf(name, help, Type.COUNTER).metrics.computeIfAbsent(labelsOf(labelName, labelValue), (labels) -> new Counter());
+    }
+
+    /**
+     * Returns the latency histogram with the specified name, creating it if it does not exist yet.
+     *
+     * @param name The name of the histogram.
+     * @param help A description of the latencies being recorded.
+     * @return the histogram.
+     */
+    public LatencyHistogram histogram(String name, String help) {
+        return (LatencyHistogram) familyOf(name, help, Type.SUMMARY).metrics.computeIfAbsent("", (labels) -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns the latency histogram with the specified name and label, creating it if it does not
+     * exist yet.
+     *
+     * @param name The name of the histogram.
+     * @param help A description of the latencies being recorded.
+     * @param labelName The name of the label.
+     * @param labelValue The value of the label.
+     * @return the histogram.
+     */
+    public LatencyHistogram histogram(String name, String help, String labelName, String labelValue) {
+        return (LatencyHistogram) familyOf(name, help, Type.SUMMARY).metrics.computeIfAbsent(labelsOf(labelName, labelValue), (labels) -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a gauge with the specified name, whose value is read from the specified supplier
+     * whenever the registry is rendered. If the gauge is already registered, this does nothing.
+     *
+     * The supplier is called from whichever thread renders the registry, and so must be cheap and
+     * thread-safe.
+     *
+     * @param name The name of the gauge.
+     * @param help A description of the value being measured.
+     * @param value The supplier of the gauge's current value.
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        if (value == null) {
+            throw new NullPointerException("Cannot register a gauge with a null value supplier.");
+        }
+        familyOf(name, help, Type.GAUGE).metrics.putIfAbsent("", value);
+    }
+
+    /**
+     * Returns every metric in this registry in the Prometheus text exposition format.
+     */
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+
+        for (Map.Entry<String, Family> entry : this.families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+
+            text.append("# HELP ").append(name).append(' ').append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            text.append("# TYPE ").append(name).append(' ').append(family.type.toString().toLowerCase()).append('\n');
+
+            for (Map.Entry<String, Object> metric : family.metrics.entrySet()) {
+                String labels = metric.getKey();
+
+                switch (family.type) {
+                    case COUNTER:
+                        appendSample(text, name, labels, ((Counter) metric.getValue()).get());
+                        break;
+                    case GAUGE:
+                        appendSample(text, name, labels, ((DoubleSupplier) metric.getValue()).getAsDouble());
+                        break;
+                    case SUMMARY:
+                        LatencyHistogram histogram = (LatencyHistogram) metric.getValue();
+                        for (double quantile : QUANTILES) {
+                            String quantileLabel = "quantile=\"" + quantile + "\"";
+                            long nanos = histogram.getPercentile(quantile * 100, TimeUnit.NANOSECONDS);
+                            appendSample(text, name, labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel, nanos / 1e9);
+                        }
+                        appendSample(text, name + "_sum", labels, histogram.getMeanNanos() * histogram.getCount() / 1e9);
+                        appendSample(text, name + "_count", labels, histogram.getCount());
+                        break;
+                }
+            }
+        }
+
+        return text.toString();
+    }
+
+    private Family familyOf(String name, String help, Type type) {
+        if (name == null) {
+            throw new NullPointerException("Cannot get a metric with a null name.");
+        }
+        if (help == null) {
+            throw new NullPointerException("Cannot get a metric with a null description.");
+        }
+
+        Family family = this.families.get(name);
+        if (family == null) {
+            if (!METRIC_NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("Not a valid metric name: " + name);
+            }
+            family = this.families.computeIfAbsent(name, (newName) -> new Family(type, help));
+        }
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + family.type + ", not a " + type);
+        }
+        return family;
+    }
+
+    private static String labelsOf(String labelName, String labelValue) {
+        if (labelName == null) {
+            throw new NullPointerException("Cannot get a metric with a null label name.");
+        }
+        if (labelValue == null) {
+            throw new NullPointerException("Cannot get a metric with a null label value.");
+        }
+        return labelName + "=\"" + labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    private static void appendSample(StringBuilder text, String name, String labels, double value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+    /**
+     * All the metrics sharing a name, keyed by their labels.
+     */
+    private static final class Family {
+        private final Type type;
+        private final String help;
+        private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+
+        private Family(Type type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package org.aion.harness.mock;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.aion.harness.kernel.utils.Blake2b;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * The state of a {@link MockKernel}: its accounts, its pool of pending transactions, and the blocks
+ * and receipts it has sealed so far.
+ *
+ * Transactions are executed as plain transfers: their value moves from sender to destination, and
+ * the sender pays for a fixed amount of energy plus a per-byte charge for the transaction data. A
+ * transaction is rejected if it reuses a nonce that was already sealed, if its energy limit does not
+ * cover its energy, or if its sender cannot afford it. Nonces may otherwise arrive out of order,
+ * since transactions sent concurrently do.
+ *
+ * Every address starts out with the initial balance, so that any key can send transactions.
+ *
+ * This class is thread-safe.
+ */
+final class MockChain {
+    static final long TRANSFER_ENERGY = 21_000;
+    static final long CREATE_ENERGY = 200_000;
+    static final long ENERGY_PER_DATA_BYTE = 16;
+    static final long BLOCK_ENERGY_LIMIT = 15_000_000;
+    static final long DIFFICULTY = 16;
+
+    private static final String BLOOM = hex(256, "00");
+    private static final String EXTRA_DATA = hex(32, "00");
+    private static final String MINER = "a0" + hex(31, "00");
+    private static final String NONCE = hex(32, "00");
+    private static final String SOLUTION = hex(1408, "00");
+    private static final String TARGET = "7f" + hex(31, "ff");
+
+    private final BigInteger initialBalance;
+    private final MockLog log;
+
+    private final Map<String, Account> accounts = new HashMap<>();
+    private final ArrayDeque<RawTransaction> pool = new ArrayDeque<>();
+    private final Set<String> pooledHashes = new HashSet<>();
+    private final Map<String, SealedTransaction> sealedTransactions = new HashMap<>();
+    private final List<SealedBlock> blocks = new ArrayList<>();
+
+    MockChain(BigInteger initialBalance, MockLog log) {
+        this.initialBalance = initialBalance;
+        this.log = log;
+        long timestamp = System.currentTimeMillis() / 1_000;
+        this.blocks.add(new SealedBlock(0, hashOf(new byte[32], 0, timestamp), new byte[32], timestamp, 0, Collections.emptyList()));
+    }
+
+    /**
+     * Adds the specified transaction to the pool and returns null, or returns the reason the
+     * transaction was rejected.
+     */
+    synchronized String submit(RawTransaction transaction) {
+        String hash = Hex.encodeHexString(transaction.hash);
+        if (this.pooledHashes.contains(hash) || this.sealedTransactions.containsKey(hash)) {
+            return "Transaction " + hash + " is already known.";
+        }
+
+        Account sender = accountOf(transaction.sender);
+        String reason = null;
+        if (transaction.nonce.compareTo(sender.nonce) < 0) {
+            reason = "Invalid nonce: expected at least " + sender.nonce + " but got " + transaction.nonce + ".";
+        } else if (transaction.energyLimit < energyOf(transaction)) {
+            reason = "Energy limit " + transaction.energyLimit + " is below the required " + energyOf(transaction) + ".";
+        } else if (sender.balance.compareTo(maximumCostOf(transaction)) < 0) {
+            reason = "Insufficient balance.";
+        }
+
+        if (reason != null) {
+            this.log.transactionRejected(transaction.hash, reason);
+            return reason;
+        }
+
+        this.pool.add(transaction);
+        this.pooledHashes.add(hash);
+        sender.pendingNonce = sender.pendingNonce.max(transaction.nonce.add(BigInteger.ONE));
+        this.log.transactionReceived(transaction.hash);
+        return null;
+    }
+
+    /**
+     * Seals the next block out of at most the specified number of pooled transactions, and returns
+     * its number. Blocks are sealed even when the pool is empty, as the kernel's are.
+     */
+    synchronized long seal(int maxTransactions) {
+        SealedBlock parent = latestBlock();
+        long number = parent.number + 1;
+        long timestamp = Math.max(parent.timestamp, System.currentTimeMillis() / 1_000);
+        byte[] hash = hashOf(parent.hash, number, timestamp);
+
+        List<SealedTransaction> included = new ArrayList<>();
+        long blockEnergy = 0;
+        while (!this.pool.isEmpty() && (included.size() < maxTransactions)) {
+            RawTransaction transaction = this.pool.peek();
+            long energy = energyOf(transaction);
+            if (blockEnergy + energy > BLOCK_ENERGY_LIMIT) {
+                break;
+            }
+            this.pool.poll();
+            this.pooledHashes.remove(Hex.encodeHexString(transaction.hash));
+
+            Account sender = accountOf(transaction.sender);
+            BigInteger cost = transaction.value.add(BigInteger.valueOf(energy).multiply(BigInteger.valueOf(transaction.energyPrice)));
+            if ((transaction.nonce.compareTo(sender.nonce) < 0) || (sender.balance.compareTo(cost) < 0)) {
+                this.log.transactionRejected(transaction.hash, "no longer valid when sealing block #" + number);
+                continue;
+            }
+
+            sender.balance = sender.balance.subtract(cost);
+            sender.nonce = sender.nonce.max(transaction.nonce.add(BigInteger.ONE));
+            byte[] recipient = transaction.isContractCreation() ? transaction.contractAddress() : transaction.destination;
+            Account destination = accountOf(recipient);
+            destination.balance = destination.balance.add(transaction.value);
+
+            blockEnergy += energy;
+            included.add(new SealedTransaction(transaction, number, hash, included.size(), energy, blockEnergy));
+        }
+
+        this.blocks.add(new SealedBlock(number, hash, parent.hash, timestamp, blockEnergy, included));
+        for (SealedTransaction transaction : included) {
+            this.sealedTransactions.put(Hex.encodeHexString(transaction.transaction.hash), transaction);
+            this.log.transactionSealed(transaction.transaction.hash, number);
+        }
+        this.log.blockSealed(number, hash, included.size());
+        return number;
+    }
+
+    synchronized long latestBlockNumber() {
+        return latestBlock().number;
+    }
+
+    synchronized int pooledTransactions() {
+        return this.pool.size();
+    }
+
+    synchronized BigInteger balanceOf(byte[] address) {
+        return accountOf(address).balance;
+    }
+
+    synchronized BigInteger nonceOf(byte[] address, boolean includePooled) {
+        Account account = accountOf(address);
+        return includePooled ? account.pendingNonce.max(account.nonce) : account.nonce;
+    }
+
+    /**
+     * Returns the hash miners are asked to solve for the next block.
+     */
+    synchronized byte[] templateHeaderHash() {
+        SealedBlock parent = latestBlock();
+        return hashOf(parent.hash, parent.number + 1, 0);
+    }
+
+    /**
+     * Returns the specified receipt as a json object, or null if no such transaction is sealed.
+     */
+    synchronized String receiptJson(String transactionHash) {
+        SealedTransaction sealed = this.sealedTransactions.get(transactionHash);
+        if (sealed == null) {
+            return null;
+        }
+
+        RawTransaction transaction = sealed.transaction;
+        String blockHash = Hex.encodeHexString(sealed.blockHash);
+        String contract = transaction.isContractCreation() ? quotedHex(transaction.contractAddress()) : "null";
+        String to = transaction.isContractCreation() ? "null" : quotedHex(transaction.destination);
+
+        return "{"
+            + "\"blockHash\":\"0x" + blockHash + "\","
+            + "\"nrgPrice\":\"0x" + Long.toHexString(transaction.energyPrice) + "\","
+            + "\"logsBloom\":\"0x" + BLOOM + "\","
+            + "\"nrgUsed\":\"0x" + Long.toHexString(sealed.energyUsed) + "\","
+            + "\"contractAddress\":" + contract + ","
+            + "\"transactionIndex\":\"0x" + Integer.toHexString(sealed.index) + "\","
+            + "\"transactionHash\":\"0x" + transactionHash + "\","
+            + "\"gasLimit\":\"0x" + Long.toHexString(transaction.energyLimit) + "\","
+            + "\"cumulativeNrgUsed\":\"0x" + Long.toHexString(sealed.cumulativeEnergyUsed) + "\","
+            + "\"gasUsed\":\"0x" + Long.toHexString(sealed.energyUsed) + "\","
+            + "\"blockNumber\":\"0x" + Long.toHexString(sealed.blockNumber) + "\","
+            + "\"root\":\"0x" + blockHash + "\","
+            + "\"cumulativeGasUsed\":\"0x" + Long.toHexString(sealed.cumulativeEnergyUsed) + "\","
+            + "\"from\":" + quotedHex(transaction.sender) + ","
+            + "\"to\":" + to + ","
+            + "\"logs\":[],"
+            + "\"gasPrice\":\"0x" + Long.toHexString(transaction.energyPrice) + "\","
+            + "\"status\":\"0x1\""
+            + "}";
+    }
+
+    /**
+     * Returns the specified transaction as a json object, or null if it is neither pooled nor sealed.
+     */
+    synchronized String transactionJson(String transactionHash) {
+        SealedTransaction sealed = this.sealedTransactions.get(transactionHash);
+        if (sealed == null) {
+            return this.pooledHashes.contains(transactionHash) ? "{\"hash\":\"0x" + transactionHash + "\",\"blockNumber\":null}" : null;
+        }
+
+        RawTransaction transaction = sealed.transaction;
+        return "{"
+            + "\"hash\":\"0x" + transactionHash + "\","
+            + "\"nonce\":\"0x" + transaction.nonce.toString(16) + "\","
+            + "\"blockHash\":\"0x" + Hex.encodeHexString(sealed.blockHash) + "\","
+            + "\"blockNumber\":\"0x" + Long.toHexString(sealed.blockNumber) + "\","
+            + "\"transactionIndex\":\"0x" + Integer.toHexString(sealed.index) + "\","
+            + "\"from\":" + quotedHex(transaction.sender) + ","
+            + "\"to\":" + (transaction.isContractCreation() ? "null" : quotedHex(transaction.destination)) + ","
+            + "\"value\":\"0x" + transaction.value.toString(16) + "\","
+            + "\"nrgPrice\":\"0x" + Long.toHexString(transaction.energyPrice) + "\","
+            + "\"nrg\":\"0x" + Long.toHexString(transaction.energyLimit) + "\""
+            + "}";
+    }
+
+    /**
+     * Returns the specified block as a json object, or null if no such block is sealed. A negative
+     * number asks for the latest block.
+     */
+    synchronized String blockJson(long number, boolean fullTransactions) {
+        if (number >= this.blocks.size()) {
+            return null;
+        }
+
+        SealedBlock block = (number < 0) ? latestBlock() : this.blocks.get((int) number);
+        String hash = Hex.encodeHexString(block.hash);
+
+        StringBuilder transactions = new StringBuilder("[");
+        for (SealedTransaction transaction : block.transactions) {
+            if (transactions.length() > 1) {
+                transactions.append(',');
+            }
+            String transactionHash = Hex.encodeHexString(transaction.transaction.hash);
+            transactions.append(fullTransactions ? transactionJson(transactionHash) : "\"0x" + transactionHash + "\"");
+        }
+        transactions.append(']');
+
+        return "{"
+            + "\"number\":\"0x" + Long.toHexString(block.number) + "\","
+            + "\"hash\":\"0x" + hash + "\","
+            + "\"parentHash\":\"0x" + Hex.encodeHexString(block.parentHash) + "\","
+            + "\"logsBloom\":\"0x" + BLOOM + "\","
+            + "\"transactionsRoot\":\"0x" + hash + "\","
+            + "\"stateRoot\":\"0x" + hash + "\","
+            + "\"receiptsRoot\":\"0x" + hash + "\","
+            + "\"difficulty\":\"0x" + Long.toHexString(DIFFICULTY) + "\","
+            + "\"totalDifficulty\":\"0x" + Long.toHexString(DIFFICULTY * (block.number + 1)) + "\","
+            + "\"timestamp\":\"0x" + Long.toHexString(block.timestamp) + "\","
+            + "\"miner\":\"0x" + MINER + "\","
+            + "\"gasUsed\":\"0x" + Long.toHexString(block.energyUsed) + "\","
+            + "\"gasLimit\":\"0x" + Long.toHexString(BLOCK_ENERGY_LIMIT) + "\","
+            + "\"extraData\":\"0x" + EXTRA_DATA + "\","
+            + "\"sealType\":\"0x1\","
+            + "\"mainChain\":\"true\","
+            + "\"size\":\"0x" + Integer.toHexString(1_600 + 200 * block.transactions.size()) + "\","
+            + "\"nonce\":\"0x" + NONCE + "\","
+            + "\"solution\":\"0x" + SOLUTION + "\","
+            + "\"transactions\":" + transactions
+            + "}";
+    }
+
+    /**
+     * Returns the block template as a json object.
+     */
+    String templateJson() {
+        return "{\"target\":\"0x" + TARGET + "\",\"headerHash\":\"0x" + Hex.encodeHexString(templateHeaderHash()) + "\"}";
+    }
+
+    private SealedBlock latestBlock() {
+        return this.blocks.get(this.blocks.size() - 1);
+    }
+
+    private Account accountOf(byte[] address) {
+        return this.accounts.computeIfAbsent(Hex.encodeHexString(address), (key) -> new Account(this.initialBalance));
+    }
+
+    private static long energyOf(RawTransaction transaction) {
+        long base = transaction.isContractCreation() ? CREATE_ENERGY : TRANSFER_ENERGY;
+        return base + (ENERGY_PER_DATA_BYTE * transaction.dataLength);
+    }
+
+    private static BigInteger maximumCostOf(RawTransaction transaction) {
+        return transaction.value.add(BigInteger.valueOf(transaction.energyLimit).multiply(BigInteger.valueOf(transaction.energyPrice)));
+    }
+
+    private static byte[] hashOf(byte[] parentHash, long number, long timestamp) {
+        Blake2b digest = Blake2b.Digest.newInstance(32);
+        digest.update(parentHash);
+        digest.update(ByteBuffer.allocate(2 * Long.BYTES).putLong(number).putLong(timestamp).array());
+        return digest.digest();
+    }
+
+    private static String quotedHex(byte[] bytes) {
+        return "\"0x" + Hex.encodeHexString(bytes) + "\"";
+    }
+
+    private static String hex(int bytes, String byteAsHex) {
+        return String.join("", Collections.nCopies(bytes, byteAsHex));
+    }
+
+    private static final class Account {
+        private BigInteger balance;
+        private BigInteger nonce = BigInteger.ZERO;
+        private BigInteger pendingNonce = BigInteger.ZERO;
+
+        private Account(BigInteger balance) {
+            this.balance = balance;
+        }
+    }
+
+    private static final class SealedBlock {
+        private final long number;
+        private final byte[] hash;
+        private final byte[] parentHash;
+        private final long timestamp;
+        private final long energyUsed;
+        private final List<SealedTransaction> transactions;
+
+        private SealedBlock(long number, byte[] hash, byte[] parentHash, long timestamp, long energyUsed, List<SealedTransaction> transactions) {
+            this.number = number;
+            this.hash = hash;
+            this.parentHash = parentHash;
+            this.timestamp = timestamp;
+            this.energyUsed = energyUsed;
+            this.transactions = transactions;
+        }
+    }
+
+    private static final class SealedTransaction {
+        private final RawTransaction transaction;
+        private final long blockNumber;
+        private final byte[] blockHash;
+        private final int index;
+        private final long energyUsed;
+        private final long cumulativeEnergyUsed;
+
+        private SealedTransaction(RawTransaction transaction, long blockNumber, byte[] blockHash, int index, long energyUsed, long cumulativeEnergyUsed) {
+            this.transaction = transaction;
+            this.blockNumber = blockNumber;
+            this.blockHash = blockHash;
+            this.index = index;
+            this.energyUsed = energyUsed;
+            this.cumulativeEnergyUsed = cumulativeEnergyUsed;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package org.aion.harness.mock;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.harness.main.global.SingletonFactory;
+import org.aion.harness.main.tools.RpcMethod;
+import org.aion.harness.result.Result;
+import org.aion.harness.util.LogReader;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * An in-process stand-in for a Java kernel, for exercising the harness without one: it answers the
+ * JSON-RPC methods in {@link RpcMethod} over HTTP, keeps sent transactions in a pool, seals them into
+ * blocks at a fixed interval, and logs what it does to a file in the Java kernel's format.
+ *
+ * A mock kernel is watched just like a real node, so {@link org.aion.harness.main.RPC} is pointed at
+ * {@code 127.0.0.1} and {@link #getPort()}, and {@link org.aion.harness.main.NodeListener#listenTo(int)}
+ * is given {@link #getID()}. The prepackaged Java kernel events are all logged: the sealer starting,
+ * the p2p status, and transactions being sealed or rejected.
+ *
+ * The mock kernel executes no code: every transaction is treated as a transfer, and calls return no
+ * data. It does not mine either; blocks are sealed on schedule, though a solution submitted for the
+ * current block template is accepted and seals the next block at once.
+ *
+ * All of its threads are daemon threads, and none of them print anything.
+ *
+ * This class is thread-safe.
+ */
+public final class MockKernel {
+    public static final long DEFAULT_BLOCK_INTERVAL_MILLIS = 1_000;
+    public static final int DEFAULT_MAX_TRANSACTIONS_PER_BLOCK = 10_000;
+    public static final BigInteger DEFAULT_INITIAL_BALANCE = BigInteger.TEN.pow(30);
+
+    private static final Map<String, RpcMethod> METHODS = new HashMap<>();
+    static {
+        for (RpcMethod method : RpcMethod.values()) {
+            METHODS.put(method.getMethod(), method);
+        }
+    }
+
+    private final File logFile;
+    private final MockLog log;
+    private final MockChain chain;
+    private final int maxTransactionsPerBlock;
+    private final ExecutorService requestExecutor;
+    private final ScheduledExecutorService sealer;
+    private final LogReader logReader;
+    private final int ID;
+    private HttpServer server;
+    private boolean isAlive = true;
+
+    private MockKernel(File logFile, int maxTransactionsPerBlock) throws IOException {
+        this.logFile = logFile;
+        this.log = new MockLog(logFile);
+        this.chain = new MockChain(DEFAULT_INITIAL_BALANCE, this.log);
+        this.maxTransactionsPerBlock = maxTransactionsPerBlock;
+
+        AtomicInteger requestThreads = new AtomicInteger(0);
+        this.requestExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), (runnable) -> {
+            Thread thread = new Thread(runnable, "mock-kernel-rpc-" + requestThreads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sealer = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "mock-kernel-sealer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.logReader = new LogReader();
+        this.ID = SingletonFactory.singleton().nodeWatcher().addReader(this.logReader);
+    }
+
+    /**
+     * Starts a mock kernel on any free port, logging to the specified file, with the default block
+     * interval and block size.
+     *
+     * @param logFile The file to log to. Any existing file is overwritten.
+     * @return the running mock kernel.
+     */
+    public static MockKernel start(File logFile) throws IOException {
+        return start(logFile, 0, DEFAULT_BLOCK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_MAX_TRANSACTIONS_PER_BLOCK);
+    }
+
+    /**
+     * Starts a mock kernel on the specified port, or on any free port if the port is zero, logging
+     * to the specified file, and sealing a block of at most the specified number of transactions at
+     * the specified interval.
+     *
+     * @param logFile The file to log to. Any existing file is overwritten.
+     * @param port The port to answer RPC calls on.
+     * @param blockInterval The time between sealed blocks.
+     * @param unit The unit of the block interval.
+     * @param maxTransactionsPerBlock The most transactions any block holds.
+     * @return the running mock kernel.
+     */
+    public static MockKernel start(File logFile, int port, long blockInterval, TimeUnit unit, int maxTransactionsPerBlock) throws IOException {
+        if (logFile == null) {
+            throw new NullPointerException("Cannot start a mock kernel with a null log file.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot start a mock kernel with a null block interval unit.");
+        }
+        if (blockInterval <= 0) {
+            throw new IllegalArgumentException("Cannot start a mock kernel with a non-positive block interval.");
+        }
+        if (maxTransactionsPerBlock <= 0) {
+            throw new IllegalArgumentException("Cannot start a mock kernel with a non-positive maximum number of transactions per block.");
+        }
+
+        MockKernel kernel = new MockKernel(logFile, maxTransactionsPerBlock);
+        try {
+            kernel.startReading();
+            kernel.serve(port);
+        } catch (IOException e) {
+            kernel.stop();
+            throw e;
+        }
+
+        kernel.log.sealerStarting();
+        kernel.log.peerStatus(0);
+        kernel.log.flush();
+        kernel.sealer.scheduleAtFixedRate(kernel::sealBlock, blockInterval, blockInterval, unit);
+        return kernel;
+    }
+
+    /**
+     * Returns the ID under which this mock kernel's log is watched.
+     */
+    public int getID() {
+        return this.ID;
+    }
+
+    /**
+     * Returns the port RPC calls are answered on, or -1 if this mock kernel is stopped.
+     */
+    public synchronized int getPort() {
+        return (this.server == null) ? -1 : this.server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the file this mock kernel logs to.
+     */
+    public File getLogFile() {
+        return this.logFile;
+    }
+
+    /**
+     * Returns the number of the latest sealed block.
+     */
+    public long getLatestBlockNumber() {
+        return this.chain.latestBlockNumber();
+    }
+
+    /**
+     * Returns the number of transactions waiting to be sealed.
+     */
+    public int getPooledTransactionCount() {
+        return this.chain.pooledTransactions();
+    }
+
+    /**
+     * Seals the next block right away, rather than waiting for the block interval.
+     */
+    public void sealBlock() {
+        this.chain.seal(this.maxTransactionsPerBlock);
+        this.log.flush();
+    }
+
+    public synchronized boolean isAlive() {
+        return this.isAlive;
+    }
+
+    /**
+     * Stops answering RPC calls and sealing blocks, and stops watching the log.
+     */
+    public void stop() {
+        synchronized (this) {
+            if (!this.isAlive) {
+                return;
+            }
+            this.isAlive = false;
+            if (this.server != null) {
+                this.server.stop(0);
+                this.server = null;
+            }
+        }
+
+        this.requestExecutor.shutdownNow();
+        this.sealer.shutdownNow();
+        try {
+            this.sealer.awaitTermination(30, TimeUnit.SECONDS);
+            this.logReader.stopReading();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            SingletonFactory.singleton().nodeWatcher().removeReader(this.ID);
+            this.log.close();
+        }
+    }
+
+    private void startReading() throws IOException {
+        Result result = this.logReader.startReading(this.logFile);
+        if (!result.isSuccess()) {
+            throw new IOException("Failed to read the mock kernel log: " + result.getError());
+        }
+    }
+
+    private synchronized void serve(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(this.requestExecutor);
+
+        // The server's dispatcher thread inherits its daemon status from the thread that starts it,
+        // and must never keep the JVM alive.
+        try {
+            this.requestExecutor.submit(this.server::start).get();
+        } catch (InterruptedException | ExecutionException e) {
+            this.server.stop(0);
+            this.server = null;
+            throw new IOException("Failed to start the mock kernel RPC server.", e);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String request;
+        try (InputStream input = exchange.getRequestBody()) {
+            request = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        byte[] body = respondTo(request).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    /**
+     * Returns the json response to the specified json request.
+     */
+    String respondTo(String request) {
+        String id = "null";
+        try {
+            JsonObject json = new JsonParser().parse(request).getAsJsonObject();
+            id = json.has("id") ? json.get("id").toString() : "null";
+            RpcMethod method = METHODS.get(json.has("method") ? json.get("method").getAsString() : "");
+            if (method == null) {
+                return error(id, -32601, "Method not found");
+            }
+
+            JsonArray params = (json.has("params") && json.get("params").isJsonArray()) ? json.getAsJsonArray("params") : new JsonArray();
+            return resultOf(id, method, params);
+        } catch (RuntimeException | DecoderException e) {
+            return error(id, -32602, "Invalid params: " + e.getMessage());
+        }
+    }
+
+    private String resultOf(String id, RpcMethod method, JsonArray params) throws DecoderException {
+        switch (method) {
+            case SEND_RAW_TRANSACTION:
+                RawTransaction transaction = RawTransaction.decode(hexParam(params, 0));
+                String rejection = this.chain.submit(transaction);
+                return (rejection == null) ? result(id, "\"0x" + Hex.encodeHexString(transaction.hash) + "\"") : error(id, -32010, rejection);
+            case GET_TRANSACTION_RECEIPT:
+                return result(id, orNull(this.chain.receiptJson(hashParam(params))));
+            case GET_TRANSACTION_BY_HASH:
+                return result(id, orNull(this.chain.transactionJson(hashParam(params))));
+            case GET_BLOCK_BY_NUMBER:
+                boolean fullTransactions = (params.size() > 1) && params.get(1).getAsBoolean();
+                return result(id, orNull(this.chain.blockJson(blockNumberParam(params), fullTransactions)));
+            case BLOCK_NUMBER:
+                // The kernel answers this one in decimal.
+                return result(id, Long.toString(this.chain.latestBlockNumber()));
+            case GET_BALANCE:
+                return result(id, "\"0x" + this.chain.balanceOf(hexParam(params, 0)).toString(16) + "\"");
+            case GET_NONCE:
+                boolean includePooled = (params.size() > 1) && "pending".equals(params.get(1).getAsString());
+                return result(id, "\"0x" + this.chain.nonceOf(hexParam(params, 0), includePooled).toString(16) + "\"");
+            case IS_SYNCED:
+                return result(id, "false");
+            case GET_BLOCK_TEMPLATE:
+                return result(id, this.chain.templateJson());
+            case SUBMIT_BLOCK:
+                if ((params.size() > 2) && (Hex.encodeHexString(hexParam(params, 2)).equals(Hex.encodeHexString(this.chain.templateHeaderHash())))) {
+                    sealBlock();
+                    return result(id, "true");
+                }
+                return result(id, "false");
+            case CALL:
+                return result(id, "\"0x\"");
+            case UNLOCK_ACCOUNT:
+                return result(id, "true");
+            default:
+                // Without keys of its own the mock kernel cannot sign, and so only takes raw transactions.
+                return error(id, -32601, "Method not supported by the mock kernel: " + method.getMethod());
+        }
+    }
+
+    private static byte[] hexParam(JsonArray params, int index) throws DecoderException {
+        if (params.size() <= index) {
+            throw new IllegalArgumentException("missing parameter " + index);
+        }
+        return Hex.decodeHex(strip0x(params.get(index).getAsString()));
+    }
+
+    private static String hashParam(JsonArray params) throws DecoderException {
+        return Hex.encodeHexString(hexParam(params, 0));
+    }
+
+    /**
+     * Returns the requested block number, or -1 for the latest block.
+     */
+    private static long blockNumberParam(JsonArray params) {
+        if (params.size() == 0) {
+            throw new IllegalArgumentException("missing parameter 0");
+        }
+
+        JsonElement number = params.get(0);
+        if (number.isJsonPrimitive() && number.getAsJsonPrimitive().isNumber()) {
+            return number.getAsLong();
+        }
+
+        String tag = number.getAsString();
+        if (tag.equals("latest") || tag.equals("pending")) {
+            return -1;
+        }
+        if (tag.equals("earliest")) {
+            return 0;
+        }
+        return tag.startsWith("0x") ? Long.parseLong(tag.substring(2), 16) : Long.parseLong(tag);
+    }
+
+    private static String strip0x(String hex) {
+        return hex.startsWith("0x") ? hex.substring(2) : hex;
+    }
+
+    private static String orNull(String json) {
+        return (json == null) ? "null" : json;
+    }
+
+    private static String result(String id, String result) {
+        return "{\"result\":" + result + ",\"id\":" + id + ",\"jsonrpc\":\"2.0\"}";
+    }
+
+    private static String error(String id, int code, String message) {
+        return "{\"error\":{\"code\":" + code + ",\"message\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"},\"id\":" + id + ",\"jsonrpc\":\"2.0\"}";
+    }
+}
@@ -0,0 +1,81 @@
+package org.aion.harness.mock;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Writes the lines a {@link MockKernel} logs, worded exactly as the Java kernel words them, so that
+ * the harness's prepackaged events and {@link org.aion.harness.main.event.LogLineParser} recognize them.
+ *
+ * Lines are buffered and only reach the file when the log is flushed, which the mock kernel does
+ * once per sealed block, since that is also how often the lines that matter are written.
+ *
+ * This class is thread-safe.
+ */
+final class MockLog {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yy-MM-dd HH:mm:ss.SSS");
+
+    private final BufferedWriter writer;
+
+    MockLog(File file) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    synchronized void sealerStarting() {
+        write("INFO ", "CONS", "main", "sealer starting");
+    }
+
+    synchronized void peerStatus(long bestBlock) {
+        write("INFO ", "P2P ", "p2p-status", "[p2p-status best=" + bestBlock + " peers=0]");
+    }
+
+    synchronized void transactionReceived(byte[] transactionHash) {
+        write("DEBUG", "TX  ", "pool", "Transaction: " + Hex.encodeHexString(transactionHash) + " was added to the pool");
+    }
+
+    synchronized void transactionRejected(byte[] transactionHash, String reason) {
+        write("DEBUG", "TX  ", "pool", "tx " + Hex.encodeHexString(transactionHash) + " is rejected: " + reason);
+    }
+
+    synchronized void transactionSealed(byte[] transactionHash, long blockNumber) {
+        write("DEBUG", "TX  ", "sealer", "Transaction: " + Hex.encodeHexString(transactionHash) + " was sealed into block #" + blockNumber);
+    }
+
+    synchronized void blockSealed(long blockNumber, byte[] blockHash, int transactions) {
+        String hash = Hex.encodeHexString(blockHash);
+        write("INFO ", "CONS", "sealer", "block sealed <num=" + blockNumber + ", hash=" + hash + ", txs=" + transactions + ">");
+        write("INFO ", "CONS", "sealer", "<import-status: node = mock, hash = " + hash + ", number = " + blockNumber + ", txs = " + transactions + ", result = IMPORTED_BEST, time = 0 ms>");
+    }
+
+    synchronized void flush() {
+        try {
+            this.writer.flush();
+        } catch (IOException e) {
+            // The log is best-effort; a listener waiting on a lost line will time out.
+        }
+    }
+
+    synchronized void close() {
+        try {
+            this.writer.close();
+        } catch (IOException e) {
+            // Nothing else to do.
+        }
+    }
+
+    private void write(String level, String module, String thread, String message) {
+        try {
+            this.writer.write(LocalDateTime.now().format(TIMESTAMP) + " " + level + " " + module + " [" + thread + "]: " + message);
+            this.writer.newLine();
+        } catch (IOException e) {
+            // The log is best-effort; a listener waiting on a lost line will time out.
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.aion.harness.mock;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import main.SignedTransactionBuilder;
+import org.aion.harness.kernel.utils.Blake2b;
+import org.aion.harness.kernel.utils.CryptoUtils;
+
+/**
+ * The fields of a signed transaction that the {@link MockKernel} needs, decoded from the raw bytes
+ * sent to it with {@code eth_sendRawTransaction}.
+ *
+ * A signed transaction is an RLP list of its nonce, destination, value, data, timestamp, energy
+ * limit, energy price and type, optionally followed by further fields, and always ending with the
+ * signature, whose first 32 bytes are the sender's public key. Only this one level of RLP needs to
+ * be understood, so it is decoded here rather than by pulling in a full RLP library.
+ *
+ * This class is immutable.
+ */
+final class RawTransaction {
+    private static final int PUBLIC_KEY_LENGTH = 32;
+    private static final int MINIMUM_FIELDS = 9;
+
+    final byte[] hash;
+    final byte[] sender;
+    final byte[] destination;
+    final BigInteger nonce;
+    final BigInteger value;
+    final int dataLength;
+    final long energyLimit;
+    final long energyPrice;
+
+    private RawTransaction(byte[] hash, byte[] sender, byte[] destination, BigInteger nonce, BigInteger value, int dataLength, long energyLimit, long energyPrice) {
+        this.hash = hash;
+        this.sender = sender;
+        this.destination = destination;
+        this.nonce = nonce;
+        this.value = value;
+        this.dataLength = dataLength;
+        this.energyLimit = energyLimit;
+        this.energyPrice = energyPrice;
+    }
+
+    /**
+     * Decodes the specified signed transaction.
+     *
+     * @param bytes The signed transaction.
+     * @return the decoded transaction.
+     * @throws IllegalArgumentException if the bytes are not a signed transaction.
+     */
+    static RawTransaction decode(byte[] bytes) {
+        if (bytes == null) {
+            throw new NullPointerException("Cannot decode a null transaction.");
+        }
+
+        List<byte[]> fields;
+        try {
+            fields = decodeList(bytes);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Cannot decode a truncated transaction.", e);
+        }
+        if (fields.size() < MINIMUM_FIELDS) {
+            throw new IllegalArgumentException("Cannot decode a transaction with only " + fields.size() + " fields.");
+        }
+
+        byte[] destination = fields.get(1);
+        byte[] signature = fields.get(fields.size() - 1);
+        if ((destination.length != 0) && (destination.length != 32)) {
+            throw new IllegalArgumentException("Cannot decode a transaction whose destination is " + destination.length + " bytes.");
+        }
+        if (signature.length < PUBLIC_KEY_LENGTH) {
+            throw new IllegalArgumentException("Cannot decode a transaction whose signature is " + signature.length + " bytes.");
+        }
+
+        byte[] hash;
+        try {
+            hash = SignedTransactionBuilder.getTransactionHashOfSignedTransaction(bytes);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot hash the transaction.", e);
+        }
+
+        return new RawTransaction(
+            hash,
+            CryptoUtils.deriveAddressFromPublicKey(Arrays.copyOf(signature, PUBLIC_KEY_LENGTH)),
+            (destination.length == 0) ? null : destination,
+            new BigInteger(1, fields.get(0)),
+            new BigInteger(1, fields.get(2)),
+            fields.get(3).length,
+            new BigInteger(1, fields.get(5)).longValueExact(),
+            new BigInteger(1, fields.get(6)).longValueExact());
+    }
+
+    /**
+     * Returns true only if this transaction deploys a contract.
+     */
+    boolean isContractCreation() {
+        return this.destination == null;
+    }
+
+    /**
+     * Returns the address of the contract this transaction deploys, which is derived from its sender
+     * and nonce.
+     */
+    byte[] contractAddress() {
+        Blake2b digest = Blake2b.Digest.newInstance(32);
+        digest.update(this.sender);
+        digest.update(this.nonce.toByteArray());
+        byte[] address = digest.digest();
+        address[0] = (byte) 0xa0;
+        return address;
+    }
+
+    /**
+     * Returns the items of the RLP list encoded by the specified bytes. Items that are themselves
+     * lists are returned still encoded.
+     */
+    private static List<byte[]> decodeList(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int prefix = Byte.toUnsignedInt(buffer.get());
+        if (prefix < 0xc0) {
+            throw new IllegalArgumentException("Cannot decode a transaction that is not an RLP list.");
+        }
+
+        int length = readLength(buffer, prefix, 0xc0, 0xf7);
+        if (length != buffer.remaining()) {
+            throw new IllegalArgumentException("Cannot decode a transaction with " + buffer.remaining() + " bytes after a list of " + length + ".");
+        }
+
+        List<byte[]> items = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            int itemPrefix = Byte.toUnsignedInt(buffer.get());
+
+            byte[] item;
+            if (itemPrefix < 0x80) {
+                item = new byte[]{ (byte) itemPrefix };
+            } else if (itemPrefix < 0xc0) {
+                item = new byte[readLength(buffer, itemPrefix, 0x80, 0xb7)];
+                buffer.get(item);
+            } else {
+                int itemLength = readLength(buffer, itemPrefix, 0xc0, 0xf7);
+                item = new byte[buffer.position() - start + itemLength];
+                buffer.position(start);
+                buffer.get(item);
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Returns the length encoded by the specified prefix, which is either short (up to 55, encoded
+     * in the prefix itself) or long (encoded in the bytes that follow the prefix).
+     */
+    private static int readLength(ByteBuffer buffer, int prefix, int shortOffset, int longOffset) {
+        int length;
+        if (prefix <= longOffset) {
+            length = prefix - shortOffset;
+        } else {
+            int lengthOfLength = prefix - longOffset;
+            if (lengthOfLength > 3) {
+                throw new IllegalArgumentException("Cannot decode an RLP item longer than 16MB.");
+            }
+            length = 0;
+            for (int i = 0; i < lengthOfLength; i++) {
+                length = (length << 8) | Byte.toUnsignedInt(buffer.get());
+            }
+        }
+
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Cannot decode an RLP item of " + length + " bytes from " + buffer.remaining() + ".");
+        }
+        return length;
+    }
+}
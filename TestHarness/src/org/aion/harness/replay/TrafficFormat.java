@@ -0,0 +1,70 @@
+package org.aion.harness.replay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The layout of a traffic recording, shared by {@link TrafficRecorder} and {@link TrafficRecording}.
+ *
+ * A recording is a header followed by records, each of which is only ever appended. The header is
+ * the magic number, the format version and the wall-clock time the recording started at, in millis.
+ * Every record starts with its kind and the nanoseconds elapsed since the previous record (or since
+ * the header), followed by:
+ *
+ *   an rpc call - the endpoint, the payload, whether the call succeeded, the response (or error),
+ *                 and how long the call took, in nanoseconds.
+ *   a log line - the name of the stream of log lines it was read in, and the line.
+ *
+ * Numbers are written as unsigned variable-length integers, and strings as their UTF-8 length
+ * followed by their UTF-8 bytes, so most records cost only a few bytes beyond their text.
+ */
+final class TrafficFormat {
+    static final int MAGIC = 0x41485252;
+    static final int VERSION = 2;
+
+    static final int RPC_CALL = 1;
+    static final int LOG_LINE = 2;
+
+    private TrafficFormat() {}
+
+    static void writeNumber(DataOutput output, long number) throws IOException {
+        if (number < 0) {
+            throw new IllegalArgumentException("Cannot write a negative number: " + number);
+        }
+        while ((number & ~0x7FL) != 0) {
+            output.writeByte((int) ((number & 0x7F) | 0x80));
+            number >>>= 7;
+        }
+        output.writeByte((int) number);
+    }
+
+    static long readNumber(DataInput input) throws IOException {
+        long number = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int next = input.readUnsignedByte();
+            number |= (long) (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return number;
+            }
+        }
+        throw new IOException("Malformed number in traffic recording.");
+    }
+
+    static void writeString(DataOutput output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeNumber(output, bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInput input) throws IOException {
+        long length = readNumber(input);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Malformed string length in traffic recording: " + length);
+        }
+        byte[] bytes = new byte[(int) length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
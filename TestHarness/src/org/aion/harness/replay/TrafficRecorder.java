@@ -0,0 +1,158 @@
+package org.aion.harness.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records the rpc calls the harness makes and the kernel log lines it reads into a compact file,
+ * so that a run can later be replayed by {@link TrafficRecording} without a kernel.
+ *
+ * The recorder is enabled by setting the system property {@code trafficRecordFile} to the file to
+ * record into, which is overwritten. Records are only ever appended to the file, so a run that dies
+ * part-way still leaves a readable recording of everything up to the last buffered records, which
+ * are flushed when the JVM shuts down.
+ *
+ * Recording is best-effort: if the file cannot be written to, recording quietly stops and the run
+ * carries on.
+ *
+ * This class is thread-safe.
+ */
+public final class TrafficRecorder {
+    public static final String RECORD_FILE_PROPERTY = "trafficRecordFile";
+
+    private final File file;
+    private final DataOutputStream output;
+    private long timeOfLastRecordInNanos;
+    private boolean isRecording = true;
+
+    private TrafficRecorder(File file) throws IOException {
+        this.file = file;
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false), 1 << 16));
+        this.output.writeInt(TrafficFormat.MAGIC);
+        this.output.writeByte(TrafficFormat.VERSION);
+        this.output.writeLong(System.currentTimeMillis());
+        this.timeOfLastRecordInNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts recording into the specified file, which is overwritten, and returns the recorder.
+     *
+     * @param file The file to record into.
+     * @return the recorder.
+     */
+    public static TrafficRecorder open(File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("Cannot record into a null file.");
+        }
+
+        TrafficRecorder recorder = new TrafficRecorder(file);
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::close, "traffic-recorder-close"));
+        return recorder;
+    }
+
+    /**
+     * Starts recording as configured by the system properties, and returns the recorder, or returns
+     * null if the system properties ask for no recording.
+     *
+     * @return the recorder, or null.
+     */
+    public static TrafficRecorder openAsConfigured() throws IOException {
+        String file = System.getProperty(RECORD_FILE_PROPERTY);
+        return (file == null) ? null : open(new File(file));
+    }
+
+    /**
+     * Returns the file being recorded into.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Records an rpc call that just completed.
+     *
+     * @param endpoint The endpoint that was called.
+     * @param payload The payload of the call.
+     * @param success Whether the call succeeded.
+     * @param response The response to a successful call, or the error of an unsuccessful one.
+     * @param durationInNanos How long the call took.
+     */
+    public synchronized void recordRpcCall(String endpoint, String payload, boolean success, String response, long durationInNanos) {
+        if (!this.isRecording) {
+            return;
+        }
+
+        try {
+            writeRecordHeader(TrafficFormat.RPC_CALL);
+            TrafficFormat.writeString(this.output, endpoint);
+            TrafficFormat.writeString(this.output, payload);
+            this.output.writeBoolean(success);
+            TrafficFormat.writeString(this.output, (response == null) ? "" : response);
+            TrafficFormat.writeNumber(this.output, Math.max(0, durationInNanos));
+        } catch (IOException e) {
+            stopRecording();
+        }
+    }
+
+    /**
+     * Records a line that was just read from a kernel log.
+     *
+     * @param stream The name of the stream of log lines the line was read in.
+     * @param line The line.
+     */
+    public synchronized void recordLogLine(String stream, String line) {
+        if (!this.isRecording) {
+            return;
+        }
+
+        try {
+            writeRecordHeader(TrafficFormat.LOG_LINE);
+            TrafficFormat.writeString(this.output, stream);
+            TrafficFormat.writeString(this.output, line);
+        } catch (IOException e) {
+            stopRecording();
+        }
+    }
+
+    /**
+     * Writes any buffered records to the file.
+     */
+    public synchronized void flush() {
+        if (!this.isRecording) {
+            return;
+        }
+
+        try {
+            this.output.flush();
+        } catch (IOException e) {
+            stopRecording();
+        }
+    }
+
+    /**
+     * Writes any buffered records to the file and stops recording.
+     */
+    public synchronized void close() {
+        flush();
+        stopRecording();
+    }
+
+    private void writeRecordHeader(int kind) throws IOException {
+        long now = System.nanoTime();
+        this.output.writeByte(kind);
+        TrafficFormat.writeNumber(this.output, Math.max(0, now - this.timeOfLastRecordInNanos));
+        this.timeOfLastRecordInNanos = Math.max(now, this.timeOfLastRecordInNanos);
+    }
+
+    private void stopRecording() {
+        this.isRecording = false;
+        try {
+            this.output.close();
+        } catch (IOException e) {
+            // Nothing else to do.
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package org.aion.harness.replay;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.aion.harness.main.tools.RpcPayload;
+import org.aion.harness.result.RpcResult;
+
+/**
+ * A traffic recording made by {@link TrafficRecorder}, read back so that its rpc responses and log
+ * lines can be served in place of a kernel's.
+ *
+ * Replaying is enabled by setting the system property {@code trafficReplayFile} to the recording.
+ * Recorded time is then replayed divided by the system property {@code trafficReplaySpeedup}, which
+ * defaults to 1 (real time); a speedup of 0 replays without any delays.
+ *
+ * Rpc calls are answered in the order they were recorded: a call receives the next unserved response
+ * recorded for an identical payload, or if there is none, the next unserved response recorded for
+ * the same rpc method, since payloads such as signed transactions differ from one run to the next.
+ * Once every response to a payload has been served, its last response is served again, which keeps
+ * polling loops going. The recorded endpoint is ignored, since ports differ from one run to the next.
+ *
+ * Log lines are replayed per stream, named by the log reader after the log's directory and the
+ * number of logs read from that directory before, which stays the same on every run of the same
+ * tests, even when shards and node types run concurrently. A line is not replayed until every rpc call recorded before it has been answered,
+ * so that a line never overtakes the call that caused it, however fast the replay.
+ *
+ * A recording that was cut short, as happens when the recording run is killed, is read up to its
+ * last complete record.
+ *
+ * This class is thread-safe.
+ */
+public final class TrafficRecording {
+    public static final String REPLAY_FILE_PROPERTY = "trafficReplayFile";
+    public static final String REPLAY_SPEEDUP_PROPERTY = "trafficReplaySpeedup";
+
+    private final double speedup;
+    private final Map<String, ArrayDeque<RpcExchange>> payloadToExchanges = new HashMap<>();
+    private final Map<String, ArrayDeque<RpcExchange>> methodToExchanges = new HashMap<>();
+    private final Map<String, RpcExchange> payloadToLastServed = new HashMap<>();
+    private final Map<String, List<LogEntry>> streamToLogEntries = new HashMap<>();
+    private int numberOfRpcCalls = 0;
+    private int numberOfLogLines = 0;
+    private int numberOfServedRpcCalls = 0;
+
+    private TrafficRecording(double speedup) {
+        this.speedup = speedup;
+    }
+
+    /**
+     * Reads the specified recording, to be replayed at the specified speedup.
+     *
+     * @param file The recording.
+     * @param speedup How many times faster than real time to replay, or 0 to replay without delays.
+     * @return the recording.
+     */
+    public static TrafficRecording read(File file, double speedup) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("Cannot read a null recording.");
+        }
+        if (!(speedup >= 0)) {
+            throw new IllegalArgumentException("Cannot replay at a negative speedup: " + speedup);
+        }
+
+        TrafficRecording recording = new TrafficRecording(speedup);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (input.readInt() != TrafficFormat.MAGIC) {
+                throw new IOException("Not a traffic recording: " + file);
+            }
+            int version = input.readUnsignedByte();
+            if (version != TrafficFormat.VERSION) {
+                throw new IOException("Unsupported traffic recording version " + version + ": " + file);
+            }
+            input.readLong();
+
+            recording.readRecords(input);
+        }
+        return recording;
+    }
+
+    /**
+     * Reads the recording configured by the system properties, or returns null if the system
+     * properties ask for no replaying.
+     *
+     * @return the recording, or null.
+     */
+    public static TrafficRecording readAsConfigured() throws IOException {
+        String file = System.getProperty(REPLAY_FILE_PROPERTY);
+        if (file == null) {
+            return null;
+        }
+
+        String speedup = System.getProperty(REPLAY_SPEEDUP_PROPERTY);
+        return read(new File(file), (speedup == null) ? 1 : Double.parseDouble(speedup.trim()));
+    }
+
+    /**
+     * Returns the number of rpc calls in this recording.
+     */
+    public int numberOfRpcCalls() {
+        return this.numberOfRpcCalls;
+    }
+
+    /**
+     * Returns the number of log lines in this recording.
+     */
+    public int numberOfLogLines() {
+        return this.numberOfLogLines;
+    }
+
+    /**
+     * Returns true only if this recording holds log lines of the specified stream.
+     */
+    public boolean hasLogLinesOf(String stream) {
+        return this.streamToLogEntries.containsKey(stream);
+    }
+
+    /**
+     * Returns the recorded result of the rpc call with the specified payload, after waiting for as
+     * long as the call took when it was recorded, scaled by the speedup.
+     *
+     * The result of a successful call is the raw response that was recorded, and the error of an
+     * unsuccessful call is the error that was recorded.
+     *
+     * @param payload The payload of the call.
+     * @param timeOfCallInNanos The time the call was made at, as given by {@link System#nanoTime()}.
+     * @return the recorded result.
+     */
+    public RpcResult<String> respondTo(String payload, long timeOfCallInNanos) throws InterruptedException {
+        if (payload == null) {
+            throw new NullPointerException("Cannot respond to a null payload.");
+        }
+
+        RpcExchange exchange = nextExchangeFor(payload);
+        if (exchange == null) {
+            return RpcResult.unsuccessful("No recorded response to: " + payload);
+        }
+
+        sleep(exchange.durationInNanos);
+        return exchange.success
+            ? RpcResult.successful(exchange.response, timeOfCallInNanos, TimeUnit.NANOSECONDS)
+            : RpcResult.unsuccessful(exchange.response);
+    }
+
+    /**
+     * Hands the log lines of the specified stream to the specified handler, in the calling
+     * thread, with the recorded time between them scaled by the speedup.
+     *
+     * If the rpc calls recorded before a line are never all made, this method waits for them until
+     * it is interrupted.
+     *
+     * @param stream The name of the stream whose lines are to be replayed.
+     * @param handler The handler of the lines.
+     */
+    public void replayLogLines(String stream, Consumer<String> handler) throws InterruptedException {
+        if (handler == null) {
+            throw new NullPointerException("Cannot replay log lines to a null handler.");
+        }
+
+        for (LogEntry entry : this.streamToLogEntries.getOrDefault(stream, Collections.emptyList())) {
+            sleep(entry.nanosSincePreviousLine);
+            awaitServedRpcCalls(entry.rpcCallsBefore);
+            handler.accept(entry.line);
+        }
+    }
+
+    private synchronized void awaitServedRpcCalls(int count) throws InterruptedException {
+        while (this.numberOfServedRpcCalls < count) {
+            wait();
+        }
+    }
+
+    private synchronized RpcExchange nextExchangeFor(String payload) {
+        RpcExchange exchange = pollUnserved(this.payloadToExchanges.get(payload));
+        if (exchange == null) {
+            exchange = pollUnserved(this.methodToExchanges.get(RpcPayload.methodOf(payload)));
+        }
+
+        if (exchange == null) {
+            return this.payloadToLastServed.get(payload);
+        }
+
+        exchange.served = true;
+        this.payloadToLastServed.put(payload, exchange);
+        this.numberOfServedRpcCalls++;
+        notifyAll();
+        return exchange;
+    }
+
+    private static RpcExchange pollUnserved(ArrayDeque<RpcExchange> exchanges) {
+        if (exchanges == null) {
+            return null;
+        }
+
+        // An exchange is queued both by payload and by method, and may be served through either.
+        RpcExchange exchange = exchanges.poll();
+        while ((exchange != null) && exchange.served) {
+            exchange = exchanges.poll();
+        }
+        return exchange;
+    }
+
+    private void sleep(long recordedNanos) throws InterruptedException {
+        if ((this.speedup > 0) && (recordedNanos > 0)) {
+            TimeUnit.NANOSECONDS.sleep((long) (recordedNanos / this.speedup));
+        }
+    }
+
+    private void readRecords(DataInputStream input) throws IOException {
+        Map<String, Long> streamToTimeOfLastLine = new HashMap<>();
+        long timeInNanos = 0;
+
+        while (true) {
+            int kind = input.read();
+            if (kind < 0) {
+                return;
+            }
+
+            try {
+                timeInNanos += TrafficFormat.readNumber(input);
+
+                if (kind == TrafficFormat.RPC_CALL) {
+                    TrafficFormat.readString(input);
+                    String payload = TrafficFormat.readString(input);
+                    boolean success = input.readBoolean();
+                    String response = TrafficFormat.readString(input);
+                    long duration = TrafficFormat.readNumber(input);
+
+                    RpcExchange exchange = new RpcExchange(success, response, duration);
+                    this.payloadToExchanges.computeIfAbsent(payload, (key) -> new ArrayDeque<>()).add(exchange);
+                    this.methodToExchanges.computeIfAbsent(RpcPayload.methodOf(payload), (key) -> new ArrayDeque<>()).add(exchange);
+                    this.numberOfRpcCalls++;
+
+                } else if (kind == TrafficFormat.LOG_LINE) {
+                    String stream = TrafficFormat.readString(input);
+                    String line = TrafficFormat.readString(input);
+
+                    Long timeOfLastLine = streamToTimeOfLastLine.put(stream, timeInNanos);
+                    long sincePrevious = (timeOfLastLine == null) ? 0 : timeInNanos - timeOfLastLine;
+                    this.streamToLogEntries.computeIfAbsent(stream, (key) -> new ArrayList<>()).add(new LogEntry(line, sincePrevious, this.numberOfRpcCalls));
+                    this.numberOfLogLines++;
+
+                } else {
+                    throw new IOException("Unknown record kind in traffic recording: " + kind);
+                }
+            } catch (EOFException e) {
+                // The recording was cut short part-way through its last record.
+                return;
+            }
+        }
+    }
+
+    private static final class RpcExchange {
+        private final boolean success;
+        private final String response;
+        private final long durationInNanos;
+        private boolean served = false;
+
+        private RpcExchange(boolean success, String response, long durationInNanos) {
+            this.success = success;
+            this.response = response;
+            this.durationInNanos = durationInNanos;
+        }
+    }
+
+    private static final class LogEntry {
+        private final String line;
+        private final long nanosSincePreviousLine;
+        private final int rpcCallsBefore;
+
+        private LogEntry(String line, long nanosSincePreviousLine, int rpcCallsBefore) {
+            this.line = line;
+            this.nanosSincePreviousLine = nanosSincePreviousLine;
+            this.rpcCallsBefore = rpcCallsBefore;
+        }
+    }
+}
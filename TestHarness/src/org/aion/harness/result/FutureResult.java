@@ -1,19 +1,82 @@
 package org.aion.harness.result;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A non-cancelling implementation of {@link Future}.
  *
  * This class provides two {@code get()} methods that will block until the result is available to
  * consume.
+ *
+ * Many futures can be waited on together by combining them with {@link #allOf(List)} or
+ * {@link #anyOf(List)}.
  */
 public class FutureResult<V> implements Future {
     private CountDownLatch resultLatch = new CountDownLatch(1);
     private V result = null;
+    private List<Runnable> finishListeners = null;
+
+    /**
+     * Returns a future that finishes once all of the specified futures have finished, with their
+     * results in the same order as the futures.
+     *
+     * @param futures The futures to wait on.
+     * @return the combined future.
+     */
+    public static <V> FutureResult<List<V>> allOf(List<FutureResult<V>> futures) {
+        if (futures == null) {
+            throw new NullPointerException("Cannot combine a null list of futures.");
+        }
+
+        FutureResult<List<V>> combined = new FutureResult<>();
+        AtomicInteger unfinished = new AtomicInteger(futures.size());
+
+        Runnable finishIfLast = () -> {
+            if (unfinished.decrementAndGet() == 0) {
+                List<V> results = new ArrayList<>(futures.size());
+                for (FutureResult<V> future : futures) {
+                    results.add(future.result);
+                }
+                combined.finish(results);
+            }
+        };
+
+        if (futures.isEmpty()) {
+            combined.finish(new ArrayList<>());
+        }
+        for (FutureResult<V> future : futures) {
+            future.whenFinished(finishIfLast);
+        }
+        return combined;
+    }
+
+    /**
+     * Returns a future that finishes as soon as any one of the specified futures has finished, with
+     * the result of that future.
+     *
+     * @param futures The futures to wait on.
+     * @return the combined future.
+     */
+    public static <V> FutureResult<V> anyOf(List<FutureResult<V>> futures) {
+        if (futures == null) {
+            throw new NullPointerException("Cannot combine a null list of futures.");
+        }
+        if (futures.isEmpty()) {
+            throw new IllegalArgumentException("Cannot wait for any one of no futures.");
+        }
+
+        FutureResult<V> combined = new FutureResult<>();
+        for (FutureResult<V> future : futures) {
+            future.whenFinished(() -> combined.finish(future.result));
+        }
+        return combined;
+    }
 
     /**
      * Finishes the future by supplying it with a result and releasing any thread blocked on this
@@ -26,10 +89,39 @@ public class FutureResult<V> implements Future {
      * @param result The result.
      */
     public void finish(V result) {
-        if (resultLatch.getCount() > 0) {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (this.resultLatch.getCount() == 0) {
+                return;
+            }
             this.result = result;
             this.resultLatch.countDown();
+            listeners = this.finishListeners;
+            this.finishListeners = null;
+        }
+
+        if (listeners != null) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Runs the specified listener once this future has finished, in the thread that finishes it, or
+     * right away in the calling thread if it has already finished.
+     */
+    private void whenFinished(Runnable listener) {
+        synchronized (this) {
+            if (this.resultLatch.getCount() > 0) {
+                if (this.finishListeners == null) {
+                    this.finishListeners = new ArrayList<>(1);
+                }
+                this.finishListeners.add(listener);
+                return;
+            }
         }
+        listener.run();
     }
 
     /**
@@ -1,38 +1,39 @@
 package org.aion.harness.statistics;
 
 import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.math.MathContext;
 import java.math.RoundingMode;
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import org.aion.harness.main.types.Block;
 
+/**
+ * Statistics, mostly concerned with energy usage, over the blocks that transactions were sealed
+ * into.
+ *
+ * Blocks are ingested one at a time, in a single pass, so these statistics can either be computed
+ * after the fact using {@link #from(int, List)} or kept up to date live by calling
+ * {@link #ingest(Block)} on an instance obtained from {@link #empty()} as blocks arrive. No blocks
+ * are retained: only the number of times each block number was ingested is remembered.
+ *
+ * This class is thread-safe.
+ */
 public final class BlockStatistics {
-    private final int numberOfTransactions;
-    private final List<Block> blocks;
+    private final LongIntHashMap blockNumbers = new LongIntHashMap();
+    private final RunningStatistics energyLimits = new RunningStatistics();
+    private final RunningStatistics energyUsedAmounts = new RunningStatistics();
+    private final RunningStatistics energyUsedPercentages = new RunningStatistics();
+    private int numberOfTransactions = 0;
 
-    private boolean statisticsHaveBeenComputed = false;
-    private int numberOfUniqueBlocks = 0;
+    private BlockStatistics() {}
 
-    private BigDecimal maximumBlockEnergyLimit = null;
-    private BigDecimal minimumBlockEnergyLimit = null;
-    private BigDecimal meanBlockEnergyLimit = null;
-    private BigDecimal blockEnergyLimitsStandardDeviation = null;
-
-    private BigDecimal maximumBlockEnergyUsed = null;
-    private BigDecimal minimumBlockEnergyUsed = null;
-    private BigDecimal meanBlockEnergyUsed = null;
-    private BigDecimal blockEnergyUsedStandardDeviation = null;
-
-    private BigDecimal maximumBlockEnergyUsedPercentage = null;
-    private BigDecimal minimumBlockEnergyUsedPercentage = null;
-    private BigDecimal meanEnergyUsedPercentage = null;
-    private BigDecimal blockEnergyUsedPercentageStandardDeviation = null;
-
-    private BlockStatistics(int numberOfTransactions, List<Block> blocks) {
+    /**
+     * Returns statistics over the specified blocks, one per transaction, that is, the i'th block
+     * is the block that the i'th transaction was sealed into.
+     *
+     * @param numberOfTransactions The number of transactions.
+     * @param blocks The block each transaction was sealed into.
+     * @return the statistics.
+     */
+    public static BlockStatistics from(int numberOfTransactions, List<Block> blocks) {
         if (blocks == null) {
             throw new NullPointerException("Cannot construct BlockStatistics with null list of blocks.");
         }
@@ -40,12 +41,71 @@ public final class BlockStatistics {
             throw new IllegalArgumentException("Cannot construct BlockStatistics when numberOfTransactions differs from blocks.size()");
         }
 
-        this.numberOfTransactions = numberOfTransactions;
-        this.blocks = new ArrayList<>(blocks);
+        BlockStatistics statistics = new BlockStatistics();
+        for (Block block : blocks) {
+            statistics.ingest(block);
+        }
+        return statistics;
     }
 
-    public static BlockStatistics from(int numberOfTransactions, List<Block> blocks) {
-        return new BlockStatistics(numberOfTransactions, blocks);
+    /**
+     * Returns statistics over no blocks, to which blocks can be added as they arrive using
+     * {@link #ingest(Block)}.
+     */
+    public static BlockStatistics empty() {
+        return new BlockStatistics();
+    }
+
+    /**
+     * Adds the block that a transaction was sealed into to these statistics.
+     *
+     * @param block The block.
+     */
+    public synchronized void ingest(Block block) {
+        if (block == null) {
+            throw new NullPointerException("Cannot ingest a null block.");
+        }
+
+        this.numberOfTransactions++;
+        this.blockNumbers.increment(block.number.longValue());
+        this.energyLimits.add(block.blockEnergyLimit);
+        this.energyUsedAmounts.add(block.blockEnergyUsed);
+        this.energyUsedPercentages.add((block.blockEnergyLimit == 0) ? 0 : 100.0 * block.blockEnergyUsed / block.blockEnergyLimit);
+    }
+
+    /**
+     * Returns the number of transactions whose blocks have been ingested.
+     */
+    public synchronized int getNumberOfTransactions() {
+        return this.numberOfTransactions;
+    }
+
+    /**
+     * Returns the number of distinct blocks that have been ingested.
+     */
+    public synchronized int getNumberOfUniqueBlocks() {
+        return this.blockNumbers.size();
+    }
+
+    /**
+     * Returns a snapshot of the block energy limit statistics.
+     */
+    public synchronized RunningStatistics getBlockEnergyLimitStatistics() {
+        return this.energyLimits.copy();
+    }
+
+    /**
+     * Returns a snapshot of the block energy used statistics.
+     */
+    public synchronized RunningStatistics getBlockEnergyUsedStatistics() {
+        return this.energyUsedAmounts.copy();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the percentage of block energy used.
+     */
+    public synchronized RunningStatistics getBlockEnergyUsedPercentageStatistics() {
+        return this.energyUsedPercentages.copy();
     }
 
     /**
@@ -56,110 +116,41 @@ public final class BlockStatistics {
      * @param decimalPrecision The number of decimal places for these numbers to be accurate to.
      */
     public void printStatistics(int decimalPrecision) {
-        if (!this.statisticsHaveBeenComputed) {
-            computeStatistics(decimalPrecision);
+        int transactions;
+        int uniqueBlocks;
+        RunningStatistics limits;
+        RunningStatistics used;
+        RunningStatistics percentages;
+        synchronized (this) {
+            transactions = this.numberOfTransactions;
+            uniqueBlocks = this.blockNumbers.size();
+            limits = this.energyLimits.copy();
+            used = this.energyUsedAmounts.copy();
+            percentages = this.energyUsedPercentages.copy();
         }
 
         System.out.println("---------------------------------------------------------------------");
-        System.out.println(this.numberOfTransactions + " transaction(s) were sealed into " + this.numberOfUniqueBlocks + " block(s).");
+        System.out.println(transactions + " transaction(s) were sealed into " + uniqueBlocks + " block(s).");
         System.out.println();
-        System.out.println("Maximum block energy limit = " + this.maximumBlockEnergyLimit.toPlainString());
-        System.out.println("Minimum block energy limit = " + this.minimumBlockEnergyLimit.toPlainString());
-        System.out.println("Mean block energy limit = " + this.meanBlockEnergyLimit.toPlainString());
-        System.out.println("Block energy limit standard deviation = " + this.blockEnergyLimitsStandardDeviation.toPlainString());
+        System.out.println("Maximum block energy limit = " + format(limits.getMaximum(), decimalPrecision));
+        System.out.println("Minimum block energy limit = " + format(limits.getMinimum(), decimalPrecision));
+        System.out.println("Mean block energy limit = " + format(limits.getMean(), decimalPrecision));
+        System.out.println("Block energy limit standard deviation = " + format(limits.getStandardDeviation(), decimalPrecision));
         System.out.println();
-        System.out.println("Maximum block energy used = " + this.maximumBlockEnergyUsed.toPlainString());
-        System.out.println("Minimum block energy used = " + this.minimumBlockEnergyUsed.toPlainString());
-        System.out.println("Mean block energy used = " + this.meanBlockEnergyUsed.toPlainString());
-        System.out.println("Block energy used standard deviation = " + this.blockEnergyUsedStandardDeviation.toPlainString());
+        System.out.println("Maximum block energy used = " + format(used.getMaximum(), decimalPrecision));
+        System.out.println("Minimum block energy used = " + format(used.getMinimum(), decimalPrecision));
+        System.out.println("Mean block energy used = " + format(used.getMean(), decimalPrecision));
+        System.out.println("Block energy used standard deviation = " + format(used.getStandardDeviation(), decimalPrecision));
         System.out.println();
-        System.out.println("Maximum percentage of block energy used = " + this.maximumBlockEnergyUsedPercentage.toPlainString() + "%");
-        System.out.println("Minimum percentage of block energy used = " + this.minimumBlockEnergyUsedPercentage.toPlainString() + "%");
-        System.out.println("Mean percentage of block energy used = " + this.meanEnergyUsedPercentage.toPlainString() + "%");
-        System.out.println("Percentage of block energy used standard deviation = " + this.blockEnergyUsedPercentageStandardDeviation.toPlainString() + "%");
+        System.out.println("Maximum percentage of block energy used = " + format(percentages.getMaximum(), 2) + "%");
+        System.out.println("Minimum percentage of block energy used = " + format(percentages.getMinimum(), 2) + "%");
+        System.out.println("Mean percentage of block energy used = " + format(percentages.getMean(), 2) + "%");
+        System.out.println("Percentage of block energy used standard deviation = " + format(percentages.getStandardDeviation(), 2) + "%");
         System.out.println("---------------------------------------------------------------------");
     }
 
-    private void computeStatistics(int precision) {
-        Set<BigInteger> blockNumbers = new HashSet<>();
-
-        BigDecimal totalEnergyLimit = BigDecimal.ZERO;
-        BigDecimal totalEnergyUsed = BigDecimal.ZERO;
-        BigDecimal totalEnergyUsedPercentage = BigDecimal.ZERO;
-        List<BigDecimal> energyLimits = new ArrayList<>();
-        List<BigDecimal> energyUsedAmounts = new ArrayList<>();
-        List<BigDecimal> energyUsedPercentages = new ArrayList<>();
-
-        for (Block block : this.blocks) {
-            blockNumbers.add(block.number);
-
-            BigDecimal energyLimit = BigDecimal.valueOf(block.blockEnergyLimit);
-            energyLimits.add(energyLimit);
-
-            BigDecimal energyUsed = BigDecimal.valueOf(block.blockEnergyUsed);
-            energyUsedAmounts.add(energyUsed);
-
-            BigDecimal usedPercentage = energyUsed.divide(energyLimit, precision, RoundingMode.HALF_UP);
-            energyUsedPercentages.add(usedPercentage);
-
-            this.maximumBlockEnergyLimit = (this.maximumBlockEnergyLimit == null)
-                ? energyLimit
-                : ((this.maximumBlockEnergyLimit.compareTo(energyLimit) < 0) ? energyLimit : this.maximumBlockEnergyLimit);
-
-            this.minimumBlockEnergyLimit = (this.minimumBlockEnergyLimit == null)
-                ? energyLimit
-                : ((this.minimumBlockEnergyLimit.compareTo(energyLimit) > 0) ? energyLimit : this.minimumBlockEnergyLimit);
-
-            this.maximumBlockEnergyUsed = (this.maximumBlockEnergyUsed == null)
-                ? energyUsed
-                : ((this.maximumBlockEnergyUsed.compareTo(energyUsed) < 0) ? energyUsed : this.maximumBlockEnergyUsed);
-
-            this.minimumBlockEnergyUsed = (this.minimumBlockEnergyUsed == null)
-                ? energyUsed
-                : ((this.minimumBlockEnergyUsed.compareTo(energyUsed) > 0) ? energyUsed : this.minimumBlockEnergyUsed);
-
-            this.maximumBlockEnergyUsedPercentage = (this.maximumBlockEnergyUsedPercentage == null)
-                ? usedPercentage
-                : ((this.maximumBlockEnergyUsedPercentage.compareTo(usedPercentage) < 0) ? usedPercentage : this.maximumBlockEnergyUsedPercentage);
-
-            this.minimumBlockEnergyUsedPercentage = (this.minimumBlockEnergyUsedPercentage == null)
-                ? usedPercentage
-                : ((this.minimumBlockEnergyUsedPercentage.compareTo(usedPercentage) > 0) ? usedPercentage : this.minimumBlockEnergyUsedPercentage);
-
-            totalEnergyLimit = totalEnergyLimit.add(energyLimit);
-            totalEnergyUsed = totalEnergyUsed.add(energyUsed);
-            totalEnergyUsedPercentage = totalEnergyUsedPercentage.add(usedPercentage);
-        }
-
-        this.numberOfUniqueBlocks = blockNumbers.size();
-
-        BigDecimal numTransactions = BigDecimal.valueOf(this.numberOfTransactions);
-        BigDecimal hundred = BigDecimal.valueOf(100);
-
-        this.meanBlockEnergyLimit = totalEnergyLimit.divide(numTransactions, precision, RoundingMode.HALF_UP);
-        this.blockEnergyLimitsStandardDeviation = computeStandardDeviation(energyLimits, this.meanBlockEnergyLimit, precision);
-        this.meanBlockEnergyUsed = totalEnergyUsed.divide(numTransactions, precision, RoundingMode.HALF_UP);
-        this.blockEnergyUsedStandardDeviation = computeStandardDeviation(energyUsedAmounts, this.meanBlockEnergyUsed, precision);
-        this.meanEnergyUsedPercentage = totalEnergyUsedPercentage.divide(numTransactions, precision, RoundingMode.HALF_UP);
-        this.blockEnergyUsedPercentageStandardDeviation = computeStandardDeviation(energyUsedPercentages, this.meanEnergyUsedPercentage, precision);
-
-        this.maximumBlockEnergyUsedPercentage = this.maximumBlockEnergyUsedPercentage.multiply(hundred).setScale(2, RoundingMode.HALF_UP);
-        this.minimumBlockEnergyUsedPercentage = this.minimumBlockEnergyUsedPercentage.multiply(hundred).setScale(2, RoundingMode.HALF_UP);
-        this.meanEnergyUsedPercentage = this.meanEnergyUsedPercentage.multiply(hundred).setScale(2, RoundingMode.HALF_UP);
-        this.blockEnergyUsedPercentageStandardDeviation = this.blockEnergyUsedPercentageStandardDeviation.multiply(hundred).setScale(2, RoundingMode.HALF_UP);
-
-        this.statisticsHaveBeenComputed = true;
-    }
-
-    private BigDecimal computeStandardDeviation(List<BigDecimal> numbers, BigDecimal mean, int precision) {
-        BigDecimal squares = BigDecimal.ZERO;
-
-        for (BigDecimal number : numbers) {
-            squares = squares.add(number.multiply(number));
-        }
-
-        BigDecimal variance = squares.divide(mean, precision, RoundingMode.HALF_UP);
-        return variance.sqrt(new MathContext(precision, RoundingMode.HALF_UP));
+    private static String format(double value, int precision) {
+        return BigDecimal.valueOf(value).setScale(precision, RoundingMode.HALF_UP).toPlainString();
     }
 
 }
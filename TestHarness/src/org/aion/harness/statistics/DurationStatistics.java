@@ -1,26 +1,24 @@
 package org.aion.harness.statistics;
 
 import java.math.BigDecimal;
-import java.math.MathContext;
 import java.math.RoundingMode;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.aion.harness.main.util.TestHarnessHelper;
 import org.aion.harness.result.LogEventResult;
 import org.aion.harness.result.RpcResult;
 
+/**
+ * Statistics over the durations between pairs of starting and ending times.
+ *
+ * The durations are recorded into a {@link LatencyHistogram}, so that these statistics take up the
+ * same small amount of memory however many durations they are computed over, and so that they can
+ * be merged with the statistics of other runs.
+ */
 public final class DurationStatistics {
-    private static final BigDecimal SECONDS_DIVISOR = BigDecimal.TEN.pow(9);
-    private final List<BigDecimal> startTimes;
-    private final List<BigDecimal> endTimes;
-
-    private boolean statsHaveBeenComputed = false;
-    private BigDecimal maximumDuration = null;
-    private BigDecimal minimumDuration = null;
-    private BigDecimal meanDuration = null;
-    private BigDecimal totalDuration = BigDecimal.ZERO;
-    private BigDecimal durationsStandardDeviation = null;
+    private static final int SECONDS_SCALE = 9;
+    private final LatencyHistogram durations = new LatencyHistogram();
+    private final long totalDurationInNanos;
 
     private DurationStatistics(long[] startTimes, long[] endTimes) {
         if (startTimes == null) {
@@ -33,15 +31,19 @@ public final class DurationStatistics {
             throw new IllegalArgumentException("Cannot construct statics when results and futures differ in size.");
         }
 
-        this.startTimes = new ArrayList<>();
-        this.endTimes = new ArrayList<>();
+        long earliestTime = Long.MAX_VALUE;
+        long latestTime = Long.MIN_VALUE;
 
         int length = startTimes.length;
         for (int i = 0; i < length; i++) {
-            this.startTimes.add(BigDecimal.valueOf(startTimes[i]));
-            this.endTimes.add(BigDecimal.valueOf(endTimes[i]));
+            earliestTime = Math.min(earliestTime, startTimes[i]);
+            latestTime = Math.max(latestTime, endTimes[i]);
+
+            // An event observed before its request was sent has a duration of zero.
+            this.durations.recordNanos(Math.max(0, endTimes[i] - startTimes[i]));
         }
 
+        this.totalDurationInNanos = (length == 0) ? 0 : latestTime - earliestTime;
     }
 
     /**
@@ -70,89 +72,67 @@ public final class DurationStatistics {
     }
 
     /**
-     * Prints some basic duration statistics to console.
-     *
-     * These statistics are just the maximum & minimum durations, the mean duration, the total
-     * amount of time elapsed between the earliest & latest timestamps, as well as the standard
-     * deviation for the durations.
-     *
-     * @param decimalPrecision The number of decimal places for the numbers to be accurate to.
+     * Returns the histogram of the individual durations. Histograms of several runs can be merged
+     * using {@link LatencyHistogram#merge(LatencyHistogram)}.
      */
-    public void printStatistics(int decimalPrecision) {
-        if (!this.statsHaveBeenComputed) {
-            computeStatistics(decimalPrecision);
-        }
-
-        System.out.println("---------------------------------------------------------------------");
-        System.out.println("Maximum duration: " + this.maximumDuration.toPlainString() + " seconds(s)");
-        System.out.println("Minimum duration: " + this.minimumDuration.toPlainString() + " seconds(s)");
-        System.out.println("Mean duration: " + this.meanDuration.toPlainString() + " second(s)");
-        System.out.println("Total duration: " + this.totalDuration.toPlainString() + " second(s)");
-        System.out.println("Standard deviation of durations: " + this.durationsStandardDeviation.toPlainString() + " second(s)");
-        System.out.println("---------------------------------------------------------------------");
+    public LatencyHistogram getHistogram() {
+        return this.durations;
     }
 
-    private void computeStatistics(int precision) {
-        int size = this.startTimes.size();
-
-        BigDecimal earliestTime = null;
-        BigDecimal latestTime = null;
-
-        List<BigDecimal> durations = new ArrayList<>();
-        for (int i = 0; i < size; i++) {
-            BigDecimal currentResultTime = this.startTimes.get(i);
-            BigDecimal currentFutureTime = this.endTimes.get(i);
-
-            earliestTime = (earliestTime == null) ? currentResultTime : ((earliestTime.compareTo(currentResultTime) < 0) ? earliestTime : currentResultTime);
-            latestTime = (latestTime == null) ? currentFutureTime : ((latestTime.compareTo(currentFutureTime) > 0) ? latestTime : currentFutureTime);
-
-            BigDecimal duration = currentFutureTime.subtract(currentResultTime);
-
-            this.maximumDuration = (this.maximumDuration == null) ? duration : ((this.maximumDuration.compareTo(duration) < 0) ? duration : this.maximumDuration);
-            this.minimumDuration = (this.minimumDuration == null) ? duration : ((this.minimumDuration.compareTo(duration) > 0) ? duration : this.minimumDuration);
-
-            durations.add(duration.divide(SECONDS_DIVISOR, precision, RoundingMode.HALF_UP));
-        }
+    /**
+     * Returns the duration at the specified percentile, between 0 and 100.
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        return this.durations.getPercentile(percentile, unit);
+    }
 
-        // In this case, we must have had a size zero list.
-        if (earliestTime == null) {
-            this.totalDuration = BigDecimal.ZERO;
-            this.maximumDuration = BigDecimal.ZERO;
-            this.minimumDuration = BigDecimal.ZERO;
-            this.meanDuration = BigDecimal.ZERO;
-            this.durationsStandardDeviation = BigDecimal.ZERO;
-        } else {
-            this.totalDuration = latestTime.subtract(earliestTime).divide(SECONDS_DIVISOR, precision, RoundingMode.HALF_UP);
-            this.maximumDuration = this.maximumDuration.divide(SECONDS_DIVISOR, precision, RoundingMode.HALF_UP);
-            this.minimumDuration = this.minimumDuration.divide(SECONDS_DIVISOR, precision, RoundingMode.HALF_UP);
-
-            // The mean is calculated over the individual durations, not the length of time (totalDuration).
-            BigDecimal durationsTotal = sum(durations);
-            this.meanDuration = durationsTotal.divide(BigDecimal.valueOf(size), precision, RoundingMode.HALF_UP);
-
-            this.durationsStandardDeviation = computeStandardDeviation(durations, precision);
-        }
+    /**
+     * Returns the amount of time elapsed between the earliest starting time and the latest ending
+     * time.
+     */
+    public long getTotalDuration(TimeUnit unit) {
+        return unit.convert(this.totalDurationInNanos, TimeUnit.NANOSECONDS);
+    }
 
-        this.statsHaveBeenComputed = true;
+    /**
+     * Returns these statistics as CSV, with all durations in nanoseconds.
+     */
+    public String toCsv() {
+        return this.durations.toCsv() + "total," + this.totalDurationInNanos + "\n";
     }
 
-    private BigDecimal computeStandardDeviation(List<BigDecimal> times, int precision) {
-        BigDecimal squares = BigDecimal.ZERO;
+    /**
+     * Returns these statistics as a JSON object, with all durations in nanoseconds.
+     */
+    public String toJson() {
+        String json = this.durations.toJson();
+        return json.substring(0, json.length() - 1) + ",\"total\":" + this.totalDurationInNanos + "}";
+    }
 
-        for (BigDecimal time : times) {
-            squares = squares.add((time.subtract(this.meanDuration)).pow(2));
+    /**
+     * Prints some basic duration statistics to console.
+     *
+     * These statistics are the maximum & minimum durations, the mean duration, the total amount of
+     * time elapsed between the earliest & latest timestamps, the standard deviation of the durations
+     * and the 50th, 90th, 99th and 99.9th percentile durations.
+     *
+     * @param decimalPrecision The number of decimal places for the numbers to be accurate to.
+     */
+    public void printStatistics(int decimalPrecision) {
+        System.out.println("---------------------------------------------------------------------");
+        System.out.println("Maximum duration: " + seconds(this.durations.getMaximum(TimeUnit.NANOSECONDS), decimalPrecision) + " seconds(s)");
+        System.out.println("Minimum duration: " + seconds(this.durations.getMinimum(TimeUnit.NANOSECONDS), decimalPrecision) + " seconds(s)");
+        System.out.println("Mean duration: " + seconds(this.durations.getMeanNanos(), decimalPrecision) + " second(s)");
+        System.out.println("Total duration: " + seconds(this.totalDurationInNanos, decimalPrecision) + " second(s)");
+        System.out.println("Standard deviation of durations: " + seconds(this.durations.getStandardDeviationNanos(), decimalPrecision) + " second(s)");
+        for (double percentile : LatencyHistogram.REPORTED_PERCENTILES) {
+            System.out.println(LatencyHistogram.formatPercentile(percentile) + "th percentile duration: " + seconds(this.durations.getPercentile(percentile, TimeUnit.NANOSECONDS), decimalPrecision) + " second(s)");
         }
-
-        BigDecimal variance = squares.divide(this.meanDuration, precision, RoundingMode.HALF_UP);
-        return variance.sqrt(new MathContext(precision, RoundingMode.HALF_UP));
+        System.out.println("---------------------------------------------------------------------");
     }
 
-    private BigDecimal sum(List<BigDecimal> numbers) {
-        BigDecimal sum = BigDecimal.ZERO;
-        for (BigDecimal number : numbers) {
-            sum = sum.add(number);
-        }
-        return sum;
+    private static String seconds(double nanos, int precision) {
+        return BigDecimal.valueOf(nanos).movePointLeft(SECONDS_SCALE).setScale(precision, RoundingMode.HALF_UP).toPlainString();
     }
 
 }
@@ -0,0 +1,253 @@
+package org.aion.harness.statistics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A constant-memory recorder of latencies, in the style of an HDR histogram.
+ *
+ * Latencies are recorded in nanoseconds into {@code long} buckets. Every power of two is split
+ * into {@code SUB_BUCKETS / 2} equally wide buckets, so that any recorded latency is known to within
+ * 1% of its value, from single nanoseconds all the way up to {@code Long.MAX_VALUE}, using a fixed
+ * {@code BUCKETS} counters. The count, minimum, maximum, mean and standard deviation are exact;
+ * percentiles are accurate to within the width of a bucket.
+ *
+ * Histograms recorded by separate threads (or separate runs) can be merged into one another.
+ *
+ * This class is thread-safe.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >>> 1;
+    private static final int BUCKETS = SUB_BUCKETS + (62 - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS;
+
+    // The percentiles that are reported by toCsv(), toJson() and DurationStatistics.
+    static final double[] REPORTED_PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong minimum = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maximum = new AtomicLong(Long.MIN_VALUE);
+
+    // Sums for the mean and standard deviation, guarded by this.
+    private double sum = 0;
+    private double sumOfSquares = 0;
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram() {}
+
+    /**
+     * Records the specified latency.
+     *
+     * @param latency The latency.
+     * @param unit The unit of the latency.
+     */
+    public void record(long latency, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException("Cannot record a latency with a null unit.");
+        }
+        recordNanos(unit.toNanos(latency));
+    }
+
+    /**
+     * Records the specified latency, in nanoseconds.
+     *
+     * @param nanos The latency.
+     */
+    public void recordNanos(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Cannot record a negative latency: " + nanos);
+        }
+
+        this.counts.incrementAndGet(bucketOf(nanos));
+        this.count.incrementAndGet();
+        this.minimum.accumulateAndGet(nanos, Math::min);
+        this.maximum.accumulateAndGet(nanos, Math::max);
+
+        double value = nanos;
+        synchronized (this) {
+            this.sum += value;
+            this.sumOfSquares += value * value;
+        }
+    }
+
+    /**
+     * Adds every latency recorded by the specified histogram to this histogram. The other histogram
+     * is left unchanged.
+     *
+     * @param other The histogram to merge into this one.
+     */
+    public void merge(LatencyHistogram other) {
+        if (other == null) {
+            throw new NullPointerException("Cannot merge a null histogram.");
+        }
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long bucketCount = other.counts.get(bucket);
+            if (bucketCount > 0) {
+                this.counts.addAndGet(bucket, bucketCount);
+            }
+        }
+        this.count.addAndGet(other.count.get());
+        this.minimum.accumulateAndGet(other.minimum.get(), Math::min);
+        this.maximum.accumulateAndGet(other.maximum.get(), Math::max);
+
+        double otherSum;
+        double otherSumOfSquares;
+        synchronized (other) {
+            otherSum = other.sum;
+            otherSumOfSquares = other.sumOfSquares;
+        }
+        synchronized (this) {
+            this.sum += otherSum;
+            this.sumOfSquares += otherSumOfSquares;
+        }
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the smallest latency recorded, or zero if none have been.
+     */
+    public long getMinimum(TimeUnit unit) {
+        return (getCount() == 0) ? 0 : unit.convert(this.minimum.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the largest latency recorded, or zero if none have been.
+     */
+    public long getMaximum(TimeUnit unit) {
+        return (getCount() == 0) ? 0 : unit.convert(this.maximum.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the mean of the latencies recorded, in nanoseconds, or zero if none have been.
+     */
+    public synchronized double getMeanNanos() {
+        long samples = getCount();
+        return (samples == 0) ? 0 : this.sum / samples;
+    }
+
+    /**
+     * Returns the (population) standard deviation of the latencies recorded, in nanoseconds, or
+     * zero if none have been.
+     */
+    public synchronized double getStandardDeviationNanos() {
+        long samples = getCount();
+        if (samples == 0) {
+            return 0;
+        }
+        double mean = this.sum / samples;
+        return Math.sqrt(Math.max(0, this.sumOfSquares / samples - mean * mean));
+    }
+
+    /**
+     * Returns the latency at the specified percentile, that is, the smallest latency such that the
+     * specified percentage of the recorded latencies are no larger than it. Returns zero if no
+     * latencies have been recorded.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @param unit The unit to return the latency in.
+     * @return the latency at the percentile.
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        if ((percentile < 0) || (percentile > 100)) {
+            throw new IllegalArgumentException("Percentiles lie between 0 and 100 but was: " + percentile);
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot get a percentile in a null unit.");
+        }
+
+        long samples = getCount();
+        if (samples == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * samples));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += this.counts.get(bucket);
+            if (seen >= rank) {
+                // Report the middle of the bucket, but never beyond what was actually recorded.
+                long nanos = lowestValueOf(bucket) + (widthOf(bucket) - 1) / 2;
+                nanos = Math.max(this.minimum.get(), Math.min(this.maximum.get(), nanos));
+                return unit.convert(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        return getMaximum(unit);
+    }
+
+    /**
+     * Returns the summary of this histogram as CSV with a header line, one row per statistic and
+     * all latencies in nanoseconds.
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder("statistic,nanoseconds\n");
+        csv.append("count,").append(getCount()).append('\n');
+        csv.append("min,").append(getMinimum(TimeUnit.NANOSECONDS)).append('\n');
+        csv.append("mean,").append(Math.round(getMeanNanos())).append('\n');
+        csv.append("stddev,").append(Math.round(getStandardDeviationNanos())).append('\n');
+        for (double percentile : REPORTED_PERCENTILES) {
+            csv.append('p').append(formatPercentile(percentile)).append(',').append(getPercentile(percentile, TimeUnit.NANOSECONDS)).append('\n');
+        }
+        csv.append("max,").append(getMaximum(TimeUnit.NANOSECONDS)).append('\n');
+        return csv.toString();
+    }
+
+    /**
+     * Returns the summary of this histogram as a JSON object, with all latencies in nanoseconds.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"count\":").append(getCount());
+        json.append(",\"min\":").append(getMinimum(TimeUnit.NANOSECONDS));
+        json.append(",\"mean\":").append(Math.round(getMeanNanos()));
+        json.append(",\"stddev\":").append(Math.round(getStandardDeviationNanos()));
+        for (double percentile : REPORTED_PERCENTILES) {
+            json.append(",\"p").append(formatPercentile(percentile)).append("\":").append(getPercentile(percentile, TimeUnit.NANOSECONDS));
+        }
+        json.append(",\"max\":").append(getMaximum(TimeUnit.NANOSECONDS));
+        return json.append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram " + toJson();
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+
+        // Shift the value down until it lies in the upper half of the sub-buckets.
+        int shift = (63 - Long.numberOfLeadingZeros(nanos)) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) ((nanos >>> shift) - HALF_SUB_BUCKETS);
+    }
+
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long subBucket = HALF_SUB_BUCKETS + (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS;
+        return subBucket << shift;
+    }
+
+    private static long widthOf(int bucket) {
+        return (bucket < SUB_BUCKETS) ? 1 : 1L << ((bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1);
+    }
+
+    static String formatPercentile(double percentile) {
+        return (percentile == Math.rint(percentile)) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
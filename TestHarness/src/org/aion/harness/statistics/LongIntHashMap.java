@@ -0,0 +1,92 @@
+package org.aion.harness.statistics;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing map from {@code long} keys to {@code int} values, which neither boxes its
+ * keys and values nor allocates per entry. Absent keys map to zero.
+ *
+ * This class is not thread-safe.
+ */
+final class LongIntHashMap {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private boolean[] occupied = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Adds one to the value of the specified key and returns the new value.
+     */
+    int increment(long key) {
+        int slot = slotOf(key, this.keys, this.occupied);
+        if (!this.occupied[slot]) {
+            if ((this.size + 1) * 4 > this.keys.length * 3) {
+                grow();
+                slot = slotOf(key, this.keys, this.occupied);
+            }
+            this.occupied[slot] = true;
+            this.keys[slot] = key;
+            this.size++;
+        }
+        return ++this.values[slot];
+    }
+
+    /**
+     * Returns the value of the specified key, or zero if it is absent.
+     */
+    int get(long key) {
+        int slot = slotOf(key, this.keys, this.occupied);
+        return this.occupied[slot] ? this.values[slot] : 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns every key in the map, in ascending order.
+     */
+    long[] sortedKeys() {
+        long[] sorted = new long[this.size];
+        int index = 0;
+        for (int slot = 0; slot < this.keys.length; slot++) {
+            if (this.occupied[slot]) {
+                sorted[index++] = this.keys[slot];
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private void grow() {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        boolean[] oldOccupied = this.occupied;
+
+        this.keys = new long[oldKeys.length * 2];
+        this.values = new int[oldKeys.length * 2];
+        this.occupied = new boolean[oldKeys.length * 2];
+
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            if (oldOccupied[oldSlot]) {
+                int slot = slotOf(oldKeys[oldSlot], this.keys, this.occupied);
+                this.occupied[slot] = true;
+                this.keys[slot] = oldKeys[oldSlot];
+                this.values[slot] = oldValues[oldSlot];
+            }
+        }
+    }
+
+    private static int slotOf(long key, long[] keys, boolean[] occupied) {
+        // Block numbers are sequential, so spread them before masking.
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int mask = keys.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (occupied[slot] && (keys[slot] != key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
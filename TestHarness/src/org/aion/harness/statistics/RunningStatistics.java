@@ -0,0 +1,92 @@
+package org.aion.harness.statistics;
+
+/**
+ * The count, minimum, maximum, mean and (population) standard deviation of a stream of values,
+ * computed in a single pass and in constant memory using Welford's algorithm.
+ *
+ * Instances handed out by {@link BlockStatistics} are snapshots and will not change.
+ *
+ * This class is not thread-safe.
+ */
+public final class RunningStatistics {
+    private long count = 0;
+    private double minimum = Double.NaN;
+    private double maximum = Double.NaN;
+    private double mean = 0;
+    private double sumOfSquaredDifferences = 0;
+
+    /**
+     * Constructs statistics of no values.
+     */
+    public RunningStatistics() {}
+
+    /**
+     * Adds the specified value to these statistics.
+     *
+     * @param value The value to add.
+     */
+    public void add(double value) {
+        this.count++;
+        this.minimum = (this.count == 1) ? value : Math.min(this.minimum, value);
+        this.maximum = (this.count == 1) ? value : Math.max(this.maximum, value);
+
+        double difference = value - this.mean;
+        this.mean += difference / this.count;
+        this.sumOfSquaredDifferences += difference * (value - this.mean);
+    }
+
+    /**
+     * Returns a copy of these statistics.
+     */
+    public RunningStatistics copy() {
+        RunningStatistics copy = new RunningStatistics();
+        copy.count = this.count;
+        copy.minimum = this.minimum;
+        copy.maximum = this.maximum;
+        copy.mean = this.mean;
+        copy.sumOfSquaredDifferences = this.sumOfSquaredDifferences;
+        return copy;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the smallest value added, or zero if none have been.
+     */
+    public double getMinimum() {
+        return (this.count == 0) ? 0 : this.minimum;
+    }
+
+    /**
+     * Returns the largest value added, or zero if none have been.
+     */
+    public double getMaximum() {
+        return (this.count == 0) ? 0 : this.maximum;
+    }
+
+    /**
+     * Returns the mean of the values added, or zero if none have been.
+     */
+    public double getMean() {
+        return this.mean;
+    }
+
+    /**
+     * Returns the population standard deviation of the values added, or zero if none have been.
+     */
+    public double getStandardDeviation() {
+        return (this.count == 0) ? 0 : Math.sqrt(this.sumOfSquaredDifferences / this.count);
+    }
+
+    @Override
+    public String toString() {
+        return "RunningStatistics { count = " + this.count
+            + ", min = " + getMinimum()
+            + ", max = " + getMaximum()
+            + ", mean = " + getMean()
+            + ", stddev = " + getStandardDeviation()
+            + " }";
+    }
+}
@@ -1,62 +1,120 @@
 package org.aion.harness.statistics;
 
-import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import org.aion.harness.main.types.TransactionReceipt;
 
+/**
+ * Statistics over the number of transactions sealed into each block.
+ *
+ * Receipts are ingested one at a time, so these statistics can either be computed after the fact
+ * using {@link #from(List)} or kept up to date live by calling {@link #ingest(TransactionReceipt)}
+ * on an instance obtained from {@link #empty()} as receipts arrive. No receipts are retained: only
+ * a primitive count per block number is.
+ *
+ * This class is thread-safe.
+ */
 public final class TransactionStatistics {
-    private final List<TransactionReceipt> receipts;
+    private final LongIntHashMap transactionCounts = new LongIntHashMap();
+    private long totalTransactions = 0;
 
-    private TransactionStatistics(List<TransactionReceipt> receipts) {
+    // The sum of the squares of the per-block counts, kept up to date as the counts grow.
+    private long sumOfSquaredCounts = 0;
+
+    private TransactionStatistics() {}
+
+    public static TransactionStatistics from(List<TransactionReceipt> receipts) {
         if (receipts == null) {
             throw new NullPointerException("Cannot construct TransactionStatistics with null receipts list.");
         }
 
-        this.receipts = new ArrayList<>(receipts);
+        TransactionStatistics statistics = new TransactionStatistics();
+        for (TransactionReceipt receipt : receipts) {
+            statistics.ingest(receipt);
+        }
+        return statistics;
     }
 
-    public static TransactionStatistics from(List<TransactionReceipt> receipts) {
-        return new TransactionStatistics(receipts);
+    /**
+     * Returns statistics over no receipts, to which receipts can be added as they arrive using
+     * {@link #ingest(TransactionReceipt)}.
+     */
+    public static TransactionStatistics empty() {
+        return new TransactionStatistics();
     }
 
     /**
-     * Prints some basic transaction statistics to console.
+     * Adds the specified receipt to these statistics.
      *
-     * These statistics are simply the number of transactions per block.
+     * @param receipt The receipt of a sealed transaction.
      */
-    public void printStatistics() {
-        Map<BigInteger, Integer> mapBlockNumToTransactionCount = new HashMap<>();
+    public synchronized void ingest(TransactionReceipt receipt) {
+        if (receipt == null) {
+            throw new NullPointerException("Cannot ingest a null receipt.");
+        }
 
-        for (TransactionReceipt receipt : this.receipts) {
-            Integer count = mapBlockNumToTransactionCount.get(receipt.getBlockNumber());
+        // (c + 1)^2 = c^2 + 2c + 1
+        int count = this.transactionCounts.increment(receipt.getBlockNumber().longValue());
+        this.sumOfSquaredCounts += 2L * count - 1;
+        this.totalTransactions++;
+    }
 
-            if (count == null) {
-                mapBlockNumToTransactionCount.put(receipt.getBlockNumber(), 1);
-            } else {
-                mapBlockNumToTransactionCount.put(receipt.getBlockNumber(), count + 1);
-            }
+    /**
+     * Returns the number of transactions ingested that were sealed into the specified block.
+     */
+    public synchronized int getTransactionCount(long blockNumber) {
+        return this.transactionCounts.get(blockNumber);
+    }
+
+    public synchronized long getTotalTransactions() {
+        return this.totalTransactions;
+    }
+
+    public synchronized int getNumberOfBlocks() {
+        return this.transactionCounts.size();
+    }
+
+    /**
+     * Returns the mean number of transactions per block, or zero if no receipts were ingested.
+     */
+    public synchronized double getMeanTransactionsPerBlock() {
+        int blocks = this.transactionCounts.size();
+        return (blocks == 0) ? 0 : (double) this.totalTransactions / blocks;
+    }
+
+    /**
+     * Returns the population standard deviation of the number of transactions per block, or zero if
+     * no receipts were ingested.
+     */
+    public synchronized double getTransactionsPerBlockStandardDeviation() {
+        int blocks = this.transactionCounts.size();
+        if (blocks == 0) {
+            return 0;
         }
+        double mean = (double) this.totalTransactions / blocks;
+        return Math.sqrt(Math.max(0, (double) this.sumOfSquaredCounts / blocks - mean * mean));
+    }
 
+    /**
+     * Prints some basic transaction statistics to console.
+     *
+     * These statistics are simply the number of transactions per block, in block order.
+     */
+    public void printStatistics() {
         StringBuilder builder = new StringBuilder("Block transaction counts = [");
 
-        int sum = 0;
-        int index = 0;
-        for (Integer count : mapBlockNumToTransactionCount.values()) {
-            builder.append(count);
+        synchronized (this) {
+            long[] blockNumbers = this.transactionCounts.sortedKeys();
+            for (int index = 0; index < blockNumbers.length; index++) {
+                builder.append(this.transactionCounts.get(blockNumbers[index]));
 
-            if (index < mapBlockNumToTransactionCount.size() - 1) {
-                builder.append(", ");
+                if (index < blockNumbers.length - 1) {
+                    builder.append(", ");
+                }
             }
 
-            sum += count;
-            index++;
+            builder.append("] total = ").append(this.totalTransactions);
         }
 
-        builder.append("] total = ").append(sum);
-
         System.out.println("---------------------------------------------------------------------");
         System.out.println(builder.toString());
         System.out.println("---------------------------------------------------------------------");
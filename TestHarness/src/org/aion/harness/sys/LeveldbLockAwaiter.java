@@ -1,28 +1,42 @@
 package org.aion.harness.sys;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
-import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import org.aion.harness.util.SimpleLog;
 
 /**
  * Block until OS-level lock released for leveldb lock files.
+ *
+ * Every lock file is probed on each attempt (probing is a non-blocking {@code tryLock}, so a whole
+ * round takes microseconds). While any of them is still held, the awaiter backs off exponentially,
+ * starting at {@link #INITIAL_BACKOFF_MILLIS} and doubling up to {@link #MAX_BACKOFF_MILLIS}.
+ *
+ * If the processes that held the locks (typically the kernel that was just stopped, and its
+ * descendants) are given, the awaiter also wakes up the moment any of them exits, since that is
+ * when the operating system releases their locks.
  */
 public class LeveldbLockAwaiter {
     private File databaseDir;
     private SimpleLog log;
 
-    public static final int AWAIT_INTERVAL_SEC = 3;
+    public static final long INITIAL_BACKOFF_MILLIS = 10;
+    public static final long MAX_BACKOFF_MILLIS = 500;
     public static final int AWAIT_LIMIT_MIN = 5;
     private static final List<String> LOCK_FILES = Collections.unmodifiableList(
         List.of(
@@ -61,30 +75,72 @@ public class LeveldbLockAwaiter {
      * @return whether the lock was acquired
      */
     public boolean await(long duration, TimeUnit durationUnit) throws IOException, InterruptedException {
-        List<File> notChecked = getLockFiles().stream()
+        return await(duration, durationUnit, Collections.emptyList());
+    }
+
+    /**
+     * Block for up until given duration until all files of {@link #getLockFiles()} are not
+     * locked, waking up early whenever one of the given lock holders exits.
+     *
+     * @param duration timeout duration value
+     * @param durationUnit timeout duration unit
+     * @param lockHolders the processes that may still be holding the locks
+     * @return whether the lock was acquired
+     */
+    public boolean await(long duration, TimeUnit durationUnit, Collection<ProcessHandle> lockHolders) throws IOException, InterruptedException {
+        if (lockHolders == null) {
+            throw new NullPointerException("Cannot await the exit of null lock holders.");
+        }
+
+        List<File> stillLocked = getLockFiles().stream()
             .map(f -> new File(databaseDir + File.separator + f))
             .collect(Collectors.toList());
 
         long t0 = System.nanoTime();
-        while(! notChecked.isEmpty()
-            && System.nanoTime() - t0 < durationUnit.toNanos(duration)) {
+        long deadline = t0 + durationUnit.toNanos(duration);
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+        boolean loggedWaiting = false;
+
+        while (true) {
+            List<File> locked = new ArrayList<>();
+            for (File file : stillLocked) {
+                if (file.exists() && checkIsFileLocked(file)) {
+                    locked.add(file);
+                }
+            }
+            stillLocked = locked;
+
+            if (stillLocked.isEmpty()) {
+                if (loggedWaiting) {
+                    log.log(String.format("Lock files OK after waiting ~%s ms.", NANOSECONDS.toMillis(System.nanoTime() - t0)));
+                }
+                return true;
+            }
+
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                log.log(String.format("Timed out waiting for lock files to be unlocked: %s", stillLocked));
+                return false;
+            }
 
-            File file = notChecked.get(0);
-            if(file.exists() && checkIsFileLocked(file)) {
+            if (!loggedWaiting) {
                 log.log(String.format(
-                    "Waiting for lock file to be unlocked: '%s' . [total lock waiting time so far: ~%s min, limit: ~%s min]",
-                    file.getPath(),
-                    NANOSECONDS.toMinutes(System.nanoTime() - t0),
-                    AWAIT_LIMIT_MIN
+                    "Waiting for %s lock file(s) to be unlocked, e.g. '%s' . [limit: ~%s min]",
+                    stillLocked.size(),
+                    stillLocked.get(0).getPath(),
+                    durationUnit.toMinutes(duration)
                 ));
-                SECONDS.sleep(AWAIT_INTERVAL_SEC);
+                loggedWaiting = true;
+            }
+
+            long waitMillis = Math.min(backoffMillis, Math.max(1, NANOSECONDS.toMillis(remainingNanos)));
+            if (awaitAnyExit(lockHolders, waitMillis)) {
+                // A holder just exited, so its locks are free now; probe again straight away.
+                backoffMillis = INITIAL_BACKOFF_MILLIS;
             } else {
-                log.log("Lock file OK: " + file.getParent());
-                notChecked.remove(0);
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
             }
         }
-
-        return notChecked.isEmpty();
     }
 
     /*
@@ -95,6 +151,41 @@ public class LeveldbLockAwaiter {
         return await(AWAIT_LIMIT_MIN, MINUTES);
     }
 
+    /*
+     * Block for up to {@link #AWAIT_LIMIT_MIN} minutes until all files of
+     * {@link #getLockFiles()} are not locked, waking up early whenever one of the given lock
+     * holders exits.
+     */
+    public boolean await(Collection<ProcessHandle> lockHolders) throws IOException, InterruptedException {
+        return await(AWAIT_LIMIT_MIN, MINUTES, lockHolders);
+    }
+
+    /**
+     * Waits for up to the given time for any of the live lock holders to exit. Returns true only
+     * if one did. If none of the lock holders are alive, this simply sleeps.
+     */
+    private static boolean awaitAnyExit(Collection<ProcessHandle> lockHolders, long millis) throws InterruptedException {
+        CompletableFuture<?>[] exits = lockHolders.stream()
+            .filter(ProcessHandle::isAlive)
+            .map(ProcessHandle::onExit)
+            .toArray(CompletableFuture[]::new);
+
+        if (exits.length == 0) {
+            MILLISECONDS.sleep(millis);
+            return false;
+        }
+
+        try {
+            CompletableFuture.anyOf(exits).get(millis, MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // onExit never completes exceptionally, but if it somehow did there is nothing to wait on.
+            return true;
+        }
+    }
+
     /** @return whether file is locked */
     private static boolean
     checkIsFileLocked(File file) throws IOException {
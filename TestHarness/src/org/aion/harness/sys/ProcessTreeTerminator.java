@@ -0,0 +1,121 @@
+package org.aion.harness.sys;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Shuts down a tree of processes, such as a kernel launch script and the kernel it started.
+ *
+ * Every process in the tree is first asked to terminate (SIGTERM on Unix). Any process that is
+ * still alive once the grace period has elapsed is then killed forcibly (SIGKILL on Unix). The
+ * grace period defaults to {@code DEFAULT_GRACE_PERIOD_SECONDS} and can be overridden by the
+ * {@code nodeShutdownGracePeriodSeconds} system property.
+ *
+ * Since the processes are tracked by handle, rather than found again by their command lines, a
+ * kernel that has been orphaned by its launch script is still shut down, and the kernels of other
+ * nodes are never touched.
+ */
+public final class ProcessTreeTerminator {
+    public static final String GRACE_PERIOD_PROPERTY = "nodeShutdownGracePeriodSeconds";
+    public static final long DEFAULT_GRACE_PERIOD_SECONDS = 60;
+    private static final long KILL_TIMEOUT_SECONDS = 10;
+
+    private ProcessTreeTerminator() {}
+
+    /**
+     * Returns the specified process followed by all of its currently living descendants.
+     *
+     * @param process The root of the process tree.
+     * @return the processes in the tree.
+     */
+    public static List<ProcessHandle> treeOf(ProcessHandle process) {
+        if (process == null) {
+            throw new NullPointerException("Cannot find the tree of a null process.");
+        }
+
+        List<ProcessHandle> tree = new ArrayList<>();
+        tree.add(process);
+        process.descendants().forEach(tree::add);
+        return tree;
+    }
+
+    /**
+     * Returns the configured grace period, in milliseconds, or the default grace period if the
+     * property is unset or is not a non-negative whole number of seconds, in which case a warning
+     * is printed.
+     */
+    public static long gracePeriodMillis() {
+        String value = System.getProperty(GRACE_PERIOD_PROPERTY);
+        if (value == null) {
+            return TimeUnit.SECONDS.toMillis(DEFAULT_GRACE_PERIOD_SECONDS);
+        }
+
+        try {
+            long seconds = Long.parseLong(value.trim());
+            if (seconds >= 0) {
+                return TimeUnit.SECONDS.toMillis(seconds);
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the warning below.
+        }
+        System.err.println("Ignoring invalid " + GRACE_PERIOD_PROPERTY + " '" + value + "', using the default of " + DEFAULT_GRACE_PERIOD_SECONDS + ".");
+        return TimeUnit.SECONDS.toMillis(DEFAULT_GRACE_PERIOD_SECONDS);
+    }
+
+    /**
+     * Terminates all of the specified processes, waiting up to the configured grace period for them
+     * to exit before killing the rest forcibly.
+     *
+     * @param processes The processes to terminate.
+     * @return whether or not every process exited.
+     */
+    public static boolean terminate(Collection<ProcessHandle> processes) throws InterruptedException {
+        return terminate(processes, gracePeriodMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Terminates all of the specified processes, waiting up to the specified grace period for them
+     * to exit before killing the rest forcibly.
+     *
+     * @param processes The processes to terminate.
+     * @param gracePeriod The grace period.
+     * @param unit The unit of the grace period.
+     * @return whether or not every process exited.
+     */
+    public static boolean terminate(Collection<ProcessHandle> processes, long gracePeriod, TimeUnit unit) throws InterruptedException {
+        if (processes == null) {
+            throw new NullPointerException("Cannot terminate a null collection of processes.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Cannot terminate processes with a null grace period unit.");
+        }
+
+        List<ProcessHandle> living = processes.stream().filter(ProcessHandle::isAlive).collect(Collectors.toList());
+        living.forEach(ProcessHandle::destroy);
+        if (awaitExit(living, gracePeriod, unit)) {
+            return true;
+        }
+
+        living.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+        return awaitExit(living, KILL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static boolean awaitExit(List<ProcessHandle> processes, long timeout, TimeUnit unit) throws InterruptedException {
+        CompletableFuture<?>[] exits = processes.stream().map(ProcessHandle::onExit).toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(exits).get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return processes.stream().noneMatch(ProcessHandle::isAlive);
+        } catch (ExecutionException e) {
+            // Exit futures never complete exceptionally.
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
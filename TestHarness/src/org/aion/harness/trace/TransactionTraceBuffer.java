@@ -0,0 +1,187 @@
+package org.aion.harness.trace;
+
+import java.util.Arrays;
+
+/**
+ * The lifecycle times of many transactions, stored column by column in primitive arrays so that
+ * tracing hundreds of thousands of transactions allocates nothing per transaction beyond the
+ * occasional doubling of the columns.
+ *
+ * Each transaction is a row, found by its 32-byte hash through an open-addressing index of row
+ * numbers keyed by the first 8 bytes of the hash. Every time is a {@link System#nanoTime()} value,
+ * or -1 if that stage of the transaction has not been seen, and only the first time a stage is seen
+ * is kept.
+ *
+ * This class is not thread-safe.
+ */
+final class TransactionTraceBuffer {
+    static final int HASH_LENGTH = 32;
+
+    static final int SUBMIT_START = 0;
+    static final int SUBMIT_END = 1;
+    static final int RECEIVED = 2;
+    static final int SEALED = 3;
+    static final int RECEIPT = 4;
+    static final int NUMBER_OF_STAGES = 5;
+
+    private final int capacity;
+    private int rows = 0;
+    private int droppedRecords = 0;
+
+    private byte[] hashes;
+    private long[] hashPrefixes;
+    private long[] blockNumbers;
+    private final long[][] stages = new long[NUMBER_OF_STAGES][];
+
+    // Row number plus one, or zero for an empty slot.
+    private int[] index;
+
+    TransactionTraceBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cannot trace fewer than one transaction: " + capacity);
+        }
+        this.capacity = capacity;
+
+        int initialRows = Math.min(capacity, 1_024);
+        this.hashes = new byte[initialRows * HASH_LENGTH];
+        this.hashPrefixes = new long[initialRows];
+        this.blockNumbers = new long[initialRows];
+        for (int stage = 0; stage < NUMBER_OF_STAGES; stage++) {
+            this.stages[stage] = new long[initialRows];
+        }
+        int indexSize = 2;
+        while (indexSize < initialRows * 2) {
+            indexSize <<= 1;
+        }
+        this.index = new int[indexSize];
+    }
+
+    int numberOfRows() {
+        return this.rows;
+    }
+
+    /**
+     * Returns the number of times a stage of a new transaction could not be recorded because the
+     * buffer was full.
+     */
+    int numberOfDroppedRecords() {
+        return this.droppedRecords;
+    }
+
+    /**
+     * Records the time of the specified stage of the specified row, unless it was already recorded.
+     */
+    void recordStage(int row, int stage, long timeInNanos) {
+        if (this.stages[stage][row] == -1) {
+            this.stages[stage][row] = timeInNanos;
+        }
+    }
+
+    /**
+     * Records the number of the block the transaction of the specified row was sealed into, unless
+     * it was already recorded or the number is not known.
+     */
+    void recordBlockNumber(int row, long blockNumber) {
+        if ((this.blockNumbers[row] < 0) && (blockNumber >= 0)) {
+            this.blockNumbers[row] = blockNumber;
+        }
+    }
+
+    long stageOf(int row, int stage) {
+        return this.stages[stage][row];
+    }
+
+    long blockNumberOf(int row) {
+        return this.blockNumbers[row];
+    }
+
+    /**
+     * Writes the hash of the specified row into the specified array.
+     */
+    void copyHashOf(int row, byte[] destination) {
+        System.arraycopy(this.hashes, row * HASH_LENGTH, destination, 0, HASH_LENGTH);
+    }
+
+    /**
+     * Returns the row of the specified transaction, adding it if it is new, or -1 if it is new but
+     * the buffer is already full, or if the hash is not a transaction hash at all.
+     */
+    int rowOf(byte[] hash) {
+        if (hash.length != HASH_LENGTH) {
+            return -1;
+        }
+
+        long prefix = prefixOf(hash);
+        int mask = this.index.length - 1;
+        int slot = spread(prefix) & mask;
+
+        while (this.index[slot] != 0) {
+            int row = this.index[slot] - 1;
+            if ((this.hashPrefixes[row] == prefix) && Arrays.equals(this.hashes, row * HASH_LENGTH, (row + 1) * HASH_LENGTH, hash, 0, HASH_LENGTH)) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (this.rows == this.capacity) {
+            this.droppedRecords++;
+            return -1;
+        }
+        if (this.rows == this.hashPrefixes.length) {
+            growColumns();
+        }
+
+        int row = this.rows++;
+        System.arraycopy(hash, 0, this.hashes, row * HASH_LENGTH, HASH_LENGTH);
+        this.hashPrefixes[row] = prefix;
+        this.blockNumbers[row] = -1;
+        for (int stage = 0; stage < NUMBER_OF_STAGES; stage++) {
+            this.stages[stage][row] = -1;
+        }
+
+        if (this.rows * 2 > this.index.length) {
+            growIndex();
+        } else {
+            this.index[slot] = row + 1;
+        }
+        return row;
+    }
+
+    private void growColumns() {
+        int newRows = (int) Math.min((long) this.capacity, this.hashPrefixes.length * 2L);
+        this.hashes = Arrays.copyOf(this.hashes, newRows * HASH_LENGTH);
+        this.hashPrefixes = Arrays.copyOf(this.hashPrefixes, newRows);
+        this.blockNumbers = Arrays.copyOf(this.blockNumbers, newRows);
+        for (int stage = 0; stage < NUMBER_OF_STAGES; stage++) {
+            this.stages[stage] = Arrays.copyOf(this.stages[stage], newRows);
+        }
+    }
+
+    /**
+     * Doubles the index and re-inserts every row, including the one just added.
+     */
+    private void growIndex() {
+        this.index = new int[this.index.length * 2];
+        int mask = this.index.length - 1;
+        for (int row = 0; row < this.rows; row++) {
+            int slot = spread(this.hashPrefixes[row]) & mask;
+            while (this.index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.index[slot] = row + 1;
+        }
+    }
+
+    private static long prefixOf(byte[] hash) {
+        long prefix = 0;
+        for (int i = 0; i < 8; i++) {
+            prefix = (prefix << 8) | (hash[i] & 0xFF);
+        }
+        return prefix;
+    }
+
+    private static int spread(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
@@ -0,0 +1,355 @@
+package org.aion.harness.trace;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.aion.harness.main.event.KernelEvent;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Traces where the time goes in the life of every transaction the harness sends: the rpc call that
+ * submits it, the kernel logging that it was received into the pool and sealed into a block, the
+ * timestamp of that block, and the first successful fetch of its receipt.
+ *
+ * The times of each stage are kept in a compact primitive buffer, and can be written out as CSV or
+ * as a Chrome trace, which can be opened in {@code chrome://tracing} or Perfetto to see, for each
+ * transaction, how long it spent in the harness, in the pool, being mined and being tailed out of
+ * the log.
+ *
+ * Tracing is enabled by setting the system property {@code transactionTraceFile} to the file the
+ * trace is written to when the JVM shuts down: a Chrome trace if the file name ends in
+ * {@code .json}, and CSV otherwise. At most {@code transactionTraceCapacity} transactions are traced
+ * (one million by default), and records of any beyond that are only counted.
+ *
+ * All times are measured by {@link System#nanoTime()} and written relative to when the tracer was
+ * created. Block timestamps are wall-clock seconds chosen by the kernel, so they are placed on the
+ * same timeline by the wall-clock time the tracer was created at, and are only as precise as that.
+ *
+ * This class is thread-safe.
+ */
+public final class TransactionTracer {
+    public static final String TRACE_FILE_PROPERTY = "transactionTraceFile";
+    public static final String TRACE_CAPACITY_PROPERTY = "transactionTraceCapacity";
+    private static final int DEFAULT_CAPACITY = 1_000_000;
+
+    private static final String CSV_HEADER = "transaction_hash,block_number,submit_start_ns,submit_end_ns,received_ns,sealed_ns,block_timestamp_ns,receipt_ns";
+
+    private final TransactionTraceBuffer buffer;
+    private final Map<Long, Long> blockNumberToTimestamp = new HashMap<>();
+    private final long startInNanos;
+    private final long startInEpochNanos;
+
+    private TransactionTracer(int capacity) {
+        this.buffer = new TransactionTraceBuffer(capacity);
+        this.startInNanos = System.nanoTime();
+        this.startInEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns a new tracer that traces at most the specified number of transactions.
+     *
+     * @param capacity The most transactions to trace.
+     * @return the tracer.
+     */
+    public static TransactionTracer create(int capacity) {
+        return new TransactionTracer(capacity);
+    }
+
+    /**
+     * Starts tracing as configured by the system properties, and returns the tracer, or returns null
+     * if the system properties ask for no tracing.
+     *
+     * @return the tracer, or null.
+     */
+    public static TransactionTracer createAsConfigured() {
+        String file = System.getProperty(TRACE_FILE_PROPERTY);
+        if (file == null) {
+            return null;
+        }
+
+        String capacity = System.getProperty(TRACE_CAPACITY_PROPERTY);
+        TransactionTracer tracer = create((capacity == null) ? DEFAULT_CAPACITY : Integer.parseInt(capacity.trim()));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> tracer.writeOnShutdown(new File(file)), "transaction-tracer-write"));
+        return tracer;
+    }
+
+    /**
+     * Returns the number of transactions traced so far.
+     */
+    public synchronized int numberOfTransactions() {
+        return this.buffer.numberOfRows();
+    }
+
+    /**
+     * Returns the number of records of untraced transactions that were dropped because the tracer
+     * was full.
+     */
+    public synchronized int numberOfDroppedRecords() {
+        return this.buffer.numberOfDroppedRecords();
+    }
+
+    /**
+     * Records an rpc call that successfully submitted the specified transaction.
+     *
+     * @param transactionHash The hash of the transaction.
+     * @param startInNanos The time the call was made.
+     * @param endInNanos The time the call returned.
+     */
+    public synchronized void recordSubmit(byte[] transactionHash, long startInNanos, long endInNanos) {
+        if (transactionHash == null) {
+            throw new NullPointerException("Cannot trace a null transaction hash.");
+        }
+        int row = this.buffer.rowOf(transactionHash);
+        if (row >= 0) {
+            this.buffer.recordStage(row, TransactionTraceBuffer.SUBMIT_START, startInNanos);
+            this.buffer.recordStage(row, TransactionTraceBuffer.SUBMIT_END, endInNanos);
+        }
+    }
+
+    /**
+     * Records a kernel event read from a log at the specified time. Only transactions that were
+     * received into the pool or sealed into a block are traced.
+     *
+     * Kernel events are obtained by parsing log lines with
+     * {@link org.aion.harness.main.event.LogLineParser}, which is what the log listener of every
+     * node does with each line it reads.
+     *
+     * @param event The kernel event.
+     * @param readAtInNanos The time the line reporting the event was read.
+     */
+    public void recordKernelEvent(KernelEvent event, long readAtInNanos) {
+        if (event == null) {
+            throw new NullPointerException("Cannot trace a null kernel event.");
+        }
+
+        int stage;
+        if (event.getType() == KernelEvent.Type.TRANSACTION_RECEIVED) {
+            stage = TransactionTraceBuffer.RECEIVED;
+        } else if (event.getType() == KernelEvent.Type.TRANSACTION_SEALED) {
+            stage = TransactionTraceBuffer.SEALED;
+        } else {
+            return;
+        }
+
+        byte[] transactionHash;
+        try {
+            transactionHash = Hex.decodeHex(event.getTransactionHash());
+        } catch (DecoderException e) {
+            return;
+        }
+
+        synchronized (this) {
+            int row = this.buffer.rowOf(transactionHash);
+            if (row >= 0) {
+                this.buffer.recordStage(row, stage, readAtInNanos);
+                this.buffer.recordBlockNumber(row, event.getBlockNumber());
+            }
+        }
+    }
+
+    /**
+     * Records the first successful fetch of the receipt of the specified transaction.
+     *
+     * @param transactionHash The hash of the transaction.
+     * @param blockNumber The number of the block the receipt says the transaction is in.
+     * @param fetchedAtInNanos The time the receipt was fetched.
+     */
+    public synchronized void recordReceipt(byte[] transactionHash, long blockNumber, long fetchedAtInNanos) {
+        if (transactionHash == null) {
+            throw new NullPointerException("Cannot trace a null transaction hash.");
+        }
+        int row = this.buffer.rowOf(transactionHash);
+        if (row >= 0) {
+            this.buffer.recordStage(row, TransactionTraceBuffer.RECEIPT, fetchedAtInNanos);
+            this.buffer.recordBlockNumber(row, blockNumber);
+        }
+    }
+
+    /**
+     * Records the timestamp of the specified block.
+     *
+     * @param blockNumber The number of the block.
+     * @param timestampInSeconds The timestamp of the block, in seconds since the epoch.
+     */
+    public synchronized void recordBlock(long blockNumber, long timestampInSeconds) {
+        this.blockNumberToTimestamp.putIfAbsent(blockNumber, timestampInSeconds);
+    }
+
+    /**
+     * Writes the trace as CSV: one row per transaction, with its times in nanoseconds since the
+     * tracer was created, and blank times for stages that were not seen.
+     *
+     * @param writer The writer to write to.
+     */
+    public synchronized void writeCsv(Writer writer) throws IOException {
+        if (writer == null) {
+            throw new NullPointerException("Cannot write to a null writer.");
+        }
+
+        byte[] hash = new byte[TransactionTraceBuffer.HASH_LENGTH];
+        StringBuilder line = new StringBuilder(256);
+
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        for (int row = 0; row < this.buffer.numberOfRows(); row++) {
+            this.buffer.copyHashOf(row, hash);
+            long blockNumber = this.buffer.blockNumberOf(row);
+
+            line.setLength(0);
+            line.append(Hex.encodeHexString(hash)).append(',');
+            if (blockNumber >= 0) {
+                line.append(blockNumber);
+            }
+            appendTime(line, stageOf(row, TransactionTraceBuffer.SUBMIT_START));
+            appendTime(line, stageOf(row, TransactionTraceBuffer.SUBMIT_END));
+            appendTime(line, stageOf(row, TransactionTraceBuffer.RECEIVED));
+            appendTime(line, stageOf(row, TransactionTraceBuffer.SEALED));
+            appendTime(line, blockTimeOf(blockNumber));
+            appendTime(line, stageOf(row, TransactionTraceBuffer.RECEIPT));
+            line.append('\n');
+
+            writer.append(line);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the trace in the Chrome trace event format, with each transaction on its own track:
+     * its rpc submit, the time from being received (or submitted, if the kernel did not log it)
+     * to being sealed, and the time from being sealed to its receipt being fetched are spans, and
+     * the kernel log lines and block timestamp are instants.
+     *
+     * @param writer The writer to write to.
+     */
+    public synchronized void writeChromeTrace(Writer writer) throws IOException {
+        if (writer == null) {
+            throw new NullPointerException("Cannot write to a null writer.");
+        }
+
+        byte[] hash = new byte[TransactionTraceBuffer.HASH_LENGTH];
+        StringBuilder event = new StringBuilder(256);
+        boolean isFirst = true;
+
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+
+        for (int row = 0; row < this.buffer.numberOfRows(); row++) {
+            this.buffer.copyHashOf(row, hash);
+            long blockNumber = this.buffer.blockNumberOf(row);
+            String args = "{\"tx\":\"" + Hex.encodeHexString(hash) + "\"" + ((blockNumber < 0) ? "" : ",\"block\":" + blockNumber) + "}";
+            int track = row + 1;
+
+            long submitStart = stageOf(row, TransactionTraceBuffer.SUBMIT_START);
+            long submitEnd = stageOf(row, TransactionTraceBuffer.SUBMIT_END);
+            long received = stageOf(row, TransactionTraceBuffer.RECEIVED);
+            long sealed = stageOf(row, TransactionTraceBuffer.SEALED);
+            long receipt = stageOf(row, TransactionTraceBuffer.RECEIPT);
+            long blockTime = blockTimeOf(blockNumber);
+            long enteredPool = (received >= 0) ? received : submitEnd;
+
+            event.setLength(0);
+            appendSpan(event, "rpc submit", submitStart, submitEnd, track, args);
+            appendSpan(event, "pool", enteredPool, sealed, track, args);
+            appendSpan(event, "receipt", (sealed >= 0) ? sealed : submitEnd, receipt, track, args);
+            appendInstant(event, "received", received, track, args);
+            appendInstant(event, "sealed", sealed, track, args);
+            appendInstant(event, "block timestamp", blockTime, track, args);
+
+            if (event.length() > 0) {
+                writer.write(isFirst ? "\n" : ",\n");
+                writer.append(event, 1, event.length());
+                isFirst = false;
+            }
+        }
+
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    /**
+     * Writes the trace to the specified file: a Chrome trace if its name ends in {@code .json}, and
+     * CSV otherwise.
+     *
+     * @param file The file to write to, which is overwritten.
+     */
+    public void writeTo(File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("Cannot write to a null file.");
+        }
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8), 1 << 16)) {
+            if (file.getName().endsWith(".json")) {
+                writeChromeTrace(writer);
+            } else {
+                writeCsv(writer);
+            }
+        }
+    }
+
+    private void writeOnShutdown(File file) {
+        try {
+            writeTo(file);
+        } catch (IOException e) {
+            // Tracing must never stop the tests from running, or from shutting down.
+            System.err.println("Unable to write transaction trace: " + e);
+        }
+    }
+
+    /**
+     * Returns the time of the specified stage of the specified row relative to when the tracer was
+     * created, or -1 if it was not seen.
+     */
+    private long stageOf(int row, int stage) {
+        long time = this.buffer.stageOf(row, stage);
+        return (time == -1) ? -1 : Math.max(0, time - this.startInNanos);
+    }
+
+    /**
+     * Returns the timestamp of the specified block relative to when the tracer was created, or -1 if
+     * it is not known.
+     */
+    private long blockTimeOf(long blockNumber) {
+        Long timestamp = (blockNumber < 0) ? null : this.blockNumberToTimestamp.get(blockNumber);
+        return (timestamp == null) ? -1 : Math.max(0, TimeUnit.SECONDS.toNanos(timestamp) - this.startInEpochNanos);
+    }
+
+    private static void appendTime(StringBuilder line, long timeInNanos) {
+        line.append(',');
+        if (timeInNanos >= 0) {
+            line.append(timeInNanos);
+        }
+    }
+
+    private static void appendSpan(StringBuilder events, String name, long startInNanos, long endInNanos, int track, String args) {
+        if ((startInNanos >= 0) && (endInNanos >= startInNanos)) {
+            events.append(",{\"name\":\"").append(name).append("\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(track)
+                .append(",\"ts\":").append(microsOf(startInNanos))
+                .append(",\"dur\":").append(microsOf(endInNanos - startInNanos))
+                .append(",\"args\":").append(args).append('}');
+        }
+    }
+
+    private static void appendInstant(StringBuilder events, String name, long timeInNanos, int track, String args) {
+        if (timeInNanos >= 0) {
+            events.append(",{\"name\":\"").append(name).append("\",\"ph\":\"i\",\"s\":\"t\",\"pid\":1,\"tid\":").append(track)
+                .append(",\"ts\":").append(microsOf(timeInNanos))
+                .append(",\"args\":").append(args).append('}');
+        }
+    }
+
+    /**
+     * Returns the specified nanoseconds as microseconds, the unit of Chrome traces, to the nanosecond.
+     */
+    private static String microsOf(long nanos) {
+        long fraction = nanos % 1_000;
+        return (nanos / 1_000) + "." + ((fraction < 10) ? "00" : (fraction < 100) ? "0" : "") + fraction;
+    }
+}
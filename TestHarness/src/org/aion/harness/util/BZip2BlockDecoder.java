@@ -0,0 +1,398 @@
+package org.aion.harness.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes a single block of a bzip2 stream, given the bit position of the block's magic number.
+ *
+ * Every bzip2 block is self-contained (its Huffman tables, move-to-front state and run-length
+ * state all start afresh), which is what allows {@link ParallelBZip2InputStream} to decode many
+ * blocks at once. A decoder may also be pointed at a position that merely looks like the start of
+ * a block, in which case it throws an {@link IOException} rather than producing garbage forever.
+ *
+ * This class is not thread-safe, but each decoder only ever reads the shared input buffer.
+ */
+final class BZip2BlockDecoder {
+    static final long BLOCK_MAGIC = 0x314159265359L;
+    static final long END_OF_STREAM_MAGIC = 0x177245385090L;
+    static final int MAX_BLOCK_SIZE = 900_000;
+
+    private static final int RUN_A = 0;
+    private static final int RUN_B = 1;
+    private static final int MAX_ALPHABET_SIZE = 258;
+    private static final int MAX_CODE_LENGTH = 20;
+    private static final int MAX_GROUPS = 6;
+    private static final int GROUP_SIZE = 50;
+    private static final int MAX_SELECTORS = 18002;
+    private static final int[] CRC_TABLE = newCrcTable();
+
+    // The inverse BWT vector is the largest allocation by far, so each thread keeps its own.
+    private static final ThreadLocal<int[]> TT = ThreadLocal.withInitial(() -> new int[MAX_BLOCK_SIZE]);
+
+    private final BitReader reader;
+
+    // The Huffman tables of the block being decoded, and which of them is currently selected.
+    private byte[] selectors;
+    private int[][] limit;
+    private int[][] base;
+    private int[][] permutation;
+    private int[] minimumLength;
+    private int selectorIndex = -1;
+    private int remainingInGroup = 0;
+    private int group = 0;
+
+    /**
+     * A decoded block.
+     */
+    static final class Block {
+        final long startBitPosition;
+        final long endBitPosition;
+        final int size;
+        final int crc;
+        final byte[] data;
+        final int length;
+
+        private Block(long startBitPosition, long endBitPosition, int size, int crc, byte[] data, int length) {
+            this.startBitPosition = startBitPosition;
+            this.endBitPosition = endBitPosition;
+            this.size = size;
+            this.crc = crc;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    BZip2BlockDecoder(ByteBuffer data, long startBitPosition) {
+        this.reader = new BitReader(data, startBitPosition);
+    }
+
+    /**
+     * Decodes the block and verifies its checksum.
+     *
+     * @return the decoded block.
+     */
+    Block decode() throws IOException {
+        long start = this.reader.position();
+        if (this.reader.readLong(48) != BLOCK_MAGIC) {
+            throw new IOException("No bzip2 block at bit position " + start);
+        }
+        int storedCrc = this.reader.readInt(32);
+        if (this.reader.readInt(1) != 0) {
+            throw new IOException("Randomised bzip2 blocks are not supported.");
+        }
+        int originalPointer = this.reader.readInt(24);
+
+        // The symbols that are in use, as a two-level bit map.
+        int[] symbolOf = new int[256];
+        int symbolsInUse = 0;
+        int ranges = this.reader.readInt(16);
+        for (int i = 0; i < 16; i++) {
+            if ((ranges & (0x8000 >>> i)) != 0) {
+                int used = this.reader.readInt(16);
+                for (int j = 0; j < 16; j++) {
+                    if ((used & (0x8000 >>> j)) != 0) {
+                        symbolOf[symbolsInUse++] = (i << 4) | j;
+                    }
+                }
+            }
+        }
+        if (symbolsInUse == 0) {
+            throw new IOException("Corrupt bzip2 block: no symbols in use.");
+        }
+        int alphabetSize = symbolsInUse + 2;
+
+        // The Huffman table selectors, which are themselves move-to-front encoded.
+        int groups = this.reader.readInt(3);
+        int selectorsCount = this.reader.readInt(15);
+        if ((groups < 2) || (groups > MAX_GROUPS) || (selectorsCount < 1)) {
+            throw new IOException("Corrupt bzip2 block: bad Huffman group or selector count.");
+        }
+        byte[] groupOrder = new byte[MAX_GROUPS];
+        for (int i = 0; i < groups; i++) {
+            groupOrder[i] = (byte) i;
+        }
+        byte[] selectors = new byte[Math.min(selectorsCount, MAX_SELECTORS)];
+        for (int i = 0; i < selectorsCount; i++) {
+            int index = 0;
+            while (this.reader.readInt(1) == 1) {
+                if (++index >= groups) {
+                    throw new IOException("Corrupt bzip2 block: bad selector.");
+                }
+            }
+            byte selected = groupOrder[index];
+            System.arraycopy(groupOrder, 0, groupOrder, 1, index);
+            groupOrder[0] = selected;
+            if (i < selectors.length) {
+                selectors[i] = selected;
+            }
+        }
+
+        // The Huffman code lengths of each group, delta encoded.
+        int[][] limit = new int[groups][MAX_CODE_LENGTH + 2];
+        int[][] base = new int[groups][MAX_CODE_LENGTH + 2];
+        int[][] permutation = new int[groups][MAX_ALPHABET_SIZE];
+        int[] minimumLength = new int[groups];
+        int[] lengths = new int[alphabetSize];
+        for (int table = 0; table < groups; table++) {
+            int length = this.reader.readInt(5);
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                while (true) {
+                    if ((length < 1) || (length > MAX_CODE_LENGTH)) {
+                        throw new IOException("Corrupt bzip2 block: bad Huffman code length.");
+                    }
+                    if (this.reader.readInt(1) == 0) {
+                        break;
+                    }
+                    length += (this.reader.readInt(1) == 0) ? 1 : -1;
+                }
+                lengths[symbol] = length;
+            }
+            minimumLength[table] = createDecodeTables(lengths, alphabetSize, limit[table], base[table], permutation[table]);
+        }
+
+        // The move-to-front and run-length encoded BWT output.
+        int[] tt = TT.get();
+        int[] counts = new int[256];
+        byte[] moveToFront = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            moveToFront[i] = (byte) i;
+        }
+
+        this.selectors = selectors;
+        this.limit = limit;
+        this.base = base;
+        this.permutation = permutation;
+        this.minimumLength = minimumLength;
+
+        int endOfBlock = symbolsInUse + 1;
+        int size = 0;
+        int symbol = nextSymbol();
+        while (symbol != endOfBlock) {
+            if ((symbol == RUN_A) || (symbol == RUN_B)) {
+                int run = 0;
+                int weight = 1;
+                do {
+                    if (weight > MAX_BLOCK_SIZE) {
+                        throw new IOException("Corrupt bzip2 block: run is too long.");
+                    }
+                    run += (symbol == RUN_A) ? weight : (weight << 1);
+                    weight <<= 1;
+                    symbol = nextSymbol();
+                } while ((symbol == RUN_A) || (symbol == RUN_B));
+
+                int value = symbolOf[moveToFront[0] & 0xff];
+                if (size + run > MAX_BLOCK_SIZE) {
+                    throw new IOException("Corrupt bzip2 block: block is too large.");
+                }
+                counts[value] += run;
+                Arrays.fill(tt, size, size + run, value);
+                size += run;
+            } else {
+                int index = symbol - 1;
+                if (index >= symbolsInUse) {
+                    throw new IOException("Corrupt bzip2 block: bad move-to-front index.");
+                }
+                byte front = moveToFront[index];
+                System.arraycopy(moveToFront, 0, moveToFront, 1, index);
+                moveToFront[0] = front;
+
+                int value = symbolOf[front & 0xff];
+                if (size >= MAX_BLOCK_SIZE) {
+                    throw new IOException("Corrupt bzip2 block: block is too large.");
+                }
+                counts[value]++;
+                tt[size++] = value;
+                symbol = nextSymbol();
+            }
+        }
+
+        if ((originalPointer < 0) || (originalPointer >= size)) {
+            throw new IOException("Corrupt bzip2 block: bad original pointer.");
+        }
+        long end = this.reader.position();
+
+        // Undo the Burrows-Wheeler transform, threading the next index through the upper 24 bits.
+        int[] cumulative = new int[256];
+        for (int i = 1; i < 256; i++) {
+            cumulative[i] = cumulative[i - 1] + counts[i - 1];
+        }
+        for (int i = 0; i < size; i++) {
+            int value = tt[i] & 0xff;
+            tt[cumulative[value]++] |= (i << 8);
+        }
+
+        // Undo the initial run-length encoding (runs of four bytes followed by a repeat count).
+        byte[] output = new byte[size + (size >>> 2) + 16];
+        int length = 0;
+        int crc = 0xffffffff;
+        int last = -1;
+        int repeats = 0;
+        int position = tt[originalPointer] >>> 8;
+        for (int i = 0; i < size; i++) {
+            position = tt[position];
+            int value = position & 0xff;
+            position >>>= 8;
+
+            int copies;
+            if (repeats == 4) {
+                copies = value;
+                value = last;
+                repeats = 0;
+            } else {
+                copies = 1;
+                repeats = (value == last) ? repeats + 1 : 1;
+                last = value;
+            }
+
+            if (length + copies > output.length) {
+                output = Arrays.copyOf(output, Math.max(output.length << 1, length + copies));
+            }
+            for (int j = 0; j < copies; j++) {
+                output[length++] = (byte) value;
+                crc = (crc << 8) ^ CRC_TABLE[((crc >>> 24) ^ value) & 0xff];
+            }
+        }
+        crc = ~crc;
+
+        if (crc != storedCrc) {
+            throw new IOException("Corrupt bzip2 block: checksum mismatch at bit position " + start);
+        }
+        return new Block(start, end, size, crc, output, length);
+    }
+
+    /**
+     * Decodes the next symbol, switching to the next Huffman table every {@code GROUP_SIZE} symbols.
+     */
+    private int nextSymbol() throws IOException {
+        if (this.remainingInGroup == 0) {
+            if (++this.selectorIndex >= this.selectors.length) {
+                throw new IOException("Corrupt bzip2 block: ran out of selectors.");
+            }
+            this.group = this.selectors[this.selectorIndex];
+            this.remainingInGroup = GROUP_SIZE;
+        }
+        this.remainingInGroup--;
+
+        int[] limit = this.limit[this.group];
+        int[] base = this.base[this.group];
+        int[] permutation = this.permutation[this.group];
+        int length = this.minimumLength[this.group];
+        int code = this.reader.readInt(length);
+        while (code > limit[length]) {
+            if (++length > MAX_CODE_LENGTH) {
+                throw new IOException("Corrupt bzip2 block: bad Huffman code.");
+            }
+            code = (code << 1) | this.reader.readInt(1);
+        }
+        int index = code - base[length];
+        if ((index < 0) || (index >= MAX_ALPHABET_SIZE)) {
+            throw new IOException("Corrupt bzip2 block: bad Huffman code.");
+        }
+        return permutation[index];
+    }
+
+    /**
+     * Builds the canonical Huffman decoding tables for the given code lengths and returns the
+     * minimum code length.
+     */
+    private static int createDecodeTables(int[] lengths, int alphabetSize, int[] limit, int[] base, int[] permutation) {
+        int minimum = MAX_CODE_LENGTH;
+        int maximum = 0;
+        for (int i = 0; i < alphabetSize; i++) {
+            minimum = Math.min(minimum, lengths[i]);
+            maximum = Math.max(maximum, lengths[i]);
+        }
+
+        int next = 0;
+        for (int length = minimum; length <= maximum; length++) {
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                if (lengths[symbol] == length) {
+                    permutation[next++] = symbol;
+                }
+            }
+        }
+
+        int[] countUpTo = new int[MAX_CODE_LENGTH + 2];
+        for (int i = 0; i < alphabetSize; i++) {
+            countUpTo[lengths[i] + 1]++;
+        }
+        for (int i = 1; i < countUpTo.length; i++) {
+            countUpTo[i] += countUpTo[i - 1];
+        }
+
+        // A length that is never used keeps a limit of -1, so decoding always reads past it.
+        Arrays.fill(limit, -1);
+        int code = 0;
+        for (int length = minimum; length <= maximum; length++) {
+            code += countUpTo[length + 1] - countUpTo[length];
+            limit[length] = code - 1;
+            code <<= 1;
+        }
+        base[minimum] = countUpTo[minimum];
+        for (int length = minimum + 1; length <= maximum; length++) {
+            base[length] = ((limit[length - 1] + 1) << 1) - countUpTo[length];
+        }
+        for (int length = maximum + 1; length < limit.length; length++) {
+            limit[length] = Integer.MAX_VALUE;
+        }
+        return minimum;
+    }
+
+    private static int[] newCrcTable() {
+        int[] table = new int[256];
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 24;
+            for (int j = 0; j < 8; j++) {
+                crc = ((crc & 0x80000000) != 0) ? ((crc << 1) ^ 0x04c11db7) : (crc << 1);
+            }
+            table[i] = crc;
+        }
+        return table;
+    }
+
+    /**
+     * Reads big-endian bit fields, starting at any bit position.
+     */
+    static final class BitReader {
+        private final ByteBuffer data;
+        private final int limit;
+        private int nextByte;
+        private long buffer;
+        private int bitsInBuffer;
+
+        BitReader(ByteBuffer data, long startBitPosition) {
+            this.data = data;
+            this.limit = data.limit();
+            this.nextByte = (int) (startBitPosition >>> 3);
+            int skip = (int) (startBitPosition & 7);
+            if (skip > 0 && this.nextByte < this.limit) {
+                this.buffer = this.data.get(this.nextByte++) & 0xff;
+                this.bitsInBuffer = 8 - skip;
+            }
+        }
+
+        long position() {
+            return (((long) this.nextByte) << 3) - this.bitsInBuffer;
+        }
+
+        int readInt(int bits) throws IOException {
+            while (this.bitsInBuffer < bits) {
+                if (this.nextByte >= this.limit) {
+                    throw new EOFException("Unexpected end of bzip2 data.");
+                }
+                this.buffer = (this.buffer << 8) | (this.data.get(this.nextByte++) & 0xff);
+                this.bitsInBuffer += 8;
+            }
+            this.bitsInBuffer -= bits;
+            return (int) ((this.buffer >>> this.bitsInBuffer) & ((1L << bits) - 1));
+        }
+
+        long readLong(int bits) throws IOException {
+            long high = readInt(bits - 24) & 0xffffffffL;
+            return (high << 24) | readInt(24);
+        }
+    }
+}
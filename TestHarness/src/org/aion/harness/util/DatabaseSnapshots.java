@@ -0,0 +1,150 @@
+package org.aion.harness.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A utility for capturing a node's database directory as a snapshot and restoring the database
+ * from that snapshot again later, so that a node can be reset to a known state (for example, just
+ * after its genesis and bootstrap) without re-creating that state from scratch.
+ *
+ * Both LevelDB and RocksDB write their table files ({@code .ldb} and {@code .sst}) exactly once
+ * and never modify them afterwards, only delete them. These files, which make up the bulk of the
+ * database, are hard-linked rather than copied, which makes both operations close to instant. All
+ * other files (write-ahead logs, manifests and so on) are appended to in place, so they are always
+ * copied. If a hard link cannot be created (for example, because the snapshot lives on a different
+ * file system) then the file is copied instead.
+ *
+ * The node must not be running while its database is snapshotted or restored.
+ */
+public final class DatabaseSnapshots {
+
+    private DatabaseSnapshots() {}
+
+    /**
+     * Captures the specified database directory as a snapshot in the specified snapshot directory.
+     * Any existing snapshot in that directory is replaced.
+     *
+     * @param database The database directory to capture.
+     * @param snapshot The directory to hold the snapshot.
+     */
+    public static void snapshot(File database, File snapshot) throws IOException {
+        if (database == null) {
+            throw new NullPointerException("Cannot snapshot a null database.");
+        }
+        if (snapshot == null) {
+            throw new NullPointerException("Cannot snapshot a database into a null directory.");
+        }
+        if (!database.isDirectory()) {
+            throw new IOException("Cannot snapshot a database that does not exist: " + database.getAbsolutePath());
+        }
+
+        // Build the snapshot beside its final location so that a half-written snapshot is never used.
+        File partial = new File(snapshot.getAbsolutePath() + ".partial");
+        FileUtils.deleteDirectory(partial);
+        linkOrCopyDirectory(database.toPath(), partial.toPath());
+
+        FileUtils.deleteDirectory(snapshot);
+        Files.move(partial.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replaces the specified database directory with the contents of the specified snapshot.
+     *
+     * @param snapshot The directory holding the snapshot.
+     * @param database The database directory to restore.
+     */
+    public static void restore(File snapshot, File database) throws IOException {
+        if (snapshot == null) {
+            throw new NullPointerException("Cannot restore a database from a null snapshot.");
+        }
+        if (database == null) {
+            throw new NullPointerException("Cannot restore a null database.");
+        }
+        if (!exists(snapshot)) {
+            throw new IOException("Cannot restore a database from a snapshot that does not exist: " + snapshot.getAbsolutePath());
+        }
+
+        FileUtils.deleteDirectory(database);
+        linkOrCopyDirectory(snapshot.toPath(), database.toPath());
+    }
+
+    /**
+     * Returns {@code true} only if the specified directory holds a complete snapshot.
+     *
+     * @param snapshot The snapshot directory.
+     * @return whether or not the snapshot exists.
+     */
+    public static boolean exists(File snapshot) {
+        return (snapshot != null) && snapshot.isDirectory();
+    }
+
+    /**
+     * Deletes every snapshot beside the specified snapshot whose name starts with the specified
+     * prefix, including any half-written ones, but not the specified snapshot itself. This is how
+     * snapshots taken under an outdated key are pruned once a snapshot for the current key exists.
+     *
+     * @param snapshot The snapshot directory to keep.
+     * @param namePrefix The prefix of the names of the snapshots to delete.
+     */
+    public static void deleteOtherSnapshots(File snapshot, String namePrefix) throws IOException {
+        if (snapshot == null) {
+            throw new NullPointerException("Cannot prune the snapshots beside a null snapshot.");
+        }
+        if (namePrefix == null) {
+            throw new NullPointerException("Cannot prune snapshots with a null name prefix.");
+        }
+
+        File[] siblings = snapshot.getAbsoluteFile().getParentFile().listFiles();
+        if (siblings == null) {
+            return;
+        }
+
+        for (File sibling : siblings) {
+            if (sibling.isDirectory() && sibling.getName().startsWith(namePrefix) && !sibling.getName().equals(snapshot.getName())) {
+                FileUtils.deleteDirectory(sibling);
+            }
+        }
+    }
+
+    private static void linkOrCopyDirectory(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            Iterator<Path> iterator = paths.iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                Path destination = target.resolve(source.relativize(path).toString());
+
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.createDirectories(destination);
+                } else if (isImmutableTableFile(path)) {
+                    linkOrCopyFile(path, destination);
+                } else {
+                    Files.copy(path, destination, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+    }
+
+    private static void linkOrCopyFile(Path source, Path destination) throws IOException {
+        try {
+            Files.createLink(destination, source);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(source, destination, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    private static boolean isImmutableTableFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(".ldb") || name.endsWith(".sst");
+    }
+}
@@ -1,6 +1,7 @@
 package org.aion.harness.util;
 
 import java.util.concurrent.TimeUnit;
+import org.aion.harness.main.event.CompiledEvent;
 import org.aion.harness.main.event.IEvent;
 import org.aion.harness.result.FutureResult;
 import org.aion.harness.result.LogEventResult;
@@ -23,6 +24,7 @@ public final class EventRequest {
 
     public final FutureResult<LogEventResult> future = new FutureResult<>();
     private final IEvent requestedEvent;
+    private final CompiledEvent compiledEvent;
     private final long deadlineInNanos;
 
     private enum RequestState { PENDING, SATISFIED, UNOBSERVED, REJECTED, EXPIRED }
@@ -40,6 +42,7 @@ public final class EventRequest {
      */
     public EventRequest(IEvent eventToRequest, long deadline, TimeUnit unit) {
         this.requestedEvent = eventToRequest;
+        this.compiledEvent = CompiledEvent.compile(eventToRequest);
         this.deadlineInNanos = unit.toNanos(deadline);
         this.ID = instanceCount++;
     }
@@ -80,7 +83,7 @@ public final class EventRequest {
             return true;
         }
 
-        boolean isSatisfied = this.requestedEvent.isSatisfiedBy(line, currentTime, unit);
+        boolean isSatisfied = this.compiledEvent.isSatisfiedBy(line, currentTime, unit);
 
         if (isSatisfied) {
             this.currentState = RequestState.SATISFIED;
@@ -180,8 +183,8 @@ public final class EventRequest {
         if (this.currentState == RequestState.SATISFIED) {
 
             return LogEventResult.observedEvent(
-                this.requestedEvent.getAllObservedEvents(),
-                this.requestedEvent.getAllObservedLogs(),
+                this.compiledEvent.getAllObservedEvents(),
+                this.compiledEvent.getAllObservedLogs(),
                 this.timeOfObservationInNanos,
                 TimeUnit.NANOSECONDS);
 
@@ -189,20 +192,20 @@ public final class EventRequest {
 
             return LogEventResult.rejectedEvent(
                 this.causeOfRejection,
-                this.requestedEvent.getAllObservedEvents(),
-                this.requestedEvent.getAllObservedLogs());
+                this.compiledEvent.getAllObservedEvents(),
+                this.compiledEvent.getAllObservedLogs());
 
         } else if (this.currentState == RequestState.EXPIRED) {
 
             return LogEventResult.expiredEvent(
-                this.requestedEvent.getAllObservedEvents(),
-                this.requestedEvent.getAllObservedLogs());
+                this.compiledEvent.getAllObservedEvents(),
+                this.compiledEvent.getAllObservedLogs());
 
         } else {
 
             return LogEventResult.unobservedEvent(
-                this.requestedEvent.getAllObservedEvents(),
-                this.requestedEvent.getAllObservedLogs());
+                this.compiledEvent.getAllObservedEvents(),
+                this.compiledEvent.getAllObservedLogs());
 
         }
     }
@@ -0,0 +1,289 @@
+package org.aion.harness.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A content-addressed cache of kernel builds, so that repeatedly building the same kernel source
+ * skips both the build and the extraction of the built tar file.
+ *
+ * There are two levels of caching:
+ *
+ * 1. The built tar file is cached under the <b>source key</b> of the kernel source directory,
+ *    which is a hash of its git revision (including the revisions of all of its submodules) and of
+ *    any uncommitted changes to tracked files. If the source has not changed since the last build,
+ *    the cached tar file is used instead of building it again. Untracked files are not part of the
+ *    source key, and if the source directory is not a git repository, the kernel is always built.
+ *
+ * 2. A sandbox that a tar file has been extracted into is tagged with the hash of that tar file. If
+ *    the sandbox already holds the contents of the tar file, it is used instead of extracting the
+ *    tar file again. Since a previous run may have modified its config files, a pristine copy of
+ *    every config directory is kept when the sandbox is tagged, and is restored when it is reused.
+ *
+ * Only the most recently used {@code MAX_CACHED_BUILDS} tar files are kept.
+ *
+ * The cache can be switched off by setting the {@code skipKernelBuildCache} system property, to
+ * any value, as with the harness's other skip flags.
+ */
+public final class KernelBuildCache {
+    public static final String SKIP_PROPERTY = "skipKernelBuildCache";
+    private static final int MAX_CACHED_BUILDS = 3;
+    private static final String TARBALL_SUFFIX = ".tar.bz2";
+    private static final String HASH_SUFFIX = ".sha256";
+    private static final String SANDBOX_MARKER = ".harness-build.sha256";
+    private static final String SANDBOX_PRISTINE_CONFIGS = ".harness-pristine-configs";
+    private static final String CONFIG_DIRECTORY = "config";
+
+    private final File directory;
+
+    public KernelBuildCache(File directory) {
+        if (directory == null) {
+            throw new NullPointerException("Cannot construct a build cache with a null directory.");
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Returns {@code true} if the cache has been switched off.
+     */
+    public static boolean isDisabled() {
+        return System.getProperty(SKIP_PROPERTY) != null;
+    }
+
+    /**
+     * Returns the source key of the specified kernel source directory, or null if the directory
+     * is not a git repository (or git is not available).
+     *
+     * @param sourceDirectory The kernel source directory.
+     * @return the source key.
+     */
+    public String sourceKeyOf(File sourceDirectory) throws InterruptedException {
+        if (sourceDirectory == null) {
+            throw new NullPointerException("Cannot compute the source key of a null directory.");
+        }
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        String[][] commands = {
+            { "git", "rev-parse", "HEAD" },
+            { "git", "submodule", "status", "--recursive" },
+            { "git", "diff", "HEAD", "--binary", "--submodule=diff" }
+        };
+
+        for (String[] command : commands) {
+            digest.update(String.join(" ", command).getBytes(StandardCharsets.UTF_8));
+            try {
+                Process process = new ProcessBuilder(command)
+                    .directory(sourceDirectory)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+                try (InputStream output = process.getInputStream()) {
+                    DigestUtils.updateDigest(digest, output);
+                }
+                if (process.waitFor() != 0) {
+                    return null;
+                }
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Returns the cached tar file built from the source with the specified key, or null if there is
+     * no such build in the cache.
+     *
+     * @param sourceKey The source key.
+     * @return the cached tar file.
+     */
+    public File getCachedBuild(String sourceKey) {
+        if (sourceKey == null) {
+            throw new NullPointerException("Cannot look up a build with a null source key.");
+        }
+
+        File tarball = tarballOf(sourceKey);
+        if (!tarball.isFile() || !hashFileOf(sourceKey).isFile()) {
+            return null;
+        }
+
+        // Keep the most recently used builds around.
+        tarball.setLastModified(System.currentTimeMillis());
+        return tarball;
+    }
+
+    /**
+     * Moves the specified freshly built tar file into the cache under the specified source key,
+     * evicting the least recently used builds if the cache is full.
+     *
+     * @param sourceKey The source key of the source the tar file was built from.
+     * @param tarball The built tar file.
+     * @return the cached tar file.
+     */
+    public File cacheBuild(String sourceKey, File tarball) throws IOException {
+        if (sourceKey == null) {
+            throw new NullPointerException("Cannot cache a build under a null source key.");
+        }
+        if (tarball == null) {
+            throw new NullPointerException("Cannot cache a null build.");
+        }
+
+        Files.createDirectories(this.directory.toPath());
+        File cached = tarballOf(sourceKey);
+        File hashFile = hashFileOf(sourceKey);
+        hashFile.delete();
+
+        FileUtils.deleteQuietly(cached);
+        FileUtils.moveFile(tarball, cached);
+        Files.write(hashFile.toPath(), hashOf(cached).getBytes(StandardCharsets.UTF_8));
+
+        evictLeastRecentlyUsed();
+        return cached;
+    }
+
+    /**
+     * Returns the SHA-256 hash of the specified tar file, reading it from the cache rather than
+     * hashing the file again if the tar file is a cached build.
+     *
+     * @param tarball The tar file.
+     * @return the hash of the tar file.
+     */
+    public String getHashOf(File tarball) throws IOException {
+        if (tarball == null) {
+            throw new NullPointerException("Cannot hash a null file.");
+        }
+
+        File hashFile = new File(tarball.getAbsoluteFile().getParentFile(), stripSuffix(tarball.getName()) + HASH_SUFFIX);
+        if (hashFile.isFile()) {
+            return new String(Files.readAllBytes(hashFile.toPath()), StandardCharsets.UTF_8).trim();
+        }
+        return hashOf(tarball);
+    }
+
+    /**
+     * Returns {@code true} only if the specified sandbox holds the extracted contents of the tar
+     * file with the specified hash.
+     *
+     * @param sandbox The sandbox directory.
+     * @param tarballHash The hash of the tar file.
+     * @return whether or not the sandbox holds the build.
+     */
+    public static boolean sandboxHoldsBuild(File sandbox, String tarballHash) throws IOException {
+        File marker = new File(sandbox, SANDBOX_MARKER);
+        if ((tarballHash == null) || !marker.isFile() || !new File(sandbox, SANDBOX_PRISTINE_CONFIGS).isDirectory()) {
+            return false;
+        }
+        return tarballHash.equals(new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8).trim());
+    }
+
+    /**
+     * Records that the specified sandbox holds the extracted contents of the tar file with the
+     * specified hash, and keeps a pristine copy of its config directories. This must only be
+     * called once the extraction has fully succeeded, and before the kernel is run.
+     *
+     * @param sandbox The sandbox directory.
+     * @param tarballHash The hash of the tar file.
+     */
+    public static void markSandboxHoldsBuild(File sandbox, String tarballHash) throws IOException {
+        if (tarballHash == null) {
+            throw new NullPointerException("Cannot mark a sandbox with a null hash.");
+        }
+
+        File pristine = new File(sandbox, SANDBOX_PRISTINE_CONFIGS);
+        FileUtils.deleteDirectory(pristine);
+        for (String configDirectory : configDirectoriesOf(sandbox)) {
+            FileUtils.copyDirectory(new File(sandbox, configDirectory), new File(pristine, configDirectory));
+        }
+        Files.createDirectories(pristine.toPath());
+
+        File partial = new File(sandbox, SANDBOX_MARKER + ".partial");
+        Files.write(partial.toPath(), tarballHash.getBytes(StandardCharsets.UTF_8));
+        Files.move(partial.toPath(), new File(sandbox, SANDBOX_MARKER).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Replaces every config directory of the specified sandbox with the pristine copy kept when the
+     * sandbox was marked as holding its build, undoing any changes a previous run made to them.
+     *
+     * @param sandbox The sandbox directory.
+     */
+    public static void restoreSandboxConfigs(File sandbox) throws IOException {
+        File pristine = new File(sandbox, SANDBOX_PRISTINE_CONFIGS);
+        if (!pristine.isDirectory()) {
+            throw new IOException("The sandbox holds no pristine configs to restore: " + sandbox.getAbsolutePath());
+        }
+
+        // Config directories the kernel created itself were not part of the build.
+        for (String configDirectory : configDirectoriesOf(sandbox)) {
+            FileUtils.deleteDirectory(new File(sandbox, configDirectory));
+        }
+        for (String configDirectory : configDirectoriesOf(pristine)) {
+            FileUtils.copyDirectory(new File(pristine, configDirectory), new File(sandbox, configDirectory));
+        }
+    }
+
+    /**
+     * Returns the paths, relative to the specified kernel directory, of its top-level config
+     * directory and of the config directory of each of its networks, where these exist.
+     */
+    private static List<String> configDirectoriesOf(File kernelDirectory) {
+        List<String> configDirectories = new ArrayList<>();
+        File[] entries = kernelDirectory.listFiles((file) -> file.isDirectory() && !file.getName().startsWith("."));
+        if (entries == null) {
+            return configDirectories;
+        }
+
+        Arrays.sort(entries);
+        for (File entry : entries) {
+            if (entry.getName().equals(CONFIG_DIRECTORY)) {
+                configDirectories.add(CONFIG_DIRECTORY);
+            } else if (new File(entry, CONFIG_DIRECTORY).isDirectory()) {
+                configDirectories.add(entry.getName() + File.separator + CONFIG_DIRECTORY);
+            }
+        }
+        return configDirectories;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        File[] tarballs = this.directory.listFiles((file) -> file.getName().endsWith(TARBALL_SUFFIX));
+        if ((tarballs == null) || (tarballs.length <= MAX_CACHED_BUILDS)) {
+            return;
+        }
+
+        Arrays.sort(tarballs, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = MAX_CACHED_BUILDS; i < tarballs.length; i++) {
+            new File(this.directory, stripSuffix(tarballs[i].getName()) + HASH_SUFFIX).delete();
+            tarballs[i].delete();
+        }
+    }
+
+    private File tarballOf(String sourceKey) {
+        return new File(this.directory, sourceKey + TARBALL_SUFFIX);
+    }
+
+    private File hashFileOf(String sourceKey) {
+        return new File(this.directory, sourceKey + HASH_SUFFIX);
+    }
+
+    private static String stripSuffix(String name) {
+        return name.endsWith(TARBALL_SUFFIX) ? name.substring(0, name.length() - TARBALL_SUFFIX.length()) : name;
+    }
+
+    private static String hashOf(File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            return DigestUtils.sha256Hex(input);
+        }
+    }
+}
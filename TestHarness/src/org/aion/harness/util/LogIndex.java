@@ -0,0 +1,577 @@
+package org.aion.harness.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.aion.harness.main.event.LogLevel;
+import org.aion.harness.main.event.LogLine;
+import org.aion.harness.main.event.LogLineParser;
+
+/**
+ * A searchable index over a log file, kept in sidecar files beside the log so that questions like
+ * "which lines mention this transaction?" or "what was the first error after time T?" can be
+ * answered on arbitrarily large logs without reading the whole log into memory.
+ *
+ * The index is built incrementally: each call to {@link #update()} indexes the complete lines that
+ * were appended to the log since the previous call. For every line the index records its offset,
+ * its timestamp (carried forward from the closest earlier line that has one) and its level, both as
+ * read by {@link LogLineParser}. It also records every transaction hash (64 hex characters) and
+ * block number ({@code number = 12}, {@code num=12}, {@code block #12} and the like) mentioned by
+ * the line.
+ *
+ * Queries read both the sidecar files and the log through memory-mapped windows. Lines found
+ * through the transaction and block records are always checked against the line itself, so the
+ * hashing of those records never produces false matches.
+ *
+ * The sidecar files live in the hidden {@code .index} directory beside the log. They survive the
+ * JVM, so an index can be reopened after a run to examine that run's logs. Since there must only be
+ * one writer per index, {@link #open(File)} hands out one shared, reference-counted instance per
+ * log file.
+ *
+ * This class is thread-safe.
+ */
+public final class LogIndex implements Closeable {
+    private static final String SIDECAR_DIRECTORY = ".index";
+    private static final String LINES_SUFFIX = ".lines";
+    private static final String KEYS_SUFFIX = ".keys";
+
+    // The lines file is a header holding the number of log bytes indexed, followed by one record per line.
+    private static final int HEADER_BYTES = 8;
+    private static final int LINE_RECORD_BYTES = 16;
+    private static final int KEY_RECORD_BYTES = 12;
+    private static final int LEVEL_SHIFT = 56;
+    private static final long OFFSET_MASK = (1L << LEVEL_SHIFT) - 1;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+    private static final int WINDOW_BYTES = 1 << 28;
+
+    private static final Pattern TRANSACTION_HASH = Pattern.compile("(?<![0-9a-fA-F])(?:0x)?([0-9a-fA-F]{64})(?![0-9a-fA-F])");
+    private static final Pattern BLOCK_NUMBER = Pattern.compile("(?i)\\b(?:number|num|block)\\s*[=:]?\\s*#?(\\d{1,18})\\b");
+
+    private static final Map<Path, LogIndex> OPEN_INDEXES = new HashMap<>();
+
+    private final Path log;
+    private final FileChannel lines;
+    private final FileChannel keys;
+    private int references = 1;
+
+    private long indexedBytes;
+    private long lineCount;
+    private long lastTimestamp;
+
+    private LogIndex(Path log) throws IOException {
+        this.log = log;
+        Path sidecars = sidecarDirectoryOf(log);
+        Files.createDirectories(sidecars);
+        String name = log.getFileName().toString();
+        this.lines = FileChannel.open(sidecars.resolve(name + LINES_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.keys = FileChannel.open(sidecars.resolve(name + KEYS_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            recover();
+        } catch (IOException e) {
+            this.lines.close();
+            this.keys.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the index of the specified log file, creating it if it does not exist yet. If the index
+     * is already open then the same instance is returned. Every call to this method must be matched
+     * by a call to {@link #close()}.
+     *
+     * This method does not index anything itself; call {@link #update()} to catch the index up
+     * with the log.
+     *
+     * @param log The log file.
+     * @return the index of the log file.
+     */
+    public static LogIndex open(File log) throws IOException {
+        if (log == null) {
+            throw new NullPointerException("Cannot open the index of a null log file.");
+        }
+
+        Path path = log.toPath().toAbsolutePath().normalize();
+        synchronized (OPEN_INDEXES) {
+            LogIndex index = OPEN_INDEXES.get(path);
+            if (index != null) {
+                index.references++;
+            } else {
+                index = new LogIndex(path);
+                OPEN_INDEXES.put(path, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Deletes the sidecar files of the specified log file, if there are any. The index of the log
+     * file must not be open.
+     *
+     * @param log The log file.
+     */
+    public static void deleteIndexOf(File log) throws IOException {
+        if (log == null) {
+            throw new NullPointerException("Cannot delete the index of a null log file.");
+        }
+
+        Path path = log.toPath().toAbsolutePath().normalize();
+        Path sidecars = sidecarDirectoryOf(path);
+        String name = path.getFileName().toString();
+        Files.deleteIfExists(sidecars.resolve(name + LINES_SUFFIX));
+        Files.deleteIfExists(sidecars.resolve(name + KEYS_SUFFIX));
+    }
+
+    /**
+     * Indexes every complete line appended to the log since the last update. If the log has shrunk
+     * since then (it was truncated or replaced) then it is indexed again from the beginning.
+     *
+     * @return the number of lines that were indexed.
+     */
+    public synchronized long update() throws IOException {
+        if (!Files.exists(this.log)) {
+            return 0;
+        }
+
+        try (FileChannel input = FileChannel.open(this.log, StandardOpenOption.READ)) {
+            long end = input.size();
+            if (end < this.indexedBytes) {
+                reset();
+            }
+
+            ByteBuffer read = ByteBuffer.allocate(IO_BUFFER_BYTES);
+            ByteBuffer linesOut = ByteBuffer.allocate(IO_BUFFER_BYTES);
+            ByteBuffer keysOut = ByteBuffer.allocate(IO_BUFFER_BYTES);
+            byte[] line = new byte[256];
+            int lineLength = 0;
+
+            long position = this.indexedBytes;
+            long lineStart = position;
+            long linesBefore = this.lineCount;
+
+            while (position < end) {
+                read.clear();
+                if (read.limit() > end - position) {
+                    read.limit((int) (end - position));
+                }
+                int count = input.read(read, position);
+                if (count <= 0) {
+                    break;
+                }
+
+                for (int i = 0; i < count; i++) {
+                    byte b = read.get(i);
+                    if (b == '\n') {
+                        indexLine(lineStart, line, lineLength, linesOut, keysOut);
+                        lineStart = position + i + 1;
+                        lineLength = 0;
+                    } else {
+                        if (lineLength == line.length) {
+                            line = Arrays.copyOf(line, line.length * 2);
+                        }
+                        line[lineLength++] = b;
+                    }
+                }
+                position += count;
+            }
+
+            // Records go out before the header, so that a header never covers missing records.
+            flush(this.lines, linesOut);
+            flush(this.keys, keysOut);
+            this.indexedBytes = lineStart;
+            writeHeader();
+
+            return this.lineCount - linesBefore;
+        }
+    }
+
+    /**
+     * Returns the number of lines indexed so far.
+     */
+    public synchronized long getLineCount() {
+        return this.lineCount;
+    }
+
+    /**
+     * Returns every indexed line that mentions the specified transaction hash, in the order they
+     * appear in the log.
+     *
+     * @param transactionHash The transaction hash, as hex, with or without a {@code 0x} prefix.
+     * @return the lines mentioning the transaction.
+     */
+    public synchronized List<String> linesMentioningTransaction(String transactionHash) throws IOException {
+        if (transactionHash == null) {
+            throw new NullPointerException("Cannot search for a null transaction hash.");
+        }
+
+        String hash = transactionHash.startsWith("0x") ? transactionHash.substring(2) : transactionHash;
+        if (!TRANSACTION_HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Not a transaction hash: " + transactionHash);
+        }
+        return linesWithKey(transactionKey(hash));
+    }
+
+    /**
+     * Returns every indexed line that mentions the specified block number, in the order they appear
+     * in the log.
+     *
+     * @param blockNumber The block number.
+     * @return the lines mentioning the block.
+     */
+    public synchronized List<String> linesMentioningBlock(long blockNumber) throws IOException {
+        if (blockNumber < 0) {
+            throw new IllegalArgumentException("Block numbers are never negative but was: " + blockNumber);
+        }
+        return linesWithKey(blockKey(blockNumber));
+    }
+
+    /**
+     * Returns the first indexed line at or above the specified level whose timestamp is at or after
+     * the specified time, or an empty optional if there is no such line.
+     *
+     * Lines are found by a binary search over their timestamps, which assumes that the log's
+     * timestamps never go backwards.
+     *
+     * @param level The least severe level to look for.
+     * @param timeMillis The time, in milliseconds since the epoch.
+     * @return the first such line.
+     */
+    public synchronized Optional<String> firstLineAtLevelSince(LogLevel level, long timeMillis) throws IOException {
+        if (level == null) {
+            throw new NullPointerException("Cannot search for lines at a null level.");
+        }
+
+        MappedFile records = mapLineRecords();
+        long low = 0;
+        long high = this.lineCount;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (records.getLong(recordPosition(middle) + 8) < timeMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        MappedFile text = mapLog();
+        for (long number = low; number < this.lineCount; number++) {
+            int levelCode = (int) (records.getLong(recordPosition(number)) >>> LEVEL_SHIFT);
+            if ((levelCode > 0) && (levelCode - 1 >= level.ordinal())) {
+                return Optional.of(readLine(records, text, number));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the first indexed line that satisfies the specified predicate, or an empty optional if
+     * there is no such line. The lines are read one at a time, so this works on logs of any size.
+     *
+     * @param predicate The predicate to test each line against.
+     * @return the first such line.
+     */
+    public synchronized Optional<String> findFirst(Predicate<String> predicate) throws IOException {
+        if (predicate == null) {
+            throw new NullPointerException("Cannot search with a null predicate.");
+        }
+
+        MappedFile records = mapLineRecords();
+        MappedFile text = mapLog();
+        for (long number = 0; number < this.lineCount; number++) {
+            String line = readLine(records, text, number);
+            if (predicate.test(line)) {
+                return Optional.of(line);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Releases this reference to the index. The sidecar files are closed once every reference to
+     * the index has been released.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (OPEN_INDEXES) {
+            this.references--;
+            if (this.references > 0) {
+                return;
+            }
+            OPEN_INDEXES.remove(this.log);
+        }
+
+        synchronized (this) {
+            try {
+                this.lines.close();
+            } finally {
+                this.keys.close();
+            }
+        }
+    }
+
+    private List<String> linesWithKey(String key) throws IOException {
+        long hash = hashOf(key);
+        long keyRecords = this.keys.size() / KEY_RECORD_BYTES;
+        MappedFile keyFile = new MappedFile(this.keys, keyRecords * KEY_RECORD_BYTES);
+        MappedFile records = mapLineRecords();
+        MappedFile text = mapLog();
+
+        List<String> matches = new ArrayList<>();
+        long previous = -1;
+        for (long i = 0; i < keyRecords; i++) {
+            long position = i * KEY_RECORD_BYTES;
+            if (keyFile.getLong(position) != hash) {
+                continue;
+            }
+
+            long number = Integer.toUnsignedLong(keyFile.getInt(position + 8));
+            if ((number != previous) && (number < this.lineCount)) {
+                String line = readLine(records, text, number);
+                if (keysOf(line).contains(key)) {
+                    matches.add(line);
+                }
+                previous = number;
+            }
+        }
+        return matches;
+    }
+
+    private void indexLine(long offset, byte[] bytes, int length, ByteBuffer linesOut, ByteBuffer keysOut) throws IOException {
+        int textLength = ((length > 0) && (bytes[length - 1] == '\r')) ? length - 1 : length;
+        String line = new String(bytes, 0, textLength, StandardCharsets.UTF_8);
+
+        LogLine parsed = LogLineParser.parse(line);
+        if (parsed.hasTimestamp()) {
+            this.lastTimestamp = parsed.getTimestampMillis();
+        }
+        LogLevel level = parsed.getLevel();
+        long levelCode = (level == null) ? 0 : level.ordinal() + 1;
+
+        if (linesOut.remaining() < LINE_RECORD_BYTES) {
+            flush(this.lines, linesOut);
+        }
+        linesOut.putLong((levelCode << LEVEL_SHIFT) | offset).putLong(this.lastTimestamp);
+
+        for (String key : keysOf(line)) {
+            if (keysOut.remaining() < KEY_RECORD_BYTES) {
+                flush(this.keys, keysOut);
+            }
+            keysOut.putLong(hashOf(key)).putInt((int) this.lineCount);
+        }
+        this.lineCount++;
+    }
+
+    /**
+     * Reads the indexed line with the specified number, without its line terminator.
+     */
+    private String readLine(MappedFile records, MappedFile text, long number) throws IOException {
+        long start = records.getLong(recordPosition(number)) & OFFSET_MASK;
+        long end = (number + 1 < this.lineCount)
+            ? (records.getLong(recordPosition(number + 1)) & OFFSET_MASK)
+            : this.indexedBytes;
+
+        // Drop the '\n' (and any '\r' before it) that terminates every indexed line.
+        byte[] bytes = new byte[(int) (end - start - 1)];
+        text.get(start, bytes);
+        int length = ((bytes.length > 0) && (bytes[bytes.length - 1] == '\r')) ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private MappedFile mapLineRecords() {
+        return new MappedFile(this.lines, HEADER_BYTES + this.lineCount * LINE_RECORD_BYTES);
+    }
+
+    private MappedFile mapLog() throws IOException {
+        return new MappedFile(this.log, this.indexedBytes);
+    }
+
+    private static long recordPosition(long number) {
+        return HEADER_BYTES + number * LINE_RECORD_BYTES;
+    }
+
+    /**
+     * Brings the in-memory state in line with the sidecar files, dropping any records written by an
+     * update that did not get to write its header, or the whole index if it no longer fits the log.
+     */
+    private void recover() throws IOException {
+        long logSize = Files.exists(this.log) ? Files.size(this.log) : 0;
+        if (this.lines.size() < HEADER_BYTES) {
+            reset();
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        this.lines.read(header, 0);
+        this.indexedBytes = header.getLong(0);
+        if ((this.indexedBytes < 0) || (this.indexedBytes > logSize)) {
+            reset();
+            return;
+        }
+
+        long count = (this.lines.size() - HEADER_BYTES) / LINE_RECORD_BYTES;
+        MappedFile records = new MappedFile(this.lines, HEADER_BYTES + count * LINE_RECORD_BYTES);
+        while ((count > 0) && ((records.getLong(recordPosition(count - 1)) & OFFSET_MASK) >= this.indexedBytes)) {
+            count--;
+        }
+        this.lines.truncate(HEADER_BYTES + count * LINE_RECORD_BYTES);
+        this.lineCount = count;
+        this.lastTimestamp = (count > 0) ? records.getLong(recordPosition(count - 1) + 8) : NO_TIMESTAMP;
+
+        long keyRecords = this.keys.size() / KEY_RECORD_BYTES;
+        MappedFile keyFile = new MappedFile(this.keys, keyRecords * KEY_RECORD_BYTES);
+        while ((keyRecords > 0) && (Integer.toUnsignedLong(keyFile.getInt((keyRecords - 1) * KEY_RECORD_BYTES + 8)) >= count)) {
+            keyRecords--;
+        }
+        this.keys.truncate(keyRecords * KEY_RECORD_BYTES);
+    }
+
+    private void reset() throws IOException {
+        this.lines.truncate(0);
+        this.keys.truncate(0);
+        this.indexedBytes = 0;
+        this.lineCount = 0;
+        this.lastTimestamp = NO_TIMESTAMP;
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putLong(0, this.indexedBytes);
+        while (header.hasRemaining()) {
+            this.lines.write(header, header.position());
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+    }
+
+    private static Path sidecarDirectoryOf(Path log) {
+        Path parent = log.getParent();
+        return (parent == null) ? Paths.get(SIDECAR_DIRECTORY) : parent.resolve(SIDECAR_DIRECTORY);
+    }
+
+    /**
+     * Returns the transaction and block keys mentioned by the specified line.
+     */
+    private static List<String> keysOf(String line) {
+        List<String> keys = new ArrayList<>();
+
+        Matcher transactions = TRANSACTION_HASH.matcher(line);
+        while (transactions.find()) {
+            keys.add(transactionKey(transactions.group(1)));
+        }
+
+        Matcher blocks = BLOCK_NUMBER.matcher(line);
+        while (blocks.find()) {
+            keys.add(blockKey(Long.parseLong(blocks.group(1))));
+        }
+        return keys;
+    }
+
+    private static String transactionKey(String hash) {
+        return "tx:" + hash.toLowerCase();
+    }
+
+    private static String blockKey(long number) {
+        return "block:" + number;
+    }
+
+    /**
+     * The 64-bit FNV-1a hash of the specified key.
+     */
+    private static long hashOf(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Reads a file (or a prefix of it) through memory-mapped windows, so that files larger than a
+     * single mapping can be read as well.
+     */
+    private static final class MappedFile {
+        private final FileChannel channel;
+        private final Path path;
+        private final long limit;
+        private MappedByteBuffer window = null;
+        private long windowStart = 0;
+        private long windowEnd = 0;
+
+        private MappedFile(FileChannel channel, long limit) {
+            this.channel = channel;
+            this.path = null;
+            this.limit = limit;
+        }
+
+        private MappedFile(Path path, long limit) {
+            this.channel = null;
+            this.path = path;
+            this.limit = limit;
+        }
+
+        private long getLong(long position) throws IOException {
+            mapWindowHolding(position, 8);
+            return this.window.getLong((int) (position - this.windowStart));
+        }
+
+        private int getInt(long position) throws IOException {
+            mapWindowHolding(position, 4);
+            return this.window.getInt((int) (position - this.windowStart));
+        }
+
+        private void get(long position, byte[] destination) throws IOException {
+            mapWindowHolding(position, destination.length);
+            ByteBuffer view = this.window.duplicate();
+            view.position((int) (position - this.windowStart));
+            view.get(destination);
+        }
+
+        private void mapWindowHolding(long position, int length) throws IOException {
+            if ((this.window != null) && (position >= this.windowStart) && (position + length <= this.windowEnd)) {
+                return;
+            }
+            if (position + length > this.limit) {
+                throw new IOException("Corrupt log index: read past the end of the indexed data.");
+            }
+
+            this.windowStart = position;
+            this.windowEnd = Math.min(this.limit, position + Math.max(WINDOW_BYTES, length));
+            if (this.channel != null) {
+                this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.windowStart, this.windowEnd - this.windowStart);
+            } else {
+                // The mapping stays valid after its channel is closed.
+                try (FileChannel file = FileChannel.open(this.path, StandardOpenOption.READ)) {
+                    this.window = file.map(FileChannel.MapMode.READ_ONLY, this.windowStart, this.windowEnd - this.windowStart);
+                }
+            }
+        }
+    }
+}
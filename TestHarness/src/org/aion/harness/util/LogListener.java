@@ -3,9 +3,15 @@ package org.aion.harness.util;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import org.aion.harness.main.event.IEvent;
+import org.aion.harness.main.event.KernelEvent;
+import org.aion.harness.main.event.LogLineParser;
+import org.aion.harness.main.global.SingletonFactory;
+import org.aion.harness.metrics.Counter;
+import org.aion.harness.metrics.MetricsRegistry;
 import org.aion.harness.result.FutureResult;
 import org.aion.harness.result.LogEventResult;
 import org.aion.harness.result.Result;
+import org.aion.harness.trace.TransactionTracer;
 import org.apache.commons.io.input.Tailer;
 import org.apache.commons.io.input.TailerListener;
 
@@ -37,6 +43,10 @@ import java.util.*;
  * stops listening to a log file, or if the requester receives an interrupt signal while the request
  * is in the pool, then it will be marked as rejected.
  *
+ * The number of lines read, the kernel events they report and the number of pending requests are
+ * kept up to date in the {@link MetricsRegistry}, and transactions received and sealed are reported
+ * to the {@link TransactionTracer}, if transactions are being traced.
+ *
  * This class is thread-safe.
  */
 public final class LogListener implements TailerListener {
@@ -54,6 +64,20 @@ public final class LogListener implements TailerListener {
 
     private List<EventRequest> requestPool = new ArrayList<>(CAPACITY);
 
+    private final Counter linesRead;
+    private final Map<KernelEvent.Type, Counter> kernelEventsRead = new EnumMap<>(KernelEvent.Type.class);
+    private final TransactionTracer transactionTracer;
+
+    public LogListener() {
+        MetricsRegistry metrics = SingletonFactory.singleton().metricsRegistry();
+        this.linesRead = metrics.counter("harness_log_lines_total", "The number of kernel log lines read by the harness.");
+        for (KernelEvent.Type type : KernelEvent.Type.values()) {
+            this.kernelEventsRead.put(type, metrics.counter("harness_kernel_events_total", "The number of kernel events read from the kernel logs.", "type", type.toString().toLowerCase()));
+        }
+        this.transactionTracer = SingletonFactory.singleton().transactionTracer();
+        metrics.gauge("harness_log_listener_pending_requests", "The number of event requests waiting to be observed.", () -> CAPACITY - REQUEST_POOL_GATE.availablePermits());
+    }
+
     /**
      * Returns true only if the listener is not dead.
      */
@@ -74,6 +98,35 @@ public final class LogListener implements TailerListener {
         return CAPACITY - REQUEST_POOL_GATE.availablePermits();
     }
 
+    /**
+     * Removes the request whose result is the specified future from the request pool and marks it
+     * rejected, if it is still pending, so that its place in the pool is given back at once rather
+     * than once it expires.
+     *
+     * @param future The result of the request to cancel.
+     * @return whether or not a pending request was cancelled.
+     */
+    public boolean cancelEventRequest(FutureResult<LogEventResult> future) {
+        if (future == null) {
+            throw new NullPointerException("Cannot cancel the request of a null future.");
+        }
+
+        synchronized (this) {
+            Iterator<EventRequest> requestIterator = this.requestPool.iterator();
+            while (requestIterator.hasNext()) {
+                EventRequest request = requestIterator.next();
+                if (request.future == future) {
+                    boolean wasPending = request.isPending();
+                    request.markAsRejected("The request was cancelled.");
+                    requestIterator.remove();
+                    REQUEST_POOL_GATE.release();
+                    return wasPending;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Attempts to submit the specified event request into the request pool.
      *
@@ -108,6 +161,52 @@ public final class LogListener implements TailerListener {
         return eventRequest.future;
     }
 
+    /**
+     * Attempts to submit the specified event requests into the request pool all at once, as
+     * {@link #submitEventToBeListenedFor(IEvent, long, TimeUnit)} does for a single request, and
+     * returns their futures in the same order as the events.
+     *
+     * Rather than each request taking its own place in the pool, places are taken for all of the
+     * requests together and they all enter the pool in a single critical section, so that
+     * registering thousands of events costs about as much as registering one. A batch can therefore
+     * be no larger than the pool, which holds 32,768 requests.
+     *
+     * Places in the pool are handed out first come, first served. While a batch waits for enough
+     * places to free up, every request submitted after it waits too, however small, until either
+     * the batch enters the pool or its deadline passes.
+     *
+     * All of the requests share the same deadline, and so are resolved together in every way except
+     * being observed.
+     *
+     * @throws IllegalArgumentException if there are more events than the pool can hold.
+     */
+    public List<FutureResult<LogEventResult>> submitEventsToBeListenedFor(List<IEvent> events, long timeout, TimeUnit unit) {
+        if (events == null) {
+            throw new NullPointerException("Cannot submit a null list of event requests.");
+        }
+        if (events.size() > CAPACITY) {
+            throw new IllegalArgumentException("Cannot submit more than " + CAPACITY + " event requests at once, but got: " + events.size());
+        }
+
+        long deadlineInNanos = System.nanoTime() + unit.toNanos(timeout);
+
+        List<EventRequest> eventRequests = new ArrayList<>(events.size());
+        List<FutureResult<LogEventResult>> futures = new ArrayList<>(events.size());
+        for (IEvent event : events) {
+            if (event == null) {
+                throw new NullPointerException("Cannot submit a null event request.");
+            }
+            EventRequest eventRequest = new EventRequest(event, deadlineInNanos, TimeUnit.NANOSECONDS);
+            eventRequests.add(eventRequest);
+            futures.add(eventRequest.future);
+        }
+
+        // Attempt to add the requests to the pool.
+        addRequests(eventRequests, deadlineInNanos);
+
+        return futures;
+    }
+
     /**
      * Returns success only if the listener is currently not dead and not listening and has now
      * started listening.
@@ -196,6 +295,62 @@ public final class LogListener implements TailerListener {
         }
     }
 
+    /**
+     * Attempts to add the specified requests, which all share the specified deadline, to the request
+     * pool together, failing in the same ways {@link #addRequest(EventRequest, long, TimeUnit)} does.
+     *
+     * There can be no more requests than the capacity of the pool.
+     */
+    private void addRequests(List<EventRequest> requests, long deadlineInNanos) {
+        int permits = requests.size();
+
+        try {
+            // Try to acquire a permit for every one of the requests at once.
+            if (!REQUEST_POOL_GATE.tryAcquire(permits, Math.max(0, deadlineInNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                for (EventRequest request : requests) {
+                    request.markAsExpired();
+                }
+                return;
+            }
+        } catch (InterruptedException e) {
+            for (EventRequest request : requests) {
+                request.markAsRejected("Interrupted while waiting to submit request!");
+            }
+            return;
+        }
+
+        // If the requests have expired, mark them as so and return the pool permits.
+        if (System.nanoTime() > deadlineInNanos) {
+            for (EventRequest request : requests) {
+                request.markAsExpired();
+            }
+            REQUEST_POOL_GATE.release(permits);
+            return;
+        }
+
+        // Otherwise, we are free to add the requests since we took the permits.
+        synchronized (this) {
+            this.requestPool.addAll(requests);
+        }
+
+        // If the listener is no longer listening, reject the requests and return the permits of
+        // those still in the pool, since any others were already removed and their permits returned.
+        synchronized (STATE_MONITOR) {
+            if (this.currentState != ListenerState.ALIVE_AND_LISTENING) {
+                for (EventRequest request : requests) {
+                    request.markAsRejected("Listener is not currently listening to a log file.");
+                }
+
+                Set<EventRequest> rejected = new HashSet<>(requests);
+                synchronized (this) {
+                    int sizeBefore = this.requestPool.size();
+                    this.requestPool.removeIf(rejected::contains);
+                    REQUEST_POOL_GATE.release(sizeBefore - this.requestPool.size());
+                }
+            }
+        }
+    }
+
     /**
      * Receives the incoming next line in the log file and processed it.
      *
@@ -214,6 +369,16 @@ public final class LogListener implements TailerListener {
             }
         }
 
+        // Events that look at this line will find it already parsed.
+        this.linesRead.increment();
+        KernelEvent kernelEvent = LogLineParser.parse(nextLine).getEvent();
+        if (kernelEvent != null) {
+            this.kernelEventsRead.get(kernelEvent.getType()).increment();
+            if (this.transactionTracer != null) {
+                this.transactionTracer.recordKernelEvent(kernelEvent, System.nanoTime());
+            }
+        }
+
         synchronized (this) {
             long currentTimeInNanos = System.nanoTime();
 
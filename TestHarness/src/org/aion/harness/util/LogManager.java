@@ -1,19 +1,79 @@
 package org.aion.harness.util;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 import org.aion.harness.result.Result;
-import org.apache.commons.io.FileUtils;
 
 /**
  * A class that is used to set up and manage the log files generated by an active node.
+ *
+ * Outdated logs are moved into the archive directory, and are then gzip-compressed by a single
+ * background thread that is shared by all log managers. Once the archived logs are compressed,
+ * the oldest of them are deleted until at most {@code logArchiveMaxFiles} archived logs remain
+ * (by default {@code DEFAULT_ARCHIVE_MAX_FILES}), taking up at most
+ * {@code logArchiveMaxMegabytes} (by default {@code DEFAULT_ARCHIVE_MAX_MEGABYTES}). Both limits
+ * are system properties, and a limit of zero or less switches that limit off.
+ *
+ * A log that was archived but not yet compressed when the JVM exited is compressed the next time
+ * logs are archived into the same directory.
  */
 public final class LogManager {
+    public static final String ARCHIVE_MAX_FILES_PROPERTY = "logArchiveMaxFiles";
+    public static final String ARCHIVE_MAX_MEGABYTES_PROPERTY = "logArchiveMaxMegabytes";
+    public static final int DEFAULT_ARCHIVE_MAX_FILES = 200;
+    public static final long DEFAULT_ARCHIVE_MAX_MEGABYTES = 2048;
+    private static final String COMPRESSED_SUFFIX = ".gz";
+    private static final String PARTIAL_SUFFIX = ".partial";
+
+    // The background thread never prints anything, since the test runners give each thread its own stdout and stderr.
+    private static final ExecutorService ARCHIVER = Executors.newSingleThreadExecutor((runnable) -> {
+        Thread thread = new Thread(runnable, "log-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicLong ARCHIVE_NAME_COUNTER = new AtomicLong();
+
+    private final File logsDirectory;
+    private final File logsArchiveDirectory;
     private File currentOutputLog;
     private File currentErrorLog;
 
+    /**
+     * Constructs a log manager that uses the default logs directory.
+     */
+    public LogManager() {
+        this(NodeFileManager.getLogsDirectory());
+    }
+
+    /**
+     * Constructs a log manager that uses the specified logs directory. Old logs are archived into
+     * the archive directory inside of it.
+     */
+    public LogManager(File logsDirectory) {
+        if (logsDirectory == null) {
+            throw new NullPointerException("Cannot construct a log manager with a null logs directory.");
+        }
+        this.logsDirectory = logsDirectory;
+        this.logsArchiveDirectory = new File(logsDirectory, NodeFileManager.getLogsArchiveDirectory().getName());
+    }
+
     /**
      * This method creates the necessary output and error log files in the logs directory. If this
      * directory does not exist yet, then this method creates it.
@@ -77,34 +137,65 @@ public final class LogManager {
      * creates the logs directory if it does not exist, otherwise does nothing.
      */
     private boolean createLogsDirectoryIfDoesNotExist() {
-        return (NodeFileManager.getLogsDirectory().exists()) ? true : NodeFileManager.getLogsDirectory().mkdir();
+        return (this.logsDirectory.exists()) ? true : this.logsDirectory.mkdirs();
     }
 
     /**
-     * Moves any outstanding log files into the archived directory if they exist.
+     * Moves any outstanding log files into the archived directory if they exist, and then compresses
+     * them and applies the retention limits in the background.
      */
     private void archiveLogs() throws IOException {
-        File[] logEntries = NodeFileManager.getLogsDirectory().listFiles();
+        File[] logEntries = this.logsDirectory.listFiles();
 
         if (logEntries == null) {
             return;
         }
 
+        Files.createDirectories(this.logsArchiveDirectory.toPath());
         for (File entry : logEntries) {
             if (entry.isFile()) {
-                File destination = findUniqueArchiveDestinationName(entry.getName());
-                FileUtils.moveFile(entry, destination);
+                // The index of an archived log is of no more use.
+                LogIndex.deleteIndexOf(entry);
+                moveToArchive(entry);
             }
         }
+
+        File archiveDirectory = this.logsArchiveDirectory;
+        int maxFiles = maxArchivedFiles();
+        long maxBytes = maxArchivedBytes();
+        ARCHIVER.execute(() -> compressAndPruneArchive(archiveDirectory, maxFiles, maxBytes));
     }
 
+    /**
+     * Blocks until all of the archived logs that are currently queued for compression have been
+     * compressed and the retention limits have been applied, or until the timeout elapses.
+     *
+     * @param timeout The timeout duration.
+     * @param unit The unit of the timeout duration.
+     * @return whether or not the queued archiving work finished in time.
+     */
+    public static boolean awaitArchiving(long timeout, TimeUnit unit) throws InterruptedException {
+        if (unit == null) {
+            throw new NullPointerException("Cannot wait with a null timeout unit.");
+        }
+
+        // The archiver is single-threaded, so this task runs only once all earlier ones are done.
+        try {
+            ARCHIVER.submit(() -> {}).get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
     /**
      * Creates the stdout log file in the logs directory and returns this file if successful, otherwise returns null.
      *
      * ASSUMPTION: logs directory exists.
      */
     private File createNewStdoutLog(long currentTimeInMillis) throws IOException {
-        File stdoutLogFile = new File(NodeFileManager.getLogsDirectory() + File.separator + createLogFilename("out", currentTimeInMillis));
+        File stdoutLogFile = new File(this.logsDirectory + File.separator + createLogFilename("out", currentTimeInMillis));
         return (stdoutLogFile.createNewFile()) ? stdoutLogFile : null;
     }
 
@@ -114,7 +205,7 @@ public final class LogManager {
      * ASSUMPTION: logs directory exists.
      */
     private File createNewStderrLog(long currentTimeInMillis) throws IOException {
-        File stdoutLogFile = new File(NodeFileManager.getLogsDirectory() + File.separator + createLogFilename("err", currentTimeInMillis));
+        File stdoutLogFile = new File(this.logsDirectory + File.separator + createLogFilename("err", currentTimeInMillis));
         return (stdoutLogFile.createNewFile()) ? stdoutLogFile : null;
     }
 
@@ -137,27 +228,137 @@ public final class LogManager {
     }
 
     /**
-     * Returns a file such that this file does not exist in the archive directory but its name is
-     * derived from the provided filename.
+     * Moves the specified log file into the archive directory, keeping its name unless a log with
+     * that name has already been archived, in which case a unique postfix is added to the name.
      *
-     * If the provided filename already exists in the archive directory then this method simply
-     * appends a second postfix to the name to make it unique and continues to do so until it arrives
-     * at a unique name for the file.
+     * The postfix is built from the process id and a counter rather than by probing for the first
+     * unused number, so the cost of finding a unique name does not grow with the size of the archive.
      */
-    private File findUniqueArchiveDestinationName(String filename) throws IOException {
-        String filenameExtension = filename.substring(filename.lastIndexOf('.'));
-        String filenameWithoutExtension = filename.substring(0, filename.lastIndexOf('.'));
-        String canonicalName = NodeFileManager.getLogsArchiveDirectory().getCanonicalPath() + File.separator + filenameWithoutExtension;
+    private void moveToArchive(File file) throws IOException {
+        String filename = file.getName();
+        int dot = filename.lastIndexOf('.');
+        String filenameExtension = (dot < 0) ? "" : filename.substring(dot);
+        String filenameWithoutExtension = (dot < 0) ? filename : filename.substring(0, dot);
 
-        int number = 1;
-        File file = new File(canonicalName + filenameExtension);
+        String destinationName = filename;
+        while (true) {
+            Path destination = this.logsArchiveDirectory.toPath().resolve(destinationName);
 
-        while (file.exists()) {
-            file = new File(canonicalName + "(" + number + ")" + filenameExtension);
-            number++;
+            // Once compressed, the archived log no longer exists under its own name.
+            if (!Files.exists(destination.resolveSibling(destinationName + COMPRESSED_SUFFIX))) {
+                try {
+                    Files.move(file.toPath(), destination);
+                    return;
+                } catch (FileAlreadyExistsException e) {
+                    // Fall through and try a unique name instead.
+                }
+            }
+
+            destinationName = filenameWithoutExtension
+                + "(" + ProcessHandle.current().pid() + "-" + ARCHIVE_NAME_COUNTER.incrementAndGet() + ")"
+                + filenameExtension;
+        }
+    }
+
+    /**
+     * Compresses every uncompressed log in the specified archive directory and then deletes the
+     * oldest archived logs until the specified retention limits are met. Any log that cannot be compressed is
+     * left as it is.
+     */
+    private static void compressAndPruneArchive(File archiveDirectory, int maxFiles, long maxBytes) {
+        File[] entries = archiveDirectory.listFiles();
+        if (entries == null) {
+            return;
+        }
+
+        for (File entry : entries) {
+            if (entry.getName().endsWith(PARTIAL_SUFFIX)) {
+                // Left behind by a compression that was cut short.
+                entry.delete();
+            } else if (entry.isFile() && !entry.getName().endsWith(COMPRESSED_SUFFIX)) {
+                try {
+                    compress(entry);
+                } catch (IOException e) {
+                    // Keep the uncompressed log; it will be retried the next time logs are archived.
+                }
+            }
         }
 
-        return file;
+        pruneArchive(archiveDirectory, maxFiles, maxBytes);
+    }
+
+    private static void compress(File log) throws IOException {
+        File compressed = new File(log.getParentFile(), log.getName() + COMPRESSED_SUFFIX);
+        if (compressed.exists()) {
+            // The log was compressed but the JVM exited before the original was deleted.
+            Files.delete(log.toPath());
+            return;
+        }
+
+        File partial = new File(log.getParentFile(), compressed.getName() + PARTIAL_SUFFIX);
+        try (OutputStream output = new GZIPOutputStream(new FileOutputStream(partial), 1 << 16)) {
+            Files.copy(log.toPath(), output);
+        }
+
+        // Retention is by age, so the compressed log must keep the age of the original.
+        partial.setLastModified(log.lastModified());
+        Files.move(partial.toPath(), compressed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(log.toPath());
+    }
+
+    /**
+     * Deletes the oldest files in the specified archive directory until at most the specified number
+     * of files, taking up at most the specified number of bytes, remain. A limit of zero or less is
+     * no limit.
+     */
+    static void pruneArchive(File archiveDirectory, int maxFiles, long maxBytes) {
+        File[] archived = archiveDirectory.listFiles((file) -> file.isFile() && !file.getName().endsWith(PARTIAL_SUFFIX));
+        if (archived == null) {
+            return;
+        }
+
+        Arrays.sort(archived, Comparator.comparingLong(File::lastModified).reversed());
+
+        long keptBytes = 0;
+        for (int i = 0; i < archived.length; i++) {
+            keptBytes += archived[i].length();
+            boolean tooMany = (maxFiles > 0) && (i >= maxFiles);
+            boolean tooLarge = (maxBytes > 0) && (keptBytes > maxBytes);
+            if (tooMany || tooLarge) {
+                archived[i].delete();
+            }
+        }
+    }
+
+    private static int maxArchivedFiles() {
+        return (int) parseArchiveLimit(ARCHIVE_MAX_FILES_PROPERTY, DEFAULT_ARCHIVE_MAX_FILES, Integer.MAX_VALUE);
+    }
+
+    private static long maxArchivedBytes() {
+        return parseArchiveLimit(ARCHIVE_MAX_MEGABYTES_PROPERTY, DEFAULT_ARCHIVE_MAX_MEGABYTES, Long.MAX_VALUE / (1024 * 1024)) * 1024 * 1024;
+    }
+
+    /**
+     * Returns the archive limit held by the specified system property, or the default limit if the
+     * property is unset or is not a whole number no larger than the given maximum, in which case a
+     * warning is printed.
+     */
+    private static long parseArchiveLimit(String property, long defaultLimit, long maxLimit) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return defaultLimit;
+        }
+
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed <= maxLimit) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the warning below.
+        }
+        System.err.println("Ignoring invalid " + property + " '" + value + "', using the default of " + defaultLimit + ".");
+        return defaultLimit;
     }
 
 }
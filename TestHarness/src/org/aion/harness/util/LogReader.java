@@ -1,28 +1,52 @@
 package org.aion.harness.util;
 
+import org.aion.harness.main.global.SingletonFactory;
 import org.aion.harness.misc.Assumptions;
+import org.aion.harness.replay.TrafficRecorder;
+import org.aion.harness.replay.TrafficRecording;
 import org.aion.harness.result.Result;
 import org.apache.commons.io.input.Tailer;
+import org.apache.commons.io.input.TailerListener;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A class responsible for reading a log file and setting up a {@link LogListener} that eavesdrops on the log file.
+ *
+ * While it reads a log file, the reader also keeps that file's {@link LogIndex} up to date.
+ *
+ * Every line read is recorded by the {@link TrafficRecorder}, if one is configured. If a
+ * {@link TrafficRecording} is configured instead, the lines recorded for the same stream are
+ * replayed to the listener and the log file is neither read nor indexed.
+ *
+ * A stream is named after the directory of the log file and the number of times a log in that
+ * directory has been read before. Every shard writes its logs to a directory of its own, and reads
+ * them one at a time, so the names come out the same on every run of the same tests, however the
+ * shards and node types are interleaved.
  */
 public final class LogReader {
+    private static final long INDEX_INTERVAL_MILLIS = 1_000;
+
     private ExecutorService threadExecutor;
+    private ScheduledExecutorService indexExecutor;
     private Tailer logTailer;
     private LogListener listener;
+    private LogIndex logIndex;
     private final int ID;
-    private static int IDCounter = 1;
+    private static final AtomicInteger IDCounter = new AtomicInteger(1);
+    private static final Map<String, AtomicInteger> directoryToReads = new ConcurrentHashMap<>();
 
     public LogReader() {
         this.listener = new LogListener();
-        this.ID = IDCounter;
-        IDCounter++;
+        this.ID = IDCounter.getAndIncrement();
     }
 
     public Result startReading(File log) {
@@ -42,17 +66,106 @@ public final class LogReader {
         }
 
         this.threadExecutor = Executors.newSingleThreadExecutor();
-        this.logTailer = new Tailer(log, this.listener, TimeUnit.SECONDS.toMillis(2), true);
+
+        TrafficRecording recording = SingletonFactory.singleton().trafficRecording();
+        if (recording != null) {
+            String stream = streamOf(log);
+            LogListener replayListener = this.listener;
+            this.threadExecutor.execute(() -> {
+                try {
+                    recording.replayLogLines(stream, replayListener::handle);
+                } catch (InterruptedException e) {
+                    // The reader was stopped part-way through the replay.
+                }
+            });
+            return Result.successful();
+        }
+
+        TrafficRecorder recorder = SingletonFactory.singleton().trafficRecorder();
+        TailerListener tailerListener = (recorder == null) ? this.listener : new RecordingTailerListener(this.listener, recorder, streamOf(log));
+        this.logTailer = new Tailer(log, tailerListener, TimeUnit.SECONDS.toMillis(2), true);
         this.threadExecutor.execute(this.logTailer);
 
+        startIndexing(log);
+
         return Result.successful();
     }
 
+    /**
+     * Returns the name of the next stream of log lines read from the directory of the specified log.
+     */
+    static String streamOf(File log) {
+        File directory = log.getAbsoluteFile().getParentFile();
+        String name = (directory == null) ? "" : directory.getName();
+        return name + "#" + directoryToReads.computeIfAbsent(name, (key) -> new AtomicInteger()).getAndIncrement();
+    }
+
+    /**
+     * Returns the index of the log file currently being read, or null if no file is being read or
+     * the file could not be indexed.
+     */
+    public LogIndex getLogIndex() {
+        return this.logIndex;
+    }
+
+    private void startIndexing(File log) {
+        try {
+            this.logIndex = LogIndex.open(log);
+        } catch (IOException e) {
+            // Reading the log does not depend on indexing it.
+            this.logIndex = null;
+            return;
+        }
+
+        LogIndex index = this.logIndex;
+        this.indexExecutor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "log-indexer-" + this.ID);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.indexExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                index.update();
+            } catch (IOException e) {
+                // Try again next time; the index only ever moves forward.
+            }
+        }, 0, INDEX_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopIndexing() throws InterruptedException {
+        if (this.indexExecutor != null) {
+            // Never interrupt an update: the index's channels would be closed by the interrupt,
+            // breaking the index for everyone else who has it open.
+            this.indexExecutor.shutdown();
+            this.indexExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            this.indexExecutor = null;
+        }
+
+        if (this.logIndex != null) {
+            try {
+                // Catch up with the final lines of the log, so that it can be queried afterwards.
+                this.logIndex.update();
+            } catch (IOException e) {
+                // The index is simply left behind the log.
+            } finally {
+                try {
+                    this.logIndex.close();
+                } catch (IOException e) {
+                    // Nothing else to do.
+                }
+                this.logIndex = null;
+            }
+        }
+    }
+
     public void stopReading() throws InterruptedException {
         if (this.listener.isAlive()) {
 
             this.listener.stopListening();
-            this.logTailer.stop();
+            if (this.logTailer != null) {
+                this.logTailer.stop();
+                this.logTailer = null;
+            }
             this.threadExecutor.shutdownNow();
 
             if (!this.threadExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
@@ -64,6 +177,7 @@ public final class LogReader {
             this.listener = new LogListener();
         }
 
+        stopIndexing();
         this.threadExecutor = null;
     }
 
@@ -81,4 +195,45 @@ public final class LogReader {
         return this.ID;
     }
 
+    /**
+     * Records every line before handing it to the listener.
+     */
+    private static final class RecordingTailerListener implements TailerListener {
+        private final TailerListener listener;
+        private final TrafficRecorder recorder;
+        private final String stream;
+
+        private RecordingTailerListener(TailerListener listener, TrafficRecorder recorder, String stream) {
+            this.listener = listener;
+            this.recorder = recorder;
+            this.stream = stream;
+        }
+
+        @Override
+        public void init(Tailer tailer) {
+            this.listener.init(tailer);
+        }
+
+        @Override
+        public void fileNotFound() {
+            this.listener.fileNotFound();
+        }
+
+        @Override
+        public void fileRotated() {
+            this.listener.fileRotated();
+        }
+
+        @Override
+        public void handle(String line) {
+            this.recorder.recordLogLine(this.stream, line);
+            this.listener.handle(line);
+        }
+
+        @Override
+        public void handle(Exception ex) {
+            this.listener.handle(ex);
+        }
+    }
+
 }
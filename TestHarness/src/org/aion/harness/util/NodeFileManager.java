@@ -17,6 +17,7 @@ public class NodeFileManager {
     private static final String LOG_ARCHIVE_DIR = LOG_DIR + File.separator + "archive";
     private static final String TEMPORARY_DATABASE = WORKING_DIR + File.separator + "temporary_database";
     private static final String TEMPORARY_TAR_FILE = SANDBOX_DIR + File.separator + "temporary_tar.tar.bz2";
+    private static final String KERNEL_BUILD_CACHE_DIR = WORKING_DIR + File.separator + "build_cache";
 
     public static String getSandboxPath() {
         return SANDBOX_DIR;
@@ -38,6 +39,10 @@ public class NodeFileManager {
         return new File(TEMPORARY_TAR_FILE);
     }
 
+    public static File getKernelBuildCacheDirectory() {
+        return new File(KERNEL_BUILD_CACHE_DIR);
+    }
+
     /**
      * Returns the path to the database for the given network and root directory of the built kernel.
      *
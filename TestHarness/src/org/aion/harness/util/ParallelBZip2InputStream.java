@@ -0,0 +1,309 @@
+package org.aion.harness.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An input stream that decompresses a bzip2 file (or several concatenated bzip2 streams, as
+ * written by parallel compressors) using multiple threads.
+ *
+ * The file is memory-mapped and scanned up front for the 48-bit magic number that begins every
+ * compressed block. Blocks are then decoded speculatively, a bounded number at a time and in file
+ * order, by a pool of decoder threads, while the reader consumes them strictly in order. Since the
+ * magic number is not byte-aligned it can, in principle, also occur by chance inside a block; such
+ * false starts are harmless because the reader only ever follows the chain of real blocks (each
+ * real block ends exactly where the next one begins) and simply discards any other result.
+ *
+ * Every block's checksum and every stream's combined checksum are verified.
+ *
+ * This class is not thread-safe.
+ */
+public final class ParallelBZip2InputStream extends InputStream {
+    private static final int STREAM_HEADER_BYTES = 4;
+
+    private final FileChannel channel;
+    private final ByteBuffer data;
+    private final ExecutorService decoders;
+    private final int maxBlocksInFlight;
+
+    // The bit positions of every candidate block, in file order, and the next one to decode.
+    private final long[] candidates;
+    private int nextCandidate = 0;
+    private final Deque<PendingBlock> inFlight = new ArrayDeque<>();
+
+    // The bit position of the next real block (or end-of-stream marker) and the state of its stream.
+    private long position;
+    private int maxBlockSize;
+    private int combinedCrc = 0;
+    private boolean finished = false;
+
+    private byte[] current = new byte[0];
+    private int currentOffset = 0;
+    private int currentLength = 0;
+
+    /**
+     * Opens the specified bzip2 file for reading using the specified number of decoder threads.
+     *
+     * @param file The bzip2 file to read.
+     * @param threads The number of threads to decompress with.
+     */
+    public ParallelBZip2InputStream(File file, int threads) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("Cannot decompress a null file.");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive but was: " + threads);
+        }
+
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (this.channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Cannot decompress a bzip2 file larger than 2GB: " + file.getAbsolutePath());
+            }
+            this.data = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+            this.position = readStreamHeader(0);
+            this.candidates = findCandidateBlocks(this.data);
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+
+        this.maxBlocksInFlight = threads * 2;
+        AtomicInteger count = new AtomicInteger(1);
+        this.decoders = Executors.newFixedThreadPool(threads, (runnable) -> {
+            Thread thread = new Thread(runnable, "bzip2-decoder-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return this.current[this.currentOffset++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if ((offset < 0) || (length < 0) || (length > buffer.length - offset)) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+
+        int count = Math.min(length, this.currentLength - this.currentOffset);
+        System.arraycopy(this.current, this.currentOffset, buffer, offset, count);
+        this.currentOffset += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return this.currentLength - this.currentOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.finished = true;
+        for (PendingBlock pending : this.inFlight) {
+            pending.result.cancel(true);
+        }
+        this.inFlight.clear();
+        this.decoders.shutdownNow();
+
+        // The decoders read the mapped file directly and do not stop when interrupted, and a decoder
+        // still running when the file is truncated fails with an InternalError.
+        try {
+            this.decoders.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.channel.close();
+    }
+
+    /**
+     * Makes sure there are unread bytes in the current block, moving on to the next block (and
+     * stream) if need be. Returns false once all of the streams have been read.
+     */
+    private boolean ensureData() throws IOException {
+        while (this.currentOffset == this.currentLength) {
+            if (this.finished) {
+                return false;
+            }
+
+            long magic = new BZip2BlockDecoder.BitReader(this.data, this.position).readLong(48);
+            if (magic == BZip2BlockDecoder.BLOCK_MAGIC) {
+                BZip2BlockDecoder.Block block = takeBlockAt(this.position);
+                if (block.size > this.maxBlockSize) {
+                    throw new IOException("Corrupt bzip2 stream: block exceeds the stream's block size.");
+                }
+                this.combinedCrc = ((this.combinedCrc << 1) | (this.combinedCrc >>> 31)) ^ block.crc;
+                this.position = block.endBitPosition;
+                this.current = block.data;
+                this.currentOffset = 0;
+                this.currentLength = block.length;
+            } else if (magic == BZip2BlockDecoder.END_OF_STREAM_MAGIC) {
+                finishStream();
+            } else {
+                throw new IOException("Corrupt bzip2 stream: expected a block at bit position " + this.position);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verifies the combined checksum of the stream that just ended and moves on to the next
+     * concatenated stream, if there is one.
+     */
+    private void finishStream() throws IOException {
+        BZip2BlockDecoder.BitReader reader = new BZip2BlockDecoder.BitReader(this.data, this.position);
+        reader.readLong(48);
+        if (reader.readInt(32) != this.combinedCrc) {
+            throw new IOException("Corrupt bzip2 stream: combined checksum mismatch.");
+        }
+
+        long nextStream = (reader.position() + 7) >>> 3;
+        if (isStreamHeaderAt(nextStream)) {
+            this.position = readStreamHeader(nextStream);
+            this.combinedCrc = 0;
+        } else {
+            // Anything left over is padding, which bzip2 itself also ignores.
+            this.finished = true;
+        }
+    }
+
+    /**
+     * Returns the decoded block at the specified bit position, discarding any speculative results
+     * for false starts before it.
+     */
+    private BZip2BlockDecoder.Block takeBlockAt(long bitPosition) throws IOException {
+        while (true) {
+            fillPipeline();
+
+            PendingBlock pending = this.inFlight.peekFirst();
+            if ((pending == null) || (pending.bitPosition > bitPosition)) {
+                // Not a candidate we know of, which the scan should make impossible, so decode it here.
+                return new BZip2BlockDecoder(this.data, bitPosition).decode();
+            }
+
+            this.inFlight.removeFirst();
+            if (pending.bitPosition < bitPosition) {
+                pending.result.cancel(true);
+                continue;
+            }
+
+            fillPipeline();
+            return await(pending.result);
+        }
+    }
+
+    private void fillPipeline() {
+        while ((this.inFlight.size() < this.maxBlocksInFlight) && (this.nextCandidate < this.candidates.length)) {
+            long bitPosition = this.candidates[this.nextCandidate++];
+            if (bitPosition < this.position) {
+                continue;
+            }
+            ByteBuffer view = this.data.duplicate();
+            this.inFlight.addLast(new PendingBlock(bitPosition, this.decoders.submit(() -> new BZip2BlockDecoder(view, bitPosition).decode())));
+        }
+    }
+
+    private static BZip2BlockDecoder.Block await(Future<BZip2BlockDecoder.Block> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decompressing.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to decompress a bzip2 block.", cause);
+        }
+    }
+
+    private boolean isStreamHeaderAt(long byteOffset) {
+        return (byteOffset + STREAM_HEADER_BYTES <= this.data.limit())
+            && (this.data.get((int) byteOffset) == 'B')
+            && (this.data.get((int) byteOffset + 1) == 'Z')
+            && (this.data.get((int) byteOffset + 2) == 'h');
+    }
+
+    /**
+     * Reads the stream header at the specified byte offset, and returns the bit position of the
+     * stream's first block.
+     */
+    private long readStreamHeader(long byteOffset) throws IOException {
+        if (!isStreamHeaderAt(byteOffset)) {
+            throw new IOException("Not a bzip2 stream.");
+        }
+        int level = this.data.get((int) byteOffset + 3) - '0';
+        if ((level < 1) || (level > 9)) {
+            throw new IOException("Corrupt bzip2 stream: bad block size.");
+        }
+        this.maxBlockSize = level * 100_000;
+        return (byteOffset + STREAM_HEADER_BYTES) << 3;
+    }
+
+    /**
+     * Returns the bit position of every occurrence of the block magic number in the data.
+     */
+    private static long[] findCandidateBlocks(ByteBuffer data) {
+        long[] positions = new long[16];
+        int count = 0;
+
+        long window = 0;
+        int limit = data.limit();
+        for (int i = 0; i < limit; i++) {
+            window = (window << 8) | (data.get(i) & 0xff);
+            if (i < 5) {
+                continue;
+            }
+
+            // The magic number may end at any of the 8 bit offsets within this byte.
+            for (int shift = 7; shift >= 0; shift--) {
+                if (((window >>> shift) & 0xffffffffffffL) == BZip2BlockDecoder.BLOCK_MAGIC) {
+                    long end = (((long) i + 1) << 3) - shift;
+                    if (end >= 48) {
+                        if (count == positions.length) {
+                            positions = Arrays.copyOf(positions, count << 1);
+                        }
+                        positions[count++] = end - 48;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    private static final class PendingBlock {
+        private final long bitPosition;
+        private final Future<BZip2BlockDecoder.Block> result;
+
+        private PendingBlock(long bitPosition, Future<BZip2BlockDecoder.Block> result) {
+            this.bitPosition = bitPosition;
+            this.result = result;
+        }
+    }
+}
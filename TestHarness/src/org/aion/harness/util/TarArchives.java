@@ -0,0 +1,357 @@
+package org.aion.harness.util;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A utility for extracting tar archives in-process, so that extracting a built kernel does not
+ * depend on an external {@code tar} executable.
+ *
+ * The ustar, GNU (long names) and pax (long names and sizes) header formats are understood, which
+ * covers everything the kernel build produces. Regular files, directories, symbolic links and hard
+ * links are extracted; all other entry types are skipped. File permissions are restored wherever
+ * the file system supports POSIX permissions, which in particular keeps the bundled Java runtime
+ * executable.
+ *
+ * Entries that would land outside of the target directory are rejected.
+ */
+public final class TarArchives {
+    private static final int BLOCK_SIZE = 512;
+
+    private TarArchives() {}
+
+    /**
+     * Extracts the specified {@code .tar.bz2} archive into the specified directory, decompressing
+     * it with the specified number of threads.
+     *
+     * @param archive The archive to extract.
+     * @param directory The directory to extract into.
+     * @param threads The number of threads to decompress with.
+     * @return the number of entries extracted.
+     */
+    public static int extractBzip2(File archive, File directory, int threads) throws IOException {
+        if (archive == null) {
+            throw new NullPointerException("Cannot extract a null archive.");
+        }
+
+        try (InputStream input = new ParallelBZip2InputStream(archive, threads)) {
+            return extract(input, directory);
+        }
+    }
+
+    /**
+     * Extracts the uncompressed tar archive read from the specified stream into the specified
+     * directory. The stream is not closed.
+     *
+     * @param input The stream to read the archive from.
+     * @param directory The directory to extract into.
+     * @return the number of entries extracted.
+     */
+    public static int extract(InputStream input, File directory) throws IOException {
+        if (input == null) {
+            throw new NullPointerException("Cannot extract from a null stream.");
+        }
+        if (directory == null) {
+            throw new NullPointerException("Cannot extract into a null directory.");
+        }
+
+        Path root = directory.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        boolean posix = Files.getFileStore(root).supportsFileAttributeView("posix");
+
+        InputStream in = new BufferedInputStream(input, 1 << 16);
+        byte[] header = new byte[BLOCK_SIZE];
+        byte[] buffer = new byte[1 << 16];
+        String longName = null;
+        String longLinkName = null;
+        Long paxSize = null;
+        int entries = 0;
+
+        while (true) {
+            if (!readBlock(in, header)) {
+                break;
+            }
+            if (isZeroBlock(header)) {
+                break;
+            }
+
+            char type = (char) header[156];
+            long size = (paxSize != null) ? paxSize : parseNumber(header, 124, 12);
+            String name = (longName != null) ? longName : parseName(header);
+            String linkName = (longLinkName != null) ? longLinkName : parseString(header, 157, 100);
+
+            // Extended headers describe the entry that follows them, rather than being entries.
+            if ((type == 'L') || (type == 'K')) {
+                String value = trimTrailingNulls(new String(readContent(in, size), StandardCharsets.UTF_8));
+                if (type == 'L') {
+                    longName = value;
+                } else {
+                    longLinkName = value;
+                }
+                continue;
+            }
+            if (type == 'x') {
+                for (String[] record : parsePaxRecords(readContent(in, size))) {
+                    if (record[0].equals("path")) {
+                        longName = record[1];
+                    } else if (record[0].equals("linkpath")) {
+                        longLinkName = record[1];
+                    } else if (record[0].equals("size")) {
+                        paxSize = Long.parseLong(record[1]);
+                    }
+                }
+                continue;
+            }
+            longName = null;
+            longLinkName = null;
+            paxSize = null;
+
+            Path target = resolve(root, name);
+            int mode = (int) parseNumber(header, 100, 8);
+
+            if ((type == '0') || (type == '\0') || (type == '7')) {
+                Files.createDirectories(target.getParent());
+                Files.deleteIfExists(target);
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    copy(in, out, size, buffer);
+                }
+                skipPadding(in, size);
+                if (posix) {
+                    Files.setPosixFilePermissions(target, permissionsOf(mode));
+                }
+            } else if (type == '5') {
+                Files.createDirectories(target);
+                skip(in, paddedSize(size));
+            } else if (type == '2') {
+                Files.createDirectories(target.getParent());
+                Files.deleteIfExists(target);
+                Files.createSymbolicLink(target, Paths.get(linkName));
+                skip(in, paddedSize(size));
+            } else if (type == '1') {
+                Path existing = resolve(root, linkName);
+                Files.createDirectories(target.getParent());
+                Files.deleteIfExists(target);
+                try {
+                    Files.createLink(target, existing);
+                } catch (IOException | UnsupportedOperationException e) {
+                    Files.copy(existing, target, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                }
+                skip(in, paddedSize(size));
+            } else {
+                // Device files, fifos, global pax headers and the like.
+                skip(in, paddedSize(size));
+                continue;
+            }
+            entries++;
+        }
+        return entries;
+    }
+
+    private static Path resolve(Path root, String name) throws IOException {
+        Path resolved = root.resolve(name).normalize();
+        if (!resolved.startsWith(root)) {
+            throw new IOException("Refusing to extract an entry outside of the target directory: " + name);
+        }
+        return resolved;
+    }
+
+    private static Set<PosixFilePermission> permissionsOf(int mode) {
+        PosixFilePermission[] all = {
+            PosixFilePermission.OTHERS_EXECUTE, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_READ,
+            PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_READ,
+            PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_READ
+        };
+
+        // Never lock ourselves out of a file we will want to overwrite or delete later.
+        Set<PosixFilePermission> permissions = EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+        for (int bit = 0; bit < all.length; bit++) {
+            if ((mode & (1 << bit)) != 0) {
+                permissions.add(all[bit]);
+            }
+        }
+        return permissions;
+    }
+
+    private static String parseName(byte[] header) {
+        String name = parseString(header, 0, 100);
+        boolean ustar = (header[257] == 'u') && (header[258] == 's') && (header[259] == 't') && (header[260] == 'a') && (header[261] == 'r');
+        if (ustar) {
+            String prefix = parseString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private static String parseString(byte[] header, int offset, int length) {
+        int end = offset;
+        while ((end < offset + length) && (header[end] != 0)) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a numeric header field, which is either octal text or, for large values, a big-endian
+     * binary number flagged by the high bit of its first byte.
+     */
+    private static long parseNumber(byte[] header, int offset, int length) throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (header[i] & 0xff);
+            }
+            return value;
+        }
+
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte digit = header[i];
+            if ((digit == 0) || (digit == ' ')) {
+                if (value != 0) {
+                    break;
+                }
+                continue;
+            }
+            if ((digit < '0') || (digit > '7')) {
+                throw new IOException("Corrupt tar header: bad numeric field.");
+            }
+            value = (value << 3) | (digit - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Parses the records of a pax extended header, each of the form "length key=value\n".
+     */
+    private static List<String[]> parsePaxRecords(byte[] content) throws IOException {
+        List<String[]> records = new ArrayList<>();
+        int offset = 0;
+        while (offset < content.length) {
+            int space = offset;
+            while ((space < content.length) && (content[space] != ' ')) {
+                space++;
+            }
+            if (space == content.length) {
+                break;
+            }
+
+            int length;
+            try {
+                length = Integer.parseInt(new String(content, offset, space - offset, StandardCharsets.UTF_8));
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt pax header: bad record length.");
+            }
+            if ((length <= space - offset) || (offset + length > content.length)) {
+                throw new IOException("Corrupt pax header: bad record length.");
+            }
+
+            String record = new String(content, space + 1, offset + length - space - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0) {
+                records.add(new String[] { record.substring(0, equals), record.substring(equals + 1) });
+            }
+            offset += length;
+        }
+        return records;
+    }
+
+    private static String trimTrailingNulls(String value) {
+        int end = value.length();
+        while ((end > 0) && (value.charAt(end - 1) == '\0')) {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int read = 0;
+        while (read < block.length) {
+            int count = in.read(block, read, block.length - read);
+            if (count < 0) {
+                if (read == 0) {
+                    return false;
+                }
+                throw new EOFException("Unexpected end of tar archive.");
+            }
+            read += count;
+        }
+        return true;
+    }
+
+    private static byte[] readContent(InputStream in, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt tar archive: extended header is too large.");
+        }
+        byte[] content = new byte[(int) size];
+        int read = 0;
+        while (read < content.length) {
+            int count = in.read(content, read, content.length - read);
+            if (count < 0) {
+                throw new EOFException("Unexpected end of tar archive.");
+            }
+            read += count;
+        }
+        skipPadding(in, size);
+        return content;
+    }
+
+    private static void copy(InputStream in, OutputStream out, long size, byte[] buffer) throws IOException {
+        long remaining = size;
+        while (remaining > 0) {
+            int count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (count < 0) {
+                throw new EOFException("Unexpected end of tar archive.");
+            }
+            out.write(buffer, 0, count);
+            remaining -= count;
+        }
+    }
+
+    private static void skipPadding(InputStream in, long size) throws IOException {
+        skip(in, paddedSize(size) - size);
+    }
+
+    private static long paddedSize(long size) {
+        return ((size + BLOCK_SIZE - 1) / BLOCK_SIZE) * BLOCK_SIZE;
+    }
+
+    private static void skip(InputStream in, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Unexpected end of tar archive.");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
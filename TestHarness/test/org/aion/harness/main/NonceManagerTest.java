@@ -0,0 +1,158 @@
+package org.aion.harness.main;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.aion.harness.kernel.Address;
+import org.aion.harness.kernel.PrivateKey;
+import org.aion.harness.kernel.SignedTransaction;
+import org.aion.harness.mock.MockKernel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NonceManagerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockKernel kernel;
+    private RPC rpc;
+    private NonceManager nonceManager;
+    private PrivateKey sender;
+
+    @Before
+    public void setup() throws Exception {
+        // A long block interval, so that the test decides when blocks are sealed.
+        File log = new File(this.folder.getRoot(), "mock.log");
+        this.kernel = MockKernel.start(log, 0, 1, TimeUnit.HOURS, MockKernel.DEFAULT_MAX_TRANSACTIONS_PER_BLOCK);
+        this.rpc = RPC.newRpc("127.0.0.1", Integer.toString(this.kernel.getPort()));
+        this.nonceManager = new NonceManager(this.rpc);
+        this.sender = PrivateKey.random();
+    }
+
+    @After
+    public void tearDown() {
+        this.kernel.stop();
+    }
+
+    @Test
+    public void testResyncKeepsNoncesInFlight() throws Exception {
+        Address address = this.sender.getAddress();
+        assertEquals(BigInteger.ZERO, this.nonceManager.nextNonce(address));
+        send(BigInteger.ZERO);
+        assertEquals(BigInteger.ONE, this.nonceManager.nextNonce(address));
+
+        // Nonce 1 is handed out but not yet sent, so the kernel's pending nonce is behind.
+        assertEquals(BigInteger.TWO, this.nonceManager.resync(address));
+        assertEquals(BigInteger.TWO, this.nonceManager.nextNonce(address));
+    }
+
+    @Test
+    public void testResyncCatchesUpWithOtherSenders() throws Exception {
+        Address address = this.sender.getAddress();
+        assertEquals(BigInteger.ZERO, this.nonceManager.nextNonce(address));
+
+        // Transactions sent by someone else from the same account, still in the pool.
+        send(BigInteger.ZERO);
+        send(BigInteger.ONE);
+        send(BigInteger.TWO);
+
+        assertEquals(BigInteger.valueOf(3), this.nonceManager.resync(address));
+    }
+
+    @Test
+    public void testRejectedNonceIsHandedOutAgainFirst() throws Exception {
+        Address address = this.sender.getAddress();
+        assertEquals(BigInteger.ZERO, this.nonceManager.reserveNonces(address, 4));
+
+        this.nonceManager.reportRejectedNonce(address, BigInteger.ONE);
+        this.nonceManager.reportRejectedNonce(address, BigInteger.valueOf(3));
+        assertTrue(this.nonceManager.hasGap(address));
+
+        assertEquals(Arrays.asList(BigInteger.ONE, BigInteger.valueOf(3), BigInteger.valueOf(4)), this.nonceManager.nextNonces(address, 3));
+        assertFalse(this.nonceManager.hasGap(address));
+        assertEquals(BigInteger.valueOf(5), this.nonceManager.nextNonce(address));
+    }
+
+    @Test
+    public void testRejectedNonceSealedMeanwhileIsDropped() throws Exception {
+        Address address = this.sender.getAddress();
+        assertEquals(BigInteger.ZERO, this.nonceManager.nextNonce(address));
+
+        // The report is stale: the transaction made it into a block after all.
+        send(BigInteger.ZERO);
+        this.kernel.sealBlock();
+        this.nonceManager.reportRejectedNonce(address, BigInteger.ZERO);
+        assertTrue(this.nonceManager.hasGap(address));
+
+        assertEquals(BigInteger.ONE, this.nonceManager.nextNonce(address));
+        assertFalse(this.nonceManager.hasGap(address));
+    }
+
+    @Test
+    public void testNonceNeverHandedOutDoesNotOpenGap() throws Exception {
+        Address address = this.sender.getAddress();
+        assertEquals(BigInteger.ZERO, this.nonceManager.nextNonce(address));
+
+        this.nonceManager.reportRejectedNonce(address, BigInteger.TEN);
+        assertFalse(this.nonceManager.hasGap(address));
+        assertEquals(BigInteger.ONE, this.nonceManager.nextNonce(address));
+    }
+
+    @Test
+    public void testConcurrentFirstAllocationsWaitForTheKernelNonce() throws Exception {
+        Address address = this.sender.getAddress();
+        for (int i = 0; i < 5; i++) {
+            send(BigInteger.valueOf(i));
+        }
+        this.kernel.sealBlock();
+
+        // Every thread asks for a nonce of the fresh sender at once, while the first one fetches it.
+        int threads = 8;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Callable<BigInteger>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            tasks.add(() -> {
+                start.await();
+                return this.nonceManager.nextNonce(address);
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Set<BigInteger> nonces = new TreeSet<>();
+        try {
+            for (Future<BigInteger> nonce : executor.invokeAll(tasks)) {
+                nonces.add(nonce.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<BigInteger> expected = new TreeSet<>();
+        for (int i = 5; i < 5 + threads; i++) {
+            expected.add(BigInteger.valueOf(i));
+        }
+        assertEquals(expected, nonces);
+    }
+
+    private void send(BigInteger nonce) throws Exception {
+        SignedTransaction transaction = SignedTransaction.newGeneralTransaction(this.sender, nonce, PrivateKey.random().getAddress(), new byte[0], 2_000_000, 10_000_000_000L, BigInteger.ONE, null);
+        assertTrue(this.rpc.sendSignedTransaction(transaction).isSuccess());
+    }
+}
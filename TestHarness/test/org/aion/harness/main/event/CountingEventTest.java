@@ -0,0 +1,40 @@
+package org.aion.harness.main.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class CountingEventTest {
+
+    @Test
+    public void testSatisfiedOnKthObservation() {
+        CountingEvent event = CountingEvent.of("sealed", 3);
+
+        assertFalse(event.isSatisfiedBy("block 1 sealed", 1, TimeUnit.NANOSECONDS));
+        assertFalse(event.isSatisfiedBy("block 1 imported", 2, TimeUnit.NANOSECONDS));
+        assertFalse(event.isSatisfiedBy("block 2 sealed", 3, TimeUnit.NANOSECONDS));
+        assertEquals(2, event.getCount());
+        assertTrue(event.isSatisfiedBy("block 3 sealed", 4, TimeUnit.NANOSECONDS));
+
+        // Further lines are ignored once satisfied.
+        assertTrue(event.isSatisfiedBy("block 4 sealed", 5, TimeUnit.NANOSECONDS));
+        assertEquals(3, event.getCount());
+        assertEquals(4, event.observedAt(TimeUnit.NANOSECONDS));
+        assertEquals(3, event.getAllObservedLogs().size());
+        assertEquals("block 3 sealed", event.getAllObservedLogs().get(2));
+    }
+
+    @Test
+    public void testCountedRegexInCompiledEvent() {
+        CountingEvent event = CountingEvent.ofRegex("txs = [1-9]", 2);
+        CompiledEvent compiled = CompiledEvent.compile(event);
+
+        assertFalse(compiled.isSatisfiedBy("txs = 0", 1, TimeUnit.NANOSECONDS));
+        assertFalse(compiled.isSatisfiedBy("txs = 4", 2, TimeUnit.NANOSECONDS));
+        assertTrue(compiled.isSatisfiedBy("txs = 5", 3, TimeUnit.NANOSECONDS));
+        assertEquals(2, event.getAllObservedEvents().size());
+    }
+}
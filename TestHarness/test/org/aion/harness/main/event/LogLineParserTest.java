@@ -0,0 +1,72 @@
+package org.aion.harness.main.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import org.junit.Test;
+
+public class LogLineParserTest {
+    private static final String HASH = String.join("", Collections.nCopies(8, "0123abcd"));
+
+    @Test
+    public void testTokenizeJavaLine() {
+        LogLine line = LogLineParser.parse("19-07-24 14:03:09.874 INFO  GEN  [main]: Loading blockchain ...");
+
+        long expected = LocalDateTime.of(2019, 7, 24, 14, 3, 9, 874_000_000).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        assertEquals(expected, line.getTimestampMillis());
+        assertEquals(LogLevel.INFO, line.getLevel());
+        assertEquals("GEN", line.getModule());
+        assertEquals("main", line.getThread());
+        assertEquals("Loading blockchain ...", line.getMessage());
+        assertNull(line.getEvent());
+    }
+
+    @Test
+    public void testTokenizeUnstructuredLine() {
+        LogLine line = LogLineParser.parse("\tat org.aion.Foo.bar(Foo.java:12)");
+
+        assertFalse(line.hasTimestamp());
+        assertNull(line.getLevel());
+        assertNull(line.getModule());
+        assertEquals("\tat org.aion.Foo.bar(Foo.java:12)", line.getMessage());
+    }
+
+    @Test
+    public void testTypedEvents() {
+        KernelEvent imported = LogLineParser.parse("19-07-24 14:03:09.874 INFO  CONS [sync-ib]: "
+            + "<import-status: node = 222222, hash = 4d5e6f, number = 12, txs = 3, result = IMPORTED_BEST, time = 4 ms>").getEvent();
+        assertEquals(KernelEvent.Type.BLOCK_IMPORTED, imported.getType());
+        assertEquals(12, imported.getBlockNumber());
+        assertEquals("4d5e6f", imported.getBlockHash());
+        assertEquals(3, imported.getTransactionCount());
+        assertEquals("IMPORTED_BEST", imported.getImportResult());
+
+        KernelEvent sealed = LogLineParser.parse("19-07-24 14:03:09.874 DEBUG TX [pool]: Transaction: " + HASH.toUpperCase() + " was sealed into block #7").getEvent();
+        assertEquals(KernelEvent.Type.TRANSACTION_SEALED, sealed.getType());
+        assertEquals(HASH, sealed.getTransactionHash());
+        assertEquals(7, sealed.getBlockNumber());
+
+        KernelEvent received = LogLineParser.parse("19-07-24 14:03:09.874 DEBUG TX [pool]: Transaction: " + HASH + " was added to the pool").getEvent();
+        assertEquals(KernelEvent.Type.TRANSACTION_RECEIVED, received.getType());
+        assertEquals(HASH, received.getTransactionHash());
+
+        assertEquals(KernelEvent.Type.TRANSACTION_REJECTED, LogLineParser.parse("2019-07-24 14:03:09 INFO pool Transaction rejected (hash " + HASH + ")").getEvent().getType());
+        assertEquals(KernelEvent.Type.BLOCK_SEALED, LogLineParser.parse("block sealed <num=5, hash=abc, diff=2>").getEvent().getType());
+        assertEquals(KernelEvent.Type.PEER_STATUS, LogLineParser.parse("19-07-24 14:03:09.874 INFO  P2P  [p2p-status]: ").getEvent().getType());
+    }
+
+    @Test
+    public void testSameLineIsParsedOnce() {
+        String raw = "19-07-24 14:03:09.874 ERROR DB [main]: failed";
+        LogLine first = LogLineParser.parse(raw);
+
+        assertSame(first, LogLineParser.parse(raw));
+        assertTrue(first != LogLineParser.parse(new String(raw)));
+    }
+}
@@ -0,0 +1,53 @@
+package org.aion.harness.main.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class RegexEventTest {
+
+    @Test
+    public void testRequiredLiteral() {
+        assertEquals("block sealed <num=", literalOf("block sealed <num=\\d+, hash=\\w+"));
+        assertEquals(" was sealed into block", literalOf("Transaction: [0-9a-f]{64} was sealed into block"));
+        assertEquals(" (hash 0x", literalOf("(?:mined|sealed) \\(hash 0x"));
+        assertEquals("a.b", literalOf("a\\.b"));
+        assertEquals("txs = 1", literalOf("txs = 1\\d?"));
+        assertEquals("sealed", literalOf("\\Qsealed\\E"));
+        assertNull(literalOf("sealed|imported"));
+        assertNull(literalOf("(?i)sealed"));
+        assertNull(RegexEvent.requiredLiteralOf(Pattern.compile("sealed", Pattern.CASE_INSENSITIVE)));
+        assertNull(literalOf("\\d+"));
+    }
+
+    @Test
+    public void testMatchedTextIsObserved() {
+        RegexEvent event = new RegexEvent("txs = [1-9]\\d*");
+        assertFalse(event.isSatisfiedBy("block imported, txs = 0", 1, TimeUnit.NANOSECONDS));
+        assertTrue(event.isSatisfiedBy("block imported, txs = 12, result = IMPORTED_BEST", 2, TimeUnit.NANOSECONDS));
+        assertEquals(Collections.singletonList("txs = 12"), event.getAllObservedEvents());
+        assertEquals(2, event.observedAt(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testCompiledEventSkipsLinesWithoutLiteral() {
+        LogLineEvent event = new LogLineEvent("needs sealed", "sealed", line -> true);
+        CompiledEvent compiled = CompiledEvent.compile(event.and(new RegexEvent("imported #\\d+")));
+
+        assertFalse(compiled.isSatisfiedBy("anything else", 1, TimeUnit.NANOSECONDS));
+        assertFalse(event.hasBeenObserved());
+        assertFalse(compiled.isSatisfiedBy("block sealed", 2, TimeUnit.NANOSECONDS));
+        assertTrue(compiled.isSatisfiedBy("block imported #7", 3, TimeUnit.NANOSECONDS));
+        assertEquals(2, compiled.getAllObservedEvents().size());
+    }
+
+    private static String literalOf(String regex) {
+        return RegexEvent.requiredLiteralOf(Pattern.compile(regex));
+    }
+}
@@ -0,0 +1,34 @@
+package org.aion.harness.main.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class SequenceEventTest {
+
+    @Test
+    public void testSecondEventWithinWindow() {
+        SequenceEvent event = new SequenceEvent(new Event("sealed"), new Event("imported"), 10, TimeUnit.NANOSECONDS);
+
+        assertFalse(event.isSatisfiedBy("imported", 1, TimeUnit.NANOSECONDS));
+        assertFalse(event.isSatisfiedBy("sealed and imported", 2, TimeUnit.NANOSECONDS));
+        assertTrue(event.isSatisfiedBy("imported", 12, TimeUnit.NANOSECONDS));
+        assertEquals(12, event.observedAt(TimeUnit.NANOSECONDS));
+        assertEquals(Arrays.asList("sealed", "imported"), event.getAllObservedEvents());
+    }
+
+    @Test
+    public void testSecondEventAfterWindow() {
+        SequenceEvent event = new SequenceEvent(new Event("sealed"), new Event("imported"), 10, TimeUnit.NANOSECONDS);
+
+        assertFalse(event.isSatisfiedBy("sealed", 1, TimeUnit.NANOSECONDS));
+        assertFalse(event.isSatisfiedBy("imported", 12, TimeUnit.NANOSECONDS));
+        assertTrue(event.hasMissedWindow());
+        assertFalse(event.isSatisfiedBy("imported", 13, TimeUnit.NANOSECONDS));
+        assertFalse(event.hasBeenObserved());
+    }
+}
@@ -0,0 +1,102 @@
+package org.aion.harness.main.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.harness.main.RPC;
+import org.aion.harness.main.global.SingletonFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RpcCallerRegistryTest {
+    private static final int MAX_CONNECTIONS = 2;
+    private static final int CALLS = 8;
+    private static final String PAYLOAD = "{\"jsonrpc\":\"2.0\",\"method\":\"eth_blockNumber\",\"params\":[],\"id\":1}";
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService serverThreads;
+
+    @Before
+    public void setup() throws Exception {
+        // More server threads than calls, so that only the caller can hold requests back.
+        this.serverThreads = Executors.newFixedThreadPool(CALLS);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(this.serverThreads);
+        this.server.createContext("/", (exchange) -> {
+            this.maxInFlight.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+                byte[] response = "{\"jsonrpc\":\"2.0\",\"result\":\"0x1\",\"id\":1}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(response);
+                }
+            } catch (InterruptedException e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                this.inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        this.server.start();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop(0);
+        this.serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void testRpcInstancesOfTheSameEndpointShareOneCaller() {
+        String port = Integer.toString(this.server.getAddress().getPort());
+        RpcCallerRegistry registry = SingletonFactory.singleton().rpcCallerRegistry();
+
+        RPC.newRpc("127.0.0.1", port);
+        RPC.newRpc("127.0.0.1", port);
+        int endpoints = registry.numberOfEndpoints();
+
+        RpcCaller caller = registry.callerFor("127.0.0.1", port);
+        assertSame(caller, registry.callerFor("127.0.0.1", port));
+        assertEquals(endpoints, registry.numberOfEndpoints());
+        assertNotSame(caller, registry.callerFor("127.0.0.1", Integer.toString(this.server.getAddress().getPort() + 1)));
+    }
+
+    @Test
+    public void testConnectionLimitIsEnforcedAcrossCallers() throws Exception {
+        String port = Integer.toString(this.server.getAddress().getPort());
+        RpcCallerRegistry registry = new RpcCallerRegistry(CALLS, MAX_CONNECTIONS);
+
+        ExecutorService callers = Executors.newFixedThreadPool(CALLS);
+        try {
+            List<Future<InternalRpcResult>> results = new ArrayList<>();
+            for (int i = 0; i < CALLS; i++) {
+                results.add(callers.submit(() -> registry.callerFor("127.0.0.1", port).call(PAYLOAD, false)));
+            }
+            for (Future<InternalRpcResult> result : results) {
+                assertTrue(result.get(1, TimeUnit.MINUTES).success);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(1, registry.numberOfEndpoints());
+        assertEquals(MAX_CONNECTIONS, this.maxInFlight.get());
+    }
+}
@@ -0,0 +1,59 @@
+package org.aion.harness.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testPrometheusText() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("sent_total", "Sent.").add(3);
+        registry.counter("calls_total", "Calls.", "method", "eth_call").increment();
+        registry.gauge("pending", "Pending.", () -> 7);
+        registry.histogram("latency_seconds", "Latency.").record(2, TimeUnit.SECONDS);
+
+        String text = registry.toPrometheusText();
+        assertTrue(text.contains("# TYPE sent_total counter\nsent_total 3\n"));
+        assertTrue(text.contains("calls_total{method=\"eth_call\"} 1\n"));
+        assertTrue(text.contains("# TYPE pending gauge\npending 7\n"));
+        assertTrue(text.contains("latency_seconds{quantile=\"0.5\"} 2"));
+        assertTrue(text.contains("latency_seconds_count 1\n"));
+    }
+
+    @Test
+    public void testSameMetricIsReturned() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.counter("a_total", "A."), registry.counter("a_total", "A."));
+        assertSame(registry.histogram("b", "B.", "method", "x"), registry.histogram("b", "B.", "method", "x"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMetricTypesCannotBeMixed() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("a_total", "A.");
+        registry.histogram("a_total", "A.");
+    }
+
+    @Test
+    public void testServeOverHttp() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("served_total", "Served.").increment();
+
+        MetricsExporter exporter = MetricsExporter.serving(registry, 0);
+        try (InputStream response = new URL("http://127.0.0.1:" + exporter.getPort() + "/metrics").openStream()) {
+            assertTrue(IOUtils.toString(response, StandardCharsets.UTF_8).contains("served_total 1\n"));
+        } finally {
+            exporter.stop();
+        }
+        assertEquals(-1, exporter.getPort());
+    }
+}
@@ -0,0 +1,90 @@
+package org.aion.harness.mock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import org.aion.harness.kernel.PrivateKey;
+import org.aion.harness.kernel.SignedTransaction;
+import org.aion.harness.main.NodeListener;
+import org.aion.harness.main.RPC;
+import org.aion.harness.main.event.JavaPrepackagedLogEvents;
+import org.aion.harness.main.types.ReceiptHash;
+import org.aion.harness.main.types.TransactionReceipt;
+import org.aion.harness.result.FutureResult;
+import org.aion.harness.result.LogEventResult;
+import org.aion.harness.result.RpcResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MockKernelTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockKernel kernel;
+    private RPC rpc;
+
+    @Before
+    public void setup() throws Exception {
+        // A long block interval, so that the test decides when blocks are sealed.
+        File log = new File(this.folder.getRoot(), "mock.log");
+        this.kernel = MockKernel.start(log, 0, 1, TimeUnit.HOURS, MockKernel.DEFAULT_MAX_TRANSACTIONS_PER_BLOCK);
+        this.rpc = RPC.newRpc("127.0.0.1", Integer.toString(this.kernel.getPort()));
+    }
+
+    @After
+    public void tearDown() {
+        this.kernel.stop();
+    }
+
+    @Test
+    public void testSentTransactionIsSealed() throws Exception {
+        PrivateKey sender = PrivateKey.random();
+        SignedTransaction transaction = SignedTransaction.newGeneralTransaction(sender, BigInteger.ZERO, PrivateKey.random().getAddress(), new byte[0], 2_000_000, 10_000_000_000L, BigInteger.ONE, null);
+
+        FutureResult<LogEventResult> sealed = NodeListener.listenTo(this.kernel.getID())
+            .listenForEvent(new JavaPrepackagedLogEvents().getTransactionSealedEvent(transaction), 1, TimeUnit.MINUTES);
+
+        RpcResult<ReceiptHash> sent = this.rpc.sendSignedTransaction(transaction);
+        assertTrue(sent.getError(), sent.isSuccess());
+        assertEquals(1, this.kernel.getPooledTransactionCount());
+
+        this.kernel.sealBlock();
+        assertTrue(sealed.get().eventWasObserved());
+
+        RpcResult<TransactionReceipt> receipt = this.rpc.getTransactionReceipt(sent.getResult());
+        assertTrue(receipt.getError(), receipt.isSuccess());
+        assertNotNull(receipt.getResult());
+        assertEquals(BigInteger.ONE, receipt.getResult().getBlockNumber());
+        assertEquals(sender.getAddress(), receipt.getResult().getTransactionSender());
+
+        assertEquals(BigInteger.ONE, this.rpc.getNonce(sender.getAddress()).getResult());
+        assertNotNull(this.rpc.getBlockByNumber(BigInteger.ONE).getResult());
+        assertEquals(Long.valueOf(1), this.rpc.blockNumber().getResult());
+    }
+
+    @Test
+    public void testReusedNonceIsRejected() throws Exception {
+        PrivateKey sender = PrivateKey.random();
+        SignedTransaction first = SignedTransaction.newGeneralTransaction(sender, BigInteger.ZERO, sender.getAddress(), new byte[0], 2_000_000, 10_000_000_000L, BigInteger.ONE, null);
+        SignedTransaction second = SignedTransaction.newGeneralTransaction(sender, BigInteger.ZERO, sender.getAddress(), new byte[0], 2_000_000, 10_000_000_000L, BigInteger.TEN, null);
+
+        assertTrue(this.rpc.sendSignedTransaction(first).isSuccess());
+        this.kernel.sealBlock();
+        assertFalse(this.rpc.sendSignedTransaction(second).isSuccess());
+    }
+
+    @Test
+    public void testUnknownMethodIsAnError() {
+        String response = this.kernel.respondTo("{\"jsonrpc\":\"2.0\",\"method\":\"eth_unknown\",\"params\":[],\"id\":7}");
+        assertTrue(response.contains("\"code\":-32601"));
+        assertTrue(response.contains("\"id\":7"));
+    }
+}
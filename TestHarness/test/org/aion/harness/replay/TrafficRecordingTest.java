@@ -0,0 +1,97 @@
+package org.aion.harness.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.aion.harness.main.tools.RpcMethod;
+import org.aion.harness.main.tools.RpcPayload;
+import org.aion.harness.result.RpcResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TrafficRecordingTest {
+    private static final String RECEIPT_OF_A = RpcPayload.generatePayload(RpcMethod.GET_TRANSACTION_RECEIPT, "\"0xaa\"");
+    private static final String RECEIPT_OF_B = RpcPayload.generatePayload(RpcMethod.GET_TRANSACTION_RECEIPT, "\"0xbb\"");
+    private static final String BLOCK_NUMBER = RpcPayload.generatePayload(RpcMethod.BLOCK_NUMBER, "");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRpcCallsAreReplayedInOrder() throws Exception {
+        File file = this.folder.newFile();
+        TrafficRecorder recorder = TrafficRecorder.open(file);
+        recorder.recordRpcCall("http://127.0.0.1:8545", RECEIPT_OF_A, true, "{\"result\":null}", 10);
+        recorder.recordRpcCall("http://127.0.0.1:8545", RECEIPT_OF_A, true, "{\"result\":\"first\"}", 10);
+        recorder.recordRpcCall("http://127.0.0.1:8545", BLOCK_NUMBER, false, "refused", 10);
+        recorder.close();
+
+        TrafficRecording recording = TrafficRecording.read(file, 0);
+        assertEquals(3, recording.numberOfRpcCalls());
+
+        assertEquals("{\"result\":null}", recording.respondTo(RECEIPT_OF_A, 0).getResult());
+        assertEquals("{\"result\":\"first\"}", recording.respondTo(RECEIPT_OF_A, 0).getResult());
+
+        // Exhausted payloads keep getting their last response.
+        assertEquals("{\"result\":\"first\"}", recording.respondTo(RECEIPT_OF_A, 0).getResult());
+
+        RpcResult<String> failure = recording.respondTo(BLOCK_NUMBER, 0);
+        assertFalse(failure.isSuccess());
+        assertEquals("refused", failure.getError());
+
+        // Nothing is left to serve to a new payload.
+        assertFalse(recording.respondTo(RECEIPT_OF_B, 0).isSuccess());
+    }
+
+    @Test
+    public void testUnknownPayloadFallsBackToSameMethod() throws Exception {
+        File file = this.folder.newFile();
+        TrafficRecorder recorder = TrafficRecorder.open(file);
+        recorder.recordRpcCall("http://127.0.0.1:8545", RECEIPT_OF_A, true, "{\"result\":\"a\"}", 10);
+        recorder.close();
+
+        TrafficRecording recording = TrafficRecording.read(file, 0);
+        assertEquals("{\"result\":\"a\"}", recording.respondTo(RECEIPT_OF_B, 0).getResult());
+    }
+
+    @Test
+    public void testLogLinesAreReplayedPerStream() throws Exception {
+        File file = this.folder.newFile();
+        TrafficRecorder recorder = TrafficRecorder.open(file);
+        recorder.recordLogLine("logs#0", "one");
+        recorder.recordLogLine("java_node-1#0", "other");
+        recorder.recordLogLine("logs#0", "two");
+        recorder.close();
+
+        TrafficRecording recording = TrafficRecording.read(file, 0);
+        assertTrue(recording.hasLogLinesOf("logs#0"));
+        assertFalse(recording.hasLogLinesOf("logs#1"));
+
+        List<String> lines = new ArrayList<>();
+        recording.replayLogLines("logs#0", lines::add);
+        assertEquals(Arrays.asList("one", "two"), lines);
+    }
+
+    @Test
+    public void testTruncatedRecordingIsReadUpToLastRecord() throws Exception {
+        File file = this.folder.newFile();
+        TrafficRecorder recorder = TrafficRecorder.open(file);
+        recorder.recordLogLine("logs#0", "complete");
+        recorder.recordLogLine("logs#0", "cut short");
+        recorder.close();
+
+        try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+            truncate.setLength(truncate.length() - 3);
+        }
+
+        TrafficRecording recording = TrafficRecording.read(file, 0);
+        assertEquals(1, recording.numberOfLogLines());
+    }
+}
@@ -0,0 +1,45 @@
+package org.aion.harness.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class FutureResultTest {
+
+    @Test
+    public void testAllOfFinishesWithResultsInOrder() throws InterruptedException {
+        FutureResult<String> first = new FutureResult<>();
+        FutureResult<String> second = new FutureResult<>();
+        FutureResult<List<String>> all = FutureResult.allOf(Arrays.asList(first, second));
+
+        second.finish("b");
+        assertFalse(all.isDone());
+        first.finish("a");
+        assertTrue(all.isDone());
+        assertEquals(Arrays.asList("a", "b"), all.get());
+    }
+
+    @Test
+    public void testAllOfNoFuturesIsDone() throws InterruptedException {
+        FutureResult<List<String>> all = FutureResult.allOf(Collections.emptyList());
+        assertTrue(all.isDone());
+        assertTrue(all.get().isEmpty());
+    }
+
+    @Test
+    public void testAnyOfFinishesWithFirstResult() throws InterruptedException {
+        FutureResult<String> first = new FutureResult<>();
+        FutureResult<String> second = new FutureResult<>();
+        second.finish("already");
+
+        FutureResult<String> any = FutureResult.anyOf(Arrays.asList(first, second));
+        assertTrue(any.isDone());
+        first.finish("later");
+        assertEquals("already", any.get());
+    }
+}
@@ -0,0 +1,95 @@
+package org.aion.harness.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import org.aion.harness.main.types.Block;
+import org.junit.Test;
+
+public class BlockStatisticsTest {
+
+    @Test
+    public void testIngestMatchesTwoPassStatistics() {
+        // Three transactions in block 1 and one in each of blocks 2 and 3.
+        long[] numbers = { 1, 1, 1, 2, 3 };
+        long[] limits = { 15_000_000, 15_000_000, 15_000_000, 14_985_376, 15_029_309 };
+        long[] used = { 4_200_000, 4_200_000, 4_200_000, 0, 15_029_309 };
+
+        BlockStatistics statistics = BlockStatistics.empty();
+        double[] percentages = new double[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            statistics.ingest(newBlock(numbers[i], used[i], limits[i]));
+            percentages[i] = 100.0 * used[i] / limits[i];
+        }
+
+        assertEquals(5, statistics.getNumberOfTransactions());
+        assertEquals(3, statistics.getNumberOfUniqueBlocks());
+
+        RunningStatistics energyLimits = statistics.getBlockEnergyLimitStatistics();
+        assertEquals(14_985_376, energyLimits.getMinimum(), 0);
+        assertEquals(15_029_309, energyLimits.getMaximum(), 0);
+        assertEquals(mean(limits), energyLimits.getMean(), 1e-6);
+        assertEquals(standardDeviation(limits), energyLimits.getStandardDeviation(), 1e-6);
+
+        RunningStatistics energyUsed = statistics.getBlockEnergyUsedStatistics();
+        assertEquals(mean(used), energyUsed.getMean(), 1e-6);
+        assertEquals(standardDeviation(used), energyUsed.getStandardDeviation(), 1e-6);
+
+        RunningStatistics energyUsedPercentages = statistics.getBlockEnergyUsedPercentageStatistics();
+        assertEquals(0, energyUsedPercentages.getMinimum(), 0);
+        assertEquals(100, energyUsedPercentages.getMaximum(), 1e-9);
+        assertEquals(standardDeviation(percentages), energyUsedPercentages.getStandardDeviation(), 1e-9);
+    }
+
+    @Test
+    public void testSnapshotsAreNotUpdatedByLaterIngests() {
+        BlockStatistics statistics = BlockStatistics.empty();
+        statistics.ingest(newBlock(1, 10, 100));
+        RunningStatistics snapshot = statistics.getBlockEnergyUsedStatistics();
+
+        statistics.ingest(newBlock(2, 30, 100));
+        assertEquals(1, snapshot.getCount());
+        assertEquals(2, statistics.getBlockEnergyUsedStatistics().getCount());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testIngestNullBlock() {
+        BlockStatistics.empty().ingest(null);
+    }
+
+    private static Block newBlock(long number, long energyUsed, long energyLimit) {
+        byte[] empty = new byte[0];
+        return new Block(BigInteger.valueOf(number), empty, empty, empty, empty, empty, empty, BigInteger.ONE,
+            BigInteger.ONE, 0, empty, energyUsed, energyLimit, empty, true, 0, null, null, null, null, null);
+    }
+
+    private static double mean(long[] values) {
+        double sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double standardDeviation(long[] values) {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = values[i];
+        }
+        return standardDeviation(doubles);
+    }
+
+    private static double standardDeviation(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        double mean = sum / values.length;
+
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / values.length);
+    }
+}
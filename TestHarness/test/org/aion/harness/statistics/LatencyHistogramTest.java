@@ -0,0 +1,54 @@
+package org.aion.harness.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        long[] values = { 0, 1, 255, 256, 257, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE };
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.lowestValueOf(bucket) <= value);
+            assertTrue(value - LatencyHistogram.lowestValueOf(bucket) <= value / 100);
+        }
+    }
+
+    @Test
+    public void testPercentilesAreWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1_000; millis++) {
+            histogram.record(millis, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(1_000, histogram.getCount());
+        assertEquals(1, histogram.getMinimum(TimeUnit.MILLISECONDS));
+        assertEquals(1_000, histogram.getMaximum(TimeUnit.MILLISECONDS));
+        assertEquals(500.5, histogram.getMeanNanos() / 1_000_000, 1e-9);
+        assertEquals(500, histogram.getPercentile(50, TimeUnit.MILLISECONDS), 5);
+        assertEquals(990, histogram.getPercentile(99, TimeUnit.MILLISECONDS), 10);
+        assertEquals(999, histogram.getPercentile(99.9, TimeUnit.MILLISECONDS), 10);
+        assertEquals(1_000, histogram.getPercentile(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testMerge() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        fast.recordNanos(10);
+        fast.recordNanos(20);
+        slow.recordNanos(1_000_000);
+
+        fast.merge(slow);
+
+        assertEquals(3, fast.getCount());
+        assertEquals(10, fast.getMinimum(TimeUnit.NANOSECONDS));
+        assertEquals(1_000_000, fast.getMaximum(TimeUnit.NANOSECONDS));
+        assertEquals(20, fast.getPercentile(50, TimeUnit.NANOSECONDS));
+        assertTrue(fast.toJson().startsWith("{\"count\":3,\"min\":10,"));
+    }
+}
@@ -0,0 +1,25 @@
+package org.aion.harness.statistics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void testGrows() {
+        LongIntHashMap counts = new LongIntHashMap();
+        for (long block = 1_000; block > 0; block--) {
+            counts.increment(block);
+        }
+        counts.increment(7);
+
+        assertEquals(1_000, counts.size());
+        assertEquals(2, counts.get(7));
+        assertEquals(1, counts.get(1_000));
+        assertEquals(0, counts.get(1_001));
+        assertArrayEquals(new long[] { 1, 2, 3 }, Arrays.copyOf(counts.sortedKeys(), 3));
+    }
+}
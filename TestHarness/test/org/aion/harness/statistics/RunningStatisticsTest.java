@@ -0,0 +1,40 @@
+package org.aion.harness.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RunningStatisticsTest {
+
+    @Test
+    public void testMatchesTwoPassStatistics() {
+        double[] values = { 15_000_000, 14_985_376, 15_014_647, 15_029_309, 15_000_000 };
+
+        RunningStatistics statistics = new RunningStatistics();
+        double sum = 0;
+        for (double value : values) {
+            statistics.add(value);
+            sum += value;
+        }
+
+        double mean = sum / values.length;
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+
+        assertEquals(values.length, statistics.getCount());
+        assertEquals(14_985_376, statistics.getMinimum(), 0);
+        assertEquals(15_029_309, statistics.getMaximum(), 0);
+        assertEquals(mean, statistics.getMean(), 1e-6);
+        assertEquals(Math.sqrt(squares / values.length), statistics.getStandardDeviation(), 1e-6);
+    }
+
+    @Test
+    public void testEmptyStatistics() {
+        RunningStatistics statistics = new RunningStatistics();
+        assertEquals(0, statistics.getMinimum(), 0);
+        assertEquals(0, statistics.getMean(), 0);
+        assertEquals(0, statistics.getStandardDeviation(), 0);
+    }
+}
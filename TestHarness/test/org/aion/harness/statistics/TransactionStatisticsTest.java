@@ -0,0 +1,58 @@
+package org.aion.harness.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import org.aion.harness.main.types.TransactionReceipt;
+import org.junit.Test;
+
+public class TransactionStatisticsTest {
+
+    @Test
+    public void testIngestMatchesTwoPassStatistics() {
+        long[] blockNumbers = { 4, 4, 4, 4, 5, 6, 6, 9, 9, 9 };
+        long[] countsPerBlock = { 4, 1, 2, 3 };
+
+        TransactionStatistics statistics = TransactionStatistics.empty();
+        for (long blockNumber : blockNumbers) {
+            statistics.ingest(newReceipt(blockNumber));
+        }
+
+        double mean = 0;
+        for (long count : countsPerBlock) {
+            mean += count;
+        }
+        mean /= countsPerBlock.length;
+
+        double squares = 0;
+        for (long count : countsPerBlock) {
+            squares += (count - mean) * (count - mean);
+        }
+
+        assertEquals(blockNumbers.length, statistics.getTotalTransactions());
+        assertEquals(countsPerBlock.length, statistics.getNumberOfBlocks());
+        assertEquals(4, statistics.getTransactionCount(4));
+        assertEquals(0, statistics.getTransactionCount(7));
+        assertEquals(mean, statistics.getMeanTransactionsPerBlock(), 1e-9);
+        assertEquals(Math.sqrt(squares / countsPerBlock.length), statistics.getTransactionsPerBlockStandardDeviation(), 1e-9);
+    }
+
+    @Test
+    public void testEmptyStatistics() {
+        TransactionStatistics statistics = TransactionStatistics.empty();
+        assertEquals(0, statistics.getMeanTransactionsPerBlock(), 0);
+        assertEquals(0, statistics.getTransactionsPerBlockStandardDeviation(), 0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testIngestNullReceipt() {
+        TransactionStatistics.empty().ingest(null);
+    }
+
+    private static TransactionReceipt newReceipt(long blockNumber) {
+        byte[] empty = new byte[0];
+        return new TransactionReceipt(1, 1, 1, 1, 0, empty, empty, empty, empty, BigInteger.valueOf(blockNumber),
+            null, null, null, Collections.emptyList(), 1);
+    }
+}
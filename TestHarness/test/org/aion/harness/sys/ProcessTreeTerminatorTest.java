@@ -0,0 +1,73 @@
+package org.aion.harness.sys;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * These tests start child processes using the system's shell, and are skipped if it is not
+ * available.
+ */
+public class ProcessTreeTerminatorTest {
+
+    @Test
+    public void testTerminateWithinGracePeriod() throws Exception {
+        Process process = startShell("sleep 30 & wait");
+        List<ProcessHandle> tree = ProcessTreeTerminator.treeOf(process.toHandle());
+
+        long start = System.nanoTime();
+        assertTrue(ProcessTreeTerminator.terminate(tree, 30, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+        assertFalse(process.isAlive());
+    }
+
+    @Test
+    public void testKillAfterGracePeriod() throws Exception {
+        // Ignoring SIGTERM is inherited by the sleep, so both processes must be killed forcibly.
+        Process process = startShell("trap '' TERM; sleep 30 & wait");
+        List<ProcessHandle> tree = ProcessTreeTerminator.treeOf(process.toHandle());
+
+        assertTrue(ProcessTreeTerminator.terminate(tree, 200, TimeUnit.MILLISECONDS));
+        for (ProcessHandle handle : tree) {
+            assertFalse(handle.isAlive());
+        }
+    }
+
+    @Test
+    public void testInvalidGracePeriodFallsBackToDefault() {
+        long defaultMillis = TimeUnit.SECONDS.toMillis(ProcessTreeTerminator.DEFAULT_GRACE_PERIOD_SECONDS);
+        try {
+            System.setProperty(ProcessTreeTerminator.GRACE_PERIOD_PROPERTY, " 5 ");
+            assertEquals(5_000, ProcessTreeTerminator.gracePeriodMillis());
+
+            System.setProperty(ProcessTreeTerminator.GRACE_PERIOD_PROPERTY, "5s");
+            assertEquals(defaultMillis, ProcessTreeTerminator.gracePeriodMillis());
+
+            System.setProperty(ProcessTreeTerminator.GRACE_PERIOD_PROPERTY, "-1");
+            assertEquals(defaultMillis, ProcessTreeTerminator.gracePeriodMillis());
+        } finally {
+            System.clearProperty(ProcessTreeTerminator.GRACE_PERIOD_PROPERTY);
+        }
+    }
+
+    private static Process startShell(String script) throws Exception {
+        assumeTrue(new File("/bin/sh").canExecute());
+        Process process = new ProcessBuilder("/bin/sh", "-c", script)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+
+        // Give the shell a moment to start its child.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((process.descendants().count() == 0) && (System.nanoTime() < deadline)) {
+            Thread.sleep(10);
+        }
+        return process;
+    }
+}
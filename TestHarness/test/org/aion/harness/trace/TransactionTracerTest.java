@@ -0,0 +1,78 @@
+package org.aion.harness.trace;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.StringWriter;
+import java.util.Arrays;
+import org.aion.harness.main.event.LogLineParser;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.Test;
+
+public class TransactionTracerTest {
+    private static final byte[] HASH = new byte[32];
+    private static final String HEX_HASH;
+
+    static {
+        Arrays.fill(HASH, (byte) 0xab);
+        HEX_HASH = Hex.encodeHexString(HASH);
+    }
+
+    @Test
+    public void testStagesAreWrittenAsCsv() throws Exception {
+        TransactionTracer tracer = TransactionTracer.create(10);
+        long start = System.nanoTime();
+
+        tracer.recordSubmit(HASH, start + 1_000, start + 2_000);
+        tracer.recordKernelEvent(LogLineParser.parse("Transaction: " + HEX_HASH + " was added to the pool").getEvent(), start + 3_000);
+        tracer.recordKernelEvent(LogLineParser.parse("Transaction: " + HEX_HASH + " was sealed into block #7").getEvent(), start + 4_000);
+        tracer.recordReceipt(HASH, 7, start + 5_000);
+
+        // Only the first time of each stage is kept.
+        tracer.recordReceipt(HASH, 7, start + 6_000);
+
+        StringWriter csv = new StringWriter();
+        tracer.writeCsv(csv);
+        String[] lines = csv.toString().split("\n");
+
+        assertEquals(2, lines.length);
+        String[] columns = lines[1].split(",", -1);
+        assertEquals(HEX_HASH, columns[0]);
+        assertEquals("7", columns[1]);
+        assertEquals(1_000, Long.parseLong(columns[3]) - Long.parseLong(columns[2]));
+        assertEquals(2_000, Long.parseLong(columns[7]) - Long.parseLong(columns[4]));
+        assertEquals("", columns[6]);
+    }
+
+    @Test
+    public void testChromeTraceIsValidJson() throws Exception {
+        TransactionTracer tracer = TransactionTracer.create(10);
+        long start = System.nanoTime();
+        tracer.recordSubmit(HASH, start, start + 1_500);
+        tracer.recordKernelEvent(LogLineParser.parse("Transaction: " + HEX_HASH + " was sealed into block #3").getEvent(), start + 9_000);
+        tracer.recordBlock(3, System.currentTimeMillis() / 1_000);
+
+        StringWriter trace = new StringWriter();
+        tracer.writeChromeTrace(trace);
+
+        JsonArray events = new JsonParser().parse(trace.toString()).getAsJsonObject().getAsJsonArray("traceEvents");
+        assertEquals(4, events.size());
+        JsonObject submit = events.get(0).getAsJsonObject();
+        assertEquals("rpc submit", submit.get("name").getAsString());
+        assertEquals(1.5, submit.get("dur").getAsDouble(), 0.0001);
+    }
+
+    @Test
+    public void testFullTracerDropsNewTransactions() {
+        TransactionTracer tracer = TransactionTracer.create(1);
+        tracer.recordSubmit(HASH, 1, 2);
+
+        byte[] other = new byte[32];
+        tracer.recordReceipt(other, 1, 3);
+
+        assertEquals(1, tracer.numberOfTransactions());
+        assertEquals(1, tracer.numberOfDroppedRecords());
+    }
+}
@@ -0,0 +1,94 @@
+package org.aion.harness.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.aion.harness.main.event.CompiledEvent;
+import org.aion.harness.main.event.Event;
+import org.aion.harness.main.event.IEvent;
+import org.junit.Test;
+
+public class CompiledEventTest {
+
+    @Test
+    public void testLongChainIsFlattened() {
+        List<IEvent> leaves = new ArrayList<>();
+        IEvent chain = new Event("tx 0");
+        leaves.add(chain);
+        for (int i = 1; i < 5_000; i++) {
+            IEvent leaf = new Event("tx " + i + " sealed");
+            leaves.add(leaf);
+            chain = chain.and(leaf);
+        }
+
+        CompiledEvent compiled = CompiledEvent.compile(chain);
+        assertEquals(5_000, compiled.numberOfLeaves());
+
+        for (int i = 4_999; i > 0; i--) {
+            assertFalse(compiled.isSatisfiedBy("tx " + i + " sealed", i, TimeUnit.NANOSECONDS));
+        }
+        assertEquals(1, compiled.numberOfLiveLeaves());
+        assertTrue(compiled.isSatisfiedBy("tx 0", 5_000, TimeUnit.NANOSECONDS));
+
+        // The original events are updated as though they had been evaluated themselves.
+        assertTrue(chain.hasBeenObserved());
+        assertEquals(5_000, chain.observedAt(TimeUnit.NANOSECONDS));
+        assertEquals(1, leaves.get(1).observedAt(TimeUnit.NANOSECONDS));
+        assertEquals(5_000, compiled.getAllObservedEvents().size());
+        assertEquals("tx 0", compiled.getAllObservedEvents().get(0));
+    }
+
+    @Test
+    public void testSatisfiedOrRetiresItsOtherSide() {
+        IEvent left = new Event("left");
+        IEvent right = Event.and("right", "other");
+        IEvent event = Event.and(left.or(right), new Event("end"));
+
+        CompiledEvent compiled = CompiledEvent.compile(event);
+        assertEquals(4, compiled.numberOfLeaves());
+
+        assertFalse(compiled.isSatisfiedBy("right", 1, TimeUnit.NANOSECONDS));
+        assertFalse(compiled.isSatisfiedBy("left", 2, TimeUnit.NANOSECONDS));
+        assertEquals(1, compiled.numberOfLiveLeaves());
+
+        // Once the or is satisfied, the other side is no longer waited on.
+        assertFalse(compiled.isSatisfiedBy("other", 3, TimeUnit.NANOSECONDS));
+        assertFalse(right.hasBeenObserved());
+
+        assertTrue(compiled.isSatisfiedBy("end", 4, TimeUnit.NANOSECONDS));
+        assertTrue(event.hasBeenObserved());
+        assertEquals(Arrays.asList("left", "right", "end"), compiled.getAllObservedEvents());
+    }
+
+    @Test
+    public void testRepeatedEventStringIsSearchedForOnce() {
+        IEvent first = new Event("sealed");
+        IEvent second = new Event("sealed");
+        IEvent event = first.and(new Event("imported")).and(second);
+
+        CompiledEvent compiled = CompiledEvent.compile(event);
+        assertEquals(2, compiled.numberOfLeaves());
+
+        assertFalse(compiled.isSatisfiedBy("block sealed", 1, TimeUnit.NANOSECONDS));
+        assertTrue(first.hasBeenObserved());
+        assertTrue(second.hasBeenObserved());
+        assertTrue(compiled.isSatisfiedBy("block imported", 2, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testPartiallyObservedEventIsEvaluatedAsIs() {
+        IEvent first = new Event("one");
+        first.isSatisfiedBy("one", 1, TimeUnit.NANOSECONDS);
+        IEvent event = first.and(new Event("two"));
+
+        CompiledEvent compiled = CompiledEvent.compile(event);
+        assertEquals(1, compiled.numberOfLeaves());
+        assertTrue(compiled.isSatisfiedBy("two", 2, TimeUnit.NANOSECONDS));
+        assertEquals(Arrays.asList("one", "two"), compiled.getAllObservedEvents());
+    }
+}
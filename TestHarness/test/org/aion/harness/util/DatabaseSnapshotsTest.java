@@ -0,0 +1,86 @@
+package org.aion.harness.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DatabaseSnapshotsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRestoreUndoesChangesMadeAfterSnapshot() throws Exception {
+        File database = folder.newFolder("database");
+        File snapshot = new File(folder.getRoot(), "snapshot");
+        File table = writeFile(database, "state/000005.ldb", "table");
+        File log = writeFile(database, "state/000006.log", "log");
+
+        DatabaseSnapshots.snapshot(database, snapshot);
+        assertTrue(DatabaseSnapshots.exists(snapshot));
+
+        // Simulate the kernel appending to its log, compacting away a table and writing a new one.
+        Files.write(log.toPath(), "more".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertTrue(table.delete());
+        writeFile(database, "state/000007.ldb", "new table");
+
+        DatabaseSnapshots.restore(snapshot, database);
+
+        assertArrayEquals("table".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(table.toPath()));
+        assertArrayEquals("log".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(log.toPath()));
+        assertFalse(new File(database, "state/000007.ldb").exists());
+    }
+
+    @Test
+    public void testSnapshotReplacesPreviousSnapshot() throws Exception {
+        File database = folder.newFolder("database");
+        File snapshot = new File(folder.getRoot(), "snapshot");
+        writeFile(database, "old.sst", "old");
+
+        DatabaseSnapshots.snapshot(database, snapshot);
+        assertTrue(new File(database, "old.sst").delete());
+        writeFile(database, "new.sst", "new");
+        DatabaseSnapshots.snapshot(database, snapshot);
+
+        assertFalse(new File(snapshot, "old.sst").exists());
+        assertTrue(new File(snapshot, "new.sst").exists());
+    }
+
+    @Test
+    public void testDeleteOtherSnapshotsKeepsCurrentAndUnrelated() throws Exception {
+        File database = folder.newFolder("database");
+        writeFile(database, "000005.ldb", "table");
+
+        File stale = new File(folder.getRoot(), "java_node-0123");
+        File partial = new File(folder.getRoot(), "java_node-4567.partial");
+        File current = new File(folder.getRoot(), "java_node-89ab");
+        File otherType = new File(folder.getRoot(), "rust_node-0123");
+        DatabaseSnapshots.snapshot(database, stale);
+        DatabaseSnapshots.snapshot(database, current);
+        DatabaseSnapshots.snapshot(database, otherType);
+        assertTrue(partial.mkdirs());
+
+        DatabaseSnapshots.deleteOtherSnapshots(current, "java_node-");
+
+        assertFalse(stale.exists());
+        assertFalse(partial.exists());
+        assertTrue(DatabaseSnapshots.exists(current));
+        assertTrue(DatabaseSnapshots.exists(otherType));
+        assertTrue(new File(database, "000005.ldb").exists());
+    }
+
+    private static File writeFile(File directory, String name, String contents) throws Exception {
+        File file = new File(directory, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
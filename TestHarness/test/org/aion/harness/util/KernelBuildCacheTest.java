@@ -0,0 +1,63 @@
+package org.aion.harness.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KernelBuildCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReusedSandboxHasItsConfigsRestored() throws Exception {
+        File sandbox = folder.newFolder("sandbox");
+        File config = writeFile(sandbox, "custom/config/config.xml", "<rpc port=\"8545\"/>");
+        File genesis = writeFile(sandbox, "custom/config/genesis.json", "{}");
+        File topLevel = writeFile(sandbox, "config/log.xml", "INFO");
+        File jar = writeFile(sandbox, "lib/kernel.jar", "jar");
+
+        KernelBuildCache.markSandboxHoldsBuild(sandbox, "hash");
+        assertTrue(KernelBuildCache.sandboxHoldsBuild(sandbox, "hash"));
+
+        // A previous run rewrote some configs, added another and deleted one.
+        Files.write(config.toPath(), "<rpc port=\"9000\"/>".getBytes(StandardCharsets.UTF_8));
+        File added = writeFile(sandbox, "custom/config/keystore.json", "key");
+        assertTrue(genesis.delete());
+        Files.write(topLevel.toPath(), "DEBUG".getBytes(StandardCharsets.UTF_8));
+
+        KernelBuildCache.restoreSandboxConfigs(sandbox);
+
+        assertContents("<rpc port=\"8545\"/>", config);
+        assertContents("{}", genesis);
+        assertContents("INFO", topLevel);
+        assertContents("jar", jar);
+        assertFalse(added.exists());
+    }
+
+    @Test
+    public void testSandboxWithoutPristineConfigsIsNotReused() throws Exception {
+        File sandbox = folder.newFolder("sandbox");
+        writeFile(sandbox, ".harness-build.sha256", "hash");
+
+        assertFalse(KernelBuildCache.sandboxHoldsBuild(sandbox, "hash"));
+    }
+
+    private static void assertContents(String expected, File file) throws Exception {
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file.toPath()));
+    }
+
+    private static File writeFile(File directory, String name, String contents) throws Exception {
+        File file = new File(directory, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,98 @@
+package org.aion.harness.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import org.aion.harness.main.event.LogLevel;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogIndexTest {
+    private static final String HASH = String.join("", Collections.nCopies(8, "0123abcd"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testQueries() throws Exception {
+        File log = folder.newFile("out.txt");
+        append(log,
+            "19-07-24 14:03:09.100 INFO  GEN  [main]: starting\n",
+            "19-07-24 14:03:10.000 ERROR DB   [main]: failed early\n",
+            "19-07-24 14:03:11.000 INFO  TX   [p2p]: Transaction: 0x" + HASH + " was sealed into block #12\n",
+            "    at a stack trace line without a timestamp\n",
+            "19-07-24 14:03:12.500 ERROR CONS [sync]: <import-status: hash = ab, number = 12, result = INVALID>\n",
+            "19-07-24 14:03:13.000 DEBUG CONS [sync]: block sealed <num=13, hash=cd\n",
+            "19-07-24 14:03:14.000 INFO  TX   [p2p]: tx " + HASH.toUpperCase() + " is rej");
+
+        try (LogIndex index = LogIndex.open(log)) {
+            // The last line is incomplete, so it is not indexed yet.
+            assertEquals(6, index.update());
+
+            assertEquals(List.of(
+                "19-07-24 14:03:11.000 INFO  TX   [p2p]: Transaction: 0x" + HASH + " was sealed into block #12"),
+                index.linesMentioningTransaction(HASH.toUpperCase()));
+            assertEquals(2, index.linesMentioningBlock(12).size());
+            assertEquals(1, index.linesMentioningBlock(13).size());
+            assertEquals(0, index.linesMentioningBlock(1).size());
+
+            long time = LocalDateTime.of(2019, 7, 24, 14, 3, 10, 500_000_000).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            assertEquals(
+                "19-07-24 14:03:12.500 ERROR CONS [sync]: <import-status: hash = ab, number = 12, result = INVALID>",
+                index.firstLineAtLevelSince(LogLevel.ERROR, time).get());
+            assertEquals(
+                "19-07-24 14:03:10.000 ERROR DB   [main]: failed early",
+                index.firstLineAtLevelSince(LogLevel.WARN, 0).get());
+            assertFalse(index.firstLineAtLevelSince(LogLevel.ERROR, time + 60_000).isPresent());
+
+            append(log, "ected\n");
+            assertEquals(1, index.update());
+            assertEquals(2, index.linesMentioningTransaction("0x" + HASH).size());
+            assertEquals("    at a stack trace line without a timestamp", index.findFirst(line -> line.contains("stack")).get());
+        }
+
+        // Reopening picks up where the index left off.
+        try (LogIndex index = LogIndex.open(log)) {
+            assertEquals(7, index.getLineCount());
+            assertEquals(0, index.update());
+        }
+    }
+
+    @Test
+    public void testReplacedLogIsIndexedAgain() throws Exception {
+        File log = folder.newFile("out.txt");
+        append(log, "first line\n", "second line\n");
+
+        try (LogIndex index = LogIndex.open(log)) {
+            assertEquals(2, index.update());
+
+            Files.write(log.toPath(), "new\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals(1, index.update());
+            assertEquals("new", index.findFirst(line -> true).get());
+        }
+    }
+
+    @Test
+    public void testOpenSharesOneInstancePerLog() throws Exception {
+        File log = folder.newFile("out.txt");
+        try (LogIndex first = LogIndex.open(log); LogIndex second = LogIndex.open(new File(folder.getRoot(), "./out.txt"))) {
+            assertSame(first, second);
+        }
+    }
+
+    private static void append(File log, String... lines) throws Exception {
+        for (String line : lines) {
+            Files.write(log.toPath(), line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.aion.harness.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.aion.harness.main.event.Event;
+import org.aion.harness.main.event.IEvent;
+import org.aion.harness.result.FutureResult;
+import org.aion.harness.result.LogEventResult;
+import org.junit.Test;
+
+public class LogListenerTest {
+
+    @Test
+    public void testBulkSubmittedEventsAreObserved() {
+        LogListener listener = new LogListener();
+        listener.startListening();
+
+        try {
+            List<IEvent> events = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                events.add(new Event("tx " + i + " sealed"));
+            }
+
+            List<FutureResult<LogEventResult>> futures = listener.submitEventsToBeListenedFor(events, 1, TimeUnit.MINUTES);
+            assertEquals(10_000, futures.size());
+            assertEquals(10_000, listener.numberOfPendingEventRequests());
+
+            listener.handle("tx 42 sealed");
+            assertTrue(futures.get(42).isDone());
+            assertFalse(futures.get(43).isDone());
+            assertEquals(9_999, listener.numberOfPendingEventRequests());
+        } finally {
+            listener.stopListening();
+        }
+
+        assertEquals(0, listener.numberOfPendingEventRequests());
+    }
+
+    @Test
+    public void testBulkSubmittedEventsAreRejectedWhenNotListening() throws InterruptedException {
+        LogListener listener = new LogListener();
+
+        List<IEvent> events = new ArrayList<>();
+        events.add(new Event("one"));
+        events.add(new Event("two"));
+
+        List<FutureResult<LogEventResult>> futures = listener.submitEventsToBeListenedFor(events, 1, TimeUnit.MINUTES);
+        assertTrue(futures.get(0).get().eventWasRejected());
+        assertTrue(futures.get(1).get().eventWasRejected());
+        assertEquals(0, listener.numberOfPendingEventRequests());
+    }
+
+    @Test
+    public void testBatchLargerThanThePoolIsRejectedUpFront() {
+        LogListener listener = new LogListener();
+        listener.startListening();
+
+        try {
+            List<IEvent> events = new ArrayList<>();
+            for (int i = 0; i <= 32_768; i++) {
+                events.add(new Event("tx " + i + " sealed"));
+            }
+
+            try {
+                listener.submitEventsToBeListenedFor(events, 1, TimeUnit.MINUTES);
+                fail("Expected the batch to be rejected.");
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+            assertEquals(0, listener.numberOfPendingEventRequests());
+
+            // The pool is still free for everyone else.
+            listener.submitEventToBeListenedFor(new Event("ready"), 1, TimeUnit.MINUTES);
+            assertEquals(1, listener.numberOfPendingEventRequests());
+        } finally {
+            listener.stopListening();
+        }
+    }
+
+    @Test
+    public void testCancelledRequestLeavesThePool() throws InterruptedException {
+        LogListener listener = new LogListener();
+        listener.startListening();
+
+        try {
+            FutureResult<LogEventResult> future = listener.submitEventToBeListenedFor(new Event("ready"), 1, TimeUnit.MINUTES);
+            assertEquals(1, listener.numberOfPendingEventRequests());
+
+            assertTrue(listener.cancelEventRequest(future));
+            assertTrue(future.get().eventWasRejected());
+            assertEquals(0, listener.numberOfPendingEventRequests());
+            assertFalse(listener.cancelEventRequest(future));
+        } finally {
+            listener.stopListening();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.aion.harness.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testArchivedLogsAreCompressedUnderUniqueNames() throws Exception {
+        LogManager logManager = new LogManager(folder.getRoot());
+        Set<String> written = new HashSet<>();
+
+        // Setting up twice within the same second archives logs with identical names.
+        for (int i = 0; i < 3; i++) {
+            assertTrue(logManager.setupLogFiles().isSuccess());
+            String contents = "output of run " + i;
+            Files.write(logManager.getCurrentOutputLogFile().toPath(), contents.getBytes(StandardCharsets.UTF_8));
+            written.add(contents);
+        }
+        assertTrue(logManager.setupLogFiles().isSuccess());
+        assertTrue(LogManager.awaitArchiving(1, TimeUnit.MINUTES));
+
+        File[] archived = new File(folder.getRoot(), "archive").listFiles();
+        assertEquals(6, archived.length);
+
+        Set<String> read = new HashSet<>();
+        for (File file : archived) {
+            assertTrue(file.getName().endsWith(".gz"));
+            String contents = new String(decompress(file), StandardCharsets.UTF_8);
+            if (!contents.isEmpty()) {
+                read.add(contents);
+            }
+        }
+        assertEquals(written, read);
+    }
+
+    @Test
+    public void testPruneDeletesOldestLogsFirst() throws Exception {
+        File archive = folder.newFolder("archive");
+        File[] logs = new File[5];
+        for (int i = 0; i < logs.length; i++) {
+            logs[i] = new File(archive, "log" + i + ".txt.gz");
+            Files.write(logs[i].toPath(), new byte[100]);
+            assertTrue(logs[i].setLastModified(1_000_000L * (i + 1)));
+        }
+
+        LogManager.pruneArchive(archive, 4, 0);
+        assertFalse(logs[0].exists());
+        assertTrue(Arrays.stream(logs, 1, 5).allMatch(File::exists));
+
+        LogManager.pruneArchive(archive, 0, 250);
+        assertFalse(logs[1].exists());
+        assertFalse(logs[2].exists());
+        assertTrue(logs[3].exists());
+        assertTrue(logs[4].exists());
+    }
+
+    @Test
+    public void testInvalidArchiveLimitsFallBackToDefaults() throws Exception {
+        System.setProperty(LogManager.ARCHIVE_MAX_FILES_PROPERTY, "lots");
+        System.setProperty(LogManager.ARCHIVE_MAX_MEGABYTES_PROPERTY, "99999999999999999999");
+        try {
+            LogManager logManager = new LogManager(folder.getRoot());
+            assertTrue(logManager.setupLogFiles().isSuccess());
+            assertTrue(logManager.setupLogFiles().isSuccess());
+            assertTrue(LogManager.awaitArchiving(1, TimeUnit.MINUTES));
+            assertEquals(2, new File(folder.getRoot(), "archive").listFiles().length);
+        } finally {
+            System.clearProperty(LogManager.ARCHIVE_MAX_FILES_PROPERTY);
+            System.clearProperty(LogManager.ARCHIVE_MAX_MEGABYTES_PROPERTY);
+        }
+    }
+
+    private static byte[] decompress(File file) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = new GZIPInputStream(new FileInputStream(file))) {
+            input.transferTo(output);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,52 @@
+package org.aion.harness.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogReaderTest {
+    private static final int LINES = 400_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStoppingDuringAnUpdateLeavesTheSharedIndexUsable() throws Exception {
+        File log = folder.newFile("out.txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(log.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < LINES; i++) {
+                writer.write("19-07-24 14:03:11.000 INFO  TX   [p2p]: block sealed <num=" + i + ", hash=cd\n");
+            }
+        }
+
+        try (LogIndex index = LogIndex.open(log)) {
+            LogReader reader = new LogReader();
+            assertTrue(reader.startReading(log).isSuccess());
+
+            // Stop while the first update is still indexing the log.
+            Thread.sleep(20);
+            reader.stopReading();
+
+            assertEquals(0, index.update());
+            assertEquals(LINES, index.getLineCount());
+            assertEquals(1, index.linesMentioningBlock(LINES - 1).size());
+        }
+    }
+
+    @Test
+    public void testStreamsAreNamedAfterTheLogDirectoryInReadOrder() throws Exception {
+        File shard = folder.newFolder("java_node-1");
+        File other = folder.newFolder("java_node-2");
+
+        assertEquals("java_node-1#0", LogReader.streamOf(new File(shard, "out-1.log")));
+        assertEquals("java_node-2#0", LogReader.streamOf(new File(other, "out-2.log")));
+        assertEquals("java_node-1#1", LogReader.streamOf(new File(shard, "out-3.log")));
+    }
+}
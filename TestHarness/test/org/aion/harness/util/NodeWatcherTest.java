@@ -0,0 +1,70 @@
+package org.aion.harness.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.aion.harness.main.LocalNode;
+import org.aion.harness.main.NodeFactory;
+import org.aion.harness.main.NodeFactory.NodeType;
+import org.aion.harness.main.global.SingletonFactory;
+import org.junit.Test;
+
+public class NodeWatcherTest {
+    private static final int THREADS = 8;
+    private static final int NODES_PER_THREAD = 100;
+
+    @Test
+    public void testNodesConstructedConcurrentlyGetTheirOwnReaders() throws Exception {
+        NodeWatcher watcher = SingletonFactory.singleton().nodeWatcher();
+
+        // All of the threads start constructing nodes at once, to make any race as likely as possible.
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Callable<List<LocalNode>>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> {
+                start.await();
+                List<LocalNode> nodes = new ArrayList<>();
+                for (int j = 0; j < NODES_PER_THREAD; j++) {
+                    nodes.add(NodeFactory.getNewLocalNodeInstance(NodeType.JAVA_NODE));
+                }
+                return nodes;
+            });
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        List<LocalNode> nodes = new ArrayList<>();
+        try {
+            for (Future<List<LocalNode>> future : threads.invokeAll(tasks)) {
+                nodes.addAll(future.get());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        Set<Integer> nodeIDs = new HashSet<>();
+        Set<Integer> readerIDs = new HashSet<>();
+        for (LocalNode node : nodes) {
+            LogReader reader = watcher.getReaderForNodeByID(node.getID());
+            nodeIDs.add(node.getID());
+            readerIDs.add(reader.hashCode());
+        }
+        assertEquals(THREADS * NODES_PER_THREAD, nodeIDs.size());
+        assertEquals(THREADS * NODES_PER_THREAD, readerIDs.size());
+
+        for (LocalNode node : nodes) {
+            watcher.removeReader(node.getID());
+        }
+        for (LocalNode node : nodes) {
+            assertNull(watcher.getReaderForNodeByID(node.getID()));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.aion.harness.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * These tests compress their inputs using the system's bzip2 executable, and are skipped if it is
+ * not available. The decompressed output is always compared against the original input, and
+ * corrupt input must always fail with an {@link IOException}.
+ */
+public class ParallelBZip2InputStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void assumeBzip2() {
+        assumeTrue(commandSucceeds(folder.getRoot(), "bzip2", "--help"));
+    }
+
+    @Test
+    public void testEdgeCaseInputsRoundTrip() throws Exception {
+        Random random = new Random(11);
+        byte[] incompressible = new byte[300_000];
+        random.nextBytes(incompressible);
+        byte[] longRun = new byte[1_500_000];
+        byte[] everyByteValue = new byte[256 * 300];
+        for (int i = 0; i < everyByteValue.length; i++) {
+            everyByteValue[i] = (byte) i;
+        }
+
+        for (byte[] input : Arrays.asList(new byte[0], new byte[] { 42 }, incompressible, longRun, everyByteValue)) {
+            File compressed = compress(input, 1, "input");
+            for (int threads : new int[] { 1, 4 }) {
+                assertArrayEquals(input, decompress(compressed, threads));
+            }
+        }
+    }
+
+    @Test
+    public void testManyConcatenatedStreamsOfDifferentBlockSizes() throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        Random random = new Random(13);
+
+        for (int level = 1; level <= 9; level++) {
+            // Including empty streams, which consist of just a header and an end-of-stream marker.
+            byte[] part = (level % 3 == 0) ? new byte[0] : randomText(random, 50_000 + random.nextInt(250_000));
+            expected.write(part);
+            joined.write(Files.readAllBytes(compress(part, level, "part" + level).toPath()));
+        }
+
+        File file = new File(folder.getRoot(), "joined.bz2");
+        Files.write(file.toPath(), joined.toByteArray());
+        for (int threads : new int[] { 1, 3, 8 }) {
+            assertArrayEquals(expected.toByteArray(), decompress(file, threads));
+        }
+    }
+
+    @Test
+    public void testTrailingZeroPaddingIsIgnored() throws Exception {
+        byte[] input = randomText(new Random(17), 120_000);
+        byte[] compressed = Files.readAllBytes(compress(input, 1, "input").toPath());
+
+        File padded = new File(folder.getRoot(), "padded.bz2");
+        Files.write(padded.toPath(), Arrays.copyOf(compressed, compressed.length + 1_024));
+        assertArrayEquals(input, decompress(padded, 2));
+    }
+
+    @Test
+    public void testCorruptBytesAreAlwaysRejected() throws Exception {
+        byte[] input = randomText(new Random(19), 400_000);
+        byte[] compressed = Files.readAllBytes(compress(input, 1, "input").toPath());
+        Random random = new Random(23);
+        File corrupt = new File(folder.getRoot(), "corrupt.bz2");
+
+        for (int trial = 0; trial < 300; trial++) {
+            // Skip the stream header, whose block size digit may legitimately change, and the last
+            // byte, whose low bits are padding.
+            int offset = 4 + random.nextInt(compressed.length - 5);
+            byte[] copy = compressed.clone();
+            copy[offset] ^= (byte) (1 << random.nextInt(8));
+            Files.write(corrupt.toPath(), copy);
+
+            assertRejected("bit flipped at byte " + offset, corrupt, 1 + (trial % 4));
+        }
+    }
+
+    @Test
+    public void testTruncatedStreamsAreRejected() throws Exception {
+        byte[] input = randomText(new Random(29), 250_000);
+        byte[] compressed = Files.readAllBytes(compress(input, 1, "input").toPath());
+        File truncated = new File(folder.getRoot(), "truncated.bz2");
+
+        int[] lengths = { 3, 4, 5, 10, 100, compressed.length / 2, compressed.length - 10, compressed.length - 5, compressed.length - 1 };
+        for (int length : lengths) {
+            Files.write(truncated.toPath(), Arrays.copyOf(compressed, length));
+            assertRejected("truncated to " + length + " of " + compressed.length + " bytes", truncated, 2);
+        }
+    }
+
+    @Test
+    public void testNonBzip2InputIsRejected() throws Exception {
+        File file = new File(folder.getRoot(), "plain.txt");
+        Files.write(file.toPath(), randomText(new Random(31), 10_000));
+        assertRejected("plain text", file, 2);
+
+        File empty = new File(folder.getRoot(), "empty");
+        Files.write(empty.toPath(), new byte[0]);
+        assertRejected("an empty file", empty, 2);
+    }
+
+    private void assertRejected(String description, File file, int threads) {
+        try {
+            decompress(file, threads);
+            fail("Expected the input to be rejected: " + description);
+        } catch (IOException e) {
+            // Expected.
+        } catch (RuntimeException e) {
+            throw new AssertionError("Expected an IOException for " + description + " but got: " + e, e);
+        }
+    }
+
+    private static byte[] decompress(File file, int threads) throws IOException {
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (InputStream input = new ParallelBZip2InputStream(file, threads)) {
+            input.transferTo(decompressed);
+        }
+        return decompressed.toByteArray();
+    }
+
+    private File compress(byte[] input, int level, String name) throws Exception {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), input);
+        assertEquals(true, commandSucceeds(folder.getRoot(), "bzip2", "-f", "-" + level, name));
+        return new File(folder.getRoot(), name + ".bz2");
+    }
+
+    private static byte[] randomText(Random random, int length) {
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int choice = random.nextInt(10);
+            text[i] = (choice < 2) ? (byte) 'a' : (byte) ('a' + random.nextInt(choice * 3));
+        }
+        return text;
+    }
+
+    private static boolean commandSucceeds(File directory, String... command) {
+        try {
+            Process process = new ProcessBuilder(command)
+                .directory(directory)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            return process.waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.aion.harness.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * These tests compress their inputs using the system's tar and bzip2 executables, and are skipped
+ * if those are not available.
+ */
+public class TarArchivesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testExtractMatchesSystemTar() throws Exception {
+        assumeTrue(commandSucceeds(folder.getRoot(), "tar", "--version"));
+
+        File source = folder.newFolder("source");
+        byte[] large = randomText(3_000_000);
+        String deepPath = "config/" + String.join("/", Collections.nCopies(20, "nested")) + "/config.xml";
+        writeFile(source, "rt/bin/java", "#!/bin/sh".getBytes(StandardCharsets.UTF_8));
+        writeFile(source, "lib/large.jar", large);
+        writeFile(source, deepPath, "<config/>".getBytes(StandardCharsets.UTF_8));
+        assertTrue(new File(source, "rt/bin/java").setExecutable(true));
+
+        // Written by bzip2 -1, this archive is made up of many 100k blocks.
+        File archive = new File(folder.getRoot(), "kernel.tar.bz2");
+        assumeTrue(commandSucceeds(folder.getRoot(), "sh", "-c", "tar cf - -C source . | bzip2 -1 > kernel.tar.bz2"));
+
+        File target = folder.newFolder("target");
+        TarArchives.extractBzip2(archive, target, 4);
+
+        assertArrayEquals(large, Files.readAllBytes(new File(target, "lib/large.jar").toPath()));
+        assertArrayEquals("<config/>".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(new File(target, deepPath).toPath()));
+        assertTrue(new File(target, "rt/bin/java").canExecute());
+    }
+
+    @Test
+    public void testDecompressConcatenatedStreams() throws Exception {
+        assumeTrue(commandSucceeds(folder.getRoot(), "bzip2", "--help"));
+
+        byte[] first = randomText(250_000);
+        byte[] second = new byte[1_000];
+        writeFile(folder.getRoot(), "first", first);
+        writeFile(folder.getRoot(), "second", second);
+        assumeTrue(commandSucceeds(folder.getRoot(), "sh", "-c", "bzip2 -1 -c first > joined.bz2 && bzip2 -9 -c second >> joined.bz2"));
+
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (InputStream input = new ParallelBZip2InputStream(new File(folder.getRoot(), "joined.bz2"), 2)) {
+            input.transferTo(decompressed);
+        }
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(second);
+        assertEquals(expected.size(), decompressed.size());
+        assertArrayEquals(expected.toByteArray(), decompressed.toByteArray());
+    }
+
+    /**
+     * Returns compressible but irregular text, so that the compressed blocks exercise every part of
+     * the decoder, including long runs.
+     */
+    private static byte[] randomText(int length) {
+        Random random = new Random(7);
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int choice = random.nextInt(10);
+            text[i] = (choice < 2) ? (byte) 'a' : (byte) ('a' + random.nextInt(choice * 3));
+            if ((i % 1000) == 0) {
+                int run = Math.min(length - i, random.nextInt(600));
+                for (int j = 0; j < run; j++) {
+                    text[i + j] = 'z';
+                }
+                i += Math.max(0, run - 1);
+            }
+        }
+        return text;
+    }
+
+    private static void writeFile(File directory, String name, byte[] contents) throws Exception {
+        File file = new File(directory, name);
+        file.getParentFile().mkdirs();
+        try (OutputStream output = new FileOutputStream(file)) {
+            output.write(contents);
+        }
+    }
+
+    private static boolean commandSucceeds(File directory, String... command) {
+        try {
+            Process process = new ProcessBuilder(command)
+                .directory(directory)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            return process.waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package org.aion.harness.tests.integ.multikernel;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.aion.harness.main.LocalNode;
 import org.aion.harness.main.Network;
@@ -10,6 +12,7 @@ import org.aion.harness.main.NodeConfigurations.DatabaseOption;
 import org.aion.harness.main.NodeFactory;
 import org.aion.harness.main.NodeFactory.NodeType;
 import org.aion.harness.main.NodeListener;
+import org.aion.harness.main.util.TestHarnessHelper;
 import org.aion.harness.result.Result;
 import org.aion.harness.tests.integ.runner.exception.TestRunnerInitializationException;
 import org.aion.harness.tests.integ.runner.internal.TestNodeManager;
@@ -90,6 +93,26 @@ public final class BeaconHashSidechainNodeManager {
         }
     }
 
+    /**
+     * Stops the local nodes of all of the specified managers that currently have one running, all at
+     * the same time.
+     */
+    public static void shutdownLocalNodes(BeaconHashSidechainNodeManager... managers) throws InterruptedException {
+        List<LocalNode> nodes = new ArrayList<>();
+        for (BeaconHashSidechainNodeManager manager : managers) {
+            if ((manager != null) && manager.isKernelRunning()) {
+                nodes.add(manager.localNode);
+                manager.localNode = null;
+            }
+        }
+
+        for (Result result : TestHarnessHelper.stopNodesConcurrently(nodes, EXIT_LOCK_TIMEOUT, EXIT_LOCK_TIMEOUT_UNIT)) {
+            if (!result.isSuccess()) {
+                System.err.println("Failed to stop a local node: " + result.getError());
+            }
+        }
+    }
+
     /**
      * Returns a newly created node listener that is listening to the current running local node.
      */
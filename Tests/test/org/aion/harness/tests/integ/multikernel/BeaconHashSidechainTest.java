@@ -82,23 +82,11 @@ public class BeaconHashSidechainTest {
 
     @AfterClass
     public static void afterClass() {
-        // will catch all exceptions and print them, so that an
-        // exception while shutting down manager1 doesn't cause
-        // us to skip shutting down manager2.  doesn't really matter
-        // that exceptions won't be raised -- the test is exiting anyway
-
-        try {
-            if (manager1 != null && manager1.isKernelRunning()) {
-                manager1.shutdownLocalNode();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
+        // will catch all exceptions and print them -- the test is exiting anyway.
+        // Both nodes are stopped at the same time, and a failure to stop one of
+        // them does not keep the other one running.
         try {
-            if (manager2 != null && manager2.isKernelRunning()) {
-                manager2.shutdownLocalNode();
-            }
+            BeaconHashSidechainNodeManager.shutdownLocalNodes(manager1, manager2);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -218,8 +206,7 @@ public class BeaconHashSidechainTest {
             importedTxBlockResult, is("IMPORTED_BEST"));
 
         // All done!
-        manager1.shutdownLocalNode();
-        manager2.shutdownLocalNode();
+        BeaconHashSidechainNodeManager.shutdownLocalNodes(manager1, manager2);
     }
 
     private <T> T getRpcResultOrThrow(RpcResult<T> result, String msg) {
@@ -6,28 +6,38 @@ import java.io.PrintStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import org.aion.equihash.EquihashMiner;
 import org.aion.harness.main.NodeFactory.NodeType;
+import org.aion.harness.main.RPC;
 import org.aion.harness.main.event.JavaPrepackagedLogEvents;
 import org.aion.harness.main.event.RustPrepackagedLogEvents;
 import org.aion.harness.tests.integ.runner.exception.TestRunnerInitializationException;
 import org.aion.harness.tests.integ.runner.exception.UnexpectedTestRunnerException;
 import org.aion.harness.tests.integ.runner.exception.UnsupportedAnnotation;
 import org.aion.harness.tests.integ.runner.internal.FailedClass;
+import org.aion.harness.tests.integ.runner.internal.PreminedAccount;
 import org.aion.harness.tests.integ.runner.internal.PreminedAccountFunder;
+import org.aion.harness.tests.integ.runner.internal.PreminedAccountPool;
 import org.aion.harness.tests.integ.runner.internal.StakingBlockSigner;
 import org.aion.harness.tests.integ.runner.internal.TestAndResultQueueManager;
 import org.aion.harness.tests.integ.runner.internal.TestContext;
+import org.aion.harness.tests.integ.runner.internal.TestDurationHistory;
 import org.aion.harness.tests.integ.runner.internal.TestExecutor;
 import org.aion.harness.tests.integ.runner.internal.TestNodeManager;
 import org.aion.harness.tests.integ.runner.internal.TestResult;
+import org.aion.harness.tests.integ.runner.internal.ThreadSpecificStderr;
+import org.aion.harness.tests.integ.runner.internal.ThreadSpecificStdout;
 import org.apache.commons.io.FileUtils;
 import org.junit.runner.Description;
 import org.junit.runner.Runner;
@@ -37,7 +47,8 @@ import org.junit.runners.Suite.SuiteClasses;
 
 /**
  * Concurrently Runner.  Responsible for starting up a node and executing tests against it.
- * Test case execution will be parallelized, but each node will be tested one at a time.
+ * Test case execution will be parallelized. By default each node type is tested one at a time,
+ * but see <code>parallelNodeTypes</code> below.
  *
  * To run tests, node type must be specified using JVM system property <code>testNodes</code>.
  * Valid values:
@@ -52,13 +63,31 @@ import org.junit.runners.Suite.SuiteClasses;
  * If running in IDE, add <code>-PtestNodes=java</code> to JUnit VM arguments.
  *
  * Classes can override this behaviour using {@link ExcludeNodeType}.
+ *
+ * The test classes of each node type may optionally be sharded across multiple nodes of that type,
+ * using the JVM system property <code>testShards</code>. Each shard runs its own copy of the kernel
+ * on its own rpc port (consecutive ports starting at <code>rpcPort</code>), with its own miner,
+ * staking block signer and pre-mined account funder, and writes its own logs.
+ *
+ * Gradle example: <code>./gradlew Tests:test -PtestNodes=java -PtestShards=4</code>
+ *
+ * By default each node type is tested one after the other. If the JVM system property
+ * <code>parallelNodeTypes</code> is set then all of the node types are tested at the same time,
+ * each on its own range of ports. Note that in this case the same test class runs against multiple
+ * nodes at once, so its static state (including any set up by its @BeforeClass methods) must not
+ * be specific to one node. Default RPCs are fine, since they always talk to the calling thread's node.
+ *
+ * Gradle example: <code>./gradlew Tests:test -PtestNodes=java,rust -PparallelNodeTypes</code>
  */
 public final class ConcurrentRunner extends Runner {
     // Maximum number of threads to be used to run the tests. Our max is high because our tests are IO-bound.
     private static final int MAX_NUM_THREADS = 50;
 
-    private EquihashMiner miner;
-    private StakingBlockSigner stakingBlockSigner;
+    // The amount of funds held by each pooled pre-mined account. This is what most of our tests ask for.
+    private static final BigInteger POOLED_ACCOUNT_AMOUNT = BigInteger.TEN.pow(18);
+
+    // Maximum number of nodes of the same type that may be run at once.
+    private static final int MAX_NUM_SHARDS = 32;
 
     private final RunnerHelper helper;
 
@@ -110,82 +139,298 @@ public final class ConcurrentRunner extends Runner {
         PrintStream originalStdout = helper.replaceStdoutWithThreadSpecificOutputStream();
         PrintStream originalStderr = helper.replaceStderrWithThreadSpecificErrorStream();
 
-        for (NodeType nt : node2ClassDescriptions.keySet()) {
-            
-            TestNodeManager testNodeManager = new TestNodeManager(nt);
+        List<NodeType> nodeTypes = new ArrayList<>(node2ClassDescriptions.keySet());
+        int numberOfShards = helper.determineNumberOfShards(MAX_NUM_SHARDS);
+
+        // Every node of every type gets its own port, so we reserve enough of them.
+        if (System.getProperty("rpcPort") == null) {
+            Random random = new Random();
+            System.setProperty("rpcPort", Integer.toString(random.nextInt(1000 - (MAX_NUM_SHARDS * NodeType.values().length)) + 9000));
+        }
+        int baseRpcPort = Integer.parseInt(System.getProperty("rpcPort"));
+
+        // The durations of previous runs are used to balance the shards and to order the tests.
+        TestDurationHistory durationHistory = TestDurationHistory.load();
 
-            if (System.getProperty("rpcPort") == null) {
-                Random random = new Random();
-                System.setProperty("rpcPort", Integer.toString(random.nextInt(1000) + 9000));
+        // The failures of any shards or node types that could not run their tests, which were already reported to JUnit.
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        if (helper.determineRunNodeTypesInParallel() && nodeTypes.size() > 1) {
+            // Every node type is tested at the same time, each one on its own thread and its own range of ports.
+            List<Thread> nodeTypeThreads = new ArrayList<>();
+            for (int i = 0; i < nodeTypes.size(); i++) {
+                NodeType nt = nodeTypes.get(i);
+                int nodeTypeBaseRpcPort = baseRpcPort + (i * numberOfShards);
+
+                Thread nodeTypeThread = new Thread(() -> {
+                    ((ThreadSpecificStdout) System.out).setStdout(originalStdout);
+                    ((ThreadSpecificStderr) System.err).setStderr(originalStderr);
+                    try {
+                        runNodeType(nt, nodeTypeBaseRpcPort, numberOfShards, true, runNotifier, durationHistory, originalStdout, originalStderr, failures);
+                    } catch (Throwable e) {
+                        // Nothing else would report this node type's tests, so the run would otherwise pass.
+                        e.printStackTrace();
+                        notifyRunnerAllTestsInClassesFailed(new ArrayList<>(this.node2ClassDescriptions.get(nt).keySet()), e, runNotifier, nt);
+                        failures.add(e);
+                    }
+                }, nt.name().toLowerCase());
+                nodeTypeThreads.add(nodeTypeThread);
+                nodeTypeThread.start();
             }
 
-            miner = new EquihashMiner("127.0.0.1", System.getProperty("rpcPort"));
-            miner.startMining();
+            joinAll(nodeTypeThreads);
+            saveDurationsAndCleanLogs(durationHistory);
+        } else {
+            for (NodeType nt : nodeTypes) {
+                runNodeType(nt, baseRpcPort, numberOfShards, false, runNotifier, durationHistory, originalStdout, originalStderr, failures);
+                saveDurationsAndCleanLogs(durationHistory);
+            }
+        }
+
+        // Restore the original stdout and stderr back to System.
+        System.setOut(originalStdout);
+        System.setErr(originalStderr);
 
-            // Start up the local node before any tests are run.
-            initializeAndStartNode(testNodeManager);
+        rethrowFailures(failures);
+    }
 
-            try {
-                // StakingBlockSigner currently needs to be started after the node's rpc is up and running
-                stakingBlockSigner = StakingBlockSigner.defaultStakingBlockSigner();
-                stakingBlockSigner.start();
+    /**
+     * Runs all of the tests of the given node type, sharded across the given number of nodes (each
+     * shard on its own thread), and returns once all of them are done.
+     *
+     * If isolateLogs is true then every node writes its logs to its own directory, even if there
+     * is only one shard, since nodes of other types are running at the same time.
+     *
+     * If a shard running on its own thread fails, every test of that shard is marked failed and the
+     * failure is added to shardFailures.
+     */
+    private void runNodeType(NodeType nt, int baseRpcPort, int numberOfShards, boolean isolateLogs, RunNotifier runNotifier,
+                             TestDurationHistory durationHistory, PrintStream originalStdout, PrintStream originalStderr,
+                             List<Throwable> shardFailures) {
+
+        // Each shard runs its own node, on its own port, against its own share of the test classes.
+        List<List<Class<?>>> shards = shardTestClasses(nt, numberOfShards, durationHistory);
 
-                // Run every @BeforeClass method in any of the test classes.
-                List<FailedClass> failedClasses = runAllBeforeClassMethodsAndReturnFailedClasses(nt);
+        if (shards.size() == 1) {
+            runShard(nt, 0, Integer.toString(baseRpcPort), isolateLogs, shards.get(0), runNotifier, durationHistory);
+            return;
+        }
+
+        // Every shard but the first runs its own copy of the kernel, made before any of them starts.
+        try {
+            TestNodeManager.copyKernelForShards(nt, shards.size());
+        } catch (IOException e) {
+            throw new TestRunnerInitializationException("Failed to copy the kernel for each shard!", e);
+        }
+
+        List<Thread> shardThreads = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int shardNumber = shard;
+            String rpcPort = Integer.toString(baseRpcPort + shard);
+            List<Class<?>> shardClasses = shards.get(shard);
+
+            Thread shardThread = new Thread(() -> {
+                // This thread prints the results of its tests directly to the console.
+                ((ThreadSpecificStdout) System.out).setStdout(originalStdout);
+                ((ThreadSpecificStderr) System.err).setStderr(originalStderr);
+                try {
+                    runShard(nt, shardNumber, rpcPort, true, shardClasses, runNotifier, durationHistory);
+                } catch (Throwable e) {
+                    // Nothing else would report this shard's tests, so the run would otherwise pass.
+                    e.printStackTrace();
+                    notifyRunnerAllTestsInClassesFailed(shardClasses, e, runNotifier, nt);
+                    shardFailures.add(e);
+                }
+            }, nt.name().toLowerCase() + "-shard-" + shard);
+            shardThreads.add(shardThread);
+            shardThread.start();
+        }
 
-                // If any @BeforeClass methods failed, then every test in that class must be marked failed.
-                notifyRunnerAllTestsInAllFailedClassesAreFailed(failedClasses, runNotifier, nt);
+        joinAll(shardThreads);
+    }
 
-                // Grab all of the test classes whose @BeforeClass methods did not fail, we will run these now.
-                List<Class<?>> allNonFailedTests = getAllNonFailedTestClassesRemaining(
-                    failedClasses, nt);
+    /**
+     * Throws the first of the given failures, with the rest of them suppressed, if there are any.
+     */
+    private static void rethrowFailures(List<Throwable> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
 
-                // Run all of the test methods now. No exceptions will be thrown here.
-                runSuiteTests(allNonFailedTests, runNotifier, nt, testNodeManager);
+        Throwable first = failures.get(0);
+        RuntimeException exception = (first instanceof RuntimeException)
+            ? (RuntimeException) first
+            : new UnexpectedTestRunnerException("Unexpected throwable!", first);
+        for (Throwable failure : failures.subList(1, failures.size())) {
+            exception.addSuppressed(failure);
+        }
+        throw exception;
+    }
 
-                // Run any @AfterClass method in any of the test classes.
-                failedClasses = runAllAfterClassMethodsAndReturnFailedClasses(allNonFailedTests);
+    private void joinAll(List<Thread> threads) {
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
-                // If any @AfterClass methods failed, then we mark the test class itself as failed in JUnit to display this information.
-                notifyRunnerAfterClassMethodsFailed(failedClasses, runNotifier, nt);
+    private void saveDurationsAndCleanLogs(TestDurationHistory durationHistory) {
+        // Persist the durations so that the next run can schedule the longest tests first.
+        try {
+            durationHistory.save();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
-            } catch (Throwable e) {
-                // We do not expect any exceptions to ever make it here. This is just to ensure our node
-                // gets stopped in the finally block.
+        // Delete the log files unless specified not to.
+        if (System.getProperty("skipCleanLogs") == null) {
+            try {
+                FileUtils.deleteDirectory(new File(System.getProperty("user.dir") + "/logs"));
+            } catch (IOException e) {
                 e.printStackTrace();
-                throw new UnexpectedTestRunnerException("Unexpected throwable!", e);
-            } finally {
+            }
+        }
+    }
+
+    /**
+     * Starts up a node (along with its own miner, staking block signer and pre-mined account
+     * funder) for the given shard, runs all of the given test classes against it and then shuts
+     * everything down again.
+     *
+     * Every default RPC used by this thread, and by the test threads it starts, talks to this
+     * shard's node.
+     */
+    private void runShard(NodeType nt, int shard, String rpcPort, boolean isolateLogs, List<Class<?>> testClasses,
+                          RunNotifier runNotifier, TestDurationHistory durationHistory) {
+        RPC.useDefaultPortForCurrentThread(rpcPort);
+        TestNodeManager testNodeManager = new TestNodeManager(nt, shard, rpcPort, isolateLogs);
+
+        // Start up the local node before any tests are run.
+        initializeAndStartNode(testNodeManager);
+
+        EquihashMiner miner = null;
+        StakingBlockSigner stakingBlockSigner = null;
+        PreminedAccountFunder paf = null;
+        PreminedAccountPool pool = null;
+        try {
+            miner = new EquihashMiner("127.0.0.1", rpcPort);
+            miner.startMining();
+
+            // StakingBlockSigner currently needs to be started after the node's rpc is up and running
+            stakingBlockSigner = StakingBlockSigner.defaultStakingBlockSigner(rpcPort);
+            stakingBlockSigner.start();
+
+            // Start funding the pooled pre-mined accounts while the @BeforeClass methods run.
+            // All of the executor threads fund their accounts concurrently, so we batch those transfers.
+            paf = newBatchingFunder(nt, testNodeManager);
+            pool = new PreminedAccountPool(paf, POOLED_ACCOUNT_AMOUNT, countTestsUsingPreminedAccounts(nt, testClasses), MAX_NUM_THREADS, MAX_NUM_THREADS / 2);
+            pool.startWarming();
+
+            // Run every @BeforeClass method in any of the test classes.
+            List<FailedClass> failedClasses = runAllBeforeClassMethodsAndReturnFailedClasses(testClasses);
+
+            // If any @BeforeClass methods failed, then every test in that class must be marked failed.
+            notifyRunnerAllTestsInAllFailedClassesAreFailed(failedClasses, runNotifier, nt);
+
+            // Grab all of the test classes whose @BeforeClass methods did not fail, we will run these now.
+            List<Class<?>> allNonFailedTests = getAllNonFailedTestClassesRemaining(failedClasses, testClasses);
+
+            // Run all of the test methods now. No exceptions will be thrown here.
+            runSuiteTests(allNonFailedTests, runNotifier, nt, testNodeManager, paf, pool, durationHistory);
+
+            // Run any @AfterClass method in any of the test classes.
+            failedClasses = runAllAfterClassMethodsAndReturnFailedClasses(allNonFailedTests);
+
+            // If any @AfterClass methods failed, then we mark the test class itself as failed in JUnit to display this information.
+            notifyRunnerAfterClassMethodsFailed(failedClasses, runNotifier, nt);
+
+        } catch (Throwable e) {
+            // We do not expect any exceptions to ever make it here. This is just to ensure our node
+            // gets stopped in the finally block.
+            e.printStackTrace();
+            throw new UnexpectedTestRunnerException("Unexpected throwable!", e);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            if (paf != null) {
+                try {
+                    paf.shutdown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if (miner != null) {
                 miner.stopMining();
+            }
+            if (stakingBlockSigner != null) {
                 stakingBlockSigner.stop();
+            }
 
-                // Ensure that the node gets shut down properly.
-                stopNode(testNodeManager);
+            // Ensure that the node gets shut down properly.
+            stopNode(testNodeManager);
 
-                // Delete the log files unless specified not to.
-                if (System.getProperty("skipCleanLogs") == null) {
-                    try {
-                        FileUtils.deleteDirectory(new File(System.getProperty("user.dir") + "/logs"));
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
+            RPC.useDefaultPortForCurrentThread(null);
+        }
+    }
+
+    /**
+     * Splits the test classes of the given node type into at most the given number of shards, such
+     * that the total estimated duration (from previous runs) of each shard is as even as possible.
+     * A test class is never split across shards, since its @BeforeClass and @AfterClass methods
+     * must run against the same node as its tests.
+     */
+    private List<List<Class<?>>> shardTestClasses(NodeType nt, int numberOfShards, TestDurationHistory history) {
+        Map<Class<?>, Description> classToDescription = this.node2ClassDescriptions.get(nt);
+        int shardCount = Math.max(1, Math.min(numberOfShards, classToDescription.size()));
+
+        Map<Class<?>, Long> classToEstimatedDuration = new HashMap<>();
+        for (Map.Entry<Class<?>, Description> entry : classToDescription.entrySet()) {
+            long duration = 0;
+            for (Description testDescription : entry.getValue().getChildren()) {
+                duration += history.estimatedDurationInMillis(testDescription);
             }
+            classToEstimatedDuration.put(entry.getKey(), duration);
         }
 
-        // Restore the original stdout and stderr back to System.
-        System.setOut(originalStdout);
-        System.setErr(originalStderr);
+        List<Class<?>> classes = new ArrayList<>(classToDescription.keySet());
+        classes.sort(Comparator.comparingLong((Class<?> c) -> classToEstimatedDuration.get(c)).reversed());
+
+        List<List<Class<?>>> shards = new ArrayList<>();
+        long[] shardLoads = new long[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+
+        for (Class<?> testClass : classes) {
+            int lightest = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (shardLoads[i] < shardLoads[lightest]) {
+                    lightest = i;
+                }
+            }
+            shards.get(lightest).add(testClass);
+            shardLoads[lightest] += classToEstimatedDuration.get(testClass);
+        }
+        return shards;
     }
 
     /**
      * Grabs all of the N test methods from the given test classes and hands them out to the threads.
      * The minimum of (N, MAX_NUM_THREADS) threads will be used to run the tests.
      *
+     * The longest tests, according to the durations recorded by previous runs, are started first.
+     * The durations of this run are recorded in the history, and the critical path is printed.
+     *
      * This method will wait on the results of all the tests and notify JUnit of their progress.
      *
      * When this method returns all tests will be done being processed.
      */
-    private void runSuiteTests(List<Class<?>> testClasses, RunNotifier runNotifier, NodeType nt, TestNodeManager testNodeManager) {
+    private void runSuiteTests(List<Class<?>> testClasses, RunNotifier runNotifier, NodeType nt, TestNodeManager testNodeManager, PreminedAccountFunder paf, PreminedAccountPool pool, TestDurationHistory durationHistory) {
         if(testClasses.isEmpty()) {
             // if there's nothing to test, no point in going through the exercise of
             // enqueuing/dequeuing TestContexts and TestResults
@@ -194,19 +439,10 @@ public final class ConcurrentRunner extends Runner {
 
         List<TestContext> allTestContexts = getTestContextsForAllTests(testClasses, nt);
         int numThreads = Math.min(MAX_NUM_THREADS, allTestContexts.size());
-        TestAndResultQueueManager queueManager = new TestAndResultQueueManager(numThreads);
+        TestAndResultQueueManager queueManager = new TestAndResultQueueManager(numThreads, durationHistory);
+        long startTimeInNanos = System.nanoTime();
 
-        final PreminedAccountFunder paf;
-        if(nt == NodeType.RUST_NODE) {
-            paf = new PreminedAccountFunder(testNodeManager, new RustPrepackagedLogEvents());
-        } else if(nt == NodeType.JAVA_NODE || nt == NodeType.PROXY_JAVA_NODE) {
-            paf = new PreminedAccountFunder(testNodeManager, new JavaPrepackagedLogEvents());
-        } else {
-            throw new IllegalArgumentException(
-                "Don't know how to construct PreminedAccountFunder for node type" + nt.name());
-        }
-
-        List<TestExecutor> testExecutors = createTestExecutors(numThreads, paf, queueManager, testNodeManager, nt);
+        List<TestExecutor> testExecutors = createTestExecutors(numThreads, paf, pool, queueManager, testNodeManager, nt);
         List<Thread> executorThreads = createExecutorThreads(testExecutors);
 
         // Start the threads.
@@ -253,10 +489,14 @@ public final class ConcurrentRunner extends Runner {
                 Thread.currentThread().interrupt();
             }
         }
+
+        long wallClockInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeInNanos);
+        System.out.println(queueManager.criticalPathReport(wallClockInMillis));
     }
 
     private List<TestExecutor> createTestExecutors(int num,
                                                    PreminedAccountFunder paf,
+                                                   PreminedAccountPool pool,
                                                    TestAndResultQueueManager queueManager,
                                                    TestNodeManager testNodeManager,
                                                    NodeType nt) {
@@ -264,6 +504,7 @@ public final class ConcurrentRunner extends Runner {
         for (int i = 0; i < num; i++) {
             threads.add(new TestExecutor(testNodeManager,
                 paf,
+                pool,
                 queueManager,
                 nt)
             );
@@ -291,12 +532,42 @@ public final class ConcurrentRunner extends Runner {
         return contexts;
     }
 
-    private List<Class<?>> getAllNonFailedTestClassesRemaining(List<FailedClass> failedClasses, NodeType nt) {
+    private PreminedAccountFunder newBatchingFunder(NodeType nt, TestNodeManager testNodeManager) {
+        if(nt == NodeType.RUST_NODE) {
+            return PreminedAccountFunder.newBatchingFunder(testNodeManager, new RustPrepackagedLogEvents());
+        } else if(nt == NodeType.JAVA_NODE || nt == NodeType.PROXY_JAVA_NODE) {
+            return PreminedAccountFunder.newBatchingFunder(testNodeManager, new JavaPrepackagedLogEvents());
+        } else {
+            throw new IllegalArgumentException(
+                "Don't know how to construct PreminedAccountFunder for node type" + nt.name());
+        }
+    }
+
+    /**
+     * Returns the number of the given tests that will run against the given node type whose test class
+     * declares or inherits a {@link PreminedAccount} rule. This is the number of pre-mined accounts
+     * we expect to hand out.
+     */
+    private int countTestsUsingPreminedAccounts(NodeType nt, List<Class<?>> testClasses) {
+        int count = 0;
+        for (Class<?> testClass : testClasses) {
+            for (Class<?> declaringClass = testClass; declaringClass != null; declaringClass = declaringClass.getSuperclass()) {
+                for (Field field : declaringClass.getDeclaredFields()) {
+                    if (field.getType().equals(PreminedAccount.class) && field.isAnnotationPresent(org.junit.Rule.class)) {
+                        count += this.node2ClassDescriptions.get(nt).get(testClass).getChildren().size();
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private List<Class<?>> getAllNonFailedTestClassesRemaining(List<FailedClass> failedClasses, List<Class<?>> testClasses) {
         List<Class<?>> nonFailedTestClass = new ArrayList<>();
-        nonFailedTestClass.addAll(this.node2ClassDescriptions.get(nt).keySet());
+        nonFailedTestClass.addAll(testClasses);
 
         for (FailedClass failedClass : failedClasses) {
-            nonFailedTestClass.remove(failedClass);
+            nonFailedTestClass.remove(failedClass.failedClass);
         }
 
         return nonFailedTestClass;
@@ -325,6 +596,15 @@ public final class ConcurrentRunner extends Runner {
         }
     }
 
+    private void notifyRunnerAllTestsInClassesFailed(List<Class<?>> testClasses,
+                                                     Throwable failure,
+                                                     RunNotifier runNotifier,
+                                                     NodeType nt) {
+        for (Class<?> testClass : testClasses) {
+            notifyRunnerAllTestsInClassFailed(new FailedClass(testClass, failure), runNotifier, nt);
+        }
+    }
+
     private void notifyRunnerAllTestsInClassFailed(FailedClass failedClass,
                                                    RunNotifier runNotifier,
                                                    NodeType nt) {
@@ -335,10 +615,10 @@ public final class ConcurrentRunner extends Runner {
         }
     }
 
-    private List<FailedClass> runAllBeforeClassMethodsAndReturnFailedClasses(NodeType nt) {
+    private List<FailedClass> runAllBeforeClassMethodsAndReturnFailedClasses(List<Class<?>> testClasses) {
         List<FailedClass> failedClasses = new ArrayList<>();
 
-        for (Class<?> testClass : this.node2ClassDescriptions.get(nt).keySet()) {
+        for (Class<?> testClass : testClasses) {
             try {
                 runBeforeClassMethodsIfAnyExists(testClass);
             } catch (Throwable e) {
@@ -64,6 +64,33 @@ class RunnerHelper {
         return ret;
     }
 
+    /**
+     * Determine the number of nodes of each type to shard the test classes across from the system
+     * property {@code testShards}. Defaults to a single node. The result is always in the range
+     * [1, max].
+     */
+    int determineNumberOfShards(int max) {
+        String propString = System.getProperty("testShards");
+        if (null == propString || propString.isEmpty()) {
+            return 1;
+        }
+
+        try {
+            return Math.max(1, Math.min(max, Integer.parseInt(propString.trim())));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unrecognized number of test shards: " + propString);
+        }
+    }
+
+    /**
+     * Determine whether the node types should be tested in parallel rather than one after the other
+     * from the system property {@code parallelNodeTypes}. Any value other than {@code false} enables it.
+     */
+    boolean determineRunNodeTypesInParallel() {
+        String propString = System.getProperty("parallelNodeTypes");
+        return (propString != null) && !propString.trim().equalsIgnoreCase("false");
+    }
+
     // -- Methods for processing annotations ------------------------------------------------------
 
     Set<NodeType> determineExcludedNodeTypes(Annotation[] annotations) {
@@ -97,4 +97,12 @@ public final class PreminedAccount implements TestRule {
         throws Exception {
         dispatcher.fundAccount(this.preminedForCaller.getAddress(), this.initialAmount);
     }
+
+    /**
+     * This is called by our custom Runners instead of setPrivateKey and getFundsFromRealPreminedAccount
+     * when they have a pool of already-funded accounts to lease from.
+     */
+    private void leaseFromPool(PreminedAccountPool pool) throws Exception {
+        this.preminedForCaller = pool.lease(this.initialAmount);
+    }
 }
@@ -2,16 +2,31 @@ package org.aion.harness.tests.integ.runner.internal;
 
 import java.math.BigInteger;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import org.aion.harness.kernel.Address;
+import org.aion.harness.kernel.BulkRawTransactionBuilder;
+import org.aion.harness.kernel.BulkRawTransactionBuilder.TransactionType;
 import org.aion.harness.kernel.PrivateKey;
 import org.aion.harness.kernel.SignedTransaction;
 import org.aion.harness.main.NodeListener;
+import org.aion.harness.main.NonceManager;
 import org.aion.harness.main.RPC;
 import org.aion.harness.main.event.Event;
 import org.aion.harness.main.event.IEvent;
 import org.aion.harness.main.event.PrepackagedLogEvents;
 import org.aion.harness.main.types.ReceiptHash;
+import org.aion.harness.result.BulkResult;
 import org.aion.harness.result.FutureResult;
 import org.aion.harness.result.LogEventResult;
 import org.aion.harness.result.RpcResult;
@@ -24,21 +39,44 @@ import org.apache.commons.codec.binary.Hex;
  * the faked-up {@link PreminedAccount} addresses we give to the test.
  *
  * This class should be invoked once per test.
+ *
+ * A batching funder (see {@code newBatchingFunder()}) does not send one transfer per request.
+ * Instead, a dedicated funder thread collects all of the requests that arrive within a short window,
+ * signs them as one bulk batch and sends them together, so that many concurrent tests are funded in
+ * roughly one block rather than one block each. A batching funder must be shut down once the tests
+ * are done with it.
  */
 public final class PreminedAccountFunder {
     private static final String PREMINED_KEY = "4c3c8a7c0292bc55d97c50b4bdabfd47547757d9e5c194e89f66f25855baacd0";
-    private final Object nonceLock = new Object();
+    private static final long ENERGY_LIMIT = 2_000_000;
+    private static final long ENERGY_PRICE = 10_000_000_000L;
+
+    // How long the funder thread keeps collecting requests after the first one of a batch arrives.
+    private static final long BATCH_WINDOW_MILLIS = 200;
+    private static final int MAX_BATCH_SIZE = 250;
 
     private final TestNodeManager nodeManager;
     private final PrepackagedLogEvents prepackagedLogEvents;
     private final PrivateKey preminedAccount;
     private final RPC rpc;
-    private BigInteger currentNonce = null;
+    private final NonceManager nonceManager;
+
+    // These are only non-null for a batching funder.
+    private final BlockingQueue<FundingRequest> pendingRequests;
+    private final ExecutorService sealWaiters;
+    private final Thread funderThread;
+    private final Object shutdownLock = new Object();
+    private volatile boolean isShutdown = false;
 
     public PreminedAccountFunder(TestNodeManager nodeManager, PrepackagedLogEvents prepackagedLogEvents) {
+        this(nodeManager, prepackagedLogEvents, false);
+    }
+
+    private PreminedAccountFunder(TestNodeManager nodeManager, PrepackagedLogEvents prepackagedLogEvents, boolean batching) {
         this.nodeManager = nodeManager;
         this.prepackagedLogEvents = prepackagedLogEvents;
-        this.rpc = RPC.newRpc("127.0.0.1", System.getProperty("rpcPort"));
+        this.rpc = RPC.newRpc("127.0.0.1", nodeManager.getRpcPort());
+        this.nonceManager = new NonceManager(this.rpc);
 
         try {
             this.preminedAccount = PrivateKey.fromBytes(Hex.decodeHex(PREMINED_KEY));
@@ -46,6 +84,29 @@ public final class PreminedAccountFunder {
             // Note we know the premined key is good, we should never hit this.
             throw new UnexpectedTestRunnerException("Failed to get the private key of the real premined account!", e);
         }
+
+        if (batching) {
+            this.pendingRequests = new LinkedBlockingQueue<>();
+            this.sealWaiters = Executors.newCachedThreadPool((runnable) -> {
+                Thread thread = new Thread(runnable, "premined-account-funder-seal-waiter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.funderThread = new Thread(this::processBatches, "premined-account-funder");
+            this.funderThread.setDaemon(true);
+            this.funderThread.start();
+        } else {
+            this.pendingRequests = null;
+            this.sealWaiters = null;
+            this.funderThread = null;
+        }
+    }
+
+    /**
+     * Returns a new funder that coalesces concurrent funding requests into bulk batches.
+     */
+    public static PreminedAccountFunder newBatchingFunder(TestNodeManager nodeManager, PrepackagedLogEvents prepackagedLogEvents) {
+        return new PreminedAccountFunder(nodeManager, prepackagedLogEvents, true);
     }
 
     /**
@@ -57,15 +118,97 @@ public final class PreminedAccountFunder {
      */
     public void fundAccount(Address address, BigInteger amount)
         throws Exception {
+        if (this.funderThread == null) {
+            fundAccountDirectly(address, amount);
+        } else {
+            fundAccountInBatch(address, amount);
+        }
+    }
+
+    /**
+     * Transfers the same amount of funds from the real pre-mined account to each of the specified
+     * accounts. A batching funder sends all of these transfers in as few batches as possible.
+     *
+     * Every account is handed to onFunded as soon as its transfer has been sealed into a block, so
+     * that the accounts funded before a failure are not lost. This method only returns once every
+     * transfer has been sealed into a block, and throws if any one of them failed.
+     */
+    public void fundAccounts(List<Address> addresses, BigInteger amount, Consumer<Address> onFunded) throws Exception {
+        if (this.funderThread == null) {
+            for (Address address : addresses) {
+                fundAccountDirectly(address, amount);
+                onFunded.accept(address);
+            }
+            return;
+        }
+
+        List<FundingRequest> requests = new ArrayList<>(addresses.size());
+        for (Address address : addresses) {
+            requests.add(new FundingRequest(address, amount));
+        }
+
+        // Enqueued under the shutdown lock, so that shutdown either sees these requests or rejects them.
+        synchronized (this.shutdownLock) {
+            if (this.isShutdown) {
+                throw new IllegalStateException("Attempted to fund accounts using a funder that has been shut down!");
+            }
+            this.pendingRequests.addAll(requests);
+        }
+
+        // Wait for every request, even once one has failed, so that all of the funded accounts are reported.
+        Exception failure = null;
+        for (FundingRequest request : requests) {
+            try {
+                awaitOutcome(request);
+                onFunded.accept(request.address);
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Stops the funder thread of a batching funder. Any requests that have not yet been sent are
+     * failed. This method does nothing for a non-batching funder.
+     */
+    public void shutdown() throws InterruptedException {
+        if (this.funderThread == null) {
+            return;
+        }
+
+        synchronized (this.shutdownLock) {
+            this.isShutdown = true;
+        }
+        this.funderThread.interrupt();
+        this.funderThread.join();
+        this.sealWaiters.shutdownNow();
+
+        List<FundingRequest> unsent = new ArrayList<>();
+        this.pendingRequests.drainTo(unsent);
+        for (FundingRequest request : unsent) {
+            request.outcome.completeExceptionally(new UnexpectedTestRunnerException("The premined account funder was shut down before funding " + request.address));
+        }
+    }
+
+    private void fundAccountDirectly(Address address, BigInteger amount) throws Exception {
         // Build the transaction to transfer balance to the specified account.
-        // We are assuming this transaction succeeds, so we increment nonce here too. This allows for much higher concurrent throughput.
+        // We are assuming this transaction succeeds, so we take the nonce locally. This allows for much higher concurrent throughput.
+        BigInteger nonce = this.nonceManager.nextNonce(this.preminedAccount.getAddress());
         SignedTransaction transaction = SignedTransaction.newGeneralTransaction(
             preminedAccount,
-            getCurrentNonceThenIncrement(),
+            nonce,
             address,
             null,
-            2_000_000,
-            10_000_000_000L,
+            ENERGY_LIMIT,
+            ENERGY_PRICE,
             amount, null);
 
         // Construct the 'transaction is processed' event we want to listen for.
@@ -79,6 +222,7 @@ public final class PreminedAccountFunder {
         RpcResult<ReceiptHash> sendResult = this.rpc.sendSignedTransaction(transaction);
 
         if (!sendResult.isSuccess()) {
+            this.nonceManager.reportRejectedNonce(this.preminedAccount.getAddress(), nonce);
             throw new UnexpectedTestRunnerException("Failed transferring " + amount + " funds from the real pre-mined account: " + sendResult.getError());
         }
 
@@ -86,30 +230,205 @@ public final class PreminedAccountFunder {
         LogEventResult listenResult = future.get(5, TimeUnit.MINUTES);
 
         if(! transactionSealed.hasBeenObserved() || transactionRejected.hasBeenObserved() ) {
+            if (transactionRejected.hasBeenObserved()) {
+                this.nonceManager.reportRejectedNonce(this.preminedAccount.getAddress(), nonce);
+            }
             throw new UnexpectedTestRunnerException("Failed transferring " + amount +
                 " funds from the real pre-mined account: " + listenResult);
         }
     }
 
+    private void fundAccountInBatch(Address address, BigInteger amount) throws Exception {
+        FundingRequest request = new FundingRequest(address, amount);
+        synchronized (this.shutdownLock) {
+            if (this.isShutdown) {
+                throw new IllegalStateException("Attempted to fund an account using a funder that has been shut down!");
+            }
+            this.pendingRequests.add(request);
+        }
+        awaitOutcome(request);
+    }
+
+    private void awaitOutcome(FundingRequest request) throws Exception {
+        try {
+            request.outcome.get(5, TimeUnit.MINUTES);
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            throw new UnexpectedTestRunnerException("Timed out waiting for " + request.amount + " funds from the real pre-mined account to be transferred to " + request.address, e);
+        }
+    }
+
     /**
-     * Grabs the current value of the nonce and then increments it.
+     * The body of the funder thread. Collects the next batch of requests and sends it, until the
+     * funder is shut down.
      */
-    private BigInteger getCurrentNonceThenIncrement() throws InterruptedException {
-        synchronized (nonceLock) {
-
-            // If this is the first time being invoked we fetch our nonce by asking the kernel.
-            if (this.currentNonce == null) {
-                RpcResult<BigInteger> nonceResult = this.rpc.getNonce(this.preminedAccount.getAddress());
-                if (!nonceResult.isSuccess()) {
-                    throw new IllegalStateException("Unable to get the nonce of the premined account!");
+    private void processBatches() {
+        while (!this.isShutdown) {
+            List<FundingRequest> batch;
+            try {
+                batch = collectNextBatch();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                sendBatch(batch);
+            } catch (Throwable e) {
+                for (FundingRequest request : batch) {
+                    request.outcome.completeExceptionally(e);
                 }
+                if (e instanceof InterruptedException) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks until at least one request arrives, then keeps collecting requests for the batch window
+     * or until the batch is full.
+     */
+    private List<FundingRequest> collectNextBatch() throws InterruptedException {
+        List<FundingRequest> batch = new ArrayList<>();
+        batch.add(this.pendingRequests.take());
+
+        long deadlineInNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_WINDOW_MILLIS);
+        while (batch.size() < MAX_BATCH_SIZE) {
+            long remainingNanos = deadlineInNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                break;
+            }
+
+            FundingRequest request;
+            try {
+                request = this.pendingRequests.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // Shut down mid-batch: hand the collected requests back to be failed by shutdown().
+                this.pendingRequests.addAll(batch);
+                throw e;
+            }
+            if (request == null) {
+                break;
+            }
+            batch.add(request);
+            this.pendingRequests.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+        }
+
+        return batch;
+    }
+
+    /**
+     * Signs every request in the batch as a single bulk batch of transfers, starts listening for
+     * all of them, and sends them all off. Waiting for the transfers to be processed is handed off
+     * to another thread so that the next batch can be collected in the meantime.
+     */
+    private void sendBatch(List<FundingRequest> batch) throws InterruptedException {
+        int size = batch.size();
+        List<Address> destinations = new ArrayList<>(size);
+        List<BigInteger> amounts = new ArrayList<>(size);
+        for (FundingRequest request : batch) {
+            destinations.add(request.address);
+            amounts.add(request.amount);
+        }
+
+        Address preminedAddress = this.preminedAccount.getAddress();
+        // Nonces rejected earlier are reused first, so that they do not leave gaps behind them.
+        List<BigInteger> nonces = this.nonceManager.nextNonces(preminedAddress, size);
+
+        BulkResult<SignedTransaction> buildResult = new BulkRawTransactionBuilder(size)
+            .useMultipleSenders(Collections.nCopies(size, this.preminedAccount), nonces)
+            .useMultipleDestinations(destinations)
+            .useMultipleTransferValues(amounts)
+            .useSameTransactionData(new byte[0])
+            .useSameEnergyLimit(ENERGY_LIMIT)
+            .useSameEnergyPrice(ENERGY_PRICE)
+            .useSameTransactionType(TransactionType.FVM)
+            .build();
 
-                this.currentNonce = nonceResult.getResult();
+        if (!buildResult.isSuccess()) {
+            // None of these nonces will ever be used, so they leave a gap behind them.
+            for (BigInteger nonce : nonces) {
+                this.nonceManager.reportRejectedNonce(preminedAddress, nonce);
             }
+            throw new UnexpectedTestRunnerException("Failed to build the batch of funding transactions: " + buildResult.getError());
+        }
+        List<SignedTransaction> transactions = buildResult.getResults();
+
+        List<IEvent> sealedEvents = new ArrayList<>(size);
+        List<IEvent> rejectedEvents = new ArrayList<>(size);
+        List<IEvent> processedEvents = new ArrayList<>(size);
+        for (SignedTransaction transaction : transactions) {
+            IEvent transactionSealed = this.prepackagedLogEvents.getTransactionSealedEvent(transaction);
+            IEvent transactionRejected = this.prepackagedLogEvents.getTransactionRejectedEvent(transaction);
+            sealedEvents.add(transactionSealed);
+            rejectedEvents.add(transactionRejected);
+            processedEvents.add(Event.or(transactionRejected, transactionSealed));
+        }
+
+        // Start listening for the transactions to get processed and send them all off.
+        NodeListener listener = this.nodeManager.newNodeListener();
+        List<FutureResult<LogEventResult>> futures = listener.listenForEvents(processedEvents, 10, TimeUnit.MINUTES);
+        List<RpcResult<ReceiptHash>> sendResults = this.rpc.sendSignedTransactions(transactions);
+
+        List<Integer> sentIndices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            FundingRequest request = batch.get(i);
+            RpcResult<ReceiptHash> sendResult = sendResults.get(i);
+
+            if (sendResult.isSuccess()) {
+                sentIndices.add(i);
+            } else {
+                this.nonceManager.reportRejectedNonce(preminedAddress, nonces.get(i));
+                request.outcome.completeExceptionally(new UnexpectedTestRunnerException("Failed transferring "
+                    + request.amount + " funds from the real pre-mined account: " + sendResult.getError()));
+            }
+        }
+
+        this.sealWaiters.execute(() -> {
+            for (int i : sentIndices) {
+                completeOnceProcessed(batch.get(i), futures.get(i), sealedEvents.get(i), rejectedEvents.get(i), nonces.get(i));
+            }
+        });
+    }
+
+    /**
+     * Blocks until the transfer for the given request is processed and completes its outcome.
+     */
+    private void completeOnceProcessed(FundingRequest request, FutureResult<LogEventResult> future, IEvent transactionSealed, IEvent transactionRejected, BigInteger nonce) {
+        try {
+            LogEventResult listenResult = future.get(5, TimeUnit.MINUTES);
+
+            if (!transactionSealed.hasBeenObserved() || transactionRejected.hasBeenObserved()) {
+                if (transactionRejected.hasBeenObserved()) {
+                    this.nonceManager.reportRejectedNonce(this.preminedAccount.getAddress(), nonce);
+                }
+                request.outcome.completeExceptionally(new UnexpectedTestRunnerException("Failed transferring "
+                    + request.amount + " funds from the real pre-mined account: " + listenResult));
+            } else {
+                request.outcome.complete(null);
+            }
+        } catch (InterruptedException e) {
+            request.outcome.completeExceptionally(e);
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            request.outcome.completeExceptionally(new UnexpectedTestRunnerException("Timed out waiting for "
+                + request.amount + " funds from the real pre-mined account to be transferred to " + request.address, e));
+        }
+    }
+
+    /**
+     * A single request to fund an account, whose outcome is completed once the transfer is sealed
+     * into a block (or fails).
+     */
+    private static final class FundingRequest {
+        private final Address address;
+        private final BigInteger amount;
+        private final CompletableFuture<Void> outcome = new CompletableFuture<>();
 
-            BigInteger current = this.currentNonce;
-            this.currentNonce = this.currentNonce.add(BigInteger.ONE);
-            return current;
+        private FundingRequest(Address address, BigInteger amount) {
+            this.address = address;
+            this.amount = amount;
         }
     }
 }
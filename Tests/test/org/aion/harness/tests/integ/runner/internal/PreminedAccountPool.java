@@ -0,0 +1,214 @@
+package org.aion.harness.tests.integ.runner.internal;
+
+import java.math.BigInteger;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.harness.kernel.Address;
+import org.aion.harness.kernel.PrivateKey;
+import org.aion.harness.tests.integ.runner.exception.UnexpectedTestRunnerException;
+
+/**
+ * A pool of accounts that have already been funded by the real pre-mined account, so that a test
+ * that uses a {@link PreminedAccount} rule does not have to wait a block for its funds to arrive.
+ *
+ * The pool is warmed in bulk, in the background, as soon as it is started (typically while the
+ * {@code @BeforeClass} methods are still running). Every time an account is leased out and the
+ * number of funded accounts left in the pool drops below the low watermark, the pool is refilled
+ * in the background, up to the number of leases it still expects.
+ *
+ * All pooled accounts hold exactly the pool's amount of funds. A lease for any other amount is
+ * funded on the spot, exactly as if there were no pool.
+ *
+ * Each leased account is brand new, so its nonce is zero, and it is never handed out twice.
+ *
+ * This class is thread-safe.
+ */
+public final class PreminedAccountPool {
+    private final PreminedAccountFunder funder;
+    private final BigInteger amount;
+    private final int targetSize;
+    private final int lowWatermark;
+
+    private final BlockingQueue<PrivateKey> fundedAccounts = new LinkedBlockingQueue<>();
+    private final ExecutorService refiller;
+
+    // The number of leases of the pool's amount that we still expect to hand out.
+    private final AtomicInteger expectedLeases;
+
+    private final Object refillLock = new Object();
+    private Future<?> currentRefill = null;
+
+    /**
+     * Constructs a new pool of accounts each holding the specified amount.
+     *
+     * @param funder The funder used to fund the pooled accounts.
+     * @param amount The amount every pooled account is funded with.
+     * @param expectedLeases The number of leases the pool expects to hand out over its lifetime.
+     * @param targetSize The maximum number of funded accounts held by the pool at any one time.
+     * @param lowWatermark The pool is refilled whenever it holds fewer than this many accounts.
+     */
+    public PreminedAccountPool(PreminedAccountFunder funder, BigInteger amount, int expectedLeases, int targetSize, int lowWatermark) {
+        if (funder == null) {
+            throw new NullPointerException("Cannot construct a pool with a null funder.");
+        }
+        if (amount == null) {
+            throw new NullPointerException("Cannot construct a pool with a null amount.");
+        }
+        if (targetSize <= 0) {
+            throw new IllegalArgumentException("The target size of the pool must be positive but was: " + targetSize);
+        }
+        if ((lowWatermark < 0) || (lowWatermark > targetSize)) {
+            throw new IllegalArgumentException("The low watermark must be in the range [0, " + targetSize + "] but was: " + lowWatermark);
+        }
+
+        this.funder = funder;
+        this.amount = amount;
+        this.targetSize = targetSize;
+        this.lowWatermark = lowWatermark;
+        this.expectedLeases = new AtomicInteger(Math.max(0, expectedLeases));
+        this.refiller = Executors.newSingleThreadExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "premined-account-pool-refiller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Begins funding the initial set of pooled accounts in the background. This method returns
+     * immediately.
+     */
+    public void startWarming() {
+        refillIfBelowWatermark(true);
+    }
+
+    /**
+     * Returns the private key of a brand new account that holds the specified amount of funds.
+     *
+     * If the amount matches the pool's amount then a pooled account is leased out, waiting for any
+     * in-progress refill if the pool is currently empty. Otherwise, a fresh account is funded now.
+     *
+     * If the refill this lease waited on failed, then this lease fails with the cause of that.
+     *
+     * @param amount The amount of funds the account must hold.
+     * @return the private key of the funded account.
+     */
+    public PrivateKey lease(BigInteger amount) throws Exception {
+        if (!this.amount.equals(amount)) {
+            return fundNewAccount(amount);
+        }
+
+        this.expectedLeases.decrementAndGet();
+
+        PrivateKey pooled = this.fundedAccounts.poll();
+        if (pooled == null) {
+            // The pool is empty. If accounts are on their way, wait for them, otherwise fund our own.
+            Future<?> refill = refillIfBelowWatermark(false);
+            if (refill != null) {
+                awaitRefill(refill);
+                pooled = this.fundedAccounts.poll();
+            }
+        }
+
+        refillIfBelowWatermark(false);
+        return (pooled == null) ? fundNewAccount(amount) : pooled;
+    }
+
+    /**
+     * Returns the number of funded accounts currently held by the pool.
+     */
+    public int size() {
+        return this.fundedAccounts.size();
+    }
+
+    /**
+     * Stops refilling the pool. Any accounts still in the pool are discarded.
+     */
+    public void shutdown() {
+        this.refiller.shutdownNow();
+        this.fundedAccounts.clear();
+    }
+
+    /**
+     * Schedules a refill if the pool is below its low watermark (or if forced) and is still
+     * expecting more leases than it has accounts for, and returns the refill in progress, or null if
+     * there is none.
+     */
+    private Future<?> refillIfBelowWatermark(boolean force) {
+        synchronized (this.refillLock) {
+            if ((this.currentRefill != null) && !this.currentRefill.isDone()) {
+                return this.currentRefill;
+            }
+
+            int available = this.fundedAccounts.size();
+            if (!force && (available > 0) && (available >= this.lowWatermark)) {
+                return null;
+            }
+
+            int wanted = Math.min(this.targetSize, this.expectedLeases.get()) - available;
+            if ((wanted <= 0) || this.refiller.isShutdown()) {
+                return null;
+            }
+
+            this.currentRefill = this.refiller.submit(() -> {
+                refill(wanted);
+                return null;
+            });
+            return this.currentRefill;
+        }
+    }
+
+    /**
+     * Funds count new accounts and adds each one to the pool as soon as it is funded, so that a
+     * failure part-way through does not lose the accounts that were funded. A failure is left in the
+     * refill's future, since stdout and stderr are thread-specific in the runners and this thread
+     * has nowhere to report to: the leases waiting on the refill report it instead.
+     */
+    private void refill(int count) throws Exception {
+        Map<Address, PrivateKey> addressToKey = new HashMap<>(count);
+        List<Address> addresses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PrivateKey key = PrivateKey.random();
+            addressToKey.put(key.getAddress(), key);
+            addresses.add(key.getAddress());
+        }
+
+        this.funder.fundAccounts(addresses, this.amount, (address) -> this.fundedAccounts.add(addressToKey.get(address)));
+    }
+
+    private void awaitRefill(Future<?> refill) throws Exception {
+        try {
+            refill.get(5, TimeUnit.MINUTES);
+        } catch (ExecutionException e) {
+            throw new UnexpectedTestRunnerException("Failed to refill the pool of pre-mined accounts!", e.getCause());
+        } catch (TimeoutException e) {
+            throw new UnexpectedTestRunnerException("Timed out waiting for the pool of pre-mined accounts to be refilled!", e);
+        } catch (CancellationException e) {
+            // The pool was shut down, so we fall back to funding our own account.
+        }
+    }
+
+    private PrivateKey fundNewAccount(BigInteger amount) throws Exception {
+        PrivateKey key;
+        try {
+            key = PrivateKey.random();
+        } catch (InvalidKeySpecException e) {
+            throw new UnexpectedTestRunnerException("Failed to generated a random pre-mined address!");
+        }
+
+        this.funder.fundAccount(key.getAddress(), amount);
+        return key;
+    }
+}
@@ -4,13 +4,18 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.lang.ProcessBuilder.Redirect;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class StakingBlockSigner {
     public static final String defaultCoinbaseAddress = "0xa02df9004be3c4a20aeb50c459212412b1d0a58da3e1ac70ba74dde6b4accf4b";
     public static final String defaultPrivateKey = "0xcc76648ce8798bc18130bc9d637995e5c42a922ebeab78795fac58081b9cf9d4";
     public static final String defaultIp = "127.0.0.1";
     public static final String defaultPort = "8545";
+    private static final String PRODUCING_BLOCKS_MESSAGE = "Producing blocks now";
+    private static final long STARTUP_TIMEOUT_SECONDS = 10;
     private final String EXTERNAL_STAKER_PATH = System.getProperty("user.dir") + "/../tooling/externalStaker";
     private final String coinbaseAddress;
     private final String signingAddressPrivateKey;
@@ -26,7 +31,11 @@ public class StakingBlockSigner {
     }
 
     public static StakingBlockSigner defaultStakingBlockSigner() {
-        return new StakingBlockSigner(defaultPrivateKey, defaultCoinbaseAddress, defaultIp, System.getProperty("rpcPort"));
+        return defaultStakingBlockSigner(System.getProperty("rpcPort"));
+    }
+
+    public static StakingBlockSigner defaultStakingBlockSigner(String port) {
+        return new StakingBlockSigner(defaultPrivateKey, defaultCoinbaseAddress, defaultIp, port);
     }
 
     public void start() {
@@ -37,16 +46,19 @@ public class StakingBlockSigner {
             // but the address used to deploy the staking contract on amity is the same one we use here.
             ProcessBuilder builder = new ProcessBuilder("java", "-jar", "block_signer-1.2.jar", signingAddressPrivateKey, coinbaseAddress, "amity", ip, port)
                 .directory(new File(EXTERNAL_STAKER_PATH))
-                .redirectOutput(Redirect.DISCARD)
             ;
             process = builder.start();
-            
-            // Stall for a moment to make sure this started up (note that this is unreliable but we only expect this failure in response to environmental issues - missing/incorrect JVM, etc)
-            // (in the future, we could change this to wait out STDOUT being produced in order to consider the tool bootstrapped, etc, if we need this to be reliable).
+
+            // Wait until the signer says it is producing blocks, or until it dies, whichever comes first.
+            // If it says neither within the timeout (for instance, if its output ever changes) then we carry
+            // on as long as it is still alive.
+            CompletableFuture<Void> producing = watchOutput(this.process);
             try {
-                Thread.sleep(1000);
+                CompletableFuture.anyOf(producing, this.process.onExit()).get(STARTUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             } catch (InterruptedException e) {
                 throw new AssertionError("Interruption not used", e);
+            } catch (ExecutionException | TimeoutException e) {
+                // Fall through to the liveness check.
             }
             if (!this.process.isAlive()) {
                 // Read any error this process logged before termination.
@@ -67,6 +79,31 @@ public class StakingBlockSigner {
         }
     }
 
+    /**
+     * Drains the signer's stdout for as long as it runs, so that it never blocks on a full pipe, and
+     * returns a future that completes once the signer reports that it is producing blocks.
+     *
+     * Note that the draining thread must not print anything, since stdout is thread-specific in the runners.
+     */
+    private static CompletableFuture<Void> watchOutput(Process process) {
+        CompletableFuture<Void> producing = new CompletableFuture<>();
+        Thread drainer = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while (null != (line = reader.readLine())) {
+                    if (line.contains(PRODUCING_BLOCKS_MESSAGE)) {
+                        producing.complete(null);
+                    }
+                }
+            } catch (IOException e) {
+                // The process has gone away.
+            }
+        }, "block-signer-output");
+        drainer.setDaemon(true);
+        drainer.start();
+        return producing;
+    }
+
     public void stop() {
         if (process != null) {
             process.destroy();
@@ -3,12 +3,20 @@ package org.aion.harness.tests.integ.runner.internal;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public final class TestAndResultQueueManager {
-    private final SimpleBlockingQueue<TestContext> testsQueue = new SimpleBlockingQueue<>();
+    private final TestScheduler testScheduler;
     private final SimpleBlockingQueue<TestResult> resultsQueue = new SimpleBlockingQueue<>();
     private AtomicInteger numThreadsOutstanding;
 
     public TestAndResultQueueManager(int numThreadsOutstanding) {
+        this(numThreadsOutstanding, TestDurationHistory.empty());
+    }
+
+    /**
+     * Tests are handed out longest first, according to the given history of test durations.
+     */
+    public TestAndResultQueueManager(int numThreadsOutstanding, TestDurationHistory history) {
         this.numThreadsOutstanding = new AtomicInteger(numThreadsOutstanding);
+        this.testScheduler = new TestScheduler(numThreadsOutstanding, history);
     }
 
     /**
@@ -17,7 +25,7 @@ public final class TestAndResultQueueManager {
      * @param testContext A new test to run.
      */
     public void putTest(TestContext testContext) {
-        this.testsQueue.put(testContext);
+        this.testScheduler.submit(testContext);
     }
 
     /**
@@ -28,15 +36,30 @@ public final class TestAndResultQueueManager {
      * @return The next test or null.
      */
     public TestContext takeTest() {
-        return this.testsQueue.take();
+        return this.testScheduler.take();
     }
 
     /**
-     * Signals that no more tests will be added. The {@code takeTest()} method will return null once
-     * any remaining tests have been consumed.
+     * Signals that no more tests will be added. No tests are handed out until this method is
+     * called. The {@code takeTest()} method will return null once all of the tests have been consumed.
      */
     public void reportAllTestsSubmitted() {
-        this.testsQueue.close();
+        this.testScheduler.close();
+    }
+
+    /**
+     * Records that the calling thread finished running the specified test in the specified amount
+     * of time.
+     */
+    public void reportTestFinished(TestContext testContext, long durationInMillis) {
+        this.testScheduler.reportTestFinished(testContext, durationInMillis);
+    }
+
+    /**
+     * Returns a report of the critical path of the tests run so far.
+     */
+    public String criticalPathReport(long wallClockInMillis) {
+        return this.testScheduler.criticalPathReport(wallClockInMillis);
     }
 
     /**
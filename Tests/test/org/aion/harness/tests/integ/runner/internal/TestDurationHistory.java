@@ -0,0 +1,130 @@
+package org.aion.harness.tests.integ.runner.internal;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.runner.Description;
+
+/**
+ * The durations of every test from the previous runs, persisted to a file between runs so that the
+ * {@link TestScheduler} can start the longest tests first.
+ *
+ * The file is a plain properties file mapping each test's display name to its duration in
+ * milliseconds. Its location is given by the {@code testDurationsFile} system property and defaults
+ * to {@code test-durations.properties} in the working directory.
+ *
+ * Tests that have never been run are estimated to take the average duration of all known tests.
+ *
+ * This class is thread-safe.
+ */
+public final class TestDurationHistory {
+    public static final String DURATIONS_FILE_PROPERTY = "testDurationsFile";
+    private static final String DEFAULT_DURATIONS_FILE = "test-durations.properties";
+
+    private final File file;
+    private final Map<String, Long> testToDurationInMillis = new ConcurrentHashMap<>();
+
+    private TestDurationHistory(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns an empty history that is never persisted. Every test is estimated to take zero time,
+     * so the tests are run in the order they are submitted.
+     */
+    public static TestDurationHistory empty() {
+        return new TestDurationHistory(null);
+    }
+
+    /**
+     * Returns the history loaded from the durations file. If the file does not exist or cannot be
+     * read then the history starts out empty, but will still be saved to that file.
+     */
+    public static TestDurationHistory load() {
+        String path = System.getProperty(DURATIONS_FILE_PROPERTY);
+        File file = (path == null)
+            ? new File(System.getProperty("user.dir"), DEFAULT_DURATIONS_FILE)
+            : new File(path);
+
+        TestDurationHistory history = new TestDurationHistory(file);
+        if (file.isFile()) {
+            Properties properties = new Properties();
+            try (Reader reader = new FileReader(file)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                // A missing or corrupt history only costs us the ordering, so we start over.
+                return history;
+            }
+
+            for (String test : properties.stringPropertyNames()) {
+                try {
+                    history.testToDurationInMillis.put(test, Long.parseLong(properties.getProperty(test).trim()));
+                } catch (NumberFormatException e) {
+                    // Skip this entry.
+                }
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Returns the last known duration of the specified test in milliseconds, or the mean of the
+     * known durations if the test has never been run.
+     *
+     * The estimate is never zero, even for an empty history, so that tests are spread across the
+     * workers by count when nothing is known about their durations.
+     */
+    public long estimatedDurationInMillis(Description test) {
+        Long duration = this.testToDurationInMillis.get(test.getDisplayName());
+        return Math.max(1, (duration == null) ? averageDurationInMillis() : duration);
+    }
+
+    /**
+     * Records the duration of the specified test, replacing any previous duration.
+     */
+    public void record(Description test, long durationInMillis) {
+        this.testToDurationInMillis.put(test.getDisplayName(), durationInMillis);
+    }
+
+    /**
+     * Writes the history back to its file. Does nothing for an empty history.
+     */
+    public void save() throws IOException {
+        if (this.file == null) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> entry : this.testToDurationInMillis.entrySet()) {
+            properties.setProperty(entry.getKey(), Long.toString(entry.getValue()));
+        }
+
+        File parent = this.file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create the directory for the test durations file: " + parent);
+        }
+        try (Writer writer = new FileWriter(this.file)) {
+            properties.store(writer, "Test durations in milliseconds, used to schedule the longest tests first.");
+        }
+    }
+
+    private long averageDurationInMillis() {
+        if (this.testToDurationInMillis.isEmpty()) {
+            return 0;
+        }
+
+        long total = 0;
+        int count = 0;
+        for (long duration : this.testToDurationInMillis.values()) {
+            total += duration;
+            count++;
+        }
+        return (count == 0) ? 0 : total / count;
+    }
+}
@@ -9,6 +9,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.aion.harness.main.NodeFactory.NodeType;
 import org.aion.harness.main.NodeListener;
 import org.aion.harness.main.event.JavaPrepackagedLogEvents;
@@ -39,16 +40,30 @@ public final class TestExecutor implements Runnable {
     private final TestAndResultQueueManager queueManager;
     private final NodeType nodeType;
     private final PreminedAccountFunder preminedDispatcher;
+    private final PreminedAccountPool preminedPool;
     private boolean alive;
 
     public TestExecutor(TestNodeManager nodeManager,
                         PreminedAccountFunder preminedDispatcher,
                         TestAndResultQueueManager queueManager,
                         NodeType nodeType) {
+        this(nodeManager, preminedDispatcher, null, queueManager, nodeType);
+    }
+
+    /**
+     * If preminedPool is not null then the pre-mined account rules are leased from this pool rather
+     * than funded by the dispatcher at the start of each test.
+     */
+    public TestExecutor(TestNodeManager nodeManager,
+                        PreminedAccountFunder preminedDispatcher,
+                        PreminedAccountPool preminedPool,
+                        TestAndResultQueueManager queueManager,
+                        NodeType nodeType) {
         this.nodeManagerForTests = nodeManager;
         this.queueManager = queueManager;
         this.nodeType = nodeType;
         this.preminedDispatcher = preminedDispatcher;
+        this.preminedPool = preminedPool;
         this.alive = true;
     }
 
@@ -72,7 +87,9 @@ public final class TestExecutor implements Runnable {
                         printTestStartBanner(testContext);
 
                         // Run the test and place the result in the outbound queue.
+                        long startTimeInNanos = System.nanoTime();
                         TestResult result = runTest(testContext);
+                        this.queueManager.reportTestFinished(testContext, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeInNanos));
 
                         printTestEndBanner();
 
@@ -251,6 +268,15 @@ public final class TestExecutor implements Runnable {
             // Grab the field instance and invoke the 'setPrivateKey' method.
             ruleField.setAccessible(true);
             Object fieldInstance = ruleField.get(testClassInstance);
+
+            // If we have a pool of already-funded accounts then just lease one out.
+            if (this.preminedPool != null) {
+                Method leaseMethod = fieldInstance.getClass().getDeclaredMethod("leaseFromPool", PreminedAccountPool.class);
+                leaseMethod.setAccessible(true);
+                leaseMethod.invoke(fieldInstance, this.preminedPool);
+                return;
+            }
+
             Method setKeyMethod = fieldInstance.getClass().getDeclaredMethod("setPrivateKey");
             setKeyMethod.setAccessible(true);
             setKeyMethod.invoke(fieldInstance);
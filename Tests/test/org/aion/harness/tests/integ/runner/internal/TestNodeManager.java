@@ -4,10 +4,24 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.aion.harness.main.LocalNode;
 import org.aion.harness.main.Network;
 import org.aion.harness.main.NodeConfigurations;
@@ -17,6 +31,8 @@ import org.aion.harness.main.NodeFactory.NodeType;
 import org.aion.harness.main.NodeListener;
 import org.aion.harness.result.Result;
 import org.aion.harness.tests.integ.runner.exception.TestRunnerInitializationException;
+import org.aion.harness.util.DatabaseSnapshots;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
 
 /**
@@ -30,24 +46,79 @@ public final class TestNodeManager {
     private final String expectedKernelLocation;
     private final String handedwrittenConfigs;
 
+    // The shard this node belongs to when running more than one node of the same type at once.
+    private final int shard;
+    private final String rpcPort;
+    private final String sourceKernelLocation;
+    private final boolean isolateLogs;
+
     private static final String WORKING_DIR = System.getProperty("user.dir");
+    private static final String SHARDS_DIR = WORKING_DIR + "/shards";
+    private static final String SNAPSHOTS_DIR = WORKING_DIR + "/snapshots";
+    private static final String BOOTSTRAP_DIR = WORKING_DIR + "/../tooling/customBootstrap";
+    private static final Set<String> SNAPSHOT_KEY_EXCLUDED_DIRS = Set.of("custom", "networks", "data", "database", "log", "logs");
+    private static final Set<String> SHARD_COPY_EXCLUDED_DIRS = Set.of("data", "database", "log", "logs");
+    private static final Map<NodeType, Object> SNAPSHOT_LOCKS = new ConcurrentHashMap<>();
     private static final long EXIT_LOCK_TIMEOUT = 3;
     private static final TimeUnit EXIT_LOCK_TIMEOUT_UNIT = TimeUnit.MINUTES;
 
     public TestNodeManager(NodeType nodeType) {
+        this(nodeType, 0, null);
+    }
+
+    /**
+     * Constructs a manager for the node of the given shard, listening on the given rpc port.
+     *
+     * Shard 0 uses the kernel in its usual location. Every other shard uses its own copy of that
+     * kernel (and therefore its own database) under the shards directory, and writes its logs to
+     * its own logs directory.
+     *
+     * If rpcPort is null then the {@code rpcPort} system property is used.
+     */
+    public TestNodeManager(NodeType nodeType, int shard, String rpcPort) {
+        this(nodeType, shard, rpcPort, shard != 0);
+    }
+
+    /**
+     * Same as above, except that if isolateLogs is true then the node writes its logs to its own
+     * logs directory even if it belongs to shard 0. This is required whenever nodes of different
+     * types are running at the same time.
+     */
+    public TestNodeManager(NodeType nodeType, int shard, String rpcPort, boolean isolateLogs) {
+        if (shard < 0) {
+            throw new IllegalArgumentException("The shard must be non-negative but was: " + shard);
+        }
+
         this.nodeType = nodeType;
+        this.shard = shard;
+        this.rpcPort = rpcPort;
+        this.isolateLogs = isolateLogs;
+
+        String kernelDirectoryName;
         if(nodeType == NodeType.RUST_NODE) {
-            this.expectedKernelLocation = WORKING_DIR + "/aionr";
+            kernelDirectoryName = "aionr";
             this.handedwrittenConfigs = WORKING_DIR + "/test_resources/rust_custom";
         } else if(nodeType == NodeType.JAVA_NODE) {
-            this.expectedKernelLocation = WORKING_DIR + "/oan";
+            kernelDirectoryName = "oan";
             this.handedwrittenConfigs = WORKING_DIR + "/test_resources/custom/config";
         } else if(nodeType == NodeType.PROXY_JAVA_NODE) {
-            this.expectedKernelLocation = WORKING_DIR + "/aionproxy";
+            kernelDirectoryName = "aionproxy";
             this.handedwrittenConfigs = WORKING_DIR + "/test_resources/proxy_java_custom";
         } else {
             throw new IllegalArgumentException("Unsupported kernel");
         }
+
+        this.sourceKernelLocation = WORKING_DIR + "/" + kernelDirectoryName;
+        this.expectedKernelLocation = (shard == 0)
+            ? this.sourceKernelLocation
+            : SHARDS_DIR + "/" + nodeType.name().toLowerCase() + "-" + shard + "/" + kernelDirectoryName;
+    }
+
+    /**
+     * Returns the port of the rpc server of the node managed by this manager.
+     */
+    public String getRpcPort() {
+        return (this.rpcPort == null) ? System.getProperty("rpcPort") : this.rpcPort;
     }
 
     /**
@@ -57,14 +128,22 @@ public final class TestNodeManager {
      */
     public void startLocalNode() throws Exception {
         if (this.localNode == null) {
+            // Every shard other than the first one runs its own copy of the kernel. This is normally
+            // already done by copyKernelForShards(), before any node was started.
+            if (this.shard != 0) {
+                copyKernelForShard(bootstrapSnapshotKey());
+            }
+
             // Verify the kernel is in the expected location and overwrite its config & genesis files.
             checkKernelExistsAndOverwriteConfigs();
 
-            setRpcPort(System.getProperty("rpcPort"));
+            setRpcPort(getRpcPort());
 
             // Initialize the node.
-            NodeConfigurations configurations = NodeConfigurations.alwaysUseBuiltKernel(
-                Network.CUSTOM, expectedKernelLocation, DatabaseOption.DO_NOT_PRESERVE_DATABASE);
+            NodeConfigurations configurations = (!this.isolateLogs)
+                ? NodeConfigurations.alwaysUseBuiltKernel(Network.CUSTOM, expectedKernelLocation, DatabaseOption.DO_NOT_PRESERVE_DATABASE)
+                : NodeConfigurations.alwaysUseBuiltKernel(Network.CUSTOM, expectedKernelLocation, DatabaseOption.DO_NOT_PRESERVE_DATABASE,
+                    WORKING_DIR + "/logs/" + nodeType.name().toLowerCase() + "-" + this.shard);
             LocalNode node = NodeFactory.getNewLocalNodeInstance(nodeType);
             node.configure(configurations);
 
@@ -73,15 +152,12 @@ public final class TestNodeManager {
                 throw new TestRunnerInitializationException("Failed to initialize the node: " + result.getError());
             }
 
-            // Start the node.
-            result = node.start();
-            if (!result.isSuccess()) {
-                throw new TestRunnerInitializationException("Failed to start the node: " + result.getError());
+            if (System.getProperty("skipDatabaseSnapshots") != null) {
+                startAndBootstrap(node);
+            } else {
+                startFromBootstrappedSnapshot(node);
             }
 
-            // Bootstrap should come after overwriting configs so they're the same for bootstrap and normal operation
-            UnityBootstrap.bootstrap(System.getProperty("rpcPort"));
-
             this.localNode = node;
         }
         else {
@@ -89,6 +165,138 @@ public final class TestNodeManager {
         }
     }
 
+    /**
+     * Starts the node from a snapshot of its database taken right after a previous bootstrap, so
+     * that the bootstrap does not have to be run again.
+     *
+     * If there is no snapshot yet for the current kernel, configs and bootstrap scripts, then the
+     * node is started and bootstrapped as usual, and is then briefly stopped so that its database
+     * can be snapshotted for next time. Nodes of the same type (ie. other shards) wait for this
+     * snapshot rather than bootstrapping themselves. Snapshots of this node type taken under any
+     * other key are deleted, so that at most one is kept per node type.
+     */
+    private void startFromBootstrappedSnapshot(LocalNode node) throws Exception {
+        String snapshotPrefix = nodeType.name().toLowerCase() + "-";
+        File snapshot = new File(SNAPSHOTS_DIR, snapshotPrefix + bootstrapSnapshotKey());
+
+        synchronized (snapshotLockOf(this.nodeType)) {
+            // Snapshots taken for an older kernel, config or bootstrap can never be used again.
+            DatabaseSnapshots.deleteOtherSnapshots(snapshot, snapshotPrefix);
+
+            if (!DatabaseSnapshots.exists(snapshot)) {
+                startAndBootstrap(node);
+
+                Result result = node.blockingStop(EXIT_LOCK_TIMEOUT, EXIT_LOCK_TIMEOUT_UNIT);
+                if (!result.isSuccess()) {
+                    throw new TestRunnerInitializationException("Failed to stop the node to snapshot its database: " + result.getError());
+                }
+
+                result = node.snapshotState(snapshot);
+                if (!result.isSuccess()) {
+                    throw new TestRunnerInitializationException("Failed to snapshot the node's database: " + result.getError());
+                }
+
+                startNode(node);
+                return;
+            }
+        }
+
+        Result result = node.restoreState(snapshot);
+        if (!result.isSuccess()) {
+            throw new TestRunnerInitializationException("Failed to restore the node's database: " + result.getError());
+        }
+        startNode(node);
+    }
+
+    private void startAndBootstrap(LocalNode node) throws Exception {
+        startNode(node);
+
+        // Bootstrap should come after overwriting configs so they're the same for bootstrap and normal operation
+        UnityBootstrap.bootstrap(getRpcPort());
+    }
+
+    private void startNode(LocalNode node) throws Exception {
+        Result result = node.start();
+        if (!result.isSuccess()) {
+            throw new TestRunnerInitializationException("Failed to start the node: " + result.getError());
+        }
+    }
+
+    /**
+     * Returns a key that changes whenever anything that could affect the bootstrapped database
+     * changes: the handwritten configs and genesis, the bootstrap tooling, or the kernel itself.
+     * The kernel's own config, database and log directories are excluded, since these change every
+     * time the node is run.
+     */
+    private String bootstrapSnapshotKey() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new TestRunnerInitializationException("SHA-256 is not available!", e);
+        }
+
+        digestContentsOf(digest, Paths.get(this.handedwrittenConfigs));
+        digestContentsOf(digest, Paths.get(BOOTSTRAP_DIR));
+
+        Path kernel = Paths.get(this.sourceKernelLocation);
+        for (Path path : kernelFilesOf(kernel, SNAPSHOT_KEY_EXCLUDED_DIRS)) {
+            Path relative = kernel.relativize(path);
+            if (Files.isRegularFile(path)) {
+                digest.update((relative + ":" + Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        return Hex.encodeHexString(digest.digest()).substring(0, 16);
+    }
+
+    /**
+     * Returns every file and directory under the given kernel, in sorted order, except for those
+     * under any of its top-level directories with the given names. The excluded directories are not
+     * walked at all, so that a node deleting its own database meanwhile cannot fail the walk.
+     */
+    private static List<Path> kernelFilesOf(Path kernel, Set<String> excludedTopLevelDirs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(kernel, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                Path relative = kernel.relativize(directory);
+                if ((relative.getNameCount() == 1) && excludedTopLevelDirs.contains(relative.getName(0).toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                files.add(directory);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+        return files;
+    }
+
+    private static void digestContentsOf(MessageDigest digest, Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted()::iterator) {
+                if (Files.isRegularFile(path)) {
+                    digest.update(directory.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update(Files.readAllBytes(path));
+                }
+            }
+        }
+    }
+
+    private static Object snapshotLockOf(NodeType nodeType) {
+        return SNAPSHOT_LOCKS.computeIfAbsent(nodeType, (type) -> new Object());
+    }
+
     /**
      * Stops a local node if one is currently running.
      */
@@ -146,6 +354,59 @@ public final class TestNodeManager {
         }
     }
 
+    /**
+     * Copies the kernel into the directory of every shard of the given node type other than the
+     * first, unless the copy is already up to date.
+     *
+     * This must be called before any node of this type is started, since the first shard's node
+     * deletes its database while it starts and the copy would otherwise race that.
+     */
+    public static void copyKernelForShards(NodeType nodeType, int numberOfShards) throws IOException {
+        if (numberOfShards < 2) {
+            return;
+        }
+
+        String kernelKey = new TestNodeManager(nodeType).bootstrapSnapshotKey();
+        for (int shard = 1; shard < numberOfShards; shard++) {
+            new TestNodeManager(nodeType, shard, null).copyKernelForShard(kernelKey);
+        }
+    }
+
+    /**
+     * Copies the kernel into this shard's directory, unless it was already copied from a kernel with
+     * the given key, which is the same key its database snapshots are taken under. Any older copy is
+     * deleted first, so that a rebuilt kernel always reaches every shard. The kernel's database and
+     * log directories are not copied. File attributes are preserved so that the copied executables
+     * remain executable.
+     */
+    private void copyKernelForShard(String kernelKey) throws IOException {
+        Path source = Paths.get(this.sourceKernelLocation);
+        Path target = Paths.get(this.expectedKernelLocation);
+        Path keyFile = target.resolveSibling(target.getFileName() + ".key");
+
+        if (Files.isDirectory(target) && Files.isRegularFile(keyFile) && kernelKey.equals(new String(Files.readAllBytes(keyFile), StandardCharsets.UTF_8))) {
+            return;
+        }
+        if (!Files.isDirectory(source)) {
+            throw new TestRunnerInitializationException("Expected to find a kernel at: " + this.sourceKernelLocation);
+        }
+
+        // The key is written last, so that an interrupted copy is redone next time.
+        Files.deleteIfExists(keyFile);
+        FileUtils.deleteDirectory(target.toFile());
+
+        for (Path path : kernelFilesOf(source, SHARD_COPY_EXCLUDED_DIRS)) {
+            Path destination = target.resolve(source.relativize(path).toString());
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectories(destination);
+            } else {
+                Files.copy(path, destination, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+            }
+        }
+
+        Files.write(keyFile, kernelKey.getBytes(StandardCharsets.UTF_8));
+    }
+
     private boolean kernelExists() {
         File kernel = new File(expectedKernelLocation);
         return kernel.exists() && kernel.isDirectory();
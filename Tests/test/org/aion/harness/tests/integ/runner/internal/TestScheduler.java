@@ -0,0 +1,219 @@
+package org.aion.harness.tests.integ.runner.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.aion.harness.tests.integ.runner.exception.UnexpectedTestRunnerException;
+
+/**
+ * Hands out the tests to the test executor threads, longest tests first, using a work-stealing
+ * scheme.
+ *
+ * Tests are collected until {@code close()} is called. The tests are then sorted by their
+ * estimated durations (taken from the {@link TestDurationHistory}), longest first, and each test is
+ * assigned to the worker whose total estimated load is currently the smallest. Each worker takes the
+ * tests from the front of its own deque, so it always runs its longest remaining test next. A
+ * worker whose deque is empty steals from the back of the most heavily loaded worker's deque, so
+ * that no thread sits idle while there is still work left, even if the estimates were wrong.
+ *
+ * Each executor thread is bound to a worker the first time it takes a test.
+ *
+ * The scheduler also keeps track of how long each worker spent running tests, so that it can report
+ * the critical path (the busiest worker) of the run.
+ *
+ * This class is thread-safe.
+ */
+public final class TestScheduler {
+    private final TestDurationHistory history;
+    private final int numWorkers;
+    private final List<ConcurrentLinkedDeque<TestContext>> workerDeques;
+    private final AtomicLongArray workerEstimatedLoadInMillis;
+    private final AtomicLongArray workerBusyTimeInMillis;
+
+    private final List<TestContext> submittedTests = new ArrayList<>();
+
+    // Estimated once, when the scheduler is closed, since the history changes as tests finish.
+    private final Map<TestContext, Long> testToEstimatedDurationInMillis = new IdentityHashMap<>();
+    private final CountDownLatch closedLatch = new CountDownLatch(1);
+    private final AtomicInteger nextWorker = new AtomicInteger(0);
+    private final ThreadLocal<Integer> workerOfThread = new ThreadLocal<>();
+
+    public TestScheduler(int numWorkers, TestDurationHistory history) {
+        if (numWorkers <= 0) {
+            throw new IllegalArgumentException("The number of workers must be positive but was: " + numWorkers);
+        }
+        if (history == null) {
+            throw new NullPointerException("Cannot construct a scheduler with a null history.");
+        }
+
+        this.history = history;
+        this.numWorkers = numWorkers;
+        this.workerDeques = new ArrayList<>(numWorkers);
+        for (int i = 0; i < numWorkers; i++) {
+            this.workerDeques.add(new ConcurrentLinkedDeque<>());
+        }
+        this.workerEstimatedLoadInMillis = new AtomicLongArray(numWorkers);
+        this.workerBusyTimeInMillis = new AtomicLongArray(numWorkers);
+    }
+
+    /**
+     * Submits a new test to be scheduled. No tests are handed out until {@code close()} is called.
+     */
+    public void submit(TestContext testContext) {
+        synchronized (this.submittedTests) {
+            if (this.closedLatch.getCount() == 0) {
+                throw new IllegalStateException("Attempted to submit a test to a closed scheduler!");
+            }
+            this.submittedTests.add(testContext);
+        }
+    }
+
+    /**
+     * Signals that no more tests will be submitted, assigns all of the submitted tests to the
+     * workers and begins handing them out.
+     */
+    public void close() {
+        synchronized (this.submittedTests) {
+            if (this.closedLatch.getCount() == 0) {
+                return;
+            }
+
+            // The sort is stable, so tests with equal estimates keep their submission order.
+            List<TestContext> tests = new ArrayList<>(this.submittedTests);
+            for (TestContext test : tests) {
+                this.testToEstimatedDurationInMillis.put(test, this.history.estimatedDurationInMillis(test.testDescription));
+            }
+            tests.sort(Comparator.comparingLong(this::estimatedDurationInMillis).reversed());
+
+            for (TestContext test : tests) {
+                int worker = leastLoadedWorker();
+                this.workerDeques.get(worker).addLast(test);
+                this.workerEstimatedLoadInMillis.addAndGet(worker, estimatedDurationInMillis(test));
+            }
+
+            this.submittedTests.clear();
+            this.closedLatch.countDown();
+        }
+    }
+
+    /**
+     * Returns the next test for the calling thread to run, blocking until the scheduler is closed.
+     *
+     * Returns null if there are no tests left to run.
+     */
+    public TestContext take() {
+        try {
+            this.closedLatch.await();
+        } catch (InterruptedException e) {
+            throw new UnexpectedTestRunnerException("Thread was interrupted!");
+        }
+
+        int worker = workerOfCurrentThread();
+        TestContext test = this.workerDeques.get(worker).pollFirst();
+        if (test == null) {
+            test = steal(worker);
+            if (test != null) {
+                this.workerEstimatedLoadInMillis.addAndGet(worker, estimatedDurationInMillis(test));
+            }
+        }
+        return test;
+    }
+
+    /**
+     * Records that the calling thread just finished running the specified test, which took the
+     * specified amount of time.
+     */
+    public void reportTestFinished(TestContext testContext, long durationInMillis) {
+        int worker = workerOfCurrentThread();
+        this.workerEstimatedLoadInMillis.addAndGet(worker, -estimatedDurationInMillis(testContext));
+        this.workerBusyTimeInMillis.addAndGet(worker, durationInMillis);
+        this.history.record(testContext.testDescription, durationInMillis);
+    }
+
+    /**
+     * Returns the time spent running tests by the busiest worker. This is a lower bound on the wall
+     * clock time of the run.
+     */
+    public long criticalPathInMillis() {
+        long max = 0;
+        for (int i = 0; i < this.numWorkers; i++) {
+            max = Math.max(max, this.workerBusyTimeInMillis.get(i));
+        }
+        return max;
+    }
+
+    /**
+     * Returns the total time spent running tests, summed across all workers.
+     */
+    public long totalBusyTimeInMillis() {
+        long total = 0;
+        for (int i = 0; i < this.numWorkers; i++) {
+            total += this.workerBusyTimeInMillis.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Returns a short human-readable report of the critical path of the run, given the wall clock
+     * time the whole run took.
+     */
+    public String criticalPathReport(long wallClockInMillis) {
+        long criticalPath = criticalPathInMillis();
+        long total = totalBusyTimeInMillis();
+        double efficiency = (wallClockInMillis == 0) ? 0 : ((double) total) / (((double) wallClockInMillis) * this.numWorkers);
+
+        return "Critical path: " + criticalPath + " ms | wall clock: " + wallClockInMillis + " ms | total test time: "
+            + total + " ms across " + this.numWorkers + " workers | worker utilization: "
+            + String.format("%.1f", efficiency * 100) + "%";
+    }
+
+    private TestContext steal(int thief) {
+        // Try the victims in order of their remaining estimated load, heaviest first.
+        List<Integer> victims = new ArrayList<>(this.numWorkers - 1);
+        for (int i = 0; i < this.numWorkers; i++) {
+            if (i != thief) {
+                victims.add(i);
+            }
+        }
+        victims.sort(Comparator.comparingLong((Integer i) -> this.workerEstimatedLoadInMillis.get(i)).reversed());
+
+        for (int victim : victims) {
+            TestContext stolen = this.workerDeques.get(victim).pollLast();
+            if (stolen != null) {
+                this.workerEstimatedLoadInMillis.addAndGet(victim, -estimatedDurationInMillis(stolen));
+                return stolen;
+            }
+        }
+        return null;
+    }
+
+    private int leastLoadedWorker() {
+        int leastLoaded = 0;
+        for (int i = 1; i < this.numWorkers; i++) {
+            if (this.workerEstimatedLoadInMillis.get(i) < this.workerEstimatedLoadInMillis.get(leastLoaded)) {
+                leastLoaded = i;
+            }
+        }
+        return leastLoaded;
+    }
+
+    private int workerOfCurrentThread() {
+        Integer worker = this.workerOfThread.get();
+        if (worker == null) {
+            worker = Math.floorMod(this.nextWorker.getAndIncrement(), this.numWorkers);
+            this.workerOfThread.set(worker);
+        }
+        return worker;
+    }
+
+    private long estimatedDurationInMillis(TestContext testContext) {
+        Long estimate = this.testToEstimatedDurationInMillis.get(testContext);
+        return (estimate == null) ? 1 : estimate;
+    }
+}